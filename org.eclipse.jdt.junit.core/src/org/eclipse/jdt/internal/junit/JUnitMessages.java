@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -50,6 +50,7 @@ public final class JUnitMessages extends NLS {
 	public static String JUnitLaunchConfigurationDelegate_verifying_attriburtes_description;
 
 	public static String TestRunnerViewPart_configName;
+	public static String TestRunSession_batchJobName;
 	public static String TestRunSession_unrootedTests;
 
 	public static String TestSearchEngine_message_searching;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -58,6 +58,13 @@ public class JUnitPreferencesConstants {
 	 */
 	public static final String MAX_TEST_RUNS= JUnitCorePlugin.PLUGIN_ID + ".max_test_runs"; //$NON-NLS-1$
 
+	/**
+	 * Interval in milliseconds in which changes of a running test session are
+	 * delivered to {@link org.eclipse.jdt.internal.junit.model.ITestSessionBatchListener}s.
+	 * 0 disables batching.
+	 */
+	public static final String BATCH_INTERVAL= JUnitCorePlugin.PLUGIN_ID + ".batch_interval"; //$NON-NLS-1$
+
 	/**
 	 * Javadoc location for JUnit 3
 	 */
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
+
+/**
+ * A test session listener that receives the changes of individual tests in batches.
+ * <p>
+ * While a test run is being executed, {@link #testAdded(TestElement)},
+ * {@link #testStarted(TestCaseElement)}, {@link #testEnded(TestCaseElement)} and
+ * {@link #testFailed(TestElement, TestElement.Status, String, String, String)} are
+ * not sent to batch listeners. Instead, the changes are collected and delivered by
+ * {@link #testsChanged(TestSessionDelta)} at most once per batch interval
+ * (see {@link JUnitPreferencesConstants#BATCH_INTERVAL}). All pending changes are
+ * delivered before any other callback. If the batch interval is 0, batch listeners
+ * are notified like ordinary listeners.
+ * </p>
+ * <p>
+ * Batches are delivered from the thread that receives the test events or from a
+ * background job, but never concurrently.
+ * </p>
+ */
+public interface ITestSessionBatchListener extends ITestSessionListener {
+
+	/**
+	 * Tests have been added, started, ended or have failed.
+	 *
+	 * @param delta the changes since the last batch, never empty
+	 */
+	public void testsChanged(TestSessionDelta delta);
+
+}
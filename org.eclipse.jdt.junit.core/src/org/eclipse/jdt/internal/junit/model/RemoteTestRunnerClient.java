@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.junit.model;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -27,12 +30,18 @@ import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.SafeRunner;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageIds;
 import org.eclipse.jdt.internal.junit.runner.MessageIds;
 import org.eclipse.jdt.internal.junit.runner.RemoteTestRunner;
 
 /**
  * The client side of the RemoteTestRunner. Handles the
  * marshaling of the different messages.
+ * <p>
+ * Depending on the first bytes sent by the RemoteTestRunner, the messages
+ * are read using the binary protocol described in {@link BinaryMessageIds}
+ * or the text protocol described in {@link MessageIds}.
+ * </p>
  */
 public class RemoteTestRunnerClient {
 	
@@ -68,19 +77,7 @@ public class RemoteTestRunnerClient {
 	        }
 	        String arg= message.substring(MessageIds.MSG_HEADER_LENGTH);
 	        if (message.startsWith(MessageIds.TEST_RUN_START)) {
-	            // version < 2 format: count
-	            // version >= 2 format: count+" "+version
-	            int count= 0;
-	            int v= arg.indexOf(' ');
-	            if (v == -1) {
-	                fVersion= "v1"; //$NON-NLS-1$
-	                count= Integer.parseInt(arg);
-	            } else {
-	                fVersion= arg.substring(v+1);
-	                String sc= arg.substring(0, v);
-	                count= Integer.parseInt(sc);
-	            }
-	            notifyTestRunStarted(count);
+	            scanTestRunStartMessage(arg);
 	            return this;
 	        }
 	        if (message.startsWith(MessageIds.TEST_START)) {
@@ -115,10 +112,7 @@ public class RemoteTestRunnerClient {
 	            return this;
 	        }
 	        if (message.startsWith(MessageIds.TEST_RERAN)) {
-	            if (hasTestId())
-	                scanReranMessage(arg);
-	            else
-	                scanOldReranMessage(arg);
+	            scanReranMessages(arg);
 	            return this;
 	        }
 	        return this;
@@ -220,6 +214,18 @@ public class RemoteTestRunnerClient {
 	private int fPort= -1;
 	private PrintWriter fWriter;
 	private PushbackReader fPushbackReader;
+	/**
+	 * The input stream if the binary protocol is used
+	 */
+	private DataInputStream fDataInputStream;
+	/**
+	 * The buffer to which data frames of the binary protocol are appended, or <code>null</code>
+	 */
+	private StringBuffer fDataBuffer;
+	/**
+	 * Buffer for reading strings of the binary protocol
+	 */
+	private byte[] fFrameBuffer= new byte[256];
 	private String fLastLineDelimiter;
 	/**
 	 * The protocol version
@@ -257,19 +263,25 @@ public class RemoteTestRunnerClient {
 					System.out.println("Creating server socket "+fServerPort); //$NON-NLS-1$
 				fServerSocket= new ServerSocket(fServerPort);
 				fSocket= fServerSocket.accept();
-				try {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream(), "UTF-8"))); //$NON-NLS-1$
-				} catch (UnsupportedEncodingException e) {
-				    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(fSocket.getInputStream())));
-				}
 				try {
 				    fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream(), "UTF-8"), true); //$NON-NLS-1$
 	            } catch (UnsupportedEncodingException e1) {
 	                fWriter= new PrintWriter(new OutputStreamWriter(fSocket.getOutputStream()), true);
 	            }
-				String message;
-				while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
-					receiveMessage(message);
+				InputStream in= new BufferedInputStream(fSocket.getInputStream(), 8192);
+				if (isBinaryProtocol(in)) {
+					fDataInputStream= new DataInputStream(in);
+					readFrames();
+				} else {
+					try {
+					    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(in, "UTF-8"))); //$NON-NLS-1$
+					} catch (UnsupportedEncodingException e) {
+					    fPushbackReader= new PushbackReader(new BufferedReader(new InputStreamReader(in)));
+					}
+					String message;
+					while(fPushbackReader != null && (message= readMessage(fPushbackReader)) != null)
+						receiveMessage(message);
+				}
 			} catch (SocketException e) {
 				notifyTestRunTerminated();
 			} catch (IOException e) {
@@ -325,6 +337,13 @@ public class RemoteTestRunnerClient {
 			}
 		} catch(IOException e) {
 		}
+		try {
+			if (fDataInputStream != null) {
+				fDataInputStream.close();
+				fDataInputStream= null;
+			}
+		} catch(IOException e) {
+		}
 		try {
 			if (fSocket != null) {
 				fSocket.close();
@@ -375,6 +394,152 @@ public class RemoteTestRunnerClient {
 	    fCurrentState= fCurrentState.readMessage(message);
 	}
 
+	/**
+	 * Checks whether the test runner announces the binary protocol. If not, the
+	 * stream is reset to its beginning.
+	 *
+	 * @param in the input stream from the test runner
+	 * @return <code>true</code> if the binary protocol is used
+	 * @throws IOException if reading fails
+	 */
+	private static boolean isBinaryProtocol(InputStream in) throws IOException {
+		byte[] magic= BinaryMessageIds.MAGIC;
+		in.mark(magic.length);
+		for (int i= 0; i < magic.length; i++) {
+			if (in.read() != magic[i]) {
+				in.reset();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads and dispatches the frames of the binary protocol until the end of
+	 * the stream is reached or this client is shut down.
+	 *
+	 * @throws IOException if reading fails
+	 */
+	private void readFrames() throws IOException {
+		DataInputStream in;
+		while ((in= fDataInputStream) != null) {
+			int opcode= in.read();
+			if (opcode == -1)
+				return;
+			if (opcode == BinaryMessageIds.TREE_ENTRIES) {
+				int count= in.readInt();
+				for (int i= 0; i < count; i++)
+					notifyTestTreeEntry(readString(in));
+			} else {
+				receiveFrame(opcode, readString(in));
+			}
+		}
+	}
+
+	private String readString(DataInputStream in) throws IOException {
+		int length= in.readInt();
+		if (length == 0)
+			return ""; //$NON-NLS-1$
+		if (fFrameBuffer.length < length)
+			fFrameBuffer= new byte[Math.max(length, 2 * fFrameBuffer.length)];
+		in.readFully(fFrameBuffer, 0, length);
+		return new String(fFrameBuffer, 0, length, "UTF-8"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Processes a frame of the binary protocol.
+	 *
+	 * @param opcode the opcode, see {@link BinaryMessageIds}
+	 * @param arg the argument of the corresponding text message
+	 */
+	private void receiveFrame(int opcode, String arg) {
+		switch (opcode) {
+			case BinaryMessageIds.DATA:
+				if (fDataBuffer != null)
+					fDataBuffer.append(arg);
+				break;
+			case BinaryMessageIds.TRACE_START:
+				fFailedTrace.setLength(0);
+				fDataBuffer= fFailedTrace;
+				break;
+			case BinaryMessageIds.EXPECTED_START:
+				fExpectedResult.setLength(0);
+				fDataBuffer= fExpectedResult;
+				break;
+			case BinaryMessageIds.ACTUAL_START:
+				fActualResult.setLength(0);
+				fDataBuffer= fActualResult;
+				break;
+			case BinaryMessageIds.RTRACE_START:
+				fFailedRerunTrace.setLength(0);
+				fDataBuffer= fFailedRerunTrace;
+				break;
+			case BinaryMessageIds.TRACE_END:
+				fDataBuffer= null;
+				notifyTestFailed();
+				fFailedTrace.setLength(0);
+				fActualResult.setLength(0);
+				fExpectedResult.setLength(0);
+				break;
+			case BinaryMessageIds.EXPECTED_END:
+			case BinaryMessageIds.ACTUAL_END:
+			case BinaryMessageIds.RTRACE_END:
+				fDataBuffer= null;
+				break;
+			case BinaryMessageIds.TEST_RUN_START:
+				scanTestRunStartMessage(arg);
+				break;
+			case BinaryMessageIds.TEST_START:
+				notifyTestStarted(arg);
+				break;
+			case BinaryMessageIds.TEST_END:
+				notifyTestEnded(arg);
+				break;
+			case BinaryMessageIds.TEST_ERROR:
+				extractFailure(arg, ITestRunListener2.STATUS_ERROR);
+				break;
+			case BinaryMessageIds.TEST_FAILED:
+				extractFailure(arg, ITestRunListener2.STATUS_FAILURE);
+				break;
+			case BinaryMessageIds.TEST_RUN_END:
+				testRunEnded(Long.parseLong(arg));
+				break;
+			case BinaryMessageIds.TEST_STOPPED:
+				notifyTestRunStopped(Long.parseLong(arg));
+				shutDown();
+				break;
+			case BinaryMessageIds.TEST_TREE:
+				notifyTestTreeEntry(arg);
+				break;
+			case BinaryMessageIds.TEST_RERAN:
+				scanReranMessages(arg);
+				break;
+		}
+	}
+
+	private void scanTestRunStartMessage(String arg) {
+		// version < 2 format: count
+		// version >= 2 format: count+" "+version
+		int count= 0;
+		int v= arg.indexOf(' ');
+		if (v == -1) {
+			fVersion= "v1"; //$NON-NLS-1$
+			count= Integer.parseInt(arg);
+		} else {
+			fVersion= arg.substring(v+1);
+			String sc= arg.substring(0, v);
+			count= Integer.parseInt(sc);
+		}
+		notifyTestRunStarted(count);
+	}
+
+	private void scanReranMessages(String arg) {
+		if (hasTestId())
+			scanReranMessage(arg);
+		else
+			scanOldReranMessage(arg);
+	}
+
 	private void scanOldReranMessage(String arg) {
 		// OLD V1 format
 		// format: className" "testName" "status
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -171,6 +171,11 @@ public abstract class TestElement implements ITestElement {
 	private String fTrace;
 	private String fExpected;
 	private String fActual;
+	/**
+	 * The failure trace, expected and actual values if they have not been
+	 * read from a {@link TestRunSessionStore} yet, or <code>null</code>.
+	 */
+	private TestRunSessionStore.LazyFailure fLazyFailure;
 
 	private boolean fAssumptionFailed;
 
@@ -241,8 +246,8 @@ public abstract class TestElement implements ITestElement {
 	public FailureTrace getFailureTrace() {
 		Result testResult= getTestResult(false);
 		if (testResult == Result.ERROR || testResult == Result.FAILURE
-				|| (testResult == Result.IGNORED && fTrace != null)) {
-			return new FailureTrace(fTrace, fExpected, fActual);
+				|| (testResult == Result.IGNORED && getTrace() != null)) {
+			return new FailureTrace(getTrace(), getExpected(), getActual());
 		}
 		return null;
 	}
@@ -283,6 +288,7 @@ public abstract class TestElement implements ITestElement {
 	}
 
 	public void setStatus(Status status, String trace, String expected, String actual) {
+		loadLazyFailure();
 		if (trace != null && fTrace != null) {
 			//don't overwrite first trace if same test run logs multiple errors
 			fTrace= fTrace + trace;
@@ -294,24 +300,52 @@ public abstract class TestElement implements ITestElement {
 		setStatus(status);
 	}
 
+	/**
+	 * Sets the status and a failure trace that is only read from the store
+	 * when it is needed.
+	 *
+	 * @param status the status
+	 * @param failure the stored failure trace, or <code>null</code>
+	 */
+	void setStatus(Status status, TestRunSessionStore.LazyFailure failure) {
+		fTrace= null;
+		fExpected= null;
+		fActual= null;
+		fLazyFailure= failure;
+		setStatus(status);
+	}
+
+	private synchronized void loadLazyFailure() {
+		if (fLazyFailure != null) {
+			String[] failure= fLazyFailure.load();
+			fTrace= failure[0];
+			fExpected= failure[1];
+			fActual= failure[2];
+			fLazyFailure= null;
+		}
+	}
+
 	public Status getStatus() {
 		return fStatus;
 	}
 
 	public String getTrace() {
+		loadLazyFailure();
 		return fTrace;
 	}
 
 	public String getExpected() {
+		loadLazyFailure();
 		return fExpected;
 	}
 
 	public String getActual() {
+		loadLazyFailure();
 		return fActual;
 	}
 
 	public boolean isComparisonFailure() {
-		return fExpected != null && fActual != null;
+		return getExpected() != null && getActual() != null;
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@
 package org.eclipse.jdt.internal.junit.model;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -26,7 +27,11 @@ import org.eclipse.jdt.junit.model.ITestRunSession;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
@@ -39,6 +44,7 @@ import org.eclipse.jdt.core.IJavaProject;
 
 import org.eclipse.jdt.internal.junit.JUnitCorePlugin;
 import org.eclipse.jdt.internal.junit.JUnitMessages;
+import org.eclipse.jdt.internal.junit.JUnitPreferencesConstants;
 import org.eclipse.jdt.internal.junit.Messages;
 import org.eclipse.jdt.internal.junit.launcher.ITestKind;
 import org.eclipse.jdt.internal.junit.launcher.JUnitLaunchConfigurationConstants;
@@ -98,6 +104,17 @@ public class TestRunSession implements ITestRunSession {
 	 */
 	private TestSuiteElement fUnrootedSuite;
 
+	/**
+	 * The store that records the test tree while the test run is executing,
+	 * or <code>null</code>.
+	 */
+	private TestRunSessionStore fStore;
+
+	/**
+	 * <code>true</code> iff the swap file holds the current test tree.
+	 */
+	private boolean fStoreComplete;
+
  	/**
  	 * Number of tests started during this test run.
  	 */
@@ -134,6 +151,33 @@ public class TestRunSession implements ITestRunSession {
 
 	volatile boolean fIsStopped;
 
+	/**
+	 * Interval in which changes are delivered to {@link ITestSessionBatchListener}s,
+	 * 0 if batching is disabled.
+	 */
+	private long fBatchInterval;
+	/**
+	 * Changes not yet delivered to {@link ITestSessionBatchListener}s, or <code>null</code>.
+	 * Guarded by <code>fBatchLock</code>.
+	 */
+	private TestSessionDelta fPendingDelta;
+	/**
+	 * Time of the last batch delivery, guarded by <code>fBatchLock</code>.
+	 */
+	private long fLastBatchTime;
+	/**
+	 * Whether {@link #fBatchJob} is scheduled, guarded by <code>fBatchLock</code>.
+	 */
+	private boolean fBatchJobScheduled;
+	/**
+	 * Lock for batch delivery. Batch listeners are notified while holding this lock.
+	 */
+	private final Object fBatchLock= new Object();
+	/**
+	 * Delivers pending changes if no further test events arrive.
+	 */
+	private final Job fBatchJob= createBatchJob();
+
 
 	/**
 	 * Creates a test run session.
@@ -362,9 +406,15 @@ public class TestRunSession implements ITestRunSession {
 		}
 
 		try {
-			File swapFile= getSwapFile();
+			if (fStore != null) {
+				fStore.abort();
+				fStore= null;
+			}
+			if (! fStoreComplete) {
+				TestRunSessionStore.write(this, getSwapFile());
+				fStoreComplete= true;
+			}
 
-			JUnitModel.exportTestRunSession(this, swapFile);
 			fTestResult= fTestRoot.getTestResult(true);
 			fTestRoot= null;
 			fTestRunnerClient= null;
@@ -374,7 +424,7 @@ public class TestRunSession implements ITestRunSession {
 
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
-		} catch (CoreException e) {
+		} catch (IOException e) {
 			JUnitCorePlugin.log(e);
 		}
 	}
@@ -385,6 +435,15 @@ public class TestRunSession implements ITestRunSession {
 
 
 	public void removeSwapFile() {
+		synchronized (this) {
+			if (fStore != null) {
+				fStore.abort();
+				fStore= null;
+			}
+			fStoreComplete= false;
+			if (fTestRoot != null)
+				loadFailures(fTestRoot);
+		}
 		File swapFile= getSwapFile();
 		if (swapFile.exists())
 			swapFile.delete();
@@ -393,7 +452,7 @@ public class TestRunSession implements ITestRunSession {
 	private File getSwapFile() throws IllegalStateException {
 		File historyDir= JUnitCorePlugin.getHistoryDirectory();
 		String isoTime= new SimpleDateFormat("yyyyMMdd-HHmmss.SSS").format(new Date(getStartTime())); //$NON-NLS-1$
-		String swapFileName= isoTime + ".xml"; //$NON-NLS-1$
+		String swapFileName= isoTime + ".bin"; //$NON-NLS-1$
 		return new File(historyDir, swapFileName);
 	}
 
@@ -402,16 +461,23 @@ public class TestRunSession implements ITestRunSession {
 		if (fTestRoot != null)
 			return;
 
+		fTestRoot= new TestRoot(this);
+		fIdToTest= new HashMap();
 		try {
-			JUnitModel.importIntoTestRunSession(getSwapFile(), this);
+			TestRunSessionStore.read(getSwapFile(), this);
+			fTestResult= null;
 		} catch (IllegalStateException e) {
 			JUnitCorePlugin.log(e);
 			fTestRoot= new TestRoot(this);
+			fIdToTest= new HashMap();
 			fTestResult= null;
-		} catch (CoreException e) {
+			fStoreComplete= false;
+		} catch (IOException e) {
 			JUnitCorePlugin.log(e);
 			fTestRoot= new TestRoot(this);
+			fIdToTest= new HashMap();
 			fTestResult= null;
+			fStoreComplete= false;
 		}
 	}
 
@@ -540,6 +606,7 @@ public class TestRunSession implements ITestRunSession {
 			testElement= new TestCaseElement(parent, id, testName);
 		}
 		fIdToTest.put(id, testElement);
+		recordAdd(testElement);
 		return testElement;
 	}
 
@@ -590,6 +657,14 @@ public class TestRunSession implements ITestRunSession {
 
 			fStartTime= System.currentTimeMillis();
 			fIsRunning= true;
+			openStore();
+
+			synchronized (fBatchLock) {
+				fBatchInterval= Math.max(0, Platform.getPreferencesService().getInt(JUnitCorePlugin.CORE_PLUGIN_ID, JUnitPreferencesConstants.BATCH_INTERVAL, 100, null));
+				fPendingDelta= null;
+				fLastBatchTime= 0;
+				fBatchJobScheduled= false;
+			}
 
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
@@ -599,6 +674,8 @@ public class TestRunSession implements ITestRunSession {
 
 		public void testRunEnded(long elapsedTime) {
 			fIsRunning= false;
+			endBatching();
+			closeStore();
 
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
@@ -609,6 +686,8 @@ public class TestRunSession implements ITestRunSession {
 		public void testRunStopped(long elapsedTime) {
 			fIsRunning= false;
 			fIsStopped= true;
+			endBatching();
+			closeStore();
 
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
@@ -619,6 +698,8 @@ public class TestRunSession implements ITestRunSession {
 		public void testRunTerminated() {
 			fIsRunning= false;
 			fIsStopped= true;
+			endBatching();
+			closeStore();
 
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
@@ -631,21 +712,13 @@ public class TestRunSession implements ITestRunSession {
 		 */
 		public void testTreeEntry(String description) {
 			TestElement testElement= addTreeEntry(description);
-
-			Object[] listeners= fSessionListeners.getListeners();
-			for (int i= 0; i < listeners.length; ++i) {
-				((ITestSessionListener) listeners[i]).testAdded(testElement);
-			}
+			fireTestAdded(testElement);
 		}
 
 		private TestElement createUnrootedTestElement(String testId, String testName) {
 			TestSuiteElement unrootedSuite= getUnrootedSuite();
 			TestElement testElement= createTestElement(unrootedSuite, testId, testName, false, 1);
-
-			Object[] listeners= fSessionListeners.getListeners();
-			for (int i= 0; i < listeners.length; ++i) {
-				((ITestSessionListener) listeners[i]).testAdded(testElement);
-			}
+			fireTestAdded(testElement);
 
 			return testElement;
 		}
@@ -659,6 +732,7 @@ public class TestRunSession implements ITestRunSession {
 
 		public void testStarted(String testId, String testName) {
 			if (fStartedCount == 0) {
+				flushPendingDelta();
 				Object[] listeners= fSessionListeners.getListeners();
 				for (int i= 0; i < listeners.length; ++i) {
 					((ITestSessionListener) listeners[i]).runningBegins();
@@ -678,7 +752,14 @@ public class TestRunSession implements ITestRunSession {
 
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
-				((ITestSessionListener) listeners[i]).testStarted(testCaseElement);
+				if (!isBatching(listeners[i]))
+					((ITestSessionListener) listeners[i]).testStarted(testCaseElement);
+			}
+			if (fBatchInterval > 0) {
+				synchronized (fBatchLock) {
+					getPendingDelta().testStarted(testCaseElement);
+					pendingDeltaChanged();
+				}
 			}
 		}
 
@@ -693,6 +774,7 @@ public class TestRunSession implements ITestRunSession {
 					testElement.setAssumptionFailed(true);
 					fAssumptionFailureCount++;
 					setStatus(testElement, Status.OK);
+					recordChange(testElement);
 				} else {
 					logUnexpectedTest(testId, testElement);
 				}
@@ -706,10 +788,18 @@ public class TestRunSession implements ITestRunSession {
 
 			if (testCaseElement.getStatus() == Status.RUNNING)
 				setStatus(testCaseElement, Status.OK);
+			recordChange(testCaseElement);
 
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
-				((ITestSessionListener) listeners[i]).testEnded(testCaseElement);
+				if (!isBatching(listeners[i]))
+					((ITestSessionListener) listeners[i]).testEnded(testCaseElement);
+			}
+			if (fBatchInterval > 0) {
+				synchronized (fBatchLock) {
+					getPendingDelta().testEnded(testCaseElement);
+					pendingDeltaChanged();
+				}
 			}
 		}
 
@@ -733,10 +823,19 @@ public class TestRunSession implements ITestRunSession {
 			}
 
 			registerTestFailureStatus(testElement, status, trace, expected, actual);
+			if (! (testElement instanceof TestCaseElement))
+				recordChange(testElement); // test cases are recorded when they end
 
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
-				((ITestSessionListener) listeners[i]).testFailed(testElement, status, trace, expected, actual);
+				if (!isBatching(listeners[i]))
+					((ITestSessionListener) listeners[i]).testFailed(testElement, status, trace, expected, actual);
+			}
+			if (fBatchInterval > 0) {
+				synchronized (fBatchLock) {
+					getPendingDelta().testFailed(testElement);
+					pendingDeltaChanged();
+				}
 			}
 		}
 
@@ -755,7 +854,9 @@ public class TestRunSession implements ITestRunSession {
 
 			Status status= Status.convert(statusCode);
 			registerTestFailureStatus(testElement, status, trace, expectedResult, actualResult);
+			recordChange(testElement);
 
+			flushPendingDelta();
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
 				//TODO: post old & new status?
@@ -763,6 +864,20 @@ public class TestRunSession implements ITestRunSession {
 			}
 		}
 
+		private void fireTestAdded(TestElement testElement) {
+			Object[] listeners= fSessionListeners.getListeners();
+			for (int i= 0; i < listeners.length; ++i) {
+				if (!isBatching(listeners[i]))
+					((ITestSessionListener) listeners[i]).testAdded(testElement);
+			}
+			if (fBatchInterval > 0) {
+				synchronized (fBatchLock) {
+					getPendingDelta().testAdded(testElement);
+					pendingDeltaChanged();
+				}
+			}
+		}
+
 		private void logUnexpectedTest(String testId, TestElement testElement) {
 			JUnitCorePlugin.log(new Exception("Unexpected TestElement type for testId '" + testId + "': " + testElement)); //$NON-NLS-1$ //$NON-NLS-2$
 		}
@@ -778,6 +893,150 @@ public class TestRunSession implements ITestRunSession {
 		}
 	}
 
+	/**
+	 * Starts recording the test tree into the swap file.
+	 */
+	private synchronized void openStore() {
+		if (fStore != null)
+			fStore.abort();
+		fStoreComplete= false;
+		if (fTestRoot != null)
+			loadFailures(fTestRoot);
+		try {
+			fStore= TestRunSessionStore.create(getSwapFile());
+		} catch (IOException e) {
+			// not fatal: the test tree is written when the session is swapped out
+			JUnitCorePlugin.log(e);
+			fStore= null;
+		}
+	}
+
+	/**
+	 * Reads the failure traces which swapped-in test elements still read lazily
+	 * from the swap file, so that the swap file can be deleted or recreated.
+	 *
+	 * @param element the root of the test elements
+	 */
+	private static void loadFailures(TestElement element) {
+		element.getTrace();
+		if (element instanceof TestSuiteElement) {
+			ITestElement[] children= ((TestSuiteElement) element).getChildren();
+			for (int i= 0; i < children.length; i++)
+				loadFailures((TestElement) children[i]);
+		}
+	}
+
+	/**
+	 * Records the given new test element in the store, if the test tree is being recorded.
+	 *
+	 * @param testElement the added test element
+	 */
+	private synchronized void recordAdd(TestElement testElement) {
+		if (fStore != null)
+			fStore.elementAdded(testElement);
+	}
+
+	/**
+	 * Records the current state of the given test element in the store. If the
+	 * test run has already ended, the swap file becomes outdated.
+	 *
+	 * @param testElement the changed test element
+	 */
+	private synchronized void recordChange(TestElement testElement) {
+		if (fStore != null)
+			fStore.elementChanged(testElement);
+		else
+			fStoreComplete= false;
+	}
+
+	private synchronized void closeStore() {
+		if (fStore != null) {
+			fStoreComplete= fStore.close(fTestRoot);
+			fStore= null;
+		}
+	}
+
+	private Job createBatchJob() {
+		Job job= new Job(JUnitMessages.TestRunSession_batchJobName) {
+			protected IStatus run(IProgressMonitor monitor) {
+				synchronized (fBatchLock) {
+					fBatchJobScheduled= false;
+					deliverPendingDelta();
+				}
+				return org.eclipse.core.runtime.Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		return job;
+	}
+
+	private boolean isBatching(Object listener) {
+		return fBatchInterval > 0 && listener instanceof ITestSessionBatchListener;
+	}
+
+	/**
+	 * Returns the pending delta. Must be called while holding <code>fBatchLock</code>.
+	 *
+	 * @return the pending delta, never <code>null</code>
+	 */
+	private TestSessionDelta getPendingDelta() {
+		if (fPendingDelta == null)
+			fPendingDelta= new TestSessionDelta();
+		return fPendingDelta;
+	}
+
+	/**
+	 * Delivers the pending delta if the batch interval has elapsed, or makes
+	 * sure it gets delivered later. Must be called while holding <code>fBatchLock</code>.
+	 */
+	private void pendingDeltaChanged() {
+		long sinceLastBatch= System.currentTimeMillis() - fLastBatchTime;
+		if (sinceLastBatch >= fBatchInterval) {
+			deliverPendingDelta();
+		} else if (!fBatchJobScheduled) {
+			fBatchJobScheduled= true;
+			fBatchJob.schedule(fBatchInterval - sinceLastBatch);
+		}
+	}
+
+	/**
+	 * Delivers the pending delta to the batch listeners. Must be called while
+	 * holding <code>fBatchLock</code>.
+	 */
+	private void deliverPendingDelta() {
+		TestSessionDelta delta= fPendingDelta;
+		fPendingDelta= null;
+		fLastBatchTime= System.currentTimeMillis();
+		if (delta == null || delta.isEmpty())
+			return;
+
+		Object[] listeners= fSessionListeners.getListeners();
+		for (int i= 0; i < listeners.length; ++i) {
+			if (listeners[i] instanceof ITestSessionBatchListener)
+				((ITestSessionBatchListener) listeners[i]).testsChanged(delta);
+		}
+	}
+
+	/**
+	 * Delivers all pending changes, so that they reach the batch listeners before
+	 * the next callback that is not batched.
+	 */
+	private void flushPendingDelta() {
+		if (fBatchInterval <= 0)
+			return;
+		synchronized (fBatchLock) {
+			deliverPendingDelta();
+		}
+	}
+
+	private void endBatching() {
+		flushPendingDelta();
+		synchronized (fBatchLock) {
+			fBatchJob.cancel();
+			fBatchJobScheduled= false;
+		}
+	}
+
 	public void registerTestFailureStatus(TestElement testElement, Status status, String trace, String expected, String actual) {
 		testElement.setStatus(status, trace, expected, actual);
 		if (!testElement.isAssumptionFailure()) {
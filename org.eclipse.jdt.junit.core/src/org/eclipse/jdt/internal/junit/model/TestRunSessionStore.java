@@ -0,0 +1,463 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.eclipse.jdt.junit.model.ITestElement;
+
+import org.eclipse.jdt.internal.junit.model.TestElement.Status;
+
+/**
+ * Compact binary store for the test tree of a {@link TestRunSession} that has
+ * been swapped out of memory.
+ * <p>
+ * The store is a journal: while a test run is executing, the session appends a
+ * record for every test element that gets added and for every element whose state
+ * changes. Reading the store replays the records in order, so a later record for an
+ * element overrides an earlier one. Sessions that were not recorded while running
+ * (e.g. imported ones) are written in one pass by {@link #write(TestRunSession, File)}.
+ * </p>
+ * <p>
+ * Test names are split into a name and a class name part, which are stored only
+ * once in a string table. Failure traces are stored inline, but they are only read
+ * from the store file when a swapped-in test element asks for them. The store file is
+ * not kept open in the meantime. A store file with unread failure traces must not be
+ * overwritten or deleted: {@link #write(TestRunSession, File)} replaces the file only
+ * after it has read all failure traces, and the session loads them before it deletes
+ * or recreates the file.
+ * </p>
+ * <p>
+ * The XML format of {@link TestRunSessionSerializer} and {@link TestRunHandler}
+ * is still used to import and export test runs.
+ * </p>
+ */
+public class TestRunSessionStore {
+
+	private static final byte VERSION= 1;
+	private static final byte[] MAGIC= { 0, 'J', 'S', VERSION };
+
+	/**
+	 * Adds a string to the string table: int length, UTF-8 bytes.
+	 */
+	private static final byte STRING= 1;
+	/**
+	 * Adds a test element: int parent index (-1 for the root), int name index,
+	 * int class name index (-1 if none), boolean isSuite.
+	 */
+	private static final byte ELEMENT= 2;
+	/**
+	 * Sets the state of a test element: int element index, byte status code,
+	 * byte flags, double elapsed time, followed by the strings announced in the flags.
+	 */
+	private static final byte STATE= 3;
+
+	private static final int IGNORED= 1;
+	private static final int ASSUMPTION_FAILED= 2;
+	private static final int HAS_EXPECTED= 4;
+	private static final int HAS_ACTUAL= 8;
+	private static final int HAS_TRACE= 16;
+
+	/**
+	 * Status values, indexed by {@link Status#getOldCode()}.
+	 */
+	private static final Status[] STATUS= {
+		Status.OK,
+		Status.ERROR,
+		Status.FAILURE,
+		Status.RUNNING,
+		Status.NOT_RUN,
+		Status.RUNNING_ERROR,
+		Status.RUNNING_FAILURE,
+	};
+
+	private static final String UTF_8= "UTF-8"; //$NON-NLS-1$
+
+	/**
+	 * A failure trace that is read from the store on demand.
+	 */
+	static class LazyFailure {
+		private final File fFile;
+		private final int fPosition;
+		private final int fFlags;
+
+		LazyFailure(File file, int position, int flags) {
+			fFile= file;
+			fPosition= position;
+			fFlags= flags;
+		}
+
+		/**
+		 * @return the trace, the expected and the actual value; elements
+		 *         are <code>null</code> if not available
+		 */
+		String[] load() {
+			try {
+				RandomAccessFile in= new RandomAccessFile(fFile, "r"); //$NON-NLS-1$
+				try {
+					in.seek(fPosition);
+					String expected= (fFlags & HAS_EXPECTED) != 0 ? readString(in) : null;
+					String actual= (fFlags & HAS_ACTUAL) != 0 ? readString(in) : null;
+					String trace= (fFlags & HAS_TRACE) != 0 ? readString(in) : null;
+					return new String[] { trace, expected, actual };
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				return new String[] { e.getLocalizedMessage(), null, null };
+			}
+		}
+
+		private static String readString(RandomAccessFile in) throws IOException {
+			byte[] bytes= new byte[in.readInt()];
+			in.readFully(bytes);
+			return new String(bytes, UTF_8);
+		}
+	}
+
+	private final DataOutputStream fOut;
+	private final HashMap/*<TestElement, Integer>*/ fElementIndices= new HashMap();
+	private final HashMap/*<String, Integer>*/ fStringIndices= new HashMap();
+	private boolean fFailed;
+
+	private TestRunSessionStore(File file) throws IOException {
+		fOut= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 8192));
+		fOut.write(MAGIC);
+	}
+
+	/**
+	 * Creates a new store. Existing contents of the file are discarded.
+	 *
+	 * @param file the file to write to
+	 * @return the store
+	 * @throws IOException if the file could not be created
+	 */
+	public static TestRunSessionStore create(File file) throws IOException {
+		return new TestRunSessionStore(file);
+	}
+
+	/**
+	 * Records a test element that has been added to the test tree. The parent
+	 * must already have been recorded.
+	 *
+	 * @param testElement the new test element
+	 */
+	public synchronized void elementAdded(TestElement testElement) {
+		if (fFailed)
+			return;
+		try {
+			writeElement(testElement);
+		} catch (IOException e) {
+			fFailed= true;
+		}
+	}
+
+	/**
+	 * Records the current state of a test element: its status, elapsed time
+	 * and failure trace.
+	 *
+	 * @param testElement a test element that has been recorded before
+	 */
+	public synchronized void elementChanged(TestElement testElement) {
+		if (fFailed)
+			return;
+		try {
+			writeState(testElement);
+		} catch (IOException e) {
+			fFailed= true;
+		}
+	}
+
+	/**
+	 * Records the state of all test suites and closes the store.
+	 *
+	 * @param testRoot the root of the recorded test tree
+	 * @return <code>true</code> iff the store is complete, <code>false</code>
+	 *         if a record could not be written
+	 */
+	public synchronized boolean close(TestRoot testRoot) {
+		if (!fFailed) {
+			try {
+				writeSuiteStates(testRoot);
+			} catch (IOException e) {
+				fFailed= true;
+			}
+		}
+		return closeStream();
+	}
+
+	/**
+	 * Closes the store without recording anything else.
+	 */
+	public synchronized void abort() {
+		fFailed= true;
+		closeStream();
+	}
+
+	private boolean closeStream() {
+		try {
+			fOut.close();
+		} catch (IOException e) {
+			fFailed= true;
+		}
+		return !fFailed;
+	}
+
+	/**
+	 * Writes the complete test tree of the given session. The tree is written
+	 * to a temporary file first, so that failure traces which are still unread
+	 * can be read from the file that is replaced.
+	 *
+	 * @param testRunSession the session
+	 * @param file the file to write to
+	 * @throws IOException if writing failed
+	 */
+	public static void write(TestRunSession testRunSession, File file) throws IOException {
+		File tempFile= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		TestRunSessionStore store= new TestRunSessionStore(tempFile);
+		try {
+			ITestElement[] children= testRunSession.getTestRoot().getChildren();
+			for (int i= 0; i < children.length; i++)
+				store.writeTree((TestElement) children[i]);
+		} finally {
+			store.fOut.close();
+		}
+		if (file.exists() && !file.delete() || !tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("Could not replace test run session store: " + file); //$NON-NLS-1$
+		}
+	}
+
+	private void writeTree(TestElement testElement) throws IOException {
+		writeElement(testElement);
+		if (testElement instanceof TestSuiteElement) {
+			ITestElement[] children= ((TestSuiteElement) testElement).getChildren();
+			for (int i= 0; i < children.length; i++)
+				writeTree((TestElement) children[i]);
+		}
+		writeState(testElement);
+	}
+
+	private void writeSuiteStates(TestSuiteElement testSuiteElement) throws IOException {
+		ITestElement[] children= testSuiteElement.getChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (children[i] instanceof TestSuiteElement)
+				writeSuiteStates((TestSuiteElement) children[i]);
+		}
+		if (!(testSuiteElement instanceof TestRoot))
+			writeState(testSuiteElement);
+	}
+
+	private void writeElement(TestElement testElement) throws IOException {
+		TestSuiteElement parent= testElement.getParent();
+		int parentIndex= parent instanceof TestRoot ? -1 : getElementIndex(parent);
+
+		String name= testElement.getTestName();
+		String className= null;
+		int index= name.indexOf('(');
+		if (index > 0 && name.charAt(name.length() - 1) == ')') {
+			className= name.substring(index + 1, name.length() - 1);
+			name= name.substring(0, index);
+		}
+		int nameIndex= getStringIndex(name);
+		int classNameIndex= className != null ? getStringIndex(className) : -1;
+
+		fOut.writeByte(ELEMENT);
+		fOut.writeInt(parentIndex);
+		fOut.writeInt(nameIndex);
+		fOut.writeInt(classNameIndex);
+		fOut.writeBoolean(testElement instanceof TestSuiteElement);
+		fElementIndices.put(testElement, new Integer(fElementIndices.size()));
+	}
+
+	private void writeState(TestElement testElement) throws IOException {
+		Status status;
+		int flags= 0;
+		if (testElement instanceof TestSuiteElement) {
+			status= ((TestSuiteElement) testElement).getSuiteStatus();
+		} else {
+			status= testElement.getStatus();
+			if (((TestCaseElement) testElement).isIgnored())
+				flags|= IGNORED;
+		}
+		if (testElement.isAssumptionFailure())
+			flags|= ASSUMPTION_FAILED;
+
+		String expected= testElement.getExpected();
+		String actual= testElement.getActual();
+		String trace= testElement.getTrace();
+		if (expected != null)
+			flags|= HAS_EXPECTED;
+		if (actual != null)
+			flags|= HAS_ACTUAL;
+		if (trace != null)
+			flags|= HAS_TRACE;
+
+		fOut.writeByte(STATE);
+		fOut.writeInt(getElementIndex(testElement));
+		fOut.writeByte(status.getOldCode());
+		fOut.writeByte(flags);
+		fOut.writeDouble(testElement.getElapsedTimeInSeconds());
+		if (expected != null)
+			writeString(expected);
+		if (actual != null)
+			writeString(actual);
+		if (trace != null)
+			writeString(trace);
+	}
+
+	private int getElementIndex(TestElement testElement) throws IOException {
+		Integer index= (Integer) fElementIndices.get(testElement);
+		if (index == null)
+			throw new IOException("Test element not recorded: " + testElement.getTestName()); //$NON-NLS-1$
+		return index.intValue();
+	}
+
+	private int getStringIndex(String string) throws IOException {
+		Integer index= (Integer) fStringIndices.get(string);
+		if (index == null) {
+			index= new Integer(fStringIndices.size());
+			fStringIndices.put(string, index);
+			fOut.writeByte(STRING);
+			writeString(string);
+		}
+		return index.intValue();
+	}
+
+	private void writeString(String string) throws IOException {
+		byte[] bytes= string.getBytes(UTF_8);
+		fOut.writeInt(bytes.length);
+		fOut.write(bytes);
+	}
+
+	/**
+	 * Reads a store into the given session. The test elements are added to
+	 * the session's current test root. Failure traces are only read from the
+	 * file when they are requested from the test elements.
+	 *
+	 * @param file the file to read
+	 * @param testRunSession the session
+	 * @throws IOException if the file could not be read or is corrupt
+	 */
+	public static void read(File file, TestRunSession testRunSession) throws IOException {
+		FileInputStream in= new FileInputStream(file);
+		ByteBuffer buffer;
+		try {
+			// not mapped: a mapping would keep the file open until it is garbage collected
+			FileChannel channel= in.getChannel();
+			buffer= ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) == -1)
+					throw new IOException("Unexpected end of test run session store: " + file); //$NON-NLS-1$
+			}
+			buffer.flip();
+		} finally {
+			in.close();
+		}
+
+		try {
+			read(buffer, file, testRunSession);
+		} catch (RuntimeException e) {
+			// e.g. BufferUnderflowException, IndexOutOfBoundsException, ClassCastException
+			throw corrupt(file, e);
+		}
+	}
+
+	private static void read(ByteBuffer buffer, File file, TestRunSession testRunSession) throws IOException {
+		byte[] magic= new byte[MAGIC.length];
+		buffer.get(magic);
+		if (!Arrays.equals(magic, MAGIC))
+			throw new IOException("Not a test run session store"); //$NON-NLS-1$
+
+		TestRoot testRoot= testRunSession.getTestRoot();
+		List/*<String>*/ strings= new ArrayList();
+		List/*<TestElement>*/ elements= new ArrayList();
+
+		while (buffer.hasRemaining()) {
+			byte kind= buffer.get();
+			switch (kind) {
+				case STRING:
+					strings.add(readString(buffer));
+					break;
+
+				case ELEMENT: {
+					int parentIndex= buffer.getInt();
+					String name= (String) strings.get(buffer.getInt());
+					int classNameIndex= buffer.getInt();
+					boolean isSuite= buffer.get() != 0;
+					if (classNameIndex != -1)
+						name= name + '(' + strings.get(classNameIndex) + ')';
+					TestSuiteElement parent= parentIndex == -1 ? testRoot : (TestSuiteElement) elements.get(parentIndex);
+					elements.add(testRunSession.createTestElement(parent, Integer.toString(elements.size()), name, isSuite, 0));
+					break;
+				}
+
+				case STATE: {
+					TestElement testElement= (TestElement) elements.get(buffer.getInt());
+					Status status= STATUS[buffer.get()];
+					int flags= buffer.get();
+					double time= buffer.getDouble();
+
+					LazyFailure failure= null;
+					if ((flags & (HAS_EXPECTED | HAS_ACTUAL | HAS_TRACE)) != 0) {
+						failure= new LazyFailure(file, buffer.position(), flags);
+						if ((flags & HAS_EXPECTED) != 0)
+							skipString(buffer);
+						if ((flags & HAS_ACTUAL) != 0)
+							skipString(buffer);
+						if ((flags & HAS_TRACE) != 0)
+							skipString(buffer);
+					}
+
+					if (testElement instanceof TestCaseElement)
+						((TestCaseElement) testElement).setIgnored((flags & IGNORED) != 0);
+					testElement.setAssumptionFailed((flags & ASSUMPTION_FAILED) != 0);
+					if (status != Status.NOT_RUN || failure != null)
+						testElement.setStatus(status, failure);
+					testElement.setElapsedTimeInSeconds(time);
+					break;
+				}
+
+				default:
+					throw new IOException("Unknown record: " + kind); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private static String readString(ByteBuffer buffer) throws IOException {
+		byte[] bytes= new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	private static void skipString(ByteBuffer buffer) {
+		int length= buffer.getInt();
+		buffer.position(buffer.position() + length);
+	}
+
+	private static IOException corrupt(File file, RuntimeException e) {
+		IOException exception= new IOException("Corrupt test run session store: " + file); //$NON-NLS-1$
+		exception.initCause(e);
+		return exception;
+	}
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The changes of a test run session that are delivered as one batch to
+ * {@link ITestSessionBatchListener}s.
+ *
+ * @see ITestSessionBatchListener#testsChanged(TestSessionDelta)
+ */
+public class TestSessionDelta {
+
+	private final List/*<TestElement>*/ fAddedTests= new ArrayList();
+	private final Set/*<TestElement>*/ fChangedTests= new LinkedHashSet();
+	private final List/*<TestElement>*/ fFailedTests= new ArrayList();
+	private TestCaseElement fLastStartedTest;
+
+	void testAdded(TestElement testElement) {
+		fAddedTests.add(testElement);
+	}
+
+	void testStarted(TestCaseElement testCaseElement) {
+		fChangedTests.add(testCaseElement);
+		fLastStartedTest= testCaseElement;
+	}
+
+	void testEnded(TestCaseElement testCaseElement) {
+		fChangedTests.add(testCaseElement);
+	}
+
+	void testFailed(TestElement testElement) {
+		fChangedTests.add(testElement);
+		fFailedTests.add(testElement);
+	}
+
+	/**
+	 * @return the tests that have been added to the plan, in the order of addition
+	 */
+	public TestElement[] getAddedTests() {
+		return (TestElement[]) fAddedTests.toArray(new TestElement[fAddedTests.size()]);
+	}
+
+	/**
+	 * @return the tests that have been started, have ended or have failed,
+	 *         without duplicates
+	 */
+	public TestElement[] getChangedTests() {
+		return (TestElement[]) fChangedTests.toArray(new TestElement[fChangedTests.size()]);
+	}
+
+	/**
+	 * @return the tests that have failed, in the order of failure. Their status
+	 *         and failure trace are available from the test elements.
+	 */
+	public TestElement[] getFailedTests() {
+		return (TestElement[]) fFailedTests.toArray(new TestElement[fFailedTests.size()]);
+	}
+
+	/**
+	 * @return the test that has been started last, or <code>null</code> if no
+	 *         test has been started
+	 */
+	public TestCaseElement getLastStartedTest() {
+		return fLastStartedTest;
+	}
+
+	/**
+	 * @return <code>true</code> iff this delta does not contain any changes
+	 */
+	public boolean isEmpty() {
+		return fAddedTests.isEmpty() && fChangedTests.isEmpty();
+	}
+}
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Message identifiers of the binary protocol used by the
+ * RemoteTestRunner.
+ * <p>
+ * The binary protocol is only used if the client asks for it by passing
+ * {@link #PROTOCOL_ARGUMENT} to the test runner. The runner confirms by sending
+ * {@link #MAGIC} as the very first bytes. Since a text message never starts with
+ * a zero byte, the client can tell both protocols apart and falls back to the
+ * text protocol of {@link MessageIds} for runners that don't support the binary one.
+ * </p>
+ * <p>
+ * After the magic, the runner sends a sequence of frames. A frame starts with
+ * an opcode byte. {@link #TREE_ENTRIES} is followed by an int count and count
+ * strings, every other opcode by exactly one string. Strings are encoded as an
+ * int byte length followed by the UTF-8 bytes. The string of a message frame
+ * is the argument of the corresponding text message, i.e. the text message
+ * without its header. The client sends its requests using the text protocol.
+ * </p>
+ *
+ * @see MessageIds
+ * @see BinaryMessageSender
+ */
+public class BinaryMessageIds {
+
+	/**
+	 * Program argument with which a client asks the test runner to use the binary protocol.
+	 */
+	public static final String PROTOCOL_ARGUMENT= "-binaryprotocol"; //$NON-NLS-1$
+
+	/**
+	 * The version of the binary protocol.
+	 */
+	public static final byte VERSION= 1;
+
+	/**
+	 * The first bytes sent by a test runner using the binary protocol.
+	 */
+	public static final byte[] MAGIC= { 0, 'J', 'U', VERSION };
+
+	/**
+	 * A line of data, e.g. a stack trace, including its line delimiter.
+	 */
+	public static final byte DATA= 0;
+	/**
+	 * A batch of test tree entries, see {@link MessageIds#TEST_TREE}.
+	 */
+	public static final byte TREE_ENTRIES= 1;
+	/**
+	 * @see MessageIds#TEST_RUN_START
+	 */
+	public static final byte TEST_RUN_START= 2;
+	/**
+	 * @see MessageIds#TEST_START
+	 */
+	public static final byte TEST_START= 3;
+	/**
+	 * @see MessageIds#TEST_END
+	 */
+	public static final byte TEST_END= 4;
+	/**
+	 * @see MessageIds#TEST_ERROR
+	 */
+	public static final byte TEST_ERROR= 5;
+	/**
+	 * @see MessageIds#TEST_FAILED
+	 */
+	public static final byte TEST_FAILED= 6;
+	/**
+	 * @see MessageIds#TEST_RUN_END
+	 */
+	public static final byte TEST_RUN_END= 7;
+	/**
+	 * @see MessageIds#TEST_STOPPED
+	 */
+	public static final byte TEST_STOPPED= 8;
+	/**
+	 * @see MessageIds#TEST_RERAN
+	 */
+	public static final byte TEST_RERAN= 9;
+	/**
+	 * @see MessageIds#TEST_TREE
+	 */
+	public static final byte TEST_TREE= 10;
+	/**
+	 * @see MessageIds#TRACE_START
+	 */
+	public static final byte TRACE_START= 11;
+	/**
+	 * @see MessageIds#TRACE_END
+	 */
+	public static final byte TRACE_END= 12;
+	/**
+	 * @see MessageIds#EXPECTED_START
+	 */
+	public static final byte EXPECTED_START= 13;
+	/**
+	 * @see MessageIds#EXPECTED_END
+	 */
+	public static final byte EXPECTED_END= 14;
+	/**
+	 * @see MessageIds#ACTUAL_START
+	 */
+	public static final byte ACTUAL_START= 15;
+	/**
+	 * @see MessageIds#ACTUAL_END
+	 */
+	public static final byte ACTUAL_END= 16;
+	/**
+	 * @see MessageIds#RTRACE_START
+	 */
+	public static final byte RTRACE_START= 17;
+	/**
+	 * @see MessageIds#RTRACE_END
+	 */
+	public static final byte RTRACE_END= 18;
+
+	/**
+	 * Text message headers, indexed by opcode.
+	 */
+	private static final String[] HEADERS= {
+		null,
+		null,
+		MessageIds.TEST_RUN_START,
+		MessageIds.TEST_START,
+		MessageIds.TEST_END,
+		MessageIds.TEST_ERROR,
+		MessageIds.TEST_FAILED,
+		MessageIds.TEST_RUN_END,
+		MessageIds.TEST_STOPPED,
+		MessageIds.TEST_RERAN,
+		MessageIds.TEST_TREE,
+		MessageIds.TRACE_START,
+		MessageIds.TRACE_END,
+		MessageIds.EXPECTED_START,
+		MessageIds.EXPECTED_END,
+		MessageIds.ACTUAL_START,
+		MessageIds.ACTUAL_END,
+		MessageIds.RTRACE_START,
+		MessageIds.RTRACE_END,
+	};
+
+	private static final Map fgOpcodes= new HashMap();
+	static {
+		for (int i= 0; i < HEADERS.length; i++) {
+			if (HEADERS[i] != null)
+				fgOpcodes.put(HEADERS[i], new Byte((byte) i));
+		}
+	}
+
+	/**
+	 * Returns the opcode of the given text message.
+	 *
+	 * @param message a text message
+	 * @return the opcode of the message's header or {@link #DATA} if the message
+	 *         does not start with a known header
+	 */
+	public static byte getOpcode(String message) {
+		if (message.length() < MessageIds.MSG_HEADER_LENGTH)
+			return DATA;
+		Byte opcode= (Byte) fgOpcodes.get(message.substring(0, MessageIds.MSG_HEADER_LENGTH));
+		return opcode != null ? opcode.byteValue() : DATA;
+	}
+
+	/**
+	 * Returns the text message header of the given opcode.
+	 *
+	 * @param opcode the opcode
+	 * @return the header or <code>null</code> if the opcode does not correspond to a text message
+	 */
+	public static String getHeader(int opcode) {
+		if (opcode < 0 || opcode >= HEADERS.length)
+			return null;
+		return HEADERS[opcode];
+	}
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.junit.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+/**
+ * A message sender that encodes the text messages of {@link MessageIds}
+ * using the binary protocol described in {@link BinaryMessageIds}.
+ * <p>
+ * Test tree entries are batched until another message is sent, the sender is
+ * flushed or {@link #MAX_TREE_ENTRIES} entries have been collected. Like a
+ * {@link java.io.PrintWriter}, the sender never throws I/O exceptions. After
+ * the first failure, all further messages are dropped.
+ * </p>
+ */
+public class BinaryMessageSender implements MessageSender {
+
+	/**
+	 * The maximal number of test tree entries sent in one frame.
+	 */
+	public static final int MAX_TREE_ENTRIES= 1000;
+
+	private static final String LINE_SEPARATOR= System.getProperty("line.separator"); //$NON-NLS-1$
+
+	private final DataOutputStream fOut;
+
+	private final ArrayList fTreeEntries= new ArrayList(MAX_TREE_ENTRIES);
+
+	/**
+	 * The header ending the current block of data lines, or <code>null</code>
+	 * if not inside a trace, expected or actual result.
+	 */
+	private String fEndOfData;
+
+	private boolean fFailed;
+
+	/**
+	 * Creates a binary message sender and announces the binary protocol.
+	 *
+	 * @param out the stream to write to
+	 * @throws IOException if the protocol magic could not be written
+	 */
+	public BinaryMessageSender(OutputStream out) throws IOException {
+		fOut= new DataOutputStream(new BufferedOutputStream(out, 8192));
+		fOut.write(BinaryMessageIds.MAGIC);
+	}
+
+	/*
+	 * @see org.eclipse.jdt.internal.junit.runner.MessageSender#sendMessage(java.lang.String)
+	 */
+	public void sendMessage(String msg) {
+		if (fFailed)
+			return;
+
+		try {
+			if (fEndOfData != null) {
+				if (msg.startsWith(fEndOfData)) {
+					writeFrame(BinaryMessageIds.getOpcode(fEndOfData), ""); //$NON-NLS-1$
+					fEndOfData= null;
+				} else {
+					writeFrame(BinaryMessageIds.DATA, msg + LINE_SEPARATOR);
+				}
+				return;
+			}
+
+			byte opcode= BinaryMessageIds.getOpcode(msg);
+			if (opcode == BinaryMessageIds.TEST_TREE) {
+				fTreeEntries.add(msg.substring(MessageIds.MSG_HEADER_LENGTH));
+				if (fTreeEntries.size() >= MAX_TREE_ENTRIES)
+					writeTreeEntries();
+				return;
+			}
+
+			writeTreeEntries();
+			if (opcode == BinaryMessageIds.DATA) {
+				writeFrame(opcode, msg + LINE_SEPARATOR);
+				return;
+			}
+
+			switch (opcode) {
+				case BinaryMessageIds.TRACE_START:
+					fEndOfData= MessageIds.TRACE_END;
+					break;
+				case BinaryMessageIds.EXPECTED_START:
+					fEndOfData= MessageIds.EXPECTED_END;
+					break;
+				case BinaryMessageIds.ACTUAL_START:
+					fEndOfData= MessageIds.ACTUAL_END;
+					break;
+				case BinaryMessageIds.RTRACE_START:
+					fEndOfData= MessageIds.RTRACE_END;
+					break;
+			}
+			writeFrame(opcode, msg.substring(MessageIds.MSG_HEADER_LENGTH));
+		} catch (IOException e) {
+			fFailed= true;
+		}
+	}
+
+	/*
+	 * @see org.eclipse.jdt.internal.junit.runner.MessageSender#flush()
+	 */
+	public void flush() {
+		if (fFailed)
+			return;
+
+		try {
+			writeTreeEntries();
+			fOut.flush();
+		} catch (IOException e) {
+			fFailed= true;
+		}
+	}
+
+	/**
+	 * Flushes and closes this sender.
+	 */
+	public void close() {
+		flush();
+		try {
+			fOut.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	private void writeTreeEntries() throws IOException {
+		int size= fTreeEntries.size();
+		if (size == 0)
+			return;
+
+		fOut.writeByte(BinaryMessageIds.TREE_ENTRIES);
+		fOut.writeInt(size);
+		for (int i= 0; i < size; i++)
+			writeString((String) fTreeEntries.get(i));
+		fTreeEntries.clear();
+	}
+
+	private void writeFrame(byte opcode, String argument) throws IOException {
+		fOut.writeByte(opcode);
+		writeString(argument);
+	}
+
+	private void writeString(String s) throws IOException {
+		byte[] bytes= s.getBytes("UTF-8"); //$NON-NLS-1$
+		fOut.writeInt(bytes.length);
+		fOut.write(bytes);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -140,11 +140,12 @@ import org.eclipse.jdt.internal.junit.Messages;
 import org.eclipse.jdt.internal.junit.launcher.ITestKind;
 import org.eclipse.jdt.internal.junit.launcher.JUnitLaunchConfigurationConstants;
 import org.eclipse.jdt.internal.junit.model.ITestRunSessionListener;
-import org.eclipse.jdt.internal.junit.model.ITestSessionListener;
+import org.eclipse.jdt.internal.junit.model.ITestSessionBatchListener;
 import org.eclipse.jdt.internal.junit.model.JUnitModel;
 import org.eclipse.jdt.internal.junit.model.TestCaseElement;
 import org.eclipse.jdt.internal.junit.model.TestElement;
 import org.eclipse.jdt.internal.junit.model.TestRunSession;
+import org.eclipse.jdt.internal.junit.model.TestSessionDelta;
 
 import org.eclipse.jdt.internal.ui.viewsupport.ViewHistory;
 
@@ -694,7 +695,7 @@ public class TestRunnerViewPart extends ViewPart {
 		}
 	}
 
-	private class TestSessionListener implements ITestSessionListener {
+	private class TestSessionListener implements ITestSessionBatchListener {
 		public void sessionStarted(){
 			fTestViewer.registerViewersRefresh();
 			fShowOnErrorOnly= getShowOnErrorOnly();
@@ -760,13 +761,42 @@ public class TestRunnerViewPart extends ViewPart {
 		public void testStarted(TestCaseElement testCaseElement) {
 			fTestViewer.registerAutoScrollTarget(testCaseElement);
 			fTestViewer.registerViewerUpdate(testCaseElement);
+			registerStartedMessage(testCaseElement);
+		}
 
+		private void registerStartedMessage(TestCaseElement testCaseElement) {
 			String className= BasicElementLabels.getJavaElementName(testCaseElement.getClassName());
 			String method= BasicElementLabels.getJavaElementName(testCaseElement.getTestMethodName());
 			String status= Messages.format(JUnitMessages.TestRunnerViewPart_message_started, new String[] { className, method });
 			registerInfoMessage(status);
 		}
 
+		public void testsChanged(TestSessionDelta delta) {
+			TestElement[] added= delta.getAddedTests();
+			if (added.length > 0)
+				fTestViewer.registerTestsAdded(added);
+
+			TestCaseElement lastStarted= delta.getLastStartedTest();
+			if (lastStarted != null) {
+				fTestViewer.registerAutoScrollTarget(lastStarted);
+				registerStartedMessage(lastStarted);
+			}
+
+			TestElement[] failed= delta.getFailedTests();
+			if (failed.length > 0 && isAutoScroll()) {
+				for (int i= 0; i < failed.length; i++)
+					fTestViewer.registerFailedForAutoScroll(failed[i]);
+			}
+			fTestViewer.registerViewerUpdates(delta.getChangedTests());
+
+			// show the view on the first error only
+			if (fShowOnErrorOnly && failed.length > 0) {
+				int errorsPlusFailures= getErrorsPlusFailures();
+				if (errorsPlusFailures > 0 && errorsPlusFailures <= failed.length)
+					postShowTestResultsView();
+			}
+		}
+
 		public void testFailed(TestElement testElement, TestElement.Status status, String trace, String expected, String actual) {
 			if (isAutoScroll()) {
 				fTestViewer.registerFailedForAutoScroll(testElement);
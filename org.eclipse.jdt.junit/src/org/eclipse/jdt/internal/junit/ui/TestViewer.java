@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -147,6 +147,8 @@ public class TestViewer {
 	private boolean fTreeNeedsRefresh;
 	private boolean fTableNeedsRefresh;
 	private HashSet<TestElement> fNeedUpdate;
+	/** The parents of added tests, whose children have to be refreshed in the tree */
+	private final LinkedHashSet<TestSuiteElement> fNeedRefresh= new LinkedHashSet<TestSuiteElement>();
 	private TestCaseElement fAutoScrollTarget;
 
 	private LinkedList<TestSuiteElement> fAutoClose;
@@ -426,6 +428,20 @@ public class TestViewer {
 
 		testRoot= fTestRunSession.getTestRoot();
 
+		Object[] toRefresh;
+		synchronized (this) {
+			toRefresh= fNeedRefresh.toArray();
+			fNeedRefresh.clear();
+		}
+		if (! fTreeNeedsRefresh && toRefresh.length > 0) {
+			if (fLayoutMode == TestRunnerViewPart.LAYOUT_HIERARCHICAL) {
+				for (Object parent : toRefresh)
+					fTreeViewer.refresh(parent, false);
+			} else {
+				fTreeNeedsRefresh= true;
+			}
+		}
+
 		StructuredViewer viewer= getActiveViewer();
 		if (getActiveViewerNeedsRefresh()) {
 			clearUpdateAndExpansion();
@@ -641,6 +657,7 @@ public class TestViewer {
 	public synchronized void registerViewersRefresh() {
 		fTreeNeedsRefresh= true;
 		fTableNeedsRefresh= true;
+		fNeedRefresh.clear();
 		clearUpdateAndExpansion();
 	}
 
@@ -659,10 +676,29 @@ public class TestViewer {
 		fTableNeedsRefresh= true;
 	}
 
+	/**
+	 * Registers added tests. The tree only refreshes the children of their parents, the flat
+	 * table is refreshed completely.
+	 *
+	 * @param testElements the added tests
+	 */
+	public synchronized void registerTestsAdded(TestElement[] testElements) {
+		for (int i= 0; i < testElements.length; i++) {
+			TestSuiteElement parent= testElements[i].getParent();
+			if (parent != null)
+				fNeedRefresh.add(parent);
+		}
+		fTableNeedsRefresh= true;
+	}
+
 	public synchronized void registerViewerUpdate(final TestElement testElement) {
 		fNeedUpdate.add(testElement);
 	}
 
+	public synchronized void registerViewerUpdates(TestElement[] testElements) {
+		fNeedUpdate.addAll(Arrays.asList(testElements));
+	}
+
 	private synchronized void clearAutoExpand() {
 		fAutoExpand.clear();
 	}
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.core.resources.IFile;
+
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
+
+import org.eclipse.jdt.internal.ui.text.folding.CachedProjectionRanges;
+
+/**
+ * Tests when the folding structure provider reuses the projection ranges of a member.
+ *
+ * @since 3.10
+ */
+public class CachedProjectionRangesTest extends TestCase {
+	private static final Class THIS= CachedProjectionRangesTest.class;
+
+	private static final String MEMBER= "    /** Returns the count. */\n    int count() {\n        return 1;\n    }\n";
+
+	public static Test suite() {
+		return new ProjectTestSetup(new TestSuite(THIS));
+	}
+
+	private IJavaProject fJProject1;
+
+	private IPackageFragmentRoot fSourceFolder;
+
+	/*
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		fSourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+	}
+
+	/*
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	/**
+	 * Creates the cached ranges of {@link #MEMBER} in the given source, with a region for the
+	 * comment and one for the member.
+	 *
+	 * @param source the source containing the member
+	 * @return the cached ranges
+	 */
+	private static CachedProjectionRanges createRanges(String source) {
+		int offset= source.indexOf("/**");
+		int length= source.indexOf("}\n", offset) + 1 - offset;
+		int commentEnd= source.indexOf("*/", offset) + 2;
+		int start= source.indexOf("int", offset);
+		IRegion[] regions= new IRegion[] { new Region(offset, commentEnd - offset), new Region(start, offset + length - start) };
+		return new CachedProjectionRanges(source.toCharArray(), offset, length, start - offset + 1, regions);
+	}
+
+	private static boolean isValid(CachedProjectionRanges ranges, String source) {
+		int offset= source.indexOf("/**");
+		int length= source.indexOf("}\n", offset) + 1 - offset;
+		return ranges.isValid(source.toCharArray(), offset, length);
+	}
+
+	public void testEditInBodyKeepsRanges() throws Exception {
+		String source= "class E {\n" + MEMBER + "}\n";
+		CachedProjectionRanges ranges= createRanges(source);
+
+		String changed= "class E {\n    int k;\n" + MEMBER.replace("return 1", "return 2") + "}\n";
+		assertTrue(isValid(ranges, changed));
+
+		int offset= source.indexOf("/**");
+		int shift= changed.indexOf("/**") - offset;
+		IRegion[] expected= ranges.getRegions(offset);
+		IRegion[] actual= ranges.getRegions(offset + shift);
+		assertEquals(2, actual.length);
+		for (int i= 0; i < expected.length; i++)
+			assertEquals(new Region(expected[i].getOffset() + shift, expected[i].getLength()), actual[i]);
+		assertEquals(new Region(changed.indexOf("/**"), "/** Returns the count. */".length()), actual[0]);
+	}
+
+	public void testEditInCommentDiscardsRanges() throws Exception {
+		String source= "class E {\n" + MEMBER + "}\n";
+		CachedProjectionRanges ranges= createRanges(source);
+
+		String changed= "class E {\n" + MEMBER.replace("Returns", "Computes") + "}\n";
+		assertFalse(isValid(ranges, changed));
+	}
+
+	public void testChangedLengthDiscardsRanges() throws Exception {
+		String source= "class E {\n" + MEMBER + "}\n";
+		CachedProjectionRanges ranges= createRanges(source);
+
+		String changed= "class E {\n" + MEMBER.replace("return 1", "return 10") + "}\n";
+		assertFalse(isValid(ranges, changed));
+	}
+
+	public void testPrefixWithSameHashDiscardsRanges() throws Exception {
+		String member= "    /** Aa */\n    int count() {\n        return 1;\n    }\n";
+		String collision= "    /** BB */\n    int count() {\n        return 1;\n    }\n";
+		String prefix= member.substring(member.indexOf("/**"), member.indexOf("int") + 1);
+		String collisionPrefix= collision.substring(collision.indexOf("/**"), collision.indexOf("int") + 1);
+		assertEquals(prefix.hashCode(), collisionPrefix.hashCode());
+
+		CachedProjectionRanges ranges= createRanges("class E {\n" + member + "}\n");
+		assertFalse(isValid(ranges, "class E {\n" + collision + "}\n"));
+	}
+
+	private ICompilationUnit createCompilationUnit() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E {\n");
+		buf.append("    void foo() {\n");
+		buf.append("        int a= 1;\n");
+		buf.append("    }\n");
+		buf.append("    void bar() {\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		return pack1.createCompilationUnit("E.java", buf.toString(), false, null);
+	}
+
+	private static Map<IJavaElement, CachedProjectionRanges> createMethodRanges(IType type) {
+		String source= "class E {\n" + MEMBER + "}\n";
+		Map<IJavaElement, CachedProjectionRanges> ranges= new HashMap<IJavaElement, CachedProjectionRanges>();
+		ranges.put(type.getMethod("foo", new String[0]), createRanges(source));
+		ranges.put(type.getMethod("bar", new String[0]), createRanges(source));
+		return ranges;
+	}
+
+	private static IJavaElementDelta findDelta(IJavaElement element, IJavaElementDelta delta) {
+		if (element.equals(delta.getElement()))
+			return delta;
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			IJavaElementDelta result= findDelta(element, children[i]);
+			if (result != null)
+				return result;
+		}
+		return null;
+	}
+
+	/**
+	 * Reconciles the working copy after replacing the given text and returns the delta.
+	 *
+	 * @param workingCopy the working copy
+	 * @param text the text to replace
+	 * @param replacement the replacement
+	 * @return the fine-grained delta of the working copy
+	 * @throws Exception if the working copy could not be reconciled
+	 */
+	private static IJavaElementDelta reconcile(final ICompilationUnit workingCopy, String text, String replacement) throws Exception {
+		final IJavaElementDelta[] result= new IJavaElementDelta[1];
+		IElementChangedListener listener= new IElementChangedListener() {
+			public void elementChanged(ElementChangedEvent event) {
+				IJavaElementDelta delta= findDelta(workingCopy, event.getDelta());
+				if (delta != null)
+					result[0]= delta;
+			}
+		};
+		JavaCore.addElementChangedListener(listener, ElementChangedEvent.POST_RECONCILE);
+		try {
+			String source= workingCopy.getBuffer().getContents();
+			workingCopy.getBuffer().replace(source.indexOf(text), text.length(), replacement);
+			workingCopy.reconcile(ICompilationUnit.NO_AST, false, null, null);
+		} finally {
+			JavaCore.removeElementChangedListener(listener);
+		}
+		assertNotNull(result[0]);
+		assertTrue((result[0].getFlags() & IJavaElementDelta.F_FINE_GRAINED) != 0);
+		return result[0];
+	}
+
+	public void testFineGrainedDeltaKeepsUnchangedMembers() throws Exception {
+		ICompilationUnit workingCopy= createCompilationUnit().getWorkingCopy(null);
+		try {
+			IType type= workingCopy.getType("E");
+			Map<IJavaElement, CachedProjectionRanges> ranges= createMethodRanges(type);
+
+			IJavaElementDelta delta= reconcile(workingCopy, "int a= 1;", "int a= 2;");
+			Map<IJavaElement, CachedProjectionRanges> reusable= CachedProjectionRanges.getReusableRanges(delta, ranges);
+			assertTrue(reusable.containsKey(type.getMethod("bar", new String[0])));
+
+			delta= reconcile(workingCopy, "void bar()", "void baz()");
+			reusable= CachedProjectionRanges.getReusableRanges(delta, ranges);
+			assertTrue(reusable.containsKey(type.getMethod("foo", new String[0])));
+			assertFalse(reusable.containsKey(type.getMethod("bar", new String[0])));
+		} finally {
+			workingCopy.discardWorkingCopy();
+		}
+	}
+
+	public void testCoarseDeltaDiscardsAllMembers() throws Exception {
+		final ICompilationUnit unit= createCompilationUnit();
+		Map<IJavaElement, CachedProjectionRanges> ranges= createMethodRanges(unit.getType("E"));
+
+		final IJavaElementDelta[] result= new IJavaElementDelta[1];
+		IElementChangedListener listener= new IElementChangedListener() {
+			public void elementChanged(ElementChangedEvent event) {
+				IJavaElementDelta delta= findDelta(unit, event.getDelta());
+				if (delta != null)
+					result[0]= delta;
+			}
+		};
+		JavaCore.addElementChangedListener(listener, ElementChangedEvent.POST_CHANGE);
+		try {
+			String source= unit.getSource().replace("int a= 1;", "int a= 2;");
+			((IFile) unit.getResource()).setContents(new ByteArrayInputStream(source.getBytes()), true, false, null);
+		} finally {
+			JavaCore.removeElementChangedListener(listener);
+		}
+		assertNotNull(result[0]);
+		assertEquals(0, result[0].getFlags() & IJavaElementDelta.F_FINE_GRAINED);
+
+		assertTrue(CachedProjectionRanges.getReusableRanges(result[0], ranges).isEmpty());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.text.tests;
 
 import java.util.Hashtable;
+import java.util.Stack;
 
 import junit.framework.Assert;
 import junit.framework.Test;
@@ -1104,4 +1105,50 @@ public class JavaHeuristicScannerTest extends TestCase {
 		indent= fScanner.computeIndentation(offset).toString();
 		Assert.assertEquals("\t\t\t", indent);
 	}
+
+	public void testPeersInLargeDocument() throws Exception {
+		StringBuffer buf= new StringBuffer();
+		buf.append("class A {\n");
+		for (int i= 0; i < 200; i++) {
+			buf.append("\t/* comment } ( */\n");
+			buf.append("\tint[] m" + i + "(int[] a) {\n");
+			buf.append("\t\tif (a[0] > 0) { // { [\n");
+			buf.append("\t\t\treturn new int[] { a[(0)], \"}\".length(), ')' };\n");
+			buf.append("\t\t}\n");
+			buf.append("\t\treturn a;\n");
+			buf.append("\t}\n");
+		}
+		buf.append("}\n");
+		fDocument.set(buf.toString());
+
+		assertPeers('{', '}');
+		assertPeers('(', ')');
+		assertPeers('[', ']');
+
+		// blanks only move the brackets of their line
+		int offset= buf.indexOf("if (a[0]", buf.length() / 2);
+		fDocument.replace(offset, 0, "  ");
+		assertPeers('{', '}');
+		fDocument.replace(offset, 2, "");
+		fDocument.replace(offset, 0, "/*{*/");
+		assertPeers('{', '}');
+	}
+
+	private void assertPeers(char openingPeer, char closingPeer) {
+		Stack<Integer> open= new Stack<Integer>();
+		String content= fDocument.get();
+		for (int i= 0; i < content.length(); i++) {
+			char ch= content.charAt(i);
+			if (!fHeuristicScanner.isDefaultPartition(i))
+				continue;
+			if (ch == openingPeer) {
+				open.push(new Integer(i));
+			} else if (ch == closingPeer) {
+				int peer= open.pop().intValue();
+				Assert.assertEquals(peer, fHeuristicScanner.findOpeningPeer(i - 1, openingPeer, closingPeer));
+				Assert.assertEquals(i, fHeuristicScanner.findClosingPeer(peer + 1, openingPeer, closingPeer));
+			}
+		}
+		Assert.assertTrue(open.isEmpty());
+	}
 }
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleName;
+
+import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
+
+import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
+import org.eclipse.jdt.internal.ui.search.IOccurrencesFinder.OccurrenceLocation;
+import org.eclipse.jdt.internal.ui.search.OccurrencesFinder;
+import org.eclipse.jdt.internal.ui.search.OccurrencesIndex;
+
+/**
+ * Tests that the occurrences index finds the same occurrences as the occurrences finder.
+ *
+ * @since 3.10
+ */
+public class OccurrencesIndexTest extends TestCase {
+	private static final Class THIS= OccurrencesIndexTest.class;
+
+	public static Test suite() {
+		return new ProjectTestSetup(new TestSuite(THIS));
+	}
+
+	private IJavaProject fJProject1;
+
+	private IPackageFragmentRoot fSourceFolder;
+
+	/*
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		fSourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+	}
+
+	/*
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private CompilationUnit createCompilationUnit(String name, StringBuffer source) throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		ICompilationUnit cu= pack1.createCompilationUnit(name, source.toString(), false, null);
+		ASTParser parser= ASTParser.newParser(ASTProvider.SHARED_AST_LEVEL);
+		parser.setSource(cu);
+		parser.setResolveBindings(true);
+		return (CompilationUnit) parser.createAST(null);
+	}
+
+	private void checkAllNames(CompilationUnit root) {
+		final List<Name> names= new ArrayList<Name>();
+		root.accept(new ASTVisitor() {
+			public boolean visit(SimpleName node) {
+				names.add(node);
+				return true;
+			}
+
+			public boolean visit(QualifiedName node) {
+				names.add(node);
+				return true;
+			}
+		});
+
+		OccurrencesIndex index= new OccurrencesIndex(root);
+		int indexed= 0;
+		for (int i= 0; i < names.size(); i++) {
+			Name name= names.get(i);
+			if (!index.isIndexed(name))
+				continue;
+			indexed++;
+			OccurrencesFinder finder= new OccurrencesFinder();
+			assertNull(finder.initialize(root, name));
+			assertEquals(name.toString(), toString(finder.getOccurrences()), toString(index.getOccurrences(name)));
+		}
+		assertTrue(indexed > 0);
+	}
+
+	private static String toString(OccurrenceLocation[] locations) {
+		if (locations == null)
+			return "null";
+		OccurrenceLocation[] sorted= locations.clone();
+		Arrays.sort(sorted, new Comparator<OccurrenceLocation>() {
+			public int compare(OccurrenceLocation location0, OccurrenceLocation location1) {
+				return location0.getOffset() - location1.getOffset();
+			}
+		});
+		StringBuffer buf= new StringBuffer();
+		for (int i= 0; i < sorted.length; i++) {
+			OccurrenceLocation location= sorted[i];
+			buf.append(location.getOffset()).append(',').append(location.getLength()).append(',');
+			buf.append(location.getFlags()).append(',').append(location.getDescription()).append('\n');
+		}
+		return buf.toString();
+	}
+
+	public void testVariables() throws Exception {
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E {\n");
+		buf.append("    private int count;\n");
+		buf.append("    private E next;\n");
+		buf.append("    public int foo(int i, E e) {\n");
+		buf.append("        int k= i;\n");
+		buf.append("        k++;\n");
+		buf.append("        --count;\n");
+		buf.append("        e.count= k;\n");
+		buf.append("        this.count += e.next.count;\n");
+		buf.append("        e.next.next= new E();\n");
+		buf.append("        for (int j= 0; j < k; j++)\n");
+		buf.append("            count= foo(j, next);\n");
+		buf.append("        return count;\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		checkAllNames(createCompilationUnit("E.java", buf));
+	}
+
+	public void testTypesAndMethods() throws Exception {
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("import java.util.ArrayList;\n");
+		buf.append("import java.util.List;\n");
+		buf.append("public class E<T> {\n");
+		buf.append("    public static class Inner<S> {\n");
+		buf.append("        public Inner(S s) {}\n");
+		buf.append("    }\n");
+		buf.append("    List<T> fList= new ArrayList<T>();\n");
+		buf.append("    E.Inner<String> fInner= new E.Inner<String>(\"\");\n");
+		buf.append("    java.util.List<E<T>> foo(T t) {\n");
+		buf.append("        fList.add(t);\n");
+		buf.append("        new Inner<T>(t);\n");
+		buf.append("        return new java.util.ArrayList<E<T>>();\n");
+		buf.append("    }\n");
+		buf.append("    <U> U bar(U u) {\n");
+		buf.append("        foo(null);\n");
+		buf.append("        return this.<U>bar(u);\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		checkAllNames(createCompilationUnit("E.java", buf));
+	}
+
+	public void testStaticImports() throws Exception {
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class A {\n");
+		buf.append("    public static int COUNT;\n");
+		buf.append("    public static void foo() {}\n");
+		buf.append("    public static void foo(int i) {}\n");
+		buf.append("}\n");
+		createCompilationUnit("A.java", buf);
+
+		buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("import static test1.A.COUNT;\n");
+		buf.append("import static test1.A.foo;\n");
+		buf.append("import static java.lang.Math.max;\n");
+		buf.append("public class E {\n");
+		buf.append("    void bar() {\n");
+		buf.append("        foo();\n");
+		buf.append("        foo(COUNT);\n");
+		buf.append("        A.foo(max(COUNT, test1.A.COUNT));\n");
+		buf.append("        COUNT= max(1, 2);\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		checkAllNames(createCompilationUnit("E.java", buf));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -239,6 +239,15 @@ public class ContentAssistHistoryTest extends TestCase {
 		assertEqualMap(map(LIST, list(ARRAY_LIST), COLLECTION, list(ARRAY_LIST), ITERABLE, list(ARRAY_LIST), CHAR_SEQUENCE, list(STRING)), loaded.getEntireHistory());
 	}
 
+	public void testLoadXML() throws Exception {
+		Preferences prefs= new Preferences();
+		String key= "myKey";
+		prefs.setValue(key, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><history maxLHS=\"100\" maxRHS=\"10\"><lhs name=\"" + LIST + "\"><rhs name=\"" + LINKED_LIST + "\"/><rhs name=\"" + ARRAY_LIST + "\"/></lhs><lhs name=\"" + CHAR_SEQUENCE + "\"><rhs name=\"" + STRING + "\"/></lhs></history>");
+		ContentAssistHistory loaded= ContentAssistHistory.load(prefs, key);
+
+		assertEqualMap(map(LIST, list(LINKED_LIST, ARRAY_LIST), CHAR_SEQUENCE, list(STRING)), loaded.getEntireHistory());
+	}
+
 	private static void assertEqualMap(Map expected, Map actual) {
 		assertEqualMap("", expected, actual);
 	}
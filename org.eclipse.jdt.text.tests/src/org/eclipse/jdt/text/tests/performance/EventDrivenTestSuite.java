@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -34,6 +34,8 @@ public class EventDrivenTestSuite extends TestSuite {
 		addTest(new DebugSetup(ScrollTextEditorTest.suite()));
 		addTest(new DebugSetup(WhitespaceCharacterPainterTest.suite()));
 		addTest(JavaIndenterTest.suite());
+		addTest(JavaIndentFileTest.suite());
+		addTest(JavaFoldingUpdateTest.suite());
 		addTest(JavaNonInitialTypingTest.suite());
 		addTest(TextNonInitialTypingTest.suite());
 		addTest(OpenPreferencePageTest.suite());
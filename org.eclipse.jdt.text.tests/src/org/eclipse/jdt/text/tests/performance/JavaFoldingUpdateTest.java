@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.text.tests.performance;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.core.runtime.PerformanceStats;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.source.SourceViewer;
+
+import org.eclipse.ui.texteditor.AbstractTextEditor;
+
+import org.eclipse.jdt.ui.text.folding.DefaultJavaFoldingStructureProvider;
+
+/**
+ * Measures the time to reconcile a large compilation unit and update its folding structure after
+ * an edit inside a method body. The folding structure provider reports its updates as
+ * <code>org.eclipse.jdt.ui/perf/folding/update</code>, which is checked when performance
+ * tracing is enabled.
+ *
+ * @since 3.10
+ */
+public class JavaFoldingUpdateTest extends TextPerformanceTestCase {
+
+	private static final Class THIS= JavaFoldingUpdateTest.class;
+
+	private static final String FILE= PerformanceTestSetup.STYLED_TEXT;
+
+	private static final String FOLDING_UPDATE= "org.eclipse.jdt.ui/perf/folding/update";
+
+	private static final String METHOD= "public void setText(String text) {";
+
+	private static final int WARM_UP_RUNS= 3;
+
+	private static final int MEASURED_RUNS= 10;
+
+	private AbstractTextEditor fEditor;
+
+	private boolean fWasFoldingEnabled;
+
+	public static Test suite() {
+		return new PerformanceTestSetup(new TestSuite(THIS));
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fWasFoldingEnabled= EditorTestHelper.enableFolding(true);
+		fEditor= (AbstractTextEditor) EditorTestHelper.openInEditor(ResourceTestHelper.findFile(FILE), EditorTestHelper.COMPILATION_UNIT_EDITOR_ID, true);
+		EditorTestHelper.joinBackgroundActivities(fEditor);
+		setWarmUpRuns(WARM_UP_RUNS);
+		setMeasuredRuns(MEASURED_RUNS);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		EditorTestHelper.closeAllEditors();
+		EditorTestHelper.enableFolding(fWasFoldingEnabled);
+	}
+
+	/**
+	 * Measures the time to update the folding structure after typing into a method body.
+	 *
+	 * @throws BadLocationException if the method cannot be edited
+	 */
+	public void testEditInMethodBody() throws BadLocationException {
+		PerformanceStats stats= PerformanceStats.getStats(FOLDING_UPDATE, DefaultJavaFoldingStructureProvider.class);
+		int updates= stats.getRunCount();
+
+		measureEdit(getNullPerformanceMeter(), getWarmUpRuns());
+		measureEdit(createPerformanceMeter(), getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+
+		if (PerformanceStats.isEnabled(FOLDING_UPDATE))
+			assertTrue(stats.getRunCount() > updates);
+	}
+
+	private void measureEdit(PerformanceMeter performanceMeter, int runs) throws BadLocationException {
+		IDocument document= EditorTestHelper.getDocument(fEditor);
+		SourceViewer viewer= EditorTestHelper.getSourceViewer(fEditor);
+		int offset= document.get().indexOf(METHOD);
+		assertTrue(offset != -1);
+		offset+= METHOD.length();
+		for (int i= 0; i < runs; i++) {
+			performanceMeter.start();
+			document.replace(offset, 0, " ");
+			EditorTestHelper.forceReconcile(viewer);
+			EditorTestHelper.joinReconciler(viewer, 0, 0, 10);
+			performanceMeter.stop();
+			document.replace(offset, 1, "");
+			EditorTestHelper.joinReconciler(viewer, 0, 0, 10);
+		}
+	}
+}
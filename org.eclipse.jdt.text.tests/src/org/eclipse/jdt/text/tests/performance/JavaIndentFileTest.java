@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jdt.text.tests.performance;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.jface.action.IAction;
+
+import org.eclipse.jface.text.IDocument;
+
+import org.eclipse.ui.texteditor.ITextEditor;
+import org.eclipse.ui.texteditor.ITextEditorActionConstants;
+
+/**
+ * Measures the time to correct the indentation of a large compilation unit. Every line is
+ * indented relative to the lines in front of it, so the time depends on how fast the
+ * indenter skips the blocks and parentheses in front of a line.
+ *
+ * @since 3.10
+ */
+public class JavaIndentFileTest extends TextPerformanceTestCase {
+
+	private static final Class THIS= JavaIndentFileTest.class;
+
+	private static final String FILE= PerformanceTestSetup.STYLED_TEXT;
+
+	private static final int WARM_UP_RUNS= 2;
+
+	private static final int MEASURED_RUNS= 5;
+
+	private ITextEditor fEditor;
+
+	public static Test suite() {
+		return new PerformanceTestSetup(new TestSuite(THIS));
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fEditor= (ITextEditor) EditorTestHelper.openInEditor(ResourceTestHelper.findFile(FILE), true);
+		EditorTestHelper.joinBackgroundActivities();
+		setWarmUpRuns(WARM_UP_RUNS);
+		setMeasuredRuns(MEASURED_RUNS);
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		EditorTestHelper.closeAllEditors();
+	}
+
+	/**
+	 * Measures the time to indent all lines of a large compilation unit.
+	 */
+	public void testIndentFile() {
+		measureIndent(getNullPerformanceMeter(), getWarmUpRuns());
+		measureIndent(createPerformanceMeter(), getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measureIndent(PerformanceMeter performanceMeter, int runs) {
+		IDocument document= EditorTestHelper.getDocument(fEditor);
+		String original= document.get();
+		IAction selectAll= fEditor.getAction(ITextEditorActionConstants.SELECT_ALL);
+		IAction indent= fEditor.getAction("Indent");
+		for (int i= 0; i < runs; i++) {
+			runAction(selectAll);
+			performanceMeter.start();
+			runAction(indent);
+			performanceMeter.stop();
+			if (!original.equals(document.get()))
+				document.set(original);
+			EditorTestHelper.runEventQueue(1000);
+		}
+	}
+
+	private void runAction(IAction action) {
+		action.run();
+		EditorTestHelper.runEventQueue();
+	}
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.performance;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.text.tests.Accessor;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.source.SourceViewer;
+
+import org.eclipse.jdt.core.ITypeRoot;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
+import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
+import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlighting;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingManager;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightingReconciler;
+import org.eclipse.jdt.internal.ui.javaeditor.SemanticHighlightings;
+
+
+/**
+ * Measures the time to compute the semantic highlighting of compilation units of increasing
+ * size, after opening them and after an edit inside a method body.
+ *
+ * @since 3.10
+ */
+public class SemanticHighlightingPerformanceTest extends TextPerformanceTestCase {
+
+	private static final Class THIS= SemanticHighlightingPerformanceTest.class;
+
+	private static final String FOLDER= "/" + PerformanceTestSetup.PROJECT + "/Eclipse SWT Custom Widgets/common/org/eclipse/swt/custom/";
+
+	private static final String TYPE_NAME= "SemanticHighlightingScaling";
+
+	private static final String FILE= FOLDER + TYPE_NAME + ".java";
+
+	private static final int WARM_UP_RUNS= 3;
+
+	private static final int MEASURED_RUNS= 10;
+
+	private JavaEditor fEditor;
+
+	private SourceViewer fSourceViewer;
+
+
+	public static Test suite() {
+		return new PerformanceTestSetup(new TestSuite(THIS));
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		setWarmUpRuns(WARM_UP_RUNS);
+		setMeasuredRuns(MEASURED_RUNS);
+
+		IPreferenceStore store= JavaPlugin.getDefault().getPreferenceStore();
+		SemanticHighlighting[] semanticHighlightings= SemanticHighlightings.getSemanticHighlightings();
+		for (int i= 0, n= semanticHighlightings.length; i < n; i++)
+			store.setValue(SemanticHighlightings.getEnabledPreferenceKey(semanticHighlightings[i]), true);
+	}
+
+	protected void tearDown() throws Exception {
+		if (fEditor != null)
+			EditorTestHelper.closeEditor(fEditor);
+		fEditor= null;
+		fSourceViewer= null;
+		ResourceTestHelper.delete(FILE);
+
+		IPreferenceStore store= JavaPlugin.getDefault().getPreferenceStore();
+		SemanticHighlighting[] semanticHighlightings= SemanticHighlightings.getSemanticHighlightings();
+		for (int i= 0, n= semanticHighlightings.length; i < n; i++)
+			store.setToDefault(SemanticHighlightings.getEnabledPreferenceKey(semanticHighlightings[i]));
+		super.tearDown();
+	}
+
+	public void testFullReconcile1000() throws Exception {
+		measureFullReconcile(50);
+	}
+
+	public void testFullReconcile5000() throws Exception {
+		measureFullReconcile(250);
+	}
+
+	public void testFullReconcile15000() throws Exception {
+		measureFullReconcile(750);
+	}
+
+	public void testIncrementalReconcile1000() throws Exception {
+		measureIncrementalReconcile(50);
+	}
+
+	public void testIncrementalReconcile5000() throws Exception {
+		measureIncrementalReconcile(250);
+	}
+
+	public void testIncrementalReconcile15000() throws Exception {
+		measureIncrementalReconcile(750);
+	}
+
+	private void measureFullReconcile(int methods) throws Exception {
+		SemanticHighlightingReconciler reconciler= openEditor(methods);
+		CompilationUnit ast= createAST();
+		measureFullReconcile(getNullPerformanceMeter(), reconciler, ast, getWarmUpRuns());
+		PerformanceMeter performanceMeter= createPerformanceMeter("Java Editor: Semantic highlighting of " + methods * 20 + " lines");
+		measureFullReconcile(performanceMeter, reconciler, ast, getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measureFullReconcile(PerformanceMeter performanceMeter, SemanticHighlightingReconciler reconciler, CompilationUnit ast, int runs) throws Exception {
+		for (int i= 0; i < runs; i++) {
+			performanceMeter.start();
+			reconciler.reconciled(ast, true, new NullProgressMonitor());
+			performanceMeter.stop();
+			EditorTestHelper.runEventQueue();
+		}
+	}
+
+	private void measureIncrementalReconcile(int methods) throws Exception {
+		SemanticHighlightingReconciler reconciler= openEditor(methods);
+		measureIncrementalReconcile(getNullPerformanceMeter(), reconciler, methods, getWarmUpRuns());
+		PerformanceMeter performanceMeter= createPerformanceMeter("Java Editor: Semantic highlighting of an edit in " + methods * 20 + " lines");
+		measureIncrementalReconcile(performanceMeter, reconciler, methods, getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measureIncrementalReconcile(PerformanceMeter performanceMeter, SemanticHighlightingReconciler reconciler, int methods, int runs) throws Exception {
+		IDocument document= fSourceViewer.getDocument();
+		String marker= "int local" + methods / 2 + "= ";
+		for (int i= 0; i < runs; i++) {
+			int offset= document.get().indexOf(marker) + marker.length();
+			document.replace(offset, 0, "1 + ");
+			reconciler.aboutToBeReconciled();
+			CompilationUnit ast= createAST();
+
+			performanceMeter.start();
+			reconciler.reconciled(ast, false, new NullProgressMonitor());
+			performanceMeter.stop();
+
+			EditorTestHelper.runEventQueue();
+			assertTrue(EditorTestHelper.joinReconciler(fSourceViewer, 0, 10000, 100));
+		}
+	}
+
+	private SemanticHighlightingReconciler openEditor(int methods) throws Exception {
+		ResourceTestHelper.write(FILE, createSource(methods));
+		fEditor= (JavaEditor) EditorTestHelper.openInEditor(ResourceTestHelper.findFile(FILE), true);
+		fSourceViewer= EditorTestHelper.getSourceViewer(fEditor);
+		assertTrue(EditorTestHelper.joinReconciler(fSourceViewer, 0, 10000, 100));
+		EditorTestHelper.joinBackgroundActivities();
+
+		SemanticHighlightingManager manager= (SemanticHighlightingManager) new Accessor(fEditor, JavaEditor.class).get("fSemanticManager");
+		return (SemanticHighlightingReconciler) new Accessor(manager, manager.getClass()).get("fReconciler");
+	}
+
+	private CompilationUnit createAST() {
+		ITypeRoot typeRoot= EditorUtility.getEditorInputJavaElement(fEditor, false);
+		ASTParser parser= ASTParser.newParser(ASTProvider.SHARED_AST_LEVEL);
+		parser.setSource(typeRoot);
+		parser.setResolveBindings(true);
+		return (CompilationUnit) parser.createAST(null);
+	}
+
+	/*
+	 * Creates a compilation unit with 20 lines per method.
+	 */
+	private static String createSource(int methods) {
+		StringBuffer buf= new StringBuffer();
+		buf.append("package org.eclipse.swt.custom;\n");
+		buf.append("\n");
+		buf.append("import java.util.ArrayList;\n");
+		buf.append("import java.util.List;\n");
+		buf.append("\n");
+		buf.append("public class " + TYPE_NAME + " {\n");
+		for (int i= 0; i < methods; i++) {
+			buf.append("\tprivate static final int CONSTANT" + i + "= " + i + ";\n");
+			buf.append("\tprivate List field" + i + "= new ArrayList();\n");
+			buf.append("\t/**\n");
+			buf.append("\t * Method " + i + ".\n");
+			buf.append("\t * @param parameter the parameter\n");
+			buf.append("\t * @return the result\n");
+			buf.append("\t */\n");
+			buf.append("\tpublic int method" + i + "(int parameter) {\n");
+			buf.append("\t\tint local" + i + "= parameter + CONSTANT" + i + ";\n");
+			buf.append("\t\tfor (int j= 0; j < local" + i + "; j++) {\n");
+			buf.append("\t\t\tfield" + i + ".add(new Integer(j));\n");
+			buf.append("\t\t\tlocal" + i + "+= field" + i + ".size();\n");
+			buf.append("\t\t}\n");
+			buf.append("\t\tif (local" + i + " > 0)\n");
+			buf.append("\t\t\treturn method" + (i == 0 ? 0 : i - 1) + "(local" + i + " - 1);\n");
+			buf.append("\t\tStyledText text= null;\n");
+			buf.append("\t\tdeprecated();\n");
+			buf.append("\t\treturn text == null ? local" + i + " : text.getCharCount();\n");
+			buf.append("\t}\n");
+			buf.append("\n");
+		}
+		buf.append("\t/** @deprecated */\n");
+		buf.append("\tstatic void deprecated() {\n");
+		buf.append("\t}\n");
+		buf.append("}\n");
+		return buf.toString();
+	}
+}
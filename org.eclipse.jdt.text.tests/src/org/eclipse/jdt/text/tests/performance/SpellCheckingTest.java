@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,6 +37,8 @@ import org.eclipse.ui.texteditor.spelling.SpellingService;
 
 import org.eclipse.ui.editors.text.EditorsUI;
 
+import org.eclipse.jdt.core.JavaCore;
+
 import org.eclipse.jdt.ui.PreferenceConstants;
 
 
@@ -59,6 +61,8 @@ public class SpellCheckingTest extends TextPerformanceTestCase {
 
 	private SpellingContext fSpellingContext;
 
+	private SpellingContext fJavaSpellingContext;
+
 
 	public static Test suite() {
 		return new PerformanceTestSetup(new TestSuite(THIS));
@@ -74,6 +78,8 @@ public class SpellCheckingTest extends TextPerformanceTestCase {
 
 		fSpellingContext= new SpellingContext();
 		fSpellingContext.setContentType(Platform.getContentTypeManager().getContentType(IContentTypeManager.CT_TEXT));
+		fJavaSpellingContext= new SpellingContext();
+		fJavaSpellingContext.setContentType(Platform.getContentTypeManager().getContentType(JavaCore.JAVA_SOURCE_CONTENT_TYPE));
 
 		IFile file= ResourceTestHelper.findFile(FILE);
 		ITextFileBufferManager manager= FileBuffers.getTextFileBufferManager();
@@ -95,18 +101,26 @@ public class SpellCheckingTest extends TextPerformanceTestCase {
 	}
 
 	public void test() throws Exception {
-		measure(getNullPerformanceMeter(), getWarmUpRuns(), true);
+		measure(getNullPerformanceMeter(), fSpellingContext, getWarmUpRuns(), true);
 		PerformanceMeter performanceMeter= createPerformanceMeter("Java Editor: Spell checking");
-		measure(performanceMeter, getMeasuredRuns(), false);
+		measure(performanceMeter, fSpellingContext, getMeasuredRuns(), false);
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	public void testJavaPartitions() throws Exception {
+		measure(getNullPerformanceMeter(), fJavaSpellingContext, getWarmUpRuns(), true);
+		PerformanceMeter performanceMeter= createPerformanceMeter("Java Editor: Spell checking Java partitions");
+		measure(performanceMeter, fJavaSpellingContext, getMeasuredRuns(), false);
 		commitAllMeasurements();
 		assertAllPerformance();
 	}
 
-	private void measure(PerformanceMeter performanceMeter, int runs, boolean printDebugInfo) {
+	private void measure(PerformanceMeter performanceMeter, SpellingContext spellingContext, int runs, boolean printDebugInfo) {
 		SpellingService spellingService= EditorsUI.getSpellingService();
 		for (int i= 0; i < runs; i++) {
 			performanceMeter.start();
-			spellingService.check(fDocument, fSpellingContext, new SpellingProblemCollector(printDebugInfo && i == 0), null);
+			spellingService.check(fDocument, spellingContext, new SpellingProblemCollector(printDebugInfo && i == 0), null);
 			performanceMeter.stop();
 		}
 	}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.text.tests.performance;
+
+import java.net.URL;
+import java.util.Locale;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.jdt.internal.ui.text.spelling.SpellCheckEngine;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.LocaleSensitiveSpellDictionary;
+
+
+/**
+ * Measures the time to load the en_US dictionary from its word list and from the compiled
+ * word list, and the time to compute correction proposals.
+ *
+ * @since 3.10
+ */
+public class SpellDictionaryPerformanceTest extends TextPerformanceTestCase {
+
+	/**
+	 * Dictionary that always reads its word list into memory.
+	 */
+	private static class WordListDictionary extends LocaleSensitiveSpellDictionary {
+
+		public WordListDictionary(Locale locale, URL location) {
+			super(locale, location);
+		}
+
+		protected boolean isCompiled() {
+			return false;
+		}
+	}
+
+	private static final Class THIS= SpellDictionaryPerformanceTest.class;
+
+	private static final int WARM_UP_RUNS= 2;
+
+	private static final int MEASURED_RUNS= 10;
+
+	private static final String[] MISSPELLED_WORDS= { "recieve", "seperate", "occurence", "definately", "accomodate", "wich", "untill", "begining", "enviroment", "publically" };
+
+	private URL fLocation;
+
+
+	public static Test suite() {
+		return new PerformanceTestSetup(new TestSuite(THIS));
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		setWarmUpRuns(WARM_UP_RUNS);
+		setMeasuredRuns(MEASURED_RUNS);
+		fLocation= (URL) SpellCheckEngine.getDictionaryLocations().nextElement();
+	}
+
+	public void testLoadWordList() throws Exception {
+		measureLoad(getNullPerformanceMeter(), false, getWarmUpRuns());
+		PerformanceMeter performanceMeter= createPerformanceMeter("Spelling: Load en_US word list");
+		measureLoad(performanceMeter, false, getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	public void testLoadCompiled() throws Exception {
+		measureLoad(getNullPerformanceMeter(), true, getWarmUpRuns());
+		PerformanceMeter performanceMeter= createPerformanceMeter("Spelling: Load compiled en_US word list");
+		measureLoad(performanceMeter, true, getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	public void testProposalsWordList() throws Exception {
+		measureProposals(getNullPerformanceMeter(), false, getWarmUpRuns());
+		PerformanceMeter performanceMeter= createPerformanceMeter("Spelling: Proposals from en_US word list");
+		measureProposals(performanceMeter, false, getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	public void testProposalsCompiled() throws Exception {
+		measureProposals(getNullPerformanceMeter(), true, getWarmUpRuns());
+		PerformanceMeter performanceMeter= createPerformanceMeter("Spelling: Proposals from compiled en_US word list");
+		measureProposals(performanceMeter, true, getMeasuredRuns());
+		commitAllMeasurements();
+		assertAllPerformance();
+	}
+
+	private void measureLoad(PerformanceMeter performanceMeter, boolean compiled, int runs) {
+		for (int i= 0; i < runs; i++) {
+			LocaleSensitiveSpellDictionary dictionary= createDictionary(compiled);
+			performanceMeter.start();
+			assertTrue(dictionary.isCorrect("dictionary"));
+			performanceMeter.stop();
+			dictionary.unload();
+		}
+	}
+
+	private void measureProposals(PerformanceMeter performanceMeter, boolean compiled, int runs) {
+		LocaleSensitiveSpellDictionary dictionary= createDictionary(compiled);
+		assertTrue(dictionary.isCorrect("dictionary"));
+		for (int i= 0; i < runs; i++) {
+			performanceMeter.start();
+			for (int j= 0; j < MISSPELLED_WORDS.length; j++)
+				assertFalse(dictionary.getProposals(MISSPELLED_WORDS[j], false).isEmpty());
+			performanceMeter.stop();
+		}
+		dictionary.unload();
+	}
+
+	private LocaleSensitiveSpellDictionary createDictionary(boolean compiled) {
+		if (compiled)
+			return new LocaleSensitiveSpellDictionary(Locale.US, fLocation);
+		return new WordListDictionary(Locale.US, fLocation);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -175,6 +175,25 @@ public class SpellCheckEngineTestCase extends TestCase {
 		assertFalse(checker.isCorrect(LORRY));
 	}
 
+	public void testCachedWords() {
+		fPreferences.setValue(PreferenceConstants.SPELLING_LOCALE, Locale.US.toString());
+		final ISpellChecker checker= fEngine.getSpellChecker();
+		assertNotNull(checker);
+
+		assertTrue(checker.isCorrect(TRUCK));
+		assertTrue(checker.isCorrect(TRUCK));
+		fUSDictionary.unload();
+		assertFalse(checker.isCorrect(TRUCK));
+		fUSDictionary.addWord(TRUCK);
+		assertTrue(checker.isCorrect(TRUCK));
+
+		long stamp= checker.getModificationStamp();
+		checker.ignoreWord(LORRY);
+		assertTrue(stamp != checker.getModificationStamp());
+		checker.checkWord(LORRY);
+		assertFalse(checker.isCorrect(LORRY));
+	}
+
 	public void testUKSpellChecker() {
 		fPreferences.setValue(PreferenceConstants.SPELLING_LOCALE, Locale.UK.toString());
 		final ISpellChecker checker= fEngine.getSpellChecker();
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Test;
+
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.core.refactoring.RefactoringSessionDescriptor;
+import org.eclipse.ltk.core.refactoring.history.RefactoringHistory;
+import org.eclipse.ltk.internal.core.refactoring.history.DefaultRefactoringDescriptor;
+import org.eclipse.ltk.internal.core.refactoring.history.DefaultRefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryManager;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryService;
+
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
+
+/**
+ * Reads a shared project refactoring history of 10'000 refactorings in the
+ * history format written by previous releases.
+ */
+public class RefactoringHistoryPerfTests extends JdtPerformanceTestCase {
+
+	private static final String PROJECT_NAME= "RefactoringHistoryPerf";
+	private static final int REFACTORINGS= 10000;
+	private static final long INTERVAL= 6 * 60 * 60 * 1000L;
+	private static final long START= 1104537600000L; // 2005-01-01
+
+	private IProject fProject;
+
+	public static Test suite() {
+		return new OrderedTestSuite(RefactoringHistoryPerfTests.class, new String[] {
+			"testFullHistory",
+			"testRecentHistory",
+			"testResolveDescriptors",
+		});
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject= ResourcesPlugin.getWorkspace().getRoot().getProject(PROJECT_NAME);
+		if (!fProject.exists())
+			fProject.create(null);
+		fProject.open(null);
+		RefactoringHistoryService.setSharedRefactoringHistory(fProject, true, null);
+		createHistory();
+		fProject.refreshLocal(IResource.DEPTH_INFINITE, null);
+		RefactoringHistoryService.getInstance().connect();
+	}
+
+	protected void tearDown() throws Exception {
+		RefactoringHistoryService.getInstance().disconnect();
+		fProject.delete(true, true, null);
+		super.tearDown();
+	}
+
+	/*
+	 * Writes REFACTORINGS descriptors, INTERVAL apart, to the history tree
+	 * of the project, one history and index file per week.
+	 */
+	private void createHistory() throws Exception {
+		Map/*<IPath, List<RefactoringDescriptor>>*/ folders= new HashMap();
+		for (int i= 0; i < REFACTORINGS; i++) {
+			long stamp= START + i * INTERVAL;
+			RefactoringDescriptor descriptor= new DefaultRefactoringDescriptor("org.eclipse.jdt.ui.rename.type", PROJECT_NAME, "Rename type 'Type" + i + "'", "Renamed type 'Type" + i + "' in 'p" + i % 100 + "'", Collections.EMPTY_MAP, getFlags(i));
+			descriptor.setTimeStamp(stamp);
+			IPath path= RefactoringHistoryManager.stampToPath(stamp);
+			List/*<RefactoringDescriptor>*/ list= (List) folders.get(path);
+			if (list == null) {
+				list= new ArrayList();
+				folders.put(path, list);
+			}
+			list.add(descriptor);
+		}
+
+		File root= fProject.getLocation().append(RefactoringHistoryService.NAME_HISTORY_FOLDER).toFile();
+		for (Iterator iterator= folders.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry entry= (Map.Entry) iterator.next();
+			File folder= new File(root, entry.getKey().toString());
+			folder.mkdirs();
+			List list= (List) entry.getValue();
+			RefactoringDescriptor[] descriptors= (RefactoringDescriptor[]) list.toArray(new RefactoringDescriptor[list.size()]);
+			RefactoringDescriptorProxy[] proxies= new RefactoringDescriptorProxy[descriptors.length];
+			for (int i= 0; i < descriptors.length; i++)
+				proxies[i]= new DefaultRefactoringDescriptorProxy(descriptors[i].getDescription(), PROJECT_NAME, descriptors[i].getTimeStamp());
+
+			OutputStream stream= new BufferedOutputStream(new FileOutputStream(new File(folder, RefactoringHistoryService.NAME_HISTORY_FILE)));
+			try {
+				RefactoringHistoryManager.writeRefactoringSession(stream, new RefactoringSessionDescriptor(descriptors, RefactoringSessionDescriptor.VERSION_1_0, null), true);
+			} finally {
+				stream.close();
+			}
+			stream= new BufferedOutputStream(new FileOutputStream(new File(folder, RefactoringHistoryService.NAME_INDEX_FILE)));
+			try {
+				RefactoringHistoryManager.writeRefactoringDescriptorProxies(stream, proxies);
+			} finally {
+				stream.close();
+			}
+		}
+	}
+
+	private static int getFlags(int i) {
+		return i % 10 == 0 ? RefactoringDescriptor.BREAKING_CHANGE : RefactoringDescriptor.STRUCTURAL_CHANGE;
+	}
+
+	public void testFullHistory() throws Exception {
+		measure(Performance.getDefault().getNullPerformanceMeter(), 0, Long.MAX_VALUE, RefactoringDescriptor.NONE, REFACTORINGS, 2);
+		measure(fPerformanceMeter, 0, Long.MAX_VALUE, RefactoringDescriptor.NONE, REFACTORINGS, 10);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	public void testRecentHistory() throws Exception {
+		// the last 30 days
+		int count= (int) (30 * 24 * 60 * 60 * 1000L / INTERVAL);
+		long end= START + (REFACTORINGS - 1) * INTERVAL;
+		long start= end - (count - 1) * INTERVAL;
+		measure(Performance.getDefault().getNullPerformanceMeter(), start, end, RefactoringDescriptor.NONE, count, 2);
+		measure(fPerformanceMeter, start, end, RefactoringDescriptor.NONE, count, 10);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	public void testResolveDescriptors() throws Exception {
+		// filtering by flags resolves every descriptor of the range
+		measure(Performance.getDefault().getNullPerformanceMeter(), 0, Long.MAX_VALUE, RefactoringDescriptor.BREAKING_CHANGE, REFACTORINGS / 10, 1);
+		measure(fPerformanceMeter, 0, Long.MAX_VALUE, RefactoringDescriptor.BREAKING_CHANGE, REFACTORINGS / 10, 5);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	private void measure(PerformanceMeter performanceMeter, long start, long end, int flags, int expected, int runs) throws Exception {
+		for (int j= 0; j < runs; j++) {
+			joinBackgroudActivities();
+
+			performanceMeter.start();
+			RefactoringHistory history= RefactoringHistoryService.getInstance().getProjectHistory(fProject, start, end, flags, new NullProgressMonitor());
+			performanceMeter.stop();
+
+			assertEquals(expected, history.getDescriptors().length);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.reorg;
+
+import junit.framework.Test;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.test.OrderedTestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.corext.refactoring.generics.InferTypeArgumentsConstraintCreator;
+import org.eclipse.jdt.internal.corext.refactoring.generics.InferTypeArgumentsConstraintsSolver;
+import org.eclipse.jdt.internal.corext.refactoring.generics.InferTypeArgumentsTCModel;
+import org.eclipse.jdt.internal.corext.refactoring.generics.InferTypeArgumentsUpdate;
+
+import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
+
+import org.eclipse.jdt.ui.tests.refactoring.infra.RefactoringPerformanceTestSetup;
+
+/**
+ * Measures solving the type constraints of Infer Generic Type Arguments on generated
+ * sources that use raw collections. The constraint model is built before the measurement.
+ * Every method of a class passes its collection on to the previous method, and the first
+ * method of a class to the last method of the previous class, so that type estimates
+ * propagate through the whole model. The model of 200 classes with 50 methods each has
+ * roughly 100,000 type constraints.
+ */
+public class InferTypeArgumentsSolverPerfTests extends RepeatingRefactoringPerformanceTestCase {
+
+	public static Test suite() {
+		// we must make sure that cold is executed before warm
+		OrderedTestSuite suite= new OrderedTestSuite(InferTypeArgumentsSolverPerfTests.class, new String [] {
+			"testCold_20_10",
+			"testSolve_200_50",
+		});
+		return new RefactoringPerformanceTestSetup(suite);
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new RefactoringPerformanceTestSetup(someTest);
+	}
+
+	public InferTypeArgumentsSolverPerfTests(String name) {
+		super(name);
+	}
+
+	public void testCold_20_10() throws Exception {
+		executeRefactoring(20, 10, false, 3);
+	}
+
+	public void testSolve_200_50() throws Exception {
+		executeRefactoring(200, 50, true, 5);
+	}
+
+	protected void doExecuteRefactoring(int numberOfClasses, int numberOfMethods, boolean measure) throws Exception {
+		IJavaProject project= fTestProject.getProject();
+		JavaProjectHelper.removeFromClasspath(project, JavaProjectHelper.findRtJar(JavaProjectHelper.RT_STUBS_13)[0]);
+		JavaProjectHelper.addRTJar15(project);
+		ICompilationUnit[] cus= generateSources(numberOfClasses, numberOfMethods);
+		InferTypeArgumentsTCModel model= createModel(project, cus);
+		joinBackgroudActivities();
+		if (measure)
+			startMeasuring();
+		InferTypeArgumentsUpdate update= new InferTypeArgumentsConstraintsSolver(model).solveConstraints(new NullProgressMonitor());
+		if (measure)
+			finishMeasurements();
+		assertEquals(numberOfClasses, update.getUpdates().size());
+	}
+
+	private static InferTypeArgumentsTCModel createModel(IJavaProject project, ICompilationUnit[] cus) {
+		final InferTypeArgumentsTCModel model= new InferTypeArgumentsTCModel();
+		final InferTypeArgumentsConstraintCreator creator= new InferTypeArgumentsConstraintCreator(model, false);
+		ASTParser parser= ASTParser.newParser(ASTProvider.SHARED_AST_LEVEL);
+		parser.setProject(project);
+		parser.setResolveBindings(true);
+		parser.createASTs(cus, new String[0], new ASTRequestor() {
+			@Override
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				IProblem[] problems= ast.getProblems();
+				for (int i= 0; i < problems.length; i++)
+					assertFalse(problems[i].getMessage(), problems[i].isError());
+				ast.accept(creator);
+				model.newCu();
+			}
+		}, null);
+		model.newCu();
+		return model;
+	}
+
+	private ICompilationUnit[] generateSources(int numberOfClasses, int numberOfMethods) throws Exception {
+		IPackageFragment pack= fTestProject.getSourceFolder().createPackageFragment("gen", false, null);
+		ICompilationUnit[] result= new ICompilationUnit[numberOfClasses];
+		for (int i= 0; i < numberOfClasses; i++) {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package gen;\n");
+			buf.append("import java.util.*;\n");
+			buf.append("public class C" + i + " {\n");
+			buf.append("    private List fItems= new ArrayList();\n");
+			for (int j= 0; j < numberOfMethods; j++) {
+				buf.append("    public List m" + j + "(List list) {\n");
+				buf.append("        List result= new ArrayList();\n");
+				buf.append("        result.addAll(list);\n");
+				buf.append("        result.add(\"m" + j + "\");\n");
+				buf.append("        Map map= new HashMap();\n");
+				buf.append("        for (Iterator iter= result.iterator(); iter.hasNext();) {\n");
+				buf.append("            String element= (String) iter.next();\n");
+				buf.append("            map.put(element, result);\n");
+				buf.append("        }\n");
+				buf.append("        fItems.addAll(result);\n");
+				if (j > 0)
+					buf.append("        return m" + (j - 1) + "((List) map.get(\"m" + j + "\"));\n");
+				else if (i > 0)
+					buf.append("        return new C" + (i - 1) + "().m" + (numberOfMethods - 1) + "((List) map.get(\"m0\"));\n");
+				else
+					buf.append("        return (List) map.get(\"m0\");\n");
+				buf.append("    }\n");
+			}
+			buf.append("}\n");
+			result[i]= pack.createCompilationUnit("C" + i + ".java", buf.toString(), false, null);
+		}
+		return result;
+	}
+}
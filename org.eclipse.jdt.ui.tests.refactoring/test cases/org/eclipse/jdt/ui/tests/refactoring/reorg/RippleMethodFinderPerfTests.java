@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.reorg;
+
+import junit.framework.Test;
+
+import org.eclipse.test.OrderedTestSuite;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
+import org.eclipse.jdt.internal.corext.refactoring.rename.RippleMethodFinder2;
+
+import org.eclipse.jdt.ui.tests.refactoring.infra.RefactoringPerformanceTestSetup;
+
+/**
+ * Measures finding the ripple methods of a method that is declared by many unrelated
+ * interfaces. Every interface is implemented by many classes, and one class marries the first
+ * interface with each of the others, so the type hierarchies of all interfaces are needed.
+ */
+public class RippleMethodFinderPerfTests extends RepeatingRefactoringPerformanceTestCase {
+
+	private int fParallelism;
+
+	public static Test suite() {
+		// we must make sure that cold is executed before warm
+		OrderedTestSuite suite= new OrderedTestSuite(RippleMethodFinderPerfTests.class, new String [] {
+			"testCold_10_10",
+			"testSequential_20_50",
+			"testParallel_20_50",
+		});
+		return new RefactoringPerformanceTestSetup(suite);
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new RefactoringPerformanceTestSetup(someTest);
+	}
+
+	public RippleMethodFinderPerfTests(String name) {
+		super(name);
+	}
+
+	public void testCold_10_10() throws Exception {
+		fParallelism= ASTBatchParser.getDefaultParallelism();
+		executeRefactoring(10, 10, false, 3);
+	}
+
+	public void testSequential_20_50() throws Exception {
+		fParallelism= 1;
+		executeRefactoring(20, 50, true, 10);
+	}
+
+	public void testParallel_20_50() throws Exception {
+		fParallelism= ASTBatchParser.getDefaultParallelism();
+		executeRefactoring(20, 50, true, 10);
+	}
+
+	protected void doExecuteRefactoring(int numberOfInterfaces, int numberOfImplementors, boolean measure) throws Exception {
+		ICompilationUnit cunit= generateSources(numberOfInterfaces, numberOfImplementors);
+		IMethod method= cunit.findPrimaryType().getMethod("foo", new String[0]);
+		joinBackgroudActivities();
+		if (measure)
+			startMeasuring();
+		IMethod[] methods= RippleMethodFinder2.getRelatedMethods(method, true, fParallelism, new NullProgressMonitor(), null);
+		if (measure)
+			finishMeasurements();
+		assertEquals(numberOfInterfaces * (numberOfImplementors + 1), methods.length);
+	}
+
+	private ICompilationUnit generateSources(int numberOfInterfaces, int numberOfImplementors) throws Exception {
+		IPackageFragment definition= fTestProject.getSourceFolder().createPackageFragment("def", false, null);
+		IPackageFragment implementations= fTestProject.getSourceFolder().createPackageFragment("impl", false, null);
+		ICompilationUnit result= null;
+		for (int i= 0; i < numberOfInterfaces; i++) {
+			StringBuffer buf= new StringBuffer();
+			buf.append("package def;\n");
+			buf.append("public interface I" + i + " {\n");
+			buf.append("    void foo();\n");
+			buf.append("}\n");
+			ICompilationUnit cu= definition.createCompilationUnit("I" + i + ".java", buf.toString(), false, null);
+			if (i == 0)
+				result= cu;
+
+			for (int j= 0; j < numberOfImplementors; j++) {
+				buf= new StringBuffer();
+				buf.append("package impl;\n");
+				buf.append("public class C" + i + "_" + j + " implements def.I" + i + " {\n");
+				buf.append("    public void foo() {\n");
+				buf.append("    }\n");
+				buf.append("}\n");
+				implementations.createCompilationUnit("C" + i + "_" + j + ".java", buf.toString(), false, null);
+			}
+
+			if (i > 0) {
+				buf= new StringBuffer();
+				buf.append("package impl;\n");
+				buf.append("public class M" + i + " extends C0_0 implements def.I" + i + " {\n");
+				buf.append("}\n");
+				implementations.createCompilationUnit("M" + i + ".java", buf.toString(), false, null);
+			}
+		}
+		return result;
+	}
+}
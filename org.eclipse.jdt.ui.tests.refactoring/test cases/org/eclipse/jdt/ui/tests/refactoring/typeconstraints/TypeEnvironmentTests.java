@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,8 +20,10 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTVisitor;
@@ -329,6 +331,30 @@ public class TypeEnvironmentTests extends AbstractCUTestCase {
 		testBindings(collector.getResult());
 	}
 
+	public void testSharedEnvironment() throws Exception {
+		IJavaProject project= RefactoringTestSetup.getProject();
+		TypeEnvironment environment= TypeEnvironment.getSharedEnvironment(project);
+		assertSame(environment, TypeEnvironment.getSharedEnvironment(project));
+
+		IType string= project.findType("java.lang.String");
+		TType first= environment.create(createTypeBinding(project, string));
+		TType second= environment.create(createTypeBinding(project, string));
+		assertSame("Not same type", first, second);
+
+		ICompilationUnit unit= MyTestSetup.getSignaturePackage().createCompilationUnit("Shared.java", "package signature;\npublic class Shared {\n}\n", true, null);
+		try {
+			assertNotSame(environment, TypeEnvironment.getSharedEnvironment(project));
+		} finally {
+			unit.delete(true, null);
+		}
+	}
+
+	private static ITypeBinding createTypeBinding(IJavaProject project, IType type) {
+		ASTParser parser= ASTParser.newParser(ASTProvider.SHARED_AST_LEVEL);
+		parser.setProject(project);
+		return (ITypeBinding) parser.createBindings(new IJavaElement[] { type }, null)[0];
+	}
+
 	public void _testAssignment() throws Exception {
 		ASTNode node= createAST(MyTestSetup.getGenericPackage());
 		TypeBindingCollector collector= new TypeBindingCollector();
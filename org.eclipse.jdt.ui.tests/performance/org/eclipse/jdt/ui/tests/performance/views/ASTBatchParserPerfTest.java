@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance.views;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
+
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
+
+public class ASTBatchParserPerfTest extends JdtPerformanceTestCase {
+
+	private static class MyTestSetup extends TestSetup {
+		public static final String SRC_CONTAINER= "src";
+
+		public static IJavaProject fJProject1;
+		public static IJavaProject fJProject2;
+
+		public MyTestSetup(Test test) {
+			super(test);
+		}
+
+		protected void setUp() throws Exception {
+			File junitSrcArchive= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.JUNIT_SRC_381);
+
+			fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+			assertTrue("rt not found", JavaProjectHelper.addRTJar(fJProject1) != null);
+			JavaProjectHelper.addSourceContainerWithImport(fJProject1, SRC_CONTAINER, junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
+
+			fJProject2= JavaProjectHelper.createJavaProject("TestProject2", "bin");
+			assertTrue("rt not found", JavaProjectHelper.addRTJar(fJProject2) != null);
+			JavaProjectHelper.addSourceContainerWithImport(fJProject2, SRC_CONTAINER, junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
+		}
+
+		protected void tearDown() throws Exception {
+			if (fJProject1 != null && fJProject1.exists())
+				JavaProjectHelper.delete(fJProject1);
+			if (fJProject2 != null && fJProject2.exists())
+				JavaProjectHelper.delete(fJProject2);
+		}
+	}
+
+	private static class CountingRequestor extends ASTRequestor {
+		private final Thread fThread= Thread.currentThread();
+		private int fCount;
+
+		public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+			assertSame("requestor called from worker thread", fThread, Thread.currentThread());
+			assertNotNull(ast);
+			fCount++;
+		}
+	}
+
+	public static Test suite() {
+		return new MyTestSetup(new OrderedTestSuite(ASTBatchParserPerfTest.class, new String[] {
+			"testSequential",
+			"testParallel",
+		}));
+	}
+
+	public static Test setUpTest(Test someTest) {
+		return new MyTestSetup(someTest);
+	}
+
+	private void addAllCUs(IJavaElement[] children, List result) throws JavaModelException {
+		for (int i= 0; i < children.length; i++) {
+			IJavaElement element= children[i];
+			if (element instanceof ICompilationUnit) {
+				result.add(element);
+			} else if (element instanceof IPackageFragmentRoot) {
+				IPackageFragmentRoot root= ((IPackageFragmentRoot)element);
+				addAllCUs(root.getChildren(), result);
+			} else if (element instanceof IPackageFragment) {
+				IPackageFragment pack= ((IPackageFragment)element);
+				addAllCUs(pack.getChildren(), result);
+			}
+		}
+	}
+
+	private ICompilationUnit[] getAllCUs() throws JavaModelException {
+		List cusList= new ArrayList();
+		addAllCUs(MyTestSetup.fJProject1.getChildren(), cusList);
+		addAllCUs(MyTestSetup.fJProject2.getChildren(), cusList);
+		return (ICompilationUnit[])cusList.toArray(new ICompilationUnit[cusList.size()]);
+	}
+
+	public void testSequential() throws Exception {
+		measure(Performance.getDefault().getNullPerformanceMeter(), new ASTBatchParser(), 2);
+		measure(fPerformanceMeter, new ASTBatchParser(), 10);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	public void testParallel() throws Exception {
+		int parallelism= ASTBatchParser.getDefaultParallelism();
+		measure(Performance.getDefault().getNullPerformanceMeter(), new ASTBatchParser(parallelism), 2);
+		measure(fPerformanceMeter, new ASTBatchParser(parallelism), 10);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	private void measure(PerformanceMeter performanceMeter, ASTBatchParser parser, int runs) throws Exception {
+		ICompilationUnit[] cus= getAllCUs();
+		for (int j= 0; j < runs; j++) {
+			joinBackgroudActivities();
+
+			CountingRequestor requestor= new CountingRequestor();
+			performanceMeter.start();
+			parser.createASTs(cus, new String[0], requestor, new NullProgressMonitor());
+			performanceMeter.stop();
+
+			assertEquals(cus.length, requestor.fCount);
+		}
+	}
+}
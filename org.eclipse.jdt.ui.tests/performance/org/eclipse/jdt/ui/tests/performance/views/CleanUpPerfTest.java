@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -171,6 +171,11 @@ public class CleanUpPerfTest extends JdtPerformanceTestCase {
 		});
 
 		doCleanUp(cleanUpRefactoring);
+
+		// a clean up without changes must not trigger another round
+		CleanUpRefactoring.CleanUpTimings timings= cleanUpRefactoring.getTimings();
+		assertEquals(1, timings.getRounds());
+		assertEquals(cleanUpRefactoring.getCleanUpTargetsSize(), timings.getParsedUnits());
 	}
 
 	public void testAllCleanUps() throws Exception {
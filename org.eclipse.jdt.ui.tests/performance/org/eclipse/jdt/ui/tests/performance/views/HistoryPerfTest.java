@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance.views;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import junit.framework.Test;
+
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.jdt.internal.corext.util.QualifiedTypeNameHistory;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
+
+/**
+ * Measures reading and writing a full type name history, as done on every startup and
+ * shutdown, once from the xml file written by previous releases and once from the current
+ * history file.
+ */
+public class HistoryPerfTest extends JdtPerformanceTestCase {
+
+	private static final String FILE_NAME= "HistoryPerfTest.xml";
+	private static final String BINARY_FILE_NAME= "HistoryPerfTest.dat";
+	private static final int ENTRIES= 60;
+	private static final int REPEATS= 100;
+
+	public static Test suite() {
+		return new OrderedTestSuite(HistoryPerfTest.class, new String[] {
+			"testLoadXML",
+			"testLoad",
+			"testSave",
+		});
+	}
+
+	protected void tearDown() throws Exception {
+		getFile(FILE_NAME).delete();
+		getFile(BINARY_FILE_NAME).delete();
+		super.tearDown();
+	}
+
+	public void testLoadXML() throws Exception {
+		measureLoad(Performance.getDefault().getNullPerformanceMeter(), true, 2);
+		measureLoad(fPerformanceMeter, true, 10);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	public void testLoad() throws Exception {
+		measureLoad(Performance.getDefault().getNullPerformanceMeter(), false, 2);
+		measureLoad(fPerformanceMeter, false, 10);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	public void testSave() throws Exception {
+		measureSave(Performance.getDefault().getNullPerformanceMeter(), 2);
+		measureSave(fPerformanceMeter, 10);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	private void measureLoad(PerformanceMeter performanceMeter, boolean xml, int runs) throws Exception {
+		if (!xml) {
+			writeXMLHistory();
+			new QualifiedTypeNameHistory(FILE_NAME).save();
+		}
+		for (int j= 0; j < runs; j++) {
+			joinBackgroudActivities();
+
+			QualifiedTypeNameHistory history= null;
+			performanceMeter.start();
+			for (int i= 0; i < REPEATS; i++) {
+				if (xml)
+					writeXMLHistory();
+				history= new QualifiedTypeNameHistory(FILE_NAME);
+				if (xml)
+					history.save();
+			}
+			performanceMeter.stop();
+
+			assertEquals(ENTRIES - 1, history.getPosition(getTypeName(ENTRIES - 1)));
+		}
+	}
+
+	private void measureSave(PerformanceMeter performanceMeter, int runs) throws Exception {
+		writeXMLHistory();
+		QualifiedTypeNameHistory history= new QualifiedTypeNameHistory(FILE_NAME);
+		for (int j= 0; j < runs; j++) {
+			joinBackgroudActivities();
+
+			performanceMeter.start();
+			for (int i= 0; i < REPEATS; i++) {
+				history.accessed(getTypeName(i % ENTRIES));
+				history.save();
+			}
+			performanceMeter.stop();
+		}
+		assertTrue(getFile(BINARY_FILE_NAME).exists());
+	}
+
+	/*
+	 * Writes a history of ENTRIES type names in the xml format of previous releases.
+	 */
+	private static void writeXMLHistory() throws Exception {
+		getFile(BINARY_FILE_NAME).delete();
+		Writer writer= new OutputStreamWriter(new FileOutputStream(getFile(FILE_NAME)), "UTF-8");
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<qualifiedTypeNameHistroy>\n");
+			for (int i= 0; i < ENTRIES; i++)
+				writer.write("<fullyQualifiedTypeName name=\"" + getTypeName(i) + "\"/>\n");
+			writer.write("</qualifiedTypeNameHistroy>\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String getTypeName(int i) {
+		return "org.eclipse.example.p" + i % 10 + ".Type" + i;
+	}
+
+	private static File getFile(String name) {
+		return JavaPlugin.getDefault().getStateLocation().append(name).toFile();
+	}
+}
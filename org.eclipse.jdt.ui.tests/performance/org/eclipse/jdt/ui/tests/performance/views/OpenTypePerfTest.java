@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import org.eclipse.swt.widgets.Shell;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.ui.dialogs.ISelectionStatusValidator;
 import org.eclipse.ui.dialogs.SelectionDialog;
@@ -36,6 +37,8 @@ import org.eclipse.jdt.ui.dialogs.TypeSelectionExtension;
 import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
 import org.eclipse.jdt.ui.tests.performance.SWTTestProject;
 
+import org.eclipse.jdt.internal.corext.util.TypeNameCache;
+
 import org.eclipse.jdt.internal.ui.JavaPlugin;
 import org.eclipse.jdt.internal.ui.util.CoreUtility;
 
@@ -75,6 +78,8 @@ public class OpenTypePerfTest extends JdtPerformanceTestCase {
 					"testWarmS10",
 					"testWarmOpenSWT",
 					"testWarmOpenSWTHistory10",
+					"testColdCachedException",
+					"testWarmCachedException10",
 				});
 		return new MyTestSetup(testSuite);
 	}
@@ -166,8 +171,42 @@ public class OpenTypePerfTest extends JdtPerformanceTestCase {
 		}
 	}
 
+	public void testColdCachedException() throws Exception {
+		//cold start with a persisted type name cache
+		joinTypeNameCache();
+		TypeNameCache.shutdown();
+		joinBackgroudActivities();
+		try {
+			measureOpenType("*Exception");
+		} finally {
+			commitMeasurements();
+			assertPerformanceInRelativeBand(Dimension.ELAPSED_PROCESS, -100, +10);
+		}
+	}
+
+	public void testWarmCachedException10() throws Exception {
+		//warm, repeated, answered from the type name cache
+		joinTypeNameCache();
+		joinBackgroudActivities();
+		try {
+			for (int i= 0; i < 10; i++) {
+				measureOpenType("*Exception");
+			}
+		} finally {
+			commitMeasurements();
+			assertPerformanceInRelativeBand(Dimension.ELAPSED_PROCESS, -100, +10);
+		}
+	}
+
 	//---
 
+	private void joinTypeNameCache() throws Exception {
+		TypeNameCache cache= TypeNameCache.getInstance();
+		Job.getJobManager().join(TypeNameCache.FAMILY, null);
+		assertTrue(cache.isAvailable());
+		cache.save();
+	}
+
 	private void measureOpenType(String pattern) throws Exception {
 		measureOpenType(pattern, false);
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -34,6 +34,7 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 
 import org.eclipse.jdt.internal.corext.codemanipulation.OrganizeImportsOperation;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.ui.SharedASTProvider;
 import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
@@ -64,7 +65,8 @@ public class OrganizeImportsPerfTest extends JdtPerformanceTestCase {
 
 	public static Test suite() {
 		return new MyTestSetup(new OrderedTestSuite(OrganizeImportsPerfTest.class, new String[] {
-			"testOrganizeImport"
+			"testOrganizeImport",
+			"testOrganizeImportBatch"
 		}));
 	}
 
@@ -106,7 +108,23 @@ public class OrganizeImportsPerfTest extends JdtPerformanceTestCase {
 		Performance.getDefault().assertPerformance(fPerformanceMeter);
 	}
 
+	public void testOrganizeImportBatch() throws Exception {
+		measure(Performance.getDefault().getNullPerformanceMeter(), 10, true);
+		measure(fPerformanceMeter, 10, true);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
 	private void measure(PerformanceMeter performanceMeter, int runs) throws Exception {
+		measure(performanceMeter, runs, false);
+	}
+
+	/*
+	 * In batch mode, all compilation units share the type name index of the project, like
+	 * the organize imports clean up does. The index is built inside the measurement.
+	 */
+	private void measure(PerformanceMeter performanceMeter, int runs, boolean batch) throws Exception {
 		for (int j= 0; j < runs; j++) {
 			List cusList= new ArrayList();
 			addAllCUs(MyTestSetup.fJProject1.getChildren(), cusList);
@@ -116,9 +134,15 @@ public class OrganizeImportsPerfTest extends JdtPerformanceTestCase {
 			joinBackgroudActivities();
 			
 			performanceMeter.start();
-			for (int i= 0; i < roots.length; i++) {
-				OrganizeImportsOperation op= new OrganizeImportsOperation(cus[i], roots[i], true, true, true, null);
-				op.run(new NullProgressMonitor());
+			TypeNameIndex index= batch ? TypeNameIndex.connect(MyTestSetup.fJProject1) : null;
+			try {
+				for (int i= 0; i < roots.length; i++) {
+					OrganizeImportsOperation op= new OrganizeImportsOperation(cus[i], roots[i], true, true, true, null);
+					op.run(new NullProgressMonitor());
+				}
+			} finally {
+				if (index != null)
+					index.disconnect();
 			}
 			performanceMeter.stop();
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,17 +14,27 @@ package org.eclipse.jdt.ui.tests.performance.views;
 import junit.extensions.TestSetup;
 import junit.framework.Test;
 
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
 import org.eclipse.test.OrderedTestSuite;
 
+import org.eclipse.swt.widgets.Display;
+
 import org.eclipse.core.resources.ResourcesPlugin;
 
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaModelException;
+
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
 
+import org.eclipse.jdt.internal.ui.packageview.PackageExplorerPart;
+
 public class PackageExplorerWorkspacePerfTest extends JdtPerformanceTestCase {
 
 	private static class MyTestSetup extends TestSetup {
@@ -54,7 +64,8 @@ public class PackageExplorerWorkspacePerfTest extends JdtPerformanceTestCase {
 
 	public static Test suite() {
 		OrderedTestSuite suite= new OrderedTestSuite(PackageExplorerWorkspacePerfTest.class, new String[] {
-			"testOpen"
+			"testOpen",
+			"testManyChanges"
 		});
 		return new MyTestSetup(suite);
 	}
@@ -77,4 +88,52 @@ public class PackageExplorerWorkspacePerfTest extends JdtPerformanceTestCase {
 		page.showView(JavaUI.ID_PACKAGES);
 		finishMeasurements();
 	}
+
+	/*
+	 * Creates many compilation units in separate operations outside of the UI thread, as
+	 * done by builds or checkouts, and measures until the Package Explorer is up to date.
+	 */
+	public void testManyChanges() throws Exception {
+		final IJavaProject project= JavaProjectHelper.createJavaProject("PackageExplorerWorkspacePerfTest", "bin");
+		try {
+			IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(project, "src");
+			final IPackageFragment[] packages= new IPackageFragment[10];
+			for (int i= 0; i < packages.length; i++)
+				packages[i]= root.createPackageFragment("p" + i, true, null);
+
+			IWorkbenchPage page= PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage();
+			PackageExplorerPart view= (PackageExplorerPart) page.showView(JavaUI.ID_PACKAGES);
+			view.selectAndReveal(packages[0]);
+			joinBackgroudActivities();
+
+			final JavaModelException[] exception= new JavaModelException[1];
+			Thread thread= new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (int i= 0; i < 50; i++) {
+							for (int j= 0; j < packages.length; j++)
+								packages[j].createCompilationUnit("C" + i + ".java", "package p" + j + ";\npublic class C" + i + " {\n}\n", true, null);
+						}
+					} catch (JavaModelException e) {
+						exception[0]= e;
+					}
+				}
+			}, "PackageExplorerWorkspacePerfTest");
+
+			Display display= Display.getCurrent();
+			startMeasuring();
+			thread.start();
+			while (thread.isAlive()) {
+				if (!display.readAndDispatch())
+					thread.join(10);
+			}
+			view.selectAndReveal(packages[0]); // runs pending updates
+			finishMeasurements();
+
+			if (exception[0] != null)
+				throw exception[0];
+		} finally {
+			JavaProjectHelper.delete(project);
+		}
+	}
 }
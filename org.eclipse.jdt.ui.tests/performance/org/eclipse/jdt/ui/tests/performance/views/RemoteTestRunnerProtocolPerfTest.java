@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.performance.views;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+
+import junit.framework.Test;
+
+import org.eclipse.test.OrderedTestSuite;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+
+import org.eclipse.jdt.internal.junit.model.ITestRunListener2;
+import org.eclipse.jdt.internal.junit.model.RemoteTestRunnerClient;
+import org.eclipse.jdt.internal.junit.runner.BinaryMessageSender;
+import org.eclipse.jdt.internal.junit.runner.MessageIds;
+import org.eclipse.jdt.internal.junit.runner.MessageSender;
+
+import org.eclipse.jdt.launching.SocketUtil;
+
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCase;
+
+/**
+ * Replays a synthetic run of 100'000 tests from a fake test runner to a
+ * {@link RemoteTestRunnerClient} over a loopback socket, once with the
+ * text protocol and once with the binary protocol.
+ */
+public class RemoteTestRunnerProtocolPerfTest extends JdtPerformanceTestCase {
+
+	private static final int SUITES= 100;
+	private static final int TESTS_PER_SUITE= 1000;
+	private static final int FAILURE_INTERVAL= 100;
+	private static final int COMPARISON_FAILURE_INTERVAL= 1000;
+	private static final int TRACE_LINES= 40;
+
+	private static class TextMessageSender implements MessageSender {
+		private final PrintWriter fWriter;
+
+		public TextMessageSender(OutputStream out) throws IOException {
+			fWriter= new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, "UTF-8")), false);
+		}
+
+		public void sendMessage(String msg) {
+			fWriter.println(msg);
+		}
+
+		public void flush() {
+			fWriter.flush();
+		}
+	}
+
+	private static class CountingListener implements ITestRunListener2 {
+		int fTreeEntries;
+		int fStarted;
+		int fEnded;
+		int fFailed;
+		int fComparisons;
+		boolean fDone;
+
+		public void testRunStarted(int testCount) {
+			assertEquals(SUITES * TESTS_PER_SUITE, testCount);
+		}
+
+		public synchronized void testRunEnded(long elapsedTime) {
+			fDone= true;
+			notifyAll();
+		}
+
+		public synchronized void testRunStopped(long elapsedTime) {
+			fDone= true;
+			notifyAll();
+		}
+
+		public synchronized void testRunTerminated() {
+			fDone= true;
+			notifyAll();
+		}
+
+		public void testStarted(String testId, String testName) {
+			fStarted++;
+		}
+
+		public void testEnded(String testId, String testName) {
+			fEnded++;
+		}
+
+		public void testTreeEntry(String description) {
+			fTreeEntries++;
+		}
+
+		public void testFailed(int status, String testId, String testName, String trace, String expected, String actual) {
+			assertTrue(trace.startsWith("junit.framework.AssertionFailedError"));
+			fFailed++;
+			if (expected != null && actual != null)
+				fComparisons++;
+		}
+
+		public void testReran(String testId, String testClass, String testName, int status, String trace, String expected, String actual) {
+		}
+
+		public synchronized void waitUntilDone() throws InterruptedException {
+			long end= System.currentTimeMillis() + 5 * 60 * 1000;
+			while (!fDone && System.currentTimeMillis() < end)
+				wait(1000);
+			assertTrue("test run did not end", fDone);
+		}
+	}
+
+	public static Test suite() {
+		return new OrderedTestSuite(RemoteTestRunnerProtocolPerfTest.class, new String[] {
+			"testTextProtocol",
+			"testBinaryProtocol",
+		});
+	}
+
+	public void testTextProtocol() throws Exception {
+		measure(Performance.getDefault().getNullPerformanceMeter(), false, 2);
+		measure(fPerformanceMeter, false, 10);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	public void testBinaryProtocol() throws Exception {
+		measure(Performance.getDefault().getNullPerformanceMeter(), true, 2);
+		measure(fPerformanceMeter, true, 10);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	private void measure(PerformanceMeter performanceMeter, boolean binary, int runs) throws Exception {
+		for (int j= 0; j < runs; j++) {
+			joinBackgroudActivities();
+
+			int port= SocketUtil.findFreePort();
+			CountingListener listener= new CountingListener();
+			RemoteTestRunnerClient client= new RemoteTestRunnerClient();
+			client.startListening(new ITestRunListener2[] { listener }, port);
+			Socket socket= connect(port);
+			try {
+				MessageSender sender= binary ? (MessageSender) new BinaryMessageSender(socket.getOutputStream()) : new TextMessageSender(socket.getOutputStream());
+
+				performanceMeter.start();
+				replayTestRun(sender);
+				listener.waitUntilDone();
+				performanceMeter.stop();
+			} finally {
+				socket.close();
+			}
+
+			assertEquals(SUITES * (TESTS_PER_SUITE + 1) + 1, listener.fTreeEntries);
+			assertEquals(SUITES * TESTS_PER_SUITE, listener.fStarted);
+			assertEquals(SUITES * TESTS_PER_SUITE, listener.fEnded);
+			assertEquals(SUITES * TESTS_PER_SUITE / FAILURE_INTERVAL, listener.fFailed);
+			assertEquals(SUITES * TESTS_PER_SUITE / COMPARISON_FAILURE_INTERVAL, listener.fComparisons);
+		}
+	}
+
+	private static Socket connect(int port) throws Exception {
+		IOException exception= null;
+		for (int i= 0; i < 50; i++) {
+			try {
+				return new Socket("127.0.0.1", port);
+			} catch (IOException e) {
+				exception= e;
+			}
+			Thread.sleep(100);
+		}
+		throw exception;
+	}
+
+	/*
+	 * Sends the same messages as the RemoteTestRunner would for a run with
+	 * SUITES suites of TESTS_PER_SUITE tests each.
+	 */
+	private static void replayTestRun(MessageSender sender) {
+		StringBuffer trace= new StringBuffer("junit.framework.AssertionFailedError: expected:<1> but was:<2>");
+		for (int i= 0; i < TRACE_LINES; i++)
+			trace.append("\n\tat org.eclipse.example.tests.SomeTest.someMethod(SomeTest.java:" + i + ")");
+
+		sender.sendMessage(MessageIds.TEST_RUN_START + SUITES * TESTS_PER_SUITE + " v2");
+
+		int id= 1;
+		sender.sendMessage(MessageIds.TEST_TREE + id++ + ",AllTests,true," + SUITES);
+		for (int s= 0; s < SUITES; s++) {
+			sender.sendMessage(MessageIds.TEST_TREE + id++ + ",org.eclipse.example.tests.Suite" + s + ",true," + TESTS_PER_SUITE);
+			for (int t= 0; t < TESTS_PER_SUITE; t++)
+				sender.sendMessage(MessageIds.TEST_TREE + id++ + "," + getTestName(s, t) + ",false,1");
+		}
+
+		id= 1;
+		for (int s= 0; s < SUITES; s++) {
+			id++;
+			for (int t= 0; t < TESTS_PER_SUITE; t++) {
+				String test= id++ + "," + getTestName(s, t);
+				sender.sendMessage(MessageIds.TEST_START + test);
+				sender.flush();
+				int n= s * TESTS_PER_SUITE + t + 1;
+				if (n % FAILURE_INTERVAL == 0) {
+					sender.sendMessage(MessageIds.TEST_FAILED + test);
+					if (n % COMPARISON_FAILURE_INTERVAL == 0) {
+						sender.sendMessage(MessageIds.EXPECTED_START);
+						sender.sendMessage("1");
+						sender.sendMessage(MessageIds.EXPECTED_END);
+						sender.sendMessage(MessageIds.ACTUAL_START);
+						sender.sendMessage("2");
+						sender.sendMessage(MessageIds.ACTUAL_END);
+					}
+					sender.sendMessage(MessageIds.TRACE_START);
+					sender.sendMessage(trace.toString());
+					sender.sendMessage(MessageIds.TRACE_END);
+					sender.flush();
+				}
+				sender.sendMessage(MessageIds.TEST_END + test);
+			}
+		}
+
+		sender.sendMessage(MessageIds.TEST_RUN_END + 1000);
+		sender.flush();
+	}
+
+	private static String getTestName(int suite, int test) {
+		return "test" + test + "(org.eclipse.example.tests.Suite" + suite + ")";
+	}
+}
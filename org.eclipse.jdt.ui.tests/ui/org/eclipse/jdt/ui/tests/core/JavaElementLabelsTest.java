@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,14 +10,21 @@
  *******************************************************************************/
 package org.eclipse.jdt.ui.tests.core;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import org.eclipse.jdt.testplugin.JavaProjectHelper;
 
+import org.eclipse.swt.widgets.Display;
+
 import org.eclipse.core.runtime.CoreException;
 
 import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.viewers.ILabelProviderListener;
+import org.eclipse.jface.viewers.LabelProviderChangedEvent;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
@@ -32,6 +39,8 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.ui.JavaElementLabels;
 import org.eclipse.jdt.ui.PreferenceConstants;
 
+import org.eclipse.jdt.internal.ui.viewsupport.JavaUILabelProvider;
+
 
 public class JavaElementLabelsTest extends CoreTests {
 
@@ -623,6 +632,62 @@ public class JavaElementLabelsTest extends CoreTests {
 	}
 	
 	
+	public void testBinaryMemberLabelProvider() throws Exception {
+		IType type= fJProject1.findType("java.util.Arrays");
+		IMethod[] methods= type.getMethods();
+		IMethod method= null;
+		for (int i= 0; i < methods.length && method == null; i++) {
+			if ("asList".equals(methods[i].getElementName()))
+				method= methods[i];
+		}
+		assertNotNull(method);
+
+		long flags= JavaElementLabels.ALL_DEFAULT;
+		String expected= JavaElementLabels.getTextLabel(method, flags);
+		String expectedStyled= JavaElementLabels.getStyledTextLabel(method, flags | JavaElementLabels.COLORIZE).getString();
+
+		JavaUILabelProvider provider= new JavaUILabelProvider(flags, 0);
+		try {
+			assertEqualString(provider.getText(method), expected);
+			assertEqualString(provider.getText(method), expected);
+			assertEqualString(provider.getStyledText(method).getString(), expectedStyled);
+
+			provider.setComputeLabelsInBackground(true);
+			assertEqualString(provider.getStyledText(method).getString(), expectedStyled);
+		} finally {
+			provider.dispose();
+		}
+
+		// flags whose label has not been cached yet
+		flags= JavaElementLabels.ALL_DEFAULT | JavaElementLabels.M_FULLY_QUALIFIED;
+		expectedStyled= JavaElementLabels.getStyledTextLabel(method, flags | JavaElementLabels.COLORIZE).getString();
+
+		final List<LabelProviderChangedEvent> events= new ArrayList<LabelProviderChangedEvent>();
+		provider= new JavaUILabelProvider(flags, 0);
+		provider.addListener(new ILabelProviderListener() {
+			public void labelProviderChanged(LabelProviderChangedEvent event) {
+				events.add(event);
+			}
+		});
+		try {
+			provider.setComputeLabelsInBackground(true);
+			String provisional= provider.getStyledText(method).getString();
+			assertFalse(provisional, expectedStyled.equals(provisional));
+
+			Display display= Display.getCurrent();
+			long timeout= System.currentTimeMillis() + 10000;
+			while (events.isEmpty() && System.currentTimeMillis() < timeout) {
+				if (!display.readAndDispatch())
+					Thread.sleep(10);
+			}
+			assertEquals(1, events.size());
+			assertEquals(method, events.get(0).getElement());
+			assertEqualString(provider.getStyledText(method).getString(), expectedStyled);
+		} finally {
+			provider.dispose();
+		}
+	}
+
 	public void testMethodLabelAnnotatedParameters() throws Exception {
 		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
 		IPackageFragment pack1= sourceFolder.createPackageFragment("org.test", false, null);
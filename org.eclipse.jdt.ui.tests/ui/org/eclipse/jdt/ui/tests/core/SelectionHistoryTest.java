@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,13 +13,12 @@ package org.eclipse.jdt.ui.tests.core;
 import java.text.Collator;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Map;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
-import org.w3c.dom.Element;
-
 import org.eclipse.jdt.internal.corext.util.History;
 
 
@@ -121,8 +120,8 @@ public class SelectionHistoryTest extends TestCase {
 		public TestHistory() {
 			super("");
 		}
-		protected void setAttributes(Object object, Element element) {}
-		protected Object createFromElement(Element type) {return null;}
+		protected void setAttributes(Object object, Map<String, String> attributes) {}
+		protected Object createFromAttributes(Map<String, String> attributes) {return null;}
 		protected Object getKey(Object object) {return object;}
 
 	}
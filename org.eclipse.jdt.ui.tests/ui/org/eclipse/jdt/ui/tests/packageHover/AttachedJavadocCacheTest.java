@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.packageHover;
+
+import java.io.File;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.internal.ui.text.javadoc.AttachedJavadocCache;
+import org.eclipse.jdt.internal.ui.text.javadoc.AttachedJavadocCache.Library;
+
+/**
+ * Tests for the persistent cache of attached Javadoc.
+ *
+ * @since 3.10
+ */
+public class AttachedJavadocCacheTest extends TestCase {
+
+	private static final Class THIS= AttachedJavadocCacheTest.class;
+
+	private static final String PATH= "/TestSetupProject/lib.jar";
+
+	private static final String LOCATION= "jar:file:/tmp/lib-doc.zip!/";
+
+	private static final long LIBRARY_STAMP= 1000;
+
+	private static final long ARCHIVE_STAMP= 2000;
+
+	private static final long NOW= 1400000000000L;
+
+	public static Test suite() {
+		return new TestSuite(THIS);
+	}
+
+	private File fFile;
+
+	/*
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		fFile= File.createTempFile("attachedJavadoc", ".dat");
+		fFile.delete();
+	}
+
+	/*
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		fFile.delete();
+	}
+
+	private Library createLibrary(long libraryStamp, long archiveStamp, long now) {
+		return new Library(fFile, PATH, LOCATION, libraryStamp, archiveStamp, now);
+	}
+
+	private static void fill(Library library) {
+		library.put("(Foo[foo", "<p>Returns the foo.</p>");
+		library.put("(Foo[bar", null);
+	}
+
+	private static void assertFilled(Library library) {
+		assertTrue(library.contains("(Foo[foo"));
+		assertEquals("<p>Returns the foo.</p>", library.get("(Foo[foo"));
+		assertTrue(library.contains("(Foo[bar"));
+		assertNull(library.get("(Foo[bar"));
+	}
+
+	private static void assertEmpty(Library library) {
+		assertFalse(library.contains("(Foo[foo"));
+		assertFalse(library.contains("(Foo[bar"));
+	}
+
+	public void testHitMissAndNoJavadoc() throws Exception {
+		Library library= createLibrary(LIBRARY_STAMP, ARCHIVE_STAMP, NOW);
+		assertEmpty(library);
+		assertNull(library.get("(Foo[foo"));
+
+		fill(library);
+		assertFilled(library);
+		assertFalse(library.contains("(Foo[baz"));
+		assertNull(library.get("(Foo[baz"));
+	}
+
+	public void testChangedStamps() throws Exception {
+		Library library= createLibrary(LIBRARY_STAMP, ARCHIVE_STAMP, NOW);
+		assertTrue(library.isValid(LIBRARY_STAMP, ARCHIVE_STAMP, NOW));
+		assertFalse(library.isValid(LIBRARY_STAMP + 1, ARCHIVE_STAMP, NOW));
+		assertFalse(library.isValid(LIBRARY_STAMP, ARCHIVE_STAMP + 1, NOW));
+
+		// archives are validated by their stamps only
+		assertTrue(library.isValid(LIBRARY_STAMP, ARCHIVE_STAMP, NOW + 2 * AttachedJavadocCache.MAX_UNVERIFIED_AGE));
+	}
+
+	public void testSaveAndLoad() throws Exception {
+		Library library= createLibrary(LIBRARY_STAMP, ARCHIVE_STAMP, NOW);
+		fill(library);
+		library.save();
+		assertTrue(fFile.isFile());
+
+		Library loaded= createLibrary(LIBRARY_STAMP, ARCHIVE_STAMP, NOW + 1);
+		loaded.load();
+		assertFilled(loaded);
+	}
+
+	public void testLoadWithChangedStamps() throws Exception {
+		Library library= createLibrary(LIBRARY_STAMP, ARCHIVE_STAMP, NOW);
+		fill(library);
+		library.save();
+
+		Library loaded= createLibrary(LIBRARY_STAMP + 1, ARCHIVE_STAMP, NOW);
+		loaded.load();
+		assertEmpty(loaded);
+
+		loaded= createLibrary(LIBRARY_STAMP, ARCHIVE_STAMP + 1, NOW);
+		loaded.load();
+		assertEmpty(loaded);
+	}
+
+	public void testUnknownArchiveStampExpires() throws Exception {
+		long maxAge= AttachedJavadocCache.MAX_UNVERIFIED_AGE;
+		Library library= createLibrary(LIBRARY_STAMP, AttachedJavadocCache.UNKNOWN_STAMP, NOW);
+		assertTrue(library.isValid(LIBRARY_STAMP, AttachedJavadocCache.UNKNOWN_STAMP, NOW + maxAge - 1));
+		assertFalse(library.isValid(LIBRARY_STAMP, AttachedJavadocCache.UNKNOWN_STAMP, NOW + maxAge));
+
+		fill(library);
+		library.save();
+
+		Library loaded= createLibrary(LIBRARY_STAMP, AttachedJavadocCache.UNKNOWN_STAMP, NOW + maxAge - 1);
+		loaded.load();
+		assertFilled(loaded);
+		// the age is counted from the first fetch, not from the last load
+		assertFalse(loaded.isValid(LIBRARY_STAMP, AttachedJavadocCache.UNKNOWN_STAMP, NOW + maxAge));
+
+		loaded= createLibrary(LIBRARY_STAMP, AttachedJavadocCache.UNKNOWN_STAMP, NOW + maxAge);
+		loaded.load();
+		assertEmpty(loaded);
+	}
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.packageHover;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
+
+import org.eclipse.jdt.internal.ui.text.java.hover.JavadocBrowserInformationControlInput;
+import org.eclipse.jdt.internal.ui.text.java.hover.JavadocHover.IPendingInputListener;
+import org.eclipse.jdt.internal.ui.text.java.hover.JavadocHover.PendingJavadocInput;
+
+/**
+ * Tests that the controls showing a pending Javadoc hover input get the complete input.
+ *
+ * @since 3.10
+ */
+public class PendingJavadocInputTest extends TestCase {
+
+	private static final Class THIS= PendingJavadocInputTest.class;
+
+	private static final String PENDING_HTML= "<html><body>pending</body></html>";
+
+	private static final long TIMEOUT= 10000;
+
+	public static Test suite() {
+		return new ProjectTestSetup(new TestSuite(THIS));
+	}
+
+	private static final class Listener implements IPendingInputListener {
+		private PendingJavadocInput fPendingInput;
+		private JavadocBrowserInformationControlInput fCompleteInput;
+
+		public synchronized void update(PendingJavadocInput pendingInput, JavadocBrowserInformationControlInput completeInput) {
+			fPendingInput= pendingInput;
+			fCompleteInput= completeInput;
+			notifyAll();
+		}
+
+		public synchronized JavadocBrowserInformationControlInput waitForInput() throws InterruptedException {
+			long end= System.currentTimeMillis() + TIMEOUT;
+			while (fCompleteInput == null && System.currentTimeMillis() < end)
+				wait(100);
+			assertNotNull("pending input not completed", fCompleteInput);
+			return fCompleteInput;
+		}
+	}
+
+	private IJavaProject fJProject1;
+
+	private IPackageFragmentRoot fSourceFolder;
+
+	/*
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		fJProject1= ProjectTestSetup.getProject();
+		fSourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+	}
+
+	/*
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	private ICompilationUnit createCompilationUnit() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E {\n");
+		buf.append("    /**\n");
+		buf.append("     * Returns the count of E.\n");
+		buf.append("     */\n");
+		buf.append("    public int count() {\n");
+		buf.append("        return 1;\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		return pack1.createCompilationUnit("E.java", buf.toString(), false, null);
+	}
+
+	public void testPendingInputIsReplaced() throws Exception {
+		ICompilationUnit cu= createCompilationUnit();
+		IJavaElement method= cu.getType("E").getMethod("count", new String[0]);
+		PendingJavadocInput pendingInput= new PendingJavadocInput(null, method, PENDING_HTML, 20, cu, null);
+
+		Listener listener= new Listener();
+		pendingInput.complete(listener);
+		JavadocBrowserInformationControlInput completeInput= listener.waitForInput();
+		assertSame(pendingInput, listener.fPendingInput);
+		assertFalse(completeInput instanceof PendingJavadocInput);
+		assertSame(method, completeInput.getElement());
+		String html= completeInput.getHtml();
+		assertTrue(html, html.indexOf("Returns the count of E.") != -1);
+
+		// a control that shows the pending input later gets the complete input at once
+		Listener later= new Listener();
+		pendingInput.complete(later);
+		assertSame(completeInput, later.fCompleteInput);
+	}
+
+	public void testPendingInputWithoutJavadocIsCompleted() throws Exception {
+		ICompilationUnit cu= createCompilationUnit();
+		// no hover info is computed for an import
+		IJavaElement element= cu.getImport("java.util.List");
+		PendingJavadocInput pendingInput= new PendingJavadocInput(null, element, PENDING_HTML, 20, cu, null);
+
+		Listener listener= new Listener();
+		pendingInput.complete(listener);
+		JavadocBrowserInformationControlInput fallbackInput= listener.waitForInput();
+		assertSame(pendingInput, listener.fPendingInput);
+		assertFalse(fallbackInput instanceof PendingJavadocInput);
+		assertEquals(PENDING_HTML, fallbackInput.getHtml());
+
+		// the Javadoc is fetched again for the next control
+		Listener later= new Listener();
+		pendingInput.complete(later);
+		assertNotNull(later.waitForInput());
+	}
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.quickfix;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.TestOptions;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import org.eclipse.jdt.ui.tests.core.ProjectTestSetup;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposal;
+import org.eclipse.jdt.ui.text.java.IProblemLocation;
+
+import org.eclipse.jdt.internal.ui.text.correction.AssistContext;
+import org.eclipse.jdt.internal.ui.text.correction.ConcurrentProposalCollector;
+import org.eclipse.jdt.internal.ui.text.correction.JavaCorrectionProcessor;
+import org.eclipse.jdt.internal.ui.text.correction.ProblemLocation;
+
+public class ConcurrentQuickFixTest extends QuickFixTest {
+
+	private static final Class THIS= ConcurrentQuickFixTest.class;
+
+	private IJavaProject fJProject1;
+	private IPackageFragmentRoot fSourceFolder;
+
+	public ConcurrentQuickFixTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return setUpTest(new TestSuite(THIS));
+	}
+
+	public static Test setUpTest(Test test) {
+		return new ProjectTestSetup(test);
+	}
+
+	protected void setUp() throws Exception {
+		Hashtable options= TestOptions.getDefaultOptions();
+		options.put(JavaCore.COMPILER_PB_UNUSED_LOCAL, JavaCore.WARNING);
+		options.put(JavaCore.COMPILER_PB_UNUSED_PRIVATE_MEMBER, JavaCore.WARNING);
+		JavaCore.setOptions(options);
+
+		fJProject1= ProjectTestSetup.getProject();
+		fSourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+	}
+
+	protected void tearDown() throws Exception {
+		JavaProjectHelper.clear(fJProject1, ProjectTestSetup.getDefaultClasspath());
+	}
+
+	public void testSameProposalsAsSequential() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E {\n");
+		buf.append("    void foo(int i) {\n");
+		buf.append("        int count= 0; Vector v= new Vector(); iter= bar(i);\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		ICompilationUnit cu= pack1.createCompilationUnit("E.java", buf.toString(), false, null);
+
+		CompilationUnit astRoot= getASTRoot(cu);
+		IProblem[] problems= astRoot.getProblems();
+		assertTrue(problems.length > 3);
+
+		int offset= buf.indexOf("int count");
+		int length= buf.indexOf("(i);") - offset;
+		assertSameProposals(cu, offset, length, problems);
+	}
+
+	public void testSharedWarningToken() throws Exception {
+		IPackageFragment pack1= fSourceFolder.createPackageFragment("test1", false, null);
+		StringBuffer buf= new StringBuffer();
+		buf.append("package test1;\n");
+		buf.append("public class E {\n");
+		buf.append("    private void foo() {\n");
+		buf.append("        int count= 0;\n");
+		buf.append("    }\n");
+		buf.append("}\n");
+		ICompilationUnit cu= pack1.createCompilationUnit("E.java", buf.toString(), false, null);
+
+		CompilationUnit astRoot= getASTRoot(cu);
+		IProblem[] problems= astRoot.getProblems();
+		assertEquals(2, problems.length);
+		assertTrue(problems[0].getID() != problems[1].getID());
+
+		int offset= buf.indexOf("foo");
+		int length= buf.indexOf("count") - offset;
+		List proposals= assertSameProposals(cu, offset, length, problems);
+
+		// one proposal per warning token and target, though both problems have the token 'unused'
+		List suppressWarnings= new ArrayList();
+		List displayStrings= getDisplayStrings(proposals);
+		for (int i= 0; i < displayStrings.size(); i++) {
+			String displayString= (String) displayStrings.get(i);
+			if (displayString.indexOf("@SuppressWarnings") != -1) {
+				assertFalse(displayString, suppressWarnings.contains(displayString));
+				suppressWarnings.add(displayString);
+			}
+		}
+		assertTrue(suppressWarnings.size() > 0);
+	}
+
+	private List assertSameProposals(ICompilationUnit cu, int offset, int length, IProblem[] problems) throws Exception {
+		IProblemLocation[] locations= new IProblemLocation[problems.length];
+		for (int i= 0; i < problems.length; i++)
+			locations[i]= new ProblemLocation(problems[i]);
+
+		List sequential= new ArrayList();
+		assertStatusOk(JavaCorrectionProcessor.collectCorrections(new AssistContext(cu, offset, length), locations, sequential));
+		assertStatusOk(JavaCorrectionProcessor.collectAssists(new AssistContext(cu, offset, length), locations, sequential));
+
+		List concurrent= new ArrayList();
+		ConcurrentProposalCollector collector= new ConcurrentProposalCollector(new AssistContext(cu, offset, length), 0);
+		collector.addCorrections(locations);
+		collector.addAssists(locations);
+		collector.collect(concurrent);
+		assertStatusOk(collector.getCorrectionStatus());
+		assertStatusOk(collector.getAssistStatus());
+
+		assertTrue(sequential.size() > 0);
+		assertEquals(getDisplayStrings(sequential), getDisplayStrings(concurrent));
+		return concurrent;
+	}
+
+	private static List getDisplayStrings(List proposals) {
+		List result= new ArrayList();
+		for (int i= 0; i < proposals.size(); i++)
+			result.add(((IJavaCompletionProposal) proposals.get(i)).getDisplayString());
+		return result;
+	}
+}
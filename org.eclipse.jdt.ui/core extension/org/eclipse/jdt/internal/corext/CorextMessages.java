@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -35,9 +35,10 @@ public final class CorextMessages extends NLS {
 	public static String JavaDocLocations_noAttachments;
 	public static String JavaDocLocations_noInformation;
 	
-	public static String History_error_serialize;
 	public static String History_error_read;
+	public static String History_save_job;
 	public static String TypeInfoHistory_consistency_check;
+	public static String TypeNameCache_update_job;
 
 	static {
 		NLS.initializeMessages(BUNDLE_NAME, CorextMessages.class);
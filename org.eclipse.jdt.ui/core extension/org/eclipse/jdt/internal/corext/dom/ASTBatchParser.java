@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,20 +11,27 @@
 package org.eclipse.jdt.internal.corext.dom;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.IBinding;
 
 import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
@@ -33,42 +40,204 @@ import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
  * Creates AST from a set of compilation units. Uses the
  * batch parser. Splits the set of compilation units in subsets
  * such that it is unlikely that a out of memory exception will occur.
+ * <p>
+ * The size of the subsets is computed from the heap that is free at the
+ * time a subset is started. If the parser is created with a parallelism
+ * greater than one, subsets of independent projects and chunks of the same
+ * project are parsed concurrently by a bounded pool of worker threads.
+ * The requestor is always called from the thread that invoked
+ * {@link #createASTs(ICompilationUnit[], String[], ASTRequestor, IProgressMonitor)}.
+ * A worker waits until the requestor has consumed an AST before it continues
+ * with its subset, because all ASTs of a subset share the same binding environment.
+ * </p>
  *
  * @since 3.4
  */
 public class ASTBatchParser {
 
-	private static final int MAX_AT_ONCE;
-	static {
-		long maxMemory= Runtime.getRuntime().maxMemory();
-		int ratio= (int) Math.round((double) maxMemory / (64 * 0x100000));
-		switch (ratio) {
-			case 0:
-				MAX_AT_ONCE= 25;
-				break;
-			case 1:
-				MAX_AT_ONCE= 100;
-				break;
-			case 2:
-				MAX_AT_ONCE= 200;
-				break;
-			case 3:
-				MAX_AT_ONCE= 300;
-				break;
-			case 4:
-				MAX_AT_ONCE= 400;
-				break;
-			default:
-				MAX_AT_ONCE= 500;
-				break;
+	/**
+	 * Smallest number of compilation units parsed at once.
+	 */
+	private static final int MIN_AT_ONCE= 25;
+
+	/**
+	 * Largest number of compilation units parsed at once.
+	 */
+	private static final int MAX_AT_ONCE= 500;
+
+	/**
+	 * Estimated heap consumption of one compilation unit with resolved bindings
+	 * while its batch is alive (about 100 units for 64 MB).
+	 */
+	private static final long ESTIMATED_UNIT_SIZE= 64 * 0x100000 / 100;
+
+	/**
+	 * Interval in ms in which the calling thread checks for cancelation while waiting for workers.
+	 */
+	private static final long POLL_INTERVAL= 100;
+
+	/**
+	 * A result produced by a worker and consumed by the calling thread.
+	 */
+	private static final class Result {
+
+		/**
+		 * Marks that a worker has no more results.
+		 */
+		static final Result WORKER_DONE= new Result(null, null, null, null, null);
+
+		final ICompilationUnit fSource;
+		final CompilationUnit fAST;
+		final String fBindingKey;
+		final IBinding fBinding;
+		final Throwable fException;
+		final CountDownLatch fConsumed;
+
+		Result(ICompilationUnit source, CompilationUnit ast, String bindingKey, IBinding binding, Throwable exception) {
+			fSource= source;
+			fAST= ast;
+			fBindingKey= bindingKey;
+			fBinding= binding;
+			fException= exception;
+			fConsumed= new CountDownLatch(1);
+		}
+	}
+
+	/**
+	 * Hands out chunks of compilation units, one project at a time. The chunk size is
+	 * computed when a chunk is requested and is small enough to give each consumer a
+	 * share of a project.
+	 */
+	private static final class ChunkProvider {
+
+		private final ICompilationUnit[][] fProjects;
+		private final int fConsumers;
+		private int fProjectIndex;
+		private int fCursor;
+
+		public ChunkProvider(ICompilationUnit[][] projects, int consumers) {
+			fProjects= projects;
+			fConsumers= consumers;
+			fProjectIndex= 0;
+			fCursor= 0;
+		}
+
+		/**
+		 * @return the next chunk, all units of the same project, or <code>null</code> if done
+		 */
+		public synchronized ICompilationUnit[] next() {
+			while (fProjectIndex < fProjects.length && fCursor == fProjects[fProjectIndex].length) {
+				fProjectIndex++;
+				fCursor= 0;
+			}
+			if (fProjectIndex == fProjects.length)
+				return null;
+
+			ICompilationUnit[] units= fProjects[fProjectIndex];
+			int share= Math.max(MIN_AT_ONCE, (units.length + fConsumers - 1) / fConsumers);
+			int end= Math.min(fCursor + Math.min(share, computeBatchSize(fConsumers)), units.length);
+			ICompilationUnit[] result= new ICompilationUnit[end - fCursor];
+			System.arraycopy(units, fCursor, result, 0, result.length);
+			fCursor= end;
+			return result;
 		}
 	}
 
+	/**
+	 * Forwards the results of a worker to the queue of the calling thread and waits
+	 * until they have been consumed.
+	 */
+	private static final class ForwardingRequestor extends ASTRequestor {
+
+		private final BlockingQueue<Result> fQueue;
+		private final IProgressMonitor fCancelMonitor;
+
+		public ForwardingRequestor(BlockingQueue<Result> queue, IProgressMonitor cancelMonitor) {
+			fQueue= queue;
+			fCancelMonitor= cancelMonitor;
+		}
+
+		@Override
+		public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+			handOff(new Result(source, ast, null, null, null));
+		}
+
+		@Override
+		public void acceptBinding(String bindingKey, IBinding binding) {
+			handOff(new Result(null, null, bindingKey, binding, null));
+		}
+
+		private void handOff(Result result) {
+			put(fQueue, result, fCancelMonitor);
+			try {
+				while (!result.fConsumed.await(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+					if (fCancelMonitor.isCanceled())
+						throw new OperationCanceledException();
+				}
+			} catch (InterruptedException e) {
+				throw new OperationCanceledException();
+			}
+		}
+	}
+
+	/**
+	 * A progress monitor for workers which only propagates cancelation.
+	 */
+	private static final class CancelMonitor extends NullProgressMonitor {
+
+		private volatile boolean fCanceled;
+
+		@Override
+		public boolean isCanceled() {
+			return fCanceled;
+		}
+
+		@Override
+		public void setCanceled(boolean canceled) {
+			fCanceled= canceled;
+		}
+	}
+
+	private final int fParallelism;
+
+	/**
+	 * Creates a batch parser which parses all subsets one after the other
+	 * in the calling thread.
+	 */
+	public ASTBatchParser() {
+		this(1);
+	}
+
+	/**
+	 * Creates a batch parser which parses up to <code>parallelism</code> subsets
+	 * concurrently.
+	 *
+	 * @param parallelism the maximal number of worker threads, <code>1</code> to
+	 *   parse in the calling thread
+	 * @since 3.10
+	 */
+	public ASTBatchParser(int parallelism) {
+		fParallelism= Math.max(1, parallelism);
+	}
+
+	/**
+	 * Returns the number of worker threads that should be used for parallel parsing
+	 * on this machine.
+	 *
+	 * @return the default parallelism
+	 * @since 3.10
+	 */
+	public static int getDefaultParallelism() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
 	/**
 	 * Creates ASTs for each compilation unit in <code>units</code>.
 	 * <p>
 	 * <code>ASTRequestor.acceptAST</code> is called in no particular order to
 	 * pass the compilation unit and the corresponding AST to <code>requestor</code>.
+	 * All calls to the requestor happen in the calling thread. If this parser is
+	 * parallel, the requestor must not call <code>ASTRequestor.createBindings</code>.
 	 * </p>
 	 * <p>
 	 * The <code>bindingKeys</code> parameter specifies bindings keys
@@ -91,29 +260,100 @@ public class ASTBatchParser {
 
 		monitor.beginTask("", compilationUnits.length); //$NON-NLS-1$
 		try {
-
 			ICompilationUnit[][] splited= splitByProject(compilationUnits);
-			for (int i= 0; i < splited.length; i++) {
-				ICompilationUnit[] units= splited[i];
+			int workers= Math.min(fParallelism, (compilationUnits.length + MIN_AT_ONCE - 1) / MIN_AT_ONCE);
+			if (workers <= 1) {
+				createASTsSequential(splited, bindingKeys, requestor, monitor);
+			} else {
+				createASTsParallel(splited, bindingKeys, requestor, monitor, workers);
+			}
+		} finally {
+			monitor.done();
+		}
+	}
 
-				if (units.length <= MAX_AT_ONCE) {
-					createParser(units[0].getJavaProject()).createASTs(units, bindingKeys, requestor, new SubProgressMonitor(monitor, units.length));
+	private void createASTsSequential(ICompilationUnit[][] splited, String[] bindingKeys, ASTRequestor requestor, IProgressMonitor monitor) {
+		ChunkProvider provider= new ChunkProvider(splited, 1);
+		ICompilationUnit[] units;
+		while ((units= provider.next()) != null) {
+			createParser(units[0].getJavaProject()).createASTs(units, bindingKeys, requestor, new SubProgressMonitor(monitor, units.length));
+		}
+	}
+
+	private void createASTsParallel(ICompilationUnit[][] splited, final String[] bindingKeys, ASTRequestor requestor, IProgressMonitor monitor, final int workers) {
+		final ChunkProvider provider= new ChunkProvider(splited, workers);
+		final BlockingQueue<Result> queue= new LinkedBlockingQueue<Result>(workers);
+		final CancelMonitor cancelMonitor= new CancelMonitor();
+
+		ExecutorService executor= Executors.newFixedThreadPool(workers, new ThreadFactory() {
+			private int fCount= 0;
+
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread thread= new Thread(runnable, "ASTBatchParser worker " + ++fCount); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			for (int i= 0; i < workers; i++) {
+				executor.execute(new Runnable() {
+					public void run() {
+						try {
+							ForwardingRequestor forwarder= new ForwardingRequestor(queue, cancelMonitor);
+							ICompilationUnit[] units;
+							while (!cancelMonitor.isCanceled() && (units= provider.next()) != null) {
+								createParser(units[0].getJavaProject()).createASTs(units, bindingKeys, forwarder, cancelMonitor);
+							}
+							put(queue, Result.WORKER_DONE, cancelMonitor);
+						} catch (OperationCanceledException e) {
+							// the calling thread is no longer listening
+						} catch (Throwable e) {
+							try {
+								put(queue, new Result(null, null, null, null, e), cancelMonitor);
+							} catch (OperationCanceledException canceled) {
+								// the calling thread is no longer listening
+							}
+						}
+					}
+				});
+			}
+
+			int running= workers;
+			while (running > 0) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+
+				Result result;
+				try {
+					result= queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					throw new OperationCanceledException();
+				}
+				if (result == null)
+					continue;
+
+				if (result == Result.WORKER_DONE) {
+					running--;
+				} else if (result.fException != null) {
+					running--;
+					rethrow(result.fException);
 				} else {
-					List<ICompilationUnit> list= Arrays.asList(units);
-					int end= 0;
-					int cursor= 0;
-					while (cursor < units.length) {
-						end= Math.min(end + MAX_AT_ONCE, units.length);
-						List<ICompilationUnit> toParse= list.subList(cursor, end);
-
-						createParser(units[0].getJavaProject()).createASTs(toParse.toArray(new ICompilationUnit[toParse.size()]), bindingKeys, requestor,
-								new SubProgressMonitor(monitor, toParse.size()));
-						cursor= end;
+					try {
+						if (result.fSource != null) {
+							monitor.worked(1);
+							requestor.acceptAST(result.fSource, result.fAST);
+						} else {
+							requestor.acceptBinding(result.fBindingKey, result.fBinding);
+						}
+					} finally {
+						result.fConsumed.countDown();
 					}
 				}
 			}
 		} finally {
-			monitor.done();
+			cancelMonitor.setCanceled(true);
+			queue.clear();
+			executor.shutdownNow();
 		}
 	}
 
@@ -121,7 +361,8 @@ public class ASTBatchParser {
 	 * Creates a new parser which can be used to create ASTs
 	 * for compilation units in <code>project</code>
 	 * <p>
-	 * Subclasses may override
+	 * Subclasses may override. If this parser is parallel, the method is called
+	 * concurrently from worker threads.
 	 * </p>
 	 *
 	 * @param project the project for which ASTs are been generated
@@ -135,6 +376,40 @@ public class ASTBatchParser {
 		return result;
 	}
 
+	/**
+	 * Computes the number of compilation units that can be parsed at once from the heap
+	 * that is currently available.
+	 *
+	 * @param concurrentBatches the number of batches which are parsed concurrently
+	 * @return the number of compilation units to parse in the next batch
+	 * @since 3.10
+	 */
+	public static int computeBatchSize(int concurrentBatches) {
+		Runtime runtime= Runtime.getRuntime();
+		long available= runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+		long size= available / Math.max(1, concurrentBatches) / ESTIMATED_UNIT_SIZE;
+		return (int) Math.max(MIN_AT_ONCE, Math.min(MAX_AT_ONCE, size));
+	}
+
+	private static void put(BlockingQueue<Result> queue, Result result, IProgressMonitor cancelMonitor) {
+		try {
+			while (!queue.offer(result, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+				if (cancelMonitor.isCanceled())
+					throw new OperationCanceledException();
+			}
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		}
+	}
+
+	private static void rethrow(Throwable exception) {
+		if (exception instanceof RuntimeException)
+			throw (RuntimeException) exception;
+		if (exception instanceof Error)
+			throw (Error) exception;
+		throw new IllegalStateException(exception);
+	}
+
 	private static ICompilationUnit[][] splitByProject(ICompilationUnit[] units) {
 		if (hasOnlyOneProject(units))
 			return new ICompilationUnit[][] { units };
@@ -173,4 +448,4 @@ public class ASTBatchParser {
 
 		return true;
 	}
-}
\ No newline at end of file
+}
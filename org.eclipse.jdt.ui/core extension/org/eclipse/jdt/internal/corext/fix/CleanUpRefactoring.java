@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,9 +14,19 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -81,6 +91,7 @@ import org.eclipse.jdt.ui.cleanup.ICleanUpFix;
 import org.eclipse.jdt.ui.text.java.IProblemLocation;
 
 import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.fix.IConcurrentCleanUp;
 import org.eclipse.jdt.internal.ui.fix.IMultiFix.MultiFixContext;
 import org.eclipse.jdt.internal.ui.fix.MapCleanUpOptions;
 import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
@@ -116,6 +127,83 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 	}
 
+	/**
+	 * Time spent in the stages of a clean up run. All times are in milliseconds and summed up
+	 * over all threads which took part in the run.
+	 *
+	 * @since 3.10
+	 */
+	public static final class CleanUpTimings {
+
+		private long fParseTime;
+		private long fFixTime;
+		private long fMergeTime;
+		private int fRounds;
+		private int fParsedUnits;
+
+		synchronized void addParseTime(long time, int units) {
+			fParseTime+= time;
+			fParsedUnits+= units;
+		}
+
+		synchronized void addFixTime(long time) {
+			fFixTime+= time;
+		}
+
+		synchronized void addMergeTime(long time) {
+			fMergeTime+= time;
+		}
+
+		synchronized void addRound() {
+			fRounds++;
+		}
+
+		/**
+		 * @return the time spent creating ASTs, without the time spent in clean ups
+		 */
+		public synchronized long getParseTime() {
+			return fParseTime;
+		}
+
+		/**
+		 * @return the time spent in {@link ICleanUp#createFix(CleanUpContext)} and merging
+		 *         the resulting edits of a compilation unit
+		 */
+		public synchronized long getFixTime() {
+			return fFixTime;
+		}
+
+		/**
+		 * @return the time spent applying the changes of a round to the working copies and
+		 *         creating the resulting change
+		 */
+		public synchronized long getMergeTime() {
+			return fMergeTime;
+		}
+
+		/**
+		 * @return the number of fixpoint rounds over all projects
+		 */
+		public synchronized int getRounds() {
+			return fRounds;
+		}
+
+		/**
+		 * @return the number of ASTs created over all rounds
+		 */
+		public synchronized int getParsedUnits() {
+			return fParsedUnits;
+		}
+
+		/*
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public synchronized String toString() {
+			return "parse: " + fParseTime + "ms (" + fParsedUnits + " units), fix: " + fFixTime + "ms, merge: " + fMergeTime + "ms, rounds: " + fRounds; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		}
+	}
+
 	public static class CleanUpChange extends CompilationUnitChange {
 
 		private UndoEdit fUndoEdit;
@@ -202,13 +290,13 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 	private final class CleanUpRefactoringProgressMonitor extends SubProgressMonitor {
 
 		private double fRealWork;
-		private int fFlushCount;
+		private final AtomicInteger fFlushCount;
 		private final int fSize;
 		private final int fIndex;
 
-		private CleanUpRefactoringProgressMonitor(IProgressMonitor monitor, int ticks, int size, int index) {
+		private CleanUpRefactoringProgressMonitor(IProgressMonitor monitor, int ticks, int size, int index, AtomicInteger flushCount) {
 			super(monitor, ticks);
-			fFlushCount= 0;
+			fFlushCount= flushCount;
 			fSize= size;
 			fIndex= index;
 		}
@@ -224,7 +312,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		public void flush() {
 			super.internalWorked(fRealWork);
 			reset();
-			fFlushCount++;
+			fFlushCount.incrementAndGet();
 		}
 
 		public void reset() {
@@ -235,7 +323,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		public void done() {}
 
 		public int getIndex() {
-			return fIndex + fFlushCount;
+			return fIndex + fFlushCount.get();
 		}
 
 		public String getSubTaskMessage(ICompilationUnit source) {
@@ -244,22 +332,86 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		}
 	}
 
+	/**
+	 * A progress monitor which can be used by several threads. Work and sub tasks are
+	 * forwarded to the wrapped monitor when the owner of the wrapped monitor calls
+	 * {@link #forward()}.
+	 */
+	private static final class ConcurrentProgressMonitor extends NullProgressMonitor {
+
+		private final IProgressMonitor fMonitor;
+		private double fWork;
+		private String fSubTask;
+		private volatile boolean fCanceled;
+
+		public ConcurrentProgressMonitor(IProgressMonitor monitor) {
+			fMonitor= monitor;
+		}
+
+		@Override
+		public synchronized void internalWorked(double work) {
+			fWork+= work;
+		}
+
+		@Override
+		public void worked(int work) {
+			internalWorked(work);
+		}
+
+		@Override
+		public synchronized void subTask(String name) {
+			fSubTask= name;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return fCanceled;
+		}
+
+		@Override
+		public void setCanceled(boolean canceled) {
+			fCanceled= canceled;
+		}
+
+		public void forward() {
+			double work;
+			String subTask;
+			synchronized (this) {
+				work= fWork;
+				subTask= fSubTask;
+				fWork= 0.0;
+				fSubTask= null;
+			}
+			if (work > 0.0)
+				fMonitor.internalWorked(work);
+			if (subTask != null)
+				fMonitor.subTask(subTask);
+			if (fMonitor.isCanceled())
+				fCanceled= true;
+		}
+	}
+
 	private static class CleanUpASTRequestor extends ASTRequestor {
 
 		private final List<ParseListElement> fUndoneElements;
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ParseListElement> fCompilationUnitParseElementMap;
 		private final CleanUpRefactoringProgressMonitor fMonitor;
+		private long fFixTime;
 
-		public CleanUpASTRequestor(List<ParseListElement> parseList, Hashtable<ICompilationUnit, List<CleanUpChange>> solutions, CleanUpRefactoringProgressMonitor monitor) {
+		/**
+		 * Creates a new requestor. Requestors which share <code>solutions</code> can be used
+		 * concurrently as long as they are not called for the same compilation unit.
+		 *
+		 * @param parseElements map from primary compilation unit to its parse list element
+		 * @param solutions the solutions calculated so far, to be updated by this requestor
+		 * @param monitor the progress monitor of this requestor
+		 */
+		public CleanUpASTRequestor(Hashtable<ICompilationUnit, ParseListElement> parseElements, Hashtable<ICompilationUnit, List<CleanUpChange>> solutions, CleanUpRefactoringProgressMonitor monitor) {
 			fSolutions= solutions;
 			fMonitor= monitor;
 			fUndoneElements= new ArrayList<ParseListElement>();
-			fCompilationUnitParseElementMap= new Hashtable<ICompilationUnit, ParseListElement>(parseList.size());
-			for (Iterator<ParseListElement> iter= parseList.iterator(); iter.hasNext();) {
-				ParseListElement element= iter.next();
-				fCompilationUnitParseElementMap.put(element.getTarget().getCompilationUnit(), element);
-			}
+			fCompilationUnitParseElementMap= parseElements;
 		}
 
 		/**
@@ -280,7 +432,9 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			} else {
 				context= new CleanUpContext(source, ast);
 			}
+			long start= System.currentTimeMillis();
 			ICleanUp[] rejectedCleanUps= calculateSolutions(context, element.getCleanUps());
+			fFixTime+= System.currentTimeMillis() - start;
 
 			if (rejectedCleanUps.length > 0) {
 				fUndoneElements.add(new ParseListElement(target, rejectedCleanUps));
@@ -298,6 +452,13 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			return fUndoneElements;
 		}
 
+		/**
+		 * @return the time this requestor spent calculating solutions, in milliseconds
+		 */
+		public long getFixTime() {
+			return fFixTime;
+		}
+
 		private ICleanUp[] calculateSolutions(CleanUpContext context, ICleanUp[] cleanUps) {
 			List<ICleanUp>result= new ArrayList<ICleanUp>();
 			CleanUpChange solution;
@@ -332,8 +493,10 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		private final Hashtable<ICompilationUnit, List<CleanUpChange>> fSolutions;
 		private final Hashtable<ICompilationUnit, ICompilationUnit> fWorkingCopies; // map from primary to working copy
 		private final Map<String, String> fCleanUpOptions;
+		private final boolean fConcurrentFixes;
 		private final int fSize;
 		private int fIndex;
+		private ExecutorService fExecutor;
 
 		public CleanUpFixpointIterator(CleanUpTarget[] targets, ICleanUp[] cleanUps) {
 			fSolutions= new Hashtable<ICompilationUnit, List<CleanUpChange>>(targets.length);
@@ -345,12 +508,16 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 			}
 
 			fCleanUpOptions= new Hashtable<String, String>();
+			boolean concurrentFixes= true;
 			for (int i= 0; i < cleanUps.length; i++) {
 				ICleanUp cleanUp= cleanUps[i];
 				Map<String, String> currentCleanUpOption= cleanUp.getRequirements().getCompilerOptions();
 				if (currentCleanUpOption != null)
 					fCleanUpOptions.putAll(currentCleanUpOption);
+				if (!(cleanUp instanceof IConcurrentCleanUp))
+					concurrentFixes= false;
 			}
+			fConcurrentFixes= concurrentFixes;
 
 			fSize= targets.length;
 			fIndex= 1;
@@ -363,70 +530,203 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		public void next(IProgressMonitor monitor) throws CoreException {
 			List<ICompilationUnit> parseList= new ArrayList<ICompilationUnit>();
 			List<ICompilationUnit> sourceList= new ArrayList<ICompilationUnit>();
+			Hashtable<ICompilationUnit, ParseListElement> parseElements= new Hashtable<ICompilationUnit, ParseListElement>(fParseList.size());
 
-			try {
-				for (Iterator<ParseListElement> iter= fParseList.iterator(); iter.hasNext();) {
-					ParseListElement element= iter.next();
-
-					ICompilationUnit compilationUnit= element.getTarget().getCompilationUnit();
-					if (fSolutions.containsKey(compilationUnit)) {
-						if (fWorkingCopies.containsKey(compilationUnit)) {
-							compilationUnit= fWorkingCopies.get(compilationUnit);
-						} else {
-							compilationUnit= compilationUnit.getWorkingCopy(new WorkingCopyOwner() {}, null);
-							fWorkingCopies.put(compilationUnit.getPrimary(), compilationUnit);
-						}
-						applyChange(compilationUnit, fSolutions.get(compilationUnit.getPrimary()));
-					}
+			long mergeStart= System.currentTimeMillis();
+			for (Iterator<ParseListElement> iter= fParseList.iterator(); iter.hasNext();) {
+				ParseListElement element= iter.next();
 
-					if (requiresAST(element.getCleanUps())) {
-						parseList.add(compilationUnit);
+				ICompilationUnit compilationUnit= element.getTarget().getCompilationUnit();
+				parseElements.put(compilationUnit, element);
+				if (fSolutions.containsKey(compilationUnit)) {
+					if (fWorkingCopies.containsKey(compilationUnit)) {
+						compilationUnit= fWorkingCopies.get(compilationUnit);
 					} else {
-						sourceList.add(compilationUnit);
+						compilationUnit= compilationUnit.getWorkingCopy(new WorkingCopyOwner() {}, null);
+						fWorkingCopies.put(compilationUnit.getPrimary(), compilationUnit);
 					}
+					applyChange(compilationUnit, fSolutions.get(compilationUnit.getPrimary()));
+				}
+
+				if (requiresAST(element.getCleanUps())) {
+					parseList.add(compilationUnit);
+				} else {
+					sourceList.add(compilationUnit);
 				}
+			}
+			fTimings.addMergeTime(System.currentTimeMillis() - mergeStart);
+			fTimings.addRound();
+
+			AtomicInteger flushCount= new AtomicInteger();
+			List<ParseListElement> undoneElements= new ArrayList<ParseListElement>();
+			int parallelism= Math.min(ASTBatchParser.getDefaultParallelism(), parseList.size());
+			if (fConcurrentFixes && parallelism > 1) {
+				undoneElements.addAll(parseConcurrently(parseList, parseElements, parallelism, monitor, flushCount));
+				parseList.clear();
+			}
+
+			CleanUpRefactoringProgressMonitor cuMonitor= new CleanUpRefactoringProgressMonitor(monitor, parseList.size() + sourceList.size(), fSize, fIndex, flushCount);
+			CleanUpASTRequestor requestor= new CleanUpASTRequestor(parseElements, fSolutions, cuMonitor);
+			if (parseList.size() > 0) {
+				ICompilationUnit[] units= parseList.toArray(new ICompilationUnit[parseList.size()]);
+				parse(createBatchParser(parallelism), units, requestor, cuMonitor);
+			}
 
-				CleanUpRefactoringProgressMonitor cuMonitor= new CleanUpRefactoringProgressMonitor(monitor, parseList.size() + sourceList.size(), fSize, fIndex);
-				CleanUpASTRequestor requestor= new CleanUpASTRequestor(fParseList, fSolutions, cuMonitor);
-				if (parseList.size() > 0) {
-					ASTBatchParser parser= new ASTBatchParser() {
-						@Override
-						protected ASTParser createParser(IJavaProject project) {
-							ASTParser result= createCleanUpASTParser();
-							result.setProject(project);
-
-							Map<String, String> options= RefactoringASTParser.getCompilerOptions(project);
-							options.putAll(fCleanUpOptions);
-							result.setCompilerOptions(options);
-							return result;
+			long fixStart= System.currentTimeMillis();
+			for (Iterator<ICompilationUnit> iterator= sourceList.iterator(); iterator.hasNext();) {
+				ICompilationUnit cu= iterator.next();
+
+				monitor.worked(1);
+
+				requestor.acceptSource(cu);
+
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+			}
+			fTimings.addFixTime(System.currentTimeMillis() - fixStart);
+
+			undoneElements.addAll(requestor.getUndoneElements());
+			fParseList= undoneElements;
+			fIndex+= flushCount.get();
+		}
+
+		/**
+		 * Creates the ASTs for <code>units</code> and calculates their solutions on
+		 * <code>parallelism</code> worker threads. Each batch of ASTs is processed by a single
+		 * worker, since the ASTs of a batch share their binding environment.
+		 *
+		 * @param units the compilation units to process
+		 * @param parseElements map from primary compilation unit to its parse list element
+		 * @param parallelism the number of worker threads
+		 * @param monitor the progress monitor, must only be used by the calling thread
+		 * @param flushCount the counter for processed compilation units
+		 * @return the parse list elements with clean ups which still need to be processed
+		 * @throws CoreException if a solution could not be calculated
+		 */
+		private List<ParseListElement> parseConcurrently(List<ICompilationUnit> units, final Hashtable<ICompilationUnit, ParseListElement> parseElements, final int parallelism, IProgressMonitor monitor, final AtomicInteger flushCount) throws CoreException {
+			final LinkedList<ICompilationUnit> pending= new LinkedList<ICompilationUnit>(units);
+			final int share= (units.size() + parallelism - 1) / parallelism;
+			final ConcurrentProgressMonitor concurrentMonitor= new ConcurrentProgressMonitor(monitor);
+
+			List<Future<List<ParseListElement>>> futures= new ArrayList<Future<List<ParseListElement>>>(parallelism);
+			for (int i= 0; i < parallelism; i++) {
+				futures.add(getExecutor().submit(new Callable<List<ParseListElement>>() {
+					public List<ParseListElement> call() throws Exception {
+						List<ParseListElement> undone= new ArrayList<ParseListElement>();
+						ICompilationUnit[] batch;
+						while (!concurrentMonitor.isCanceled() && (batch= nextBatch(pending, Math.min(share, ASTBatchParser.computeBatchSize(parallelism)))) != null) {
+							CleanUpRefactoringProgressMonitor batchMonitor= new CleanUpRefactoringProgressMonitor(concurrentMonitor, batch.length, fSize, fIndex, flushCount);
+							CleanUpASTRequestor requestor= new CleanUpASTRequestor(parseElements, fSolutions, batchMonitor);
+							parse(createBatchParser(1), batch, requestor, batchMonitor);
+							undone.addAll(requestor.getUndoneElements());
+						}
+						if (concurrentMonitor.isCanceled())
+							throw new OperationCanceledException();
+						return undone;
+					}
+				}));
+			}
+
+			List<ParseListElement> result= new ArrayList<ParseListElement>();
+			try {
+				for (Iterator<Future<List<ParseListElement>>> iterator= futures.iterator(); iterator.hasNext();) {
+					Future<List<ParseListElement>> future= iterator.next();
+					while (true) {
+						concurrentMonitor.forward();
+						if (concurrentMonitor.isCanceled())
+							throw new OperationCanceledException();
+						try {
+							result.addAll(future.get(100, TimeUnit.MILLISECONDS));
+							break;
+						} catch (TimeoutException e) {
+							// continue forwarding progress
+						} catch (InterruptedException e) {
+							throw new OperationCanceledException();
+						} catch (ExecutionException e) {
+							Throwable cause= e.getCause();
+							if (cause instanceof FixCalculationException)
+								throw ((FixCalculationException) cause).getException();
+							if (cause instanceof CoreException)
+								throw (CoreException) cause;
+							if (cause instanceof RuntimeException)
+								throw (RuntimeException) cause;
+							if (cause instanceof Error)
+								throw (Error) cause;
+							throw new IllegalStateException(cause);
 						}
-					};
-					try {
-						ICompilationUnit[] units= parseList.toArray(new ICompilationUnit[parseList.size()]);
-						parser.createASTs(units, new String[0], requestor, cuMonitor);
-					} catch (FixCalculationException e) {
-						throw e.getException();
 					}
 				}
+				concurrentMonitor.forward();
+			} finally {
+				concurrentMonitor.setCanceled(true);
+				for (Iterator<Future<List<ParseListElement>>> iterator= futures.iterator(); iterator.hasNext();) {
+					iterator.next().cancel(false);
+				}
+			}
+			return result;
+		}
 
-				for (Iterator<ICompilationUnit> iterator= sourceList.iterator(); iterator.hasNext();) {
-					ICompilationUnit cu= iterator.next();
+		private ICompilationUnit[] nextBatch(LinkedList<ICompilationUnit> pending, int size) {
+			synchronized (pending) {
+				if (pending.isEmpty())
+					return null;
 
-					monitor.worked(1);
+				ICompilationUnit[] result= new ICompilationUnit[Math.min(size, pending.size())];
+				for (int i= 0; i < result.length; i++) {
+					result[i]= pending.removeFirst();
+				}
+				return result;
+			}
+		}
 
-					requestor.acceptSource(cu);
+		private void parse(ASTBatchParser parser, ICompilationUnit[] units, CleanUpASTRequestor requestor, IProgressMonitor monitor) throws CoreException {
+			long start= System.currentTimeMillis();
+			try {
+				parser.createASTs(units, new String[0], requestor, monitor);
+			} catch (FixCalculationException e) {
+				throw e.getException();
+			} finally {
+				long fixTime= requestor.getFixTime();
+				fTimings.addParseTime(System.currentTimeMillis() - start - fixTime, units.length);
+				fTimings.addFixTime(fixTime);
+			}
+		}
+
+		private ASTBatchParser createBatchParser(int parallelism) {
+			return new ASTBatchParser(parallelism) {
+				@Override
+				protected ASTParser createParser(IJavaProject project) {
+					ASTParser result= createCleanUpASTParser();
+					result.setProject(project);
 
-					if (monitor.isCanceled())
-						throw new OperationCanceledException();
+					Map<String, String> options= RefactoringASTParser.getCompilerOptions(project);
+					options.putAll(fCleanUpOptions);
+					result.setCompilerOptions(options);
+					return result;
 				}
+			};
+		}
 
-				fParseList= requestor.getUndoneElements();
-				fIndex= cuMonitor.getIndex();
-			} finally {
+		private synchronized ExecutorService getExecutor() {
+			if (fExecutor == null) {
+				fExecutor= Executors.newFixedThreadPool(ASTBatchParser.getDefaultParallelism(), new ThreadFactory() {
+					private int fCount= 0;
+
+					public synchronized Thread newThread(Runnable runnable) {
+						Thread thread= new Thread(runnable, "Clean Up worker " + ++fCount); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
 			}
+			return fExecutor;
 		}
 
 		public void dispose() {
+			if (fExecutor != null) {
+				fExecutor.shutdownNow();
+				fExecutor= null;
+			}
 			for (Iterator<ICompilationUnit> iterator= fWorkingCopies.values().iterator(); iterator.hasNext();) {
 				ICompilationUnit cu= iterator.next();
 				try {
@@ -523,6 +823,8 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 
 	private boolean fUseOptionsFromProfile;
 
+	private CleanUpTimings fTimings;
+
 	public CleanUpRefactoring() {
 		this(FixMessages.CleanUpRefactoring_Refactoring_name);
 	}
@@ -532,6 +834,7 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		fCleanUps= new ArrayList<ICleanUp>();
 		fProjects= new Hashtable<IJavaProject, List<CleanUpTarget>>();
 		fUseOptionsFromProfile= false;
+		fTimings= new CleanUpTimings();
 	}
 
 	public void setUseOptionsFromProfile(boolean enabled) {
@@ -594,6 +897,17 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		fLeaveFilesDirty= leaveFilesDirty;
 	}
 
+	/**
+	 * Returns the time spent in the stages of the last
+	 * {@link #checkFinalConditions(IProgressMonitor)}.
+	 *
+	 * @return the timings of the last clean up run
+	 * @since 3.10
+	 */
+	public CleanUpTimings getTimings() {
+		return fTimings;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.ltk.core.refactoring.Refactoring#getName()
 	 */
@@ -637,6 +951,8 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 		if (pm == null)
 			pm= new NullProgressMonitor();
 
+		fTimings= new CleanUpTimings();
+
 		if (fProjects.size() == 0 || fCleanUps.size() == 0) {
 			pm.beginTask("", 1); //$NON-NLS-1$
 			pm.worked(1);
@@ -667,13 +983,22 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 						return result;
 				}
 
-				result.merge(checkPreConditions(project, targets, new SubProgressMonitor(pm, 3 * cleanUps.length)));
-				if (result.hasFatalError())
-					return result;
+				Change[] changes;
+				boolean postConditionsChecked= false;
+				try {
+					result.merge(checkPreConditions(project, targets, new SubProgressMonitor(pm, 3 * cleanUps.length)));
+					if (result.hasFatalError())
+						return result;
 
-				Change[] changes= cleanUpProject(project, targets, cleanUps, pm);
+					changes= cleanUpProject(project, targets, cleanUps, pm);
 
-				result.merge(checkPostConditions(new SubProgressMonitor(pm, cleanUps.length)));
+					postConditionsChecked= true;
+					result.merge(checkPostConditions(new SubProgressMonitor(pm, cleanUps.length)));
+				} finally {
+					// the clean ups release the resources acquired in checkPreConditions
+					if (!postConditionsChecked)
+						checkPostConditions(new SubProgressMonitor(pm, cleanUps.length));
+				}
 				if (result.hasFatalError())
 					return result;
 
@@ -718,7 +1043,10 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 				iter.next(subMonitor);
 			}
 
-			return iter.getResult();
+			long start= System.currentTimeMillis();
+			Change[] result= iter.getResult();
+			fTimings.addMergeTime(System.currentTimeMillis() - start);
+			return result;
 		} finally {
 			iter.dispose();
 			subMonitor.done();
@@ -830,7 +1158,8 @@ public class CleanUpRefactoring extends Refactoring implements IScheduledRefacto
 				}
 			}
 			i++;
-		} while (i < cleanUps.length && (context.getAST() == null || !cleanUps[i].getRequirements().requiresFreshAST()));
+			// the AST is still fresh as long as no clean up changed the compilation unit
+		} while (i < cleanUps.length && (context.getAST() == null || solution == null || !cleanUps[i].getRequirements().requiresFreshAST()));
 
 		for (; i < cleanUps.length; i++) {
 			undoneCleanUps.add(cleanUps[i]);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,42 +10,44 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
-import org.w3c.dom.Document;
+import org.w3c.dom.Attr;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.jdt.internal.corext.CorextMessages;
 
@@ -59,14 +61,37 @@ import org.eclipse.jdt.internal.ui.viewsupport.BasicElementLabels;
  * MAX_HISTORY_SIZE. If the list exceeds this size the eldest element is removed
  * from the list. An element can be added/renewed with a call to <code>accessed(Object)</code>.
  *
- * The history can be stored to/loaded from an xml file.
+ * The history can be stored to/loaded from a file. The file is a versioned binary file
+ * that stores the attributes of every element. Histories written by previous releases to an
+ * xml file are migrated on the first load. Once loaded, changes are saved in the background
+ * after a short delay.
  */
 public abstract class History {
 
+	private class SaveJob extends Job {
+
+		public SaveJob() {
+			super(CorextMessages.History_save_job);
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			write();
+			return Status.OK_STATUS;
+		}
+	}
+
 	private static final String DEFAULT_ROOT_NODE_NAME= "histroyRootNode"; //$NON-NLS-1$
 	private static final String DEFAULT_INFO_NODE_NAME= "infoNode"; //$NON-NLS-1$
 	private static final int MAX_HISTORY_SIZE= 60;
 
+	private static final String XML_FILE_EXTENSION= ".xml"; //$NON-NLS-1$
+	private static final String FILE_EXTENSION= ".dat"; //$NON-NLS-1$
+	private static final int VERSION= 1;
+	private static final long SAVE_DELAY= 2000;
+
 	private static JavaUIException createException(Throwable t, String message) {
 		return new JavaUIException(JavaUIStatus.createError(IStatus.ERROR, message, t));
 	}
@@ -77,6 +102,12 @@ public abstract class History {
 	private final String fRootNodeName;
 	private final String fInfoNodeName;
 
+	// serializes writing the history file
+	private final Object fWriteLock= new Object();
+	// null until the history has been loaded
+	private SaveJob fSaveJob;
+	private boolean fDirty;
+
 	public History(String fileName, String rootNodeName, String infoNodeName) {
 		fHistory= new LinkedHashMap<Object, Object>(80, 0.75f, true) {
 			private static final long serialVersionUID= 1L;
@@ -98,6 +129,7 @@ public abstract class History {
 	public synchronized void accessed(Object object) {
 		fHistory.put(getKey(object), object);
 		rebuildPositions();
+		markChanged();
 	}
 
 	public synchronized boolean contains(Object object) {
@@ -115,12 +147,16 @@ public abstract class History {
 	public synchronized Object remove(Object object) {
 		Object removed= fHistory.remove(getKey(object));
 		rebuildPositions();
+		if (removed != null)
+			markChanged();
 		return removed;
 	}
 
 	public synchronized Object removeKey(Object key) {
 		Object removed= fHistory.remove(key);
 		rebuildPositions();
+		if (removed != null)
+			markChanged();
 		return removed;
 	}
 
@@ -158,53 +194,64 @@ public abstract class History {
 		return fPositions.get(key).intValue();
 	}
 
+	/**
+	 * Loads the history from its file in the state location. A history stored in the xml
+	 * format of previous releases is converted and the xml file is deleted once the history
+	 * has been saved. After loading, changes to the history are saved in the background.
+	 */
 	public synchronized void load() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
+		File file= getFile(getBinaryFileName());
 		if (file.exists()) {
-			InputStreamReader reader= null;
-	        try {
-				reader = new InputStreamReader(new FileInputStream(file), "utf-8");//$NON-NLS-1$
-				load(new InputSource(reader));
+			try {
+				DataInputStream stream= new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+				try {
+					read(stream);
+				} finally {
+					stream.close();
+				}
 			} catch (IOException e) {
 				JavaPlugin.log(e);
-			} catch (CoreException e) {
-				JavaPlugin.log(e);
-			} finally {
+			}
+		} else {
+			File xmlFile= getFile(fFileName);
+			if (xmlFile.exists()) {
+				InputStreamReader reader= null;
 				try {
-					if (reader != null)
-						reader.close();
+					reader= new InputStreamReader(new FileInputStream(xmlFile), "utf-8");//$NON-NLS-1$
+					load(new InputSource(reader));
+					fDirty= true;
 				} catch (IOException e) {
 					JavaPlugin.log(e);
+				} catch (CoreException e) {
+					JavaPlugin.log(e);
+				} finally {
+					try {
+						if (reader != null)
+							reader.close();
+					} catch (IOException e) {
+						JavaPlugin.log(e);
+					}
 				}
 			}
 		}
+		rebuildPositions();
+		fSaveJob= new SaveJob();
+		if (fDirty)
+			fSaveJob.schedule(SAVE_DELAY);
 	}
 
-	public synchronized void save() {
-		IPath stateLocation= JavaPlugin.getDefault().getStateLocation().append(fFileName);
-		File file= stateLocation.toFile();
-		OutputStream out= null;
-		try {
-			out= new FileOutputStream(file);
-			save(out);
-		} catch (IOException e) {
-			JavaPlugin.log(e);
-		} catch (CoreException e) {
-			JavaPlugin.log(e);
-		} catch (TransformerFactoryConfigurationError e) {
-			// The XML library can be misconficgured (e.g. via
-			// -Djava.endorsed.dirs=C:\notExisting\xerces-2_7_1)
-			JavaPlugin.log(e);
-		} finally {
-			try {
-				if (out != null) {
-					out.close();
-				}
-			} catch (IOException e) {
-				JavaPlugin.log(e);
-			}
+	/**
+	 * Saves the history to its file in the state location, if it has changed since it was
+	 * last saved. A pending background save is canceled.
+	 */
+	public void save() {
+		SaveJob saveJob;
+		synchronized (this) {
+			saveJob= fSaveJob;
 		}
+		if (saveJob != null)
+			saveJob.cancel();
+		write();
 	}
 
 	protected Set<Object> getKeys() {
@@ -216,20 +263,30 @@ public abstract class History {
 	}
 
 	/**
-	 * Store <code>Object</code> in <code>Element</code>
+	 * Marks the history as changed. If the history has been loaded, it is saved
+	 * after a short delay.
+	 */
+	protected synchronized void markChanged() {
+		fDirty= true;
+		if (fSaveJob != null)
+			fSaveJob.schedule(SAVE_DELAY);
+	}
+
+	/**
+	 * Store <code>Object</code> in the given attributes
 	 *
 	 * @param object The object to store
-	 * @param element The Element to store to
+	 * @param attributes The attribute map to store to
 	 */
-	protected abstract void setAttributes(Object object, Element element);
+	protected abstract void setAttributes(Object object, Map<String, String> attributes);
 
 	/**
-	 * Return a new instance of an Object given <code>element</code>
+	 * Return a new instance of an Object given <code>attributes</code>
 	 *
-	 * @param element The element containing required information to create the Object
-	 * @return return a new instance of an Object given <code>element</code>
+	 * @param attributes The attributes containing required information to create the Object
+	 * @return return a new instance of an Object given <code>attributes</code>, or <code>null</code>
 	 */
-	protected abstract Object createFromElement(Element element);
+	protected abstract Object createFromAttributes(Map<String, String> attributes);
 
 	/**
 	 * Get key for object
@@ -250,6 +307,79 @@ public abstract class History {
 		}
 	}
 
+	private File getFile(String fileName) {
+		return JavaPlugin.getDefault().getStateLocation().append(fileName).toFile();
+	}
+
+	private String getBinaryFileName() {
+		String name= fFileName;
+		if (name.endsWith(XML_FILE_EXTENSION))
+			name= name.substring(0, name.length() - XML_FILE_EXTENSION.length());
+		return name + FILE_EXTENSION;
+	}
+
+	private void read(DataInputStream stream) throws IOException {
+		if (stream.readInt() != VERSION || !fRootNodeName.equals(stream.readUTF()))
+			return;
+		int count= stream.readInt();
+		for (int i= 0; i < count; i++) {
+			int attributeCount= stream.readInt();
+			Map<String, String> attributes= new HashMap<String, String>(attributeCount * 2);
+			for (int j= 0; j < attributeCount; j++) {
+				String name= stream.readUTF();
+				attributes.put(name, stream.readUTF());
+			}
+			Object object= createFromAttributes(attributes);
+			if (object != null)
+				fHistory.put(getKey(object), object);
+		}
+	}
+
+	/*
+	 * Writes the history if it has changed. The attributes are collected while holding the lock
+	 * of the history, the file is written without holding it.
+	 */
+	private void write() {
+		synchronized (fWriteLock) {
+			List<Map<String, String>> entries;
+			synchronized (this) {
+				if (!fDirty)
+					return;
+				fDirty= false;
+				entries= new ArrayList<Map<String, String>>(fHistory.size());
+				for (Iterator<Object> iter= getValues().iterator(); iter.hasNext();) {
+					Map<String, String> attributes= new LinkedHashMap<String, String>();
+					setAttributes(iter.next(), attributes);
+					entries.add(attributes);
+				}
+			}
+			try {
+				DataOutputStream stream= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getFile(getBinaryFileName()))));
+				try {
+					stream.writeInt(VERSION);
+					stream.writeUTF(fRootNodeName);
+					stream.writeInt(entries.size());
+					for (int i= 0, n= entries.size(); i < n; i++) {
+						Map<String, String> attributes= entries.get(i);
+						stream.writeInt(attributes.size());
+						for (Iterator<Map.Entry<String, String>> iter= attributes.entrySet().iterator(); iter.hasNext();) {
+							Map.Entry<String, String> attribute= iter.next();
+							stream.writeUTF(attribute.getKey());
+							stream.writeUTF(attribute.getValue());
+						}
+					}
+				} finally {
+					stream.close();
+				}
+				File xmlFile= getFile(fFileName);
+				if (xmlFile.exists())
+					xmlFile.delete();
+			} catch (IOException e) {
+				JavaPlugin.log(e);
+			}
+		}
+	}
+
 	private void load(InputSource inputSource) throws CoreException {
 		Element root;
 		try {
@@ -275,46 +405,19 @@ public abstract class History {
 			if (node.getNodeType() == Node.ELEMENT_NODE) {
 				Element type= (Element) node;
 				if (type.getNodeName().equalsIgnoreCase(fInfoNodeName)) {
-					Object object= createFromElement(type);
+					NamedNodeMap nodeAttributes= type.getAttributes();
+					Map<String, String> attributes= new HashMap<String, String>();
+					for (int j= 0, n= nodeAttributes.getLength(); j < n; j++) {
+						Attr attribute= (Attr) nodeAttributes.item(j);
+						attributes.put(attribute.getName(), attribute.getValue());
+					}
+					Object object= createFromAttributes(attributes);
 					if (object != null) {
 						fHistory.put(getKey(object), object);
 					}
 				}
 			}
 		}
-		rebuildPositions();
-	}
-
-	private void save(OutputStream stream) throws CoreException {
-		try {
-			DocumentBuilderFactory factory= DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder= factory.newDocumentBuilder();
-			Document document= builder.newDocument();
-
-			Element rootElement = document.createElement(fRootNodeName);
-			document.appendChild(rootElement);
-
-			Iterator<Object> values= getValues().iterator();
-			while (values.hasNext()) {
-				Object object= values.next();
-				Element element= document.createElement(fInfoNodeName);
-				setAttributes(object, element);
-				rootElement.appendChild(element);
-			}
-
-			Transformer transformer=TransformerFactory.newInstance().newTransformer();
-			transformer.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8"); //$NON-NLS-1$
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
-			DOMSource source = new DOMSource(document);
-			StreamResult result = new StreamResult(stream);
-
-			transformer.transform(source, result);
-		} catch (TransformerException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		} catch (ParserConfigurationException e) {
-			throw createException(e, Messages.format(CorextMessages.History_error_serialize, BasicElementLabels.getResourceName(fFileName)));
-		}
 	}
 
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,8 +19,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import org.w3c.dom.Element;
-
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileInfo;
 
@@ -317,6 +315,7 @@ public class OpenTypeHistory extends History {
 						replace(type, SearchEngine.createTypeNameMatch(jType, modifiers));
 					} else {
 						fTimestampMapping.put(type, new Long(currentTimestamp));
+						markChanged();
 					}
 				}
 			} catch (JavaModelException e) {
@@ -383,8 +382,8 @@ public class OpenTypeHistory extends History {
 	}
 
 	@Override
-	protected Object createFromElement(Element type) {
-		String handle= type.getAttribute(NODE_HANDLE);
+	protected Object createFromAttributes(Map<String, String> attributes) {
+		String handle= attributes.get(NODE_HANDLE);
 		if (handle == null )
 			return null;
 
@@ -394,13 +393,13 @@ public class OpenTypeHistory extends History {
 
 		int modifiers= 0;
 		try {
-			modifiers= Integer.parseInt(type.getAttribute(NODE_MODIFIERS));
+			modifiers= Integer.parseInt(attributes.get(NODE_MODIFIERS));
 		} catch (NumberFormatException e) {
 			// take zero
 		}
 		TypeNameMatch info= SearchEngine.createTypeNameMatch((IType) element, modifiers);
 		long timestamp= IResource.NULL_STAMP;
-		String timestampValue= type.getAttribute(NODE_TIMESTAMP);
+		String timestampValue= attributes.get(NODE_TIMESTAMP);
 		if (timestampValue != null && timestampValue.length() > 0) {
 			try {
 				timestamp= Long.parseLong(timestampValue);
@@ -415,16 +414,16 @@ public class OpenTypeHistory extends History {
 	}
 
 	@Override
-	protected void setAttributes(Object object, Element typeElement) {
+	protected void setAttributes(Object object, Map<String, String> attributes) {
 		TypeNameMatch type= (TypeNameMatch) object;
 		String handleId= type.getType().getHandleIdentifier();
-		typeElement.setAttribute(NODE_HANDLE, handleId);
-		typeElement.setAttribute(NODE_MODIFIERS, Integer.toString(type.getModifiers()));
+		attributes.put(NODE_HANDLE, handleId);
+		attributes.put(NODE_MODIFIERS, Integer.toString(type.getModifiers()));
 		Long timestamp= fTimestampMapping.get(type);
 		if (timestamp == null) {
-			typeElement.setAttribute(NODE_TIMESTAMP, Long.toString(IResource.NULL_STAMP));
+			attributes.put(NODE_TIMESTAMP, Long.toString(IResource.NULL_STAMP));
 		} else {
-			typeElement.setAttribute(NODE_TIMESTAMP, timestamp.toString());
+			attributes.put(NODE_TIMESTAMP, timestamp.toString());
 		}
 	}
 
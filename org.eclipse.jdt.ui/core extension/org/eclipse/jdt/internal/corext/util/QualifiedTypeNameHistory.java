@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,7 +10,7 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.util;
 
-import org.w3c.dom.Element;
+import java.util.Map;
 
 public class QualifiedTypeNameHistory extends History {
 
@@ -37,16 +37,16 @@ public class QualifiedTypeNameHistory extends History {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void setAttributes(Object object, Element element) {
-		element.setAttribute(NODE_NAME, (String)object);
+	protected void setAttributes(Object object, Map<String, String> attributes) {
+		attributes.put(NODE_NAME, (String)object);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected Object createFromElement(Element element) {
-		return element.getAttribute(NODE_NAME);
+	protected Object createFromAttributes(Map<String, String> attributes) {
+		return attributes.get(NODE_NAME);
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,9 +12,19 @@ package org.eclipse.jdt.internal.corext.util;
 
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
@@ -23,19 +33,29 @@ import org.eclipse.jdt.core.JavaModelException;
 
 /**
  * A thread-safe cache for super type hierarchies.
- * 
+ * <p>
+ * Lookups do not lock: every type contained in a cached hierarchy is indexed. The cache is
+ * bounded by the total number of types in its hierarchies, the least recently used hierarchies
+ * are evicted first. A hierarchy is removed as soon as it reports a change. If several threads
+ * ask for a missing hierarchy at the same time, it is only computed once.
+ * </p>
+ *
  * @see JDTUIHelperClasses
  */
 public class SuperTypeHierarchyCache {
 
 	private static class HierarchyCacheEntry implements ITypeHierarchyChangedListener {
 
-		private ITypeHierarchy fTypeHierarchy;
-		private long fLastAccess;
+		private final ITypeHierarchy fTypeHierarchy;
+		private final IType[] fTypes;
+		private final ConcurrentMap<IType, MethodOverrideTester> fMethodOverrideTesters;
+		private volatile long fLastAccess;
+		private volatile boolean fDisposed;
 
 		public HierarchyCacheEntry(ITypeHierarchy hierarchy) {
 			fTypeHierarchy= hierarchy;
-			fTypeHierarchy.addTypeHierarchyChangedListener(this);
+			fTypes= hierarchy.getAllTypes();
+			fMethodOverrideTesters= new ConcurrentHashMap<IType, MethodOverrideTester>(4);
 			markAsAccessed();
 		}
 
@@ -47,19 +67,41 @@ public class SuperTypeHierarchyCache {
 			return fTypeHierarchy;
 		}
 
+		public IType[] getTypes() {
+			return fTypes;
+		}
+
+		public int getWeight() {
+			return fTypes.length;
+		}
+
+		public MethodOverrideTester getMethodOverrideTester(IType type) {
+			MethodOverrideTester tester= fMethodOverrideTesters.get(type);
+			if (tester == null) {
+				tester= new MethodOverrideTester(type, fTypeHierarchy);
+				MethodOverrideTester existing= fMethodOverrideTesters.putIfAbsent(type, tester);
+				if (existing != null)
+					tester= existing;
+			}
+			return tester;
+		}
+
 		public void markAsAccessed() {
-			fLastAccess= System.currentTimeMillis();
+			fLastAccess= fgAccessCounter.incrementAndGet();
 		}
 
 		public long getLastAccess() {
 			return fLastAccess;
 		}
 
+		public boolean isDisposed() {
+			return fDisposed;
+		}
+
 		public void dispose() {
-			if (fTypeHierarchy != null) {
-				fTypeHierarchy.removeTypeHierarchyChangedListener(this);
-				fTypeHierarchy= null;
-			}
+			fDisposed= true;
+			fTypeHierarchy.removeTypeHierarchyChangedListener(this);
+			fMethodOverrideTesters.clear();
 		}
 
 		/* (non-Javadoc)
@@ -72,14 +114,42 @@ public class SuperTypeHierarchyCache {
 
 	}
 
+	/**
+	 * Maximal number of types in all cached hierarchies. Can be changed with the system property
+	 * <code>org.eclipse.jdt.ui.superTypeHierarchyCacheSize</code>.
+	 */
+	private static final int MAX_WEIGHT= Integer.getInteger("org.eclipse.jdt.ui.superTypeHierarchyCacheSize", 2000).intValue(); //$NON-NLS-1$
 
-	private static final int CACHE_SIZE= 8;
+	/**
+	 * Interval in ms in which threads waiting for a hierarchy computed by another thread check
+	 * for cancelation.
+	 */
+	private static final long POLL_INTERVAL= 100;
 
-	private static ArrayList<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<HierarchyCacheEntry>(CACHE_SIZE);
-	private static Map<IType, MethodOverrideTester> fgMethodOverrideTesterCache= new LRUMap<IType, MethodOverrideTester>(CACHE_SIZE);
+	/**
+	 * Maps every type contained in a cached hierarchy to its cache entry.
+	 */
+	private static final ConcurrentMap<IType, HierarchyCacheEntry> fgTypeIndex= new ConcurrentHashMap<IType, HierarchyCacheEntry>();
 
-	private static int fgCacheHits= 0;
-	private static int fgCacheMisses= 0;
+	/**
+	 * The cached entries. Modifications are guarded by the list.
+	 */
+	private static final List<HierarchyCacheEntry> fgHierarchyCache= new ArrayList<HierarchyCacheEntry>();
+
+	/**
+	 * The hierarchies which are currently computed, by focus type.
+	 */
+	private static final ConcurrentMap<IType, FutureTask<ITypeHierarchy>> fgPendingHierarchies= new ConcurrentHashMap<IType, FutureTask<ITypeHierarchy>>();
+
+	private static final AtomicLong fgAccessCounter= new AtomicLong();
+
+	private static int fgWeight= 0;
+
+	private static final AtomicInteger fgCacheHits= new AtomicInteger();
+	private static final AtomicInteger fgCacheMisses= new AtomicInteger();
+	private static final AtomicInteger fgCacheEvictions= new AtomicInteger();
+	private static final AtomicLong fgTotalLoadTime= new AtomicLong();
+	private static final AtomicLong fgMaxLoadTime= new AtomicLong();
 
 	/**
 	 * Returns a super type hierarchy that contains the given type.
@@ -97,32 +167,14 @@ public class SuperTypeHierarchyCache {
 	}
 
 	public static MethodOverrideTester getMethodOverrideTester(IType type) throws JavaModelException {
-		MethodOverrideTester test= null;
-		synchronized (fgMethodOverrideTesterCache) {
-			test= fgMethodOverrideTesterCache.get(type);
-		}
-		if (test == null) {
-			ITypeHierarchy hierarchy= getTypeHierarchy(type); // don't nest the locks
-			synchronized (fgMethodOverrideTesterCache) {
-				test= fgMethodOverrideTesterCache.get(type); // test again after waiting a long time for 'getTypeHierarchy'
-				if (test == null) {
-					test= new MethodOverrideTester(type, hierarchy);
-					fgMethodOverrideTesterCache.put(type, test);
-				}
-			}
-		}
-		return test;
-	}
-
-	private static void removeMethodOverrideTester(ITypeHierarchy hierarchy) {
-		synchronized (fgMethodOverrideTesterCache) {
-			for (Iterator<MethodOverrideTester> iter= fgMethodOverrideTesterCache.values().iterator(); iter.hasNext();) {
-				MethodOverrideTester curr= iter.next();
-				if (curr.getTypeHierarchy().equals(hierarchy)) {
-					iter.remove();
-				}
-			}
+		HierarchyCacheEntry entry= findEntryInCache(type);
+		if (entry == null) {
+			ITypeHierarchy hierarchy= getTypeHierarchy(type);
+			entry= findEntryInCache(type);
+			if (entry == null) // the hierarchy has already been evicted or changed
+				return new MethodOverrideTester(type, hierarchy);
 		}
+		return entry.getMethodOverrideTester(type);
 	}
 
 	/**
@@ -137,46 +189,105 @@ public class SuperTypeHierarchyCache {
 	 * @return a supertype hierarchy that contains <code>type</code>
 	 * @throws JavaModelException if a problem occurs
 	 */
-	public static ITypeHierarchy getTypeHierarchy(IType type, IProgressMonitor progressMonitor) throws JavaModelException {
-		ITypeHierarchy hierarchy= findTypeHierarchyInCache(type);
-		if (hierarchy == null) {
-			fgCacheMisses++;
-			hierarchy= type.newSupertypeHierarchy(progressMonitor);
-			addTypeHierarchyToCache(hierarchy);
-		} else {
-			fgCacheHits++;
+	public static ITypeHierarchy getTypeHierarchy(final IType type, final IProgressMonitor progressMonitor) throws JavaModelException {
+		HierarchyCacheEntry entry= findEntryInCache(type);
+		if (entry != null) {
+			fgCacheHits.incrementAndGet();
+			return entry.getTypeHierarchy();
 		}
+
+		FutureTask<ITypeHierarchy> task= new FutureTask<ITypeHierarchy>(new Callable<ITypeHierarchy>() {
+			public ITypeHierarchy call() throws Exception {
+				return loadTypeHierarchy(type, progressMonitor);
+			}
+		});
+		FutureTask<ITypeHierarchy> pending= fgPendingHierarchies.putIfAbsent(type, task);
+		if (pending == null) {
+			try {
+				task.run();
+			} finally {
+				fgPendingHierarchies.remove(type, task);
+			}
+			return waitFor(task, progressMonitor);
+		}
+
+		fgCacheHits.incrementAndGet();
+		try {
+			return waitFor(pending, progressMonitor);
+		} catch (OperationCanceledException e) {
+			if (progressMonitor != null && progressMonitor.isCanceled())
+				throw e;
+			// the thread which computed the hierarchy has been canceled
+			return getTypeHierarchy(type, progressMonitor);
+		}
+	}
+
+	private static ITypeHierarchy loadTypeHierarchy(IType type, IProgressMonitor progressMonitor) throws JavaModelException {
+		fgCacheMisses.incrementAndGet();
+		long start= System.currentTimeMillis();
+		ITypeHierarchy hierarchy= type.newSupertypeHierarchy(progressMonitor);
+		long time= System.currentTimeMillis() - start;
+		fgTotalLoadTime.addAndGet(time);
+		long max;
+		while (time > (max= fgMaxLoadTime.get()) && !fgMaxLoadTime.compareAndSet(max, time)) {
+			// retry
+		}
+		addTypeHierarchyToCache(hierarchy);
 		return hierarchy;
 	}
 
+	private static ITypeHierarchy waitFor(FutureTask<ITypeHierarchy> task, IProgressMonitor progressMonitor) throws JavaModelException {
+		try {
+			while (true) {
+				try {
+					return task.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					if (progressMonitor != null && progressMonitor.isCanceled())
+						throw new OperationCanceledException();
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			Throwable cause= e.getCause();
+			if (cause instanceof JavaModelException)
+				throw (JavaModelException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+
 	private static void addTypeHierarchyToCache(ITypeHierarchy hierarchy) {
+		HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
 		synchronized (fgHierarchyCache) {
-			int nEntries= fgHierarchyCache.size();
-			if (nEntries >= CACHE_SIZE) {
-				// find obsolete entries or remove entry that was least recently accessed
-				HierarchyCacheEntry oldest= null;
-				ArrayList<HierarchyCacheEntry> obsoleteHierarchies= new ArrayList<HierarchyCacheEntry>(CACHE_SIZE);
-				for (int i= 0; i < nEntries; i++) {
-					HierarchyCacheEntry entry= fgHierarchyCache.get(i);
-					ITypeHierarchy curr= entry.getTypeHierarchy();
-					if (!curr.exists() || hierarchy.contains(curr.getType())) {
-						obsoleteHierarchies.add(entry);
-					} else {
-						if (oldest == null || entry.getLastAccess() < oldest.getLastAccess()) {
-							oldest= entry;
-						}
-					}
+			// hierarchies of super types are obsolete
+			for (int i= fgHierarchyCache.size() - 1; i >= 0; i--) {
+				HierarchyCacheEntry entry= fgHierarchyCache.get(i);
+				ITypeHierarchy curr= entry.getTypeHierarchy();
+				if (!curr.exists() || hierarchy.contains(curr.getType())) {
+					removeHierarchyEntryFromCache(entry);
 				}
-				if (!obsoleteHierarchies.isEmpty()) {
-					for (int i= 0; i < obsoleteHierarchies.size(); i++) {
-						removeHierarchyEntryFromCache(obsoleteHierarchies.get(i));
-					}
-				} else if (oldest != null) {
-					removeHierarchyEntryFromCache(oldest);
+			}
+			while (fgWeight + newEntry.getWeight() > MAX_WEIGHT && !fgHierarchyCache.isEmpty()) {
+				HierarchyCacheEntry oldest= fgHierarchyCache.get(0);
+				for (int i= 1; i < fgHierarchyCache.size(); i++) {
+					HierarchyCacheEntry entry= fgHierarchyCache.get(i);
+					if (entry.getLastAccess() < oldest.getLastAccess())
+						oldest= entry;
 				}
+				removeHierarchyEntryFromCache(oldest);
+				fgCacheEvictions.incrementAndGet();
 			}
-			HierarchyCacheEntry newEntry= new HierarchyCacheEntry(hierarchy);
+			hierarchy.addTypeHierarchyChangedListener(newEntry);
 			fgHierarchyCache.add(newEntry);
+			fgWeight+= newEntry.getWeight();
+			IType[] types= newEntry.getTypes();
+			for (int i= 0; i < types.length; i++) {
+				fgTypeIndex.put(types[i], newEntry);
+			}
 		}
 	}
 
@@ -187,33 +298,41 @@ public class SuperTypeHierarchyCache {
 	 * @return <code>true</code> if a hierarchy for the given type is cached
 	 */
 	public static boolean hasInCache(IType type) {
-		return findTypeHierarchyInCache(type) != null;
+		return findEntryInCache(type) != null;
 	}
 
 
-	private static ITypeHierarchy findTypeHierarchyInCache(IType type) {
-		synchronized (fgHierarchyCache) {
-			for (int i= fgHierarchyCache.size() - 1; i>= 0; i--) {
-				HierarchyCacheEntry curr= fgHierarchyCache.get(i);
-				ITypeHierarchy hierarchy= curr.getTypeHierarchy();
-				if (!hierarchy.exists()) {
-					removeHierarchyEntryFromCache(curr);
-				} else {
-					if (hierarchy.contains(type)) {
-						curr.markAsAccessed();
-						return hierarchy;
-					}
-				}
-			}
+	private static HierarchyCacheEntry findEntryInCache(IType type) {
+		HierarchyCacheEntry entry= fgTypeIndex.get(type);
+		if (entry == null)
+			return null;
+		if (entry.isDisposed() || !entry.getTypeHierarchy().exists()) {
+			removeHierarchyEntryFromCache(entry);
+			return null;
 		}
-		return null;
+		entry.markAsAccessed();
+		return entry;
 	}
 
 	private static void removeHierarchyEntryFromCache(HierarchyCacheEntry entry) {
 		synchronized (fgHierarchyCache) {
-			removeMethodOverrideTester(entry.getTypeHierarchy());
+			if (!fgHierarchyCache.remove(entry))
+				return;
+			fgWeight-= entry.getWeight();
+			IType[] types= entry.getTypes();
+			for (int i= 0; i < types.length; i++) {
+				fgTypeIndex.remove(types[i], entry);
+			}
 			entry.dispose();
-			fgHierarchyCache.remove(entry);
+
+			// another cached hierarchy may still contain some of the types
+			for (Iterator<HierarchyCacheEntry> iter= fgHierarchyCache.iterator(); iter.hasNext();) {
+				HierarchyCacheEntry curr= iter.next();
+				IType[] currTypes= curr.getTypes();
+				for (int i= 0; i < currTypes.length; i++) {
+					fgTypeIndex.putIfAbsent(currTypes[i], curr);
+				}
+			}
 		}
 	}
 
@@ -223,7 +342,7 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheHits() {
-		return fgCacheHits;
+		return fgCacheHits.get();
 	}
 
 	/**
@@ -231,6 +350,30 @@ public class SuperTypeHierarchyCache {
 	 * @return Returns a int
 	 */
 	public static int getCacheMisses() {
-		return fgCacheMisses;
+		return fgCacheMisses.get();
+	}
+
+	/**
+	 * Gets the number of hierarchies removed to keep the cache in its size limit.
+	 * @return the number of evictions
+	 */
+	public static int getCacheEvictions() {
+		return fgCacheEvictions.get();
+	}
+
+	/**
+	 * Gets the total time spent building hierarchies.
+	 * @return the load time in milliseconds
+	 */
+	public static long getTotalLoadTime() {
+		return fgTotalLoadTime.get();
+	}
+
+	/**
+	 * Gets the longest time spent building a single hierarchy.
+	 * @return the load time in milliseconds
+	 */
+	public static long getMaxLoadTime() {
+		return fgMaxLoadTime.get();
 	}
 }
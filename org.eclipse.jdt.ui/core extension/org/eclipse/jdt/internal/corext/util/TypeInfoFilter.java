@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -135,6 +135,14 @@ public class TypeInfoFilter {
 		return fSearchScope;
 	}
 
+	/**
+	 * @return <code>true</code> iff the search scope is the workspace scope
+	 * @since 3.10
+	 */
+	public boolean isWorkspaceScope() {
+		return fIsWorkspaceScope;
+	}
+
 	public int getPackageFlags() {
 		if (fPackageMatcher == null)
 			return SearchPattern.R_EXACT_MATCH;
@@ -166,16 +174,34 @@ public class TypeInfoFilter {
 	}
 
 	private boolean matchesName(TypeNameMatch type) {
+		return matchesName(type.getSimpleTypeName());
+	}
+
+	/**
+	 * @param simpleName the simple name of a type
+	 * @return <code>true</code> iff the name matches the name pattern
+	 * @since 3.10
+	 */
+	public boolean matchesName(String simpleName) {
 		if (fText.length() == 0) {
 			return true; //empty pattern matches all names
 		}
-		return fNameMatcher.matches(type.getSimpleTypeName());
+		return fNameMatcher.matches(simpleName);
 	}
 
 	private boolean matchesPackage(TypeNameMatch type) {
+		return matchesPackage(type.getTypeContainerName());
+	}
+
+	/**
+	 * @param containerName the type container name of a type
+	 * @return <code>true</code> iff the container name matches the package pattern
+	 * @since 3.10
+	 */
+	public boolean matchesPackage(String containerName) {
 		if (fPackageMatcher == null)
 			return true;
-		return fPackageMatcher.matches(type.getTypeContainerName());
+		return fPackageMatcher.matches(containerName);
 	}
 
 	private boolean matchesScope(TypeNameMatch type) {
@@ -185,9 +211,18 @@ public class TypeInfoFilter {
 	}
 
 	private boolean matchesModifiers(TypeNameMatch type) {
+		return matchesModifiers(type.getModifiers());
+	}
+
+	/**
+	 * @param typeModifiers the modifiers of a type
+	 * @return <code>true</code> iff the modifiers match the element kind
+	 * @since 3.10
+	 */
+	public boolean matchesModifiers(int typeModifiers) {
 		if (fElementKind == IJavaSearchConstants.TYPE)
 			return true;
-		int modifiers= type.getModifiers() & TYPE_MODIFIERS;
+		int modifiers= typeModifiers & TYPE_MODIFIERS;
 		switch (fElementKind) {
 			case IJavaSearchConstants.CLASS:
 				return modifiers == 0;
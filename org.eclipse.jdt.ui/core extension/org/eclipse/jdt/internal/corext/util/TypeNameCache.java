@@ -0,0 +1,614 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+import org.eclipse.jdt.internal.corext.CorextMessages;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * A cache of the names of all types in the workspace for the open type dialog.
+ * <p>
+ * The cache is a compact table: simple names, package names, container names and file names are
+ * interned into one string pool, and every type is a row of pool indices, a package fragment root
+ * index and the modifiers. Queries are matched against the table with a {@link TypeInfoFilter}
+ * without waiting for the search indexer; each distinct name is matched only once per query.
+ * </p>
+ * <p>
+ * The table is built by a background job with a single search for all types and is kept up to
+ * date from Java element deltas: changed compilation units are re-read on the next query, any
+ * other structural change makes the cache unavailable until it has been rebuilt. The table is
+ * persisted in the plug-in state location. A table read at startup is used right away and is
+ * refreshed by a rebuild in the background, since the workspace may have changed in the meantime.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 3.10
+ */
+public class TypeNameCache implements IElementChangedListener {
+
+	/**
+	 * The type table. Removed rows have a name index of <code>-1</code>.
+	 */
+	private static class Table {
+
+		private final List<IPackageFragmentRoot> fRoots;
+		private final Map<IPackageFragmentRoot, Integer> fRootIds;
+		private final List<String> fStrings;
+		private final Map<String, Integer> fStringIds;
+
+		private int fSize;
+		private int fRemoved;
+		private int[] fNames;
+		private int[] fPackages;
+		private int[] fContainers;
+		private int[] fFiles;
+		private int[] fRootIndices;
+		private int[] fModifiers;
+
+		public Table(int capacity) {
+			fRoots= new ArrayList<IPackageFragmentRoot>();
+			fRootIds= new HashMap<IPackageFragmentRoot, Integer>();
+			fStrings= new ArrayList<String>();
+			fStringIds= new HashMap<String, Integer>();
+			fNames= new int[capacity];
+			fPackages= new int[capacity];
+			fContainers= new int[capacity];
+			fFiles= new int[capacity];
+			fRootIndices= new int[capacity];
+			fModifiers= new int[capacity];
+		}
+
+		private int internString(String string) {
+			Integer id= fStringIds.get(string);
+			if (id == null) {
+				id= new Integer(fStrings.size());
+				fStrings.add(string);
+				fStringIds.put(string, id);
+			}
+			return id.intValue();
+		}
+
+		private int internRoot(IPackageFragmentRoot root) {
+			Integer id= fRootIds.get(root);
+			if (id == null) {
+				id= new Integer(fRoots.size());
+				fRoots.add(root);
+				fRootIds.put(root, id);
+			}
+			return id.intValue();
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity <= fNames.length)
+				return;
+			int length= Math.max(capacity, fNames.length * 2);
+			fNames= grow(fNames, length);
+			fPackages= grow(fPackages, length);
+			fContainers= grow(fContainers, length);
+			fFiles= grow(fFiles, length);
+			fRootIndices= grow(fRootIndices, length);
+			fModifiers= grow(fModifiers, length);
+		}
+
+		private static int[] grow(int[] array, int length) {
+			int[] result= new int[length];
+			System.arraycopy(array, 0, result, 0, array.length);
+			return result;
+		}
+
+		public void add(TypeNameMatch match) {
+			IType type= match.getType();
+			String file= type.isBinary() ? type.getClassFile().getElementName() : type.getCompilationUnit().getElementName();
+			ensureCapacity(fSize + 1);
+			fNames[fSize]= internString(match.getSimpleTypeName());
+			fPackages[fSize]= internString(match.getPackageName());
+			fContainers[fSize]= internString(match.getTypeContainerName());
+			fFiles[fSize]= internString(file);
+			fRootIndices[fSize]= internRoot(match.getPackageFragmentRoot());
+			fModifiers[fSize]= match.getModifiers();
+			fSize++;
+		}
+
+		public void update(ICompilationUnit unit) {
+			IPackageFragment pack= (IPackageFragment) unit.getParent();
+			Integer root= fRootIds.get(pack.getParent());
+			Integer packageName= fStringIds.get(pack.getElementName());
+			Integer file= fStringIds.get(unit.getElementName());
+			if (root != null && packageName != null && file != null) {
+				int r= root.intValue();
+				int p= packageName.intValue();
+				int f= file.intValue();
+				for (int i= 0; i < fSize; i++) {
+					if (fNames[i] != -1 && fFiles[i] == f && fPackages[i] == p && fRootIndices[i] == r) {
+						fNames[i]= -1;
+						fRemoved++;
+					}
+				}
+				if (fRemoved > fSize / 2)
+					compact();
+			}
+			if (!unit.exists())
+				return;
+			try {
+				IType[] types= unit.getAllTypes();
+				for (int i= 0; i < types.length; i++)
+					add(SearchEngine.createTypeNameMatch(types[i], types[i].getFlags()));
+			} catch (JavaModelException e) {
+				// the compilation unit has been removed in the meantime
+			}
+		}
+
+		private void compact() {
+			int size= 0;
+			for (int i= 0; i < fSize; i++) {
+				if (fNames[i] == -1)
+					continue;
+				fNames[size]= fNames[i];
+				fPackages[size]= fPackages[i];
+				fContainers[size]= fContainers[i];
+				fFiles[size]= fFiles[i];
+				fRootIndices[size]= fRootIndices[i];
+				fModifiers[size]= fModifiers[i];
+				size++;
+			}
+			fSize= size;
+			fRemoved= 0;
+		}
+
+		public void search(TypeInfoFilter filter, TypeNameMatchRequestor requestor, IProgressMonitor monitor) {
+			byte[] nameMatches= new byte[fStrings.size()];
+			byte[] containerMatches= new byte[fStrings.size()];
+			for (int i= 0; i < fSize; i++) {
+				if ((i & 0x3ff) == 0 && monitor.isCanceled())
+					throw new OperationCanceledException();
+				int name= fNames[i];
+				if (name == -1 || !filter.matchesModifiers(fModifiers[i]))
+					continue;
+				if (!matches(nameMatches, name, true, filter) || !matches(containerMatches, fContainers[i], false, filter))
+					continue;
+				IType type= createType(i);
+				if (type != null)
+					requestor.acceptTypeNameMatch(SearchEngine.createTypeNameMatch(type, fModifiers[i]));
+			}
+		}
+
+		private boolean matches(byte[] memo, int string, boolean isName, TypeInfoFilter filter) {
+			if (memo[string] == 0) {
+				boolean matches= isName ? filter.matchesName(fStrings.get(string)) : filter.matchesPackage(fStrings.get(string));
+				memo[string]= (byte) (matches ? 1 : 2);
+			}
+			return memo[string] == 1;
+		}
+
+		private IType createType(int i) {
+			IPackageFragmentRoot root= fRoots.get(fRootIndices[i]);
+			if (root == null)
+				return null;
+			String packageName= fStrings.get(fPackages[i]);
+			String file= fStrings.get(fFiles[i]);
+			IPackageFragment pack= root.getPackageFragment(packageName);
+			if (file.endsWith(".class")) //$NON-NLS-1$
+				return pack.getClassFile(file).getType();
+
+			String container= fStrings.get(fContainers[i]);
+			String enclosing= container.length() > packageName.length() ? container.substring(packageName.length() == 0 ? 0 : packageName.length() + 1) : ""; //$NON-NLS-1$
+			ICompilationUnit unit= pack.getCompilationUnit(file);
+			String simpleName= fStrings.get(fNames[i]);
+			if (enclosing.length() == 0)
+				return unit.getType(simpleName);
+			String[] names= enclosing.split("\\."); //$NON-NLS-1$
+			IType type= unit.getType(names[0]);
+			for (int j= 1; j < names.length; j++)
+				type= type.getType(names[j]);
+			return type.getType(simpleName);
+		}
+
+		public void write(DataOutputStream stream) throws IOException {
+			stream.writeInt(VERSION);
+			stream.writeInt(fRoots.size());
+			for (int i= 0; i < fRoots.size(); i++) {
+				IPackageFragmentRoot root= fRoots.get(i);
+				stream.writeUTF(root != null ? root.getHandleIdentifier() : ""); //$NON-NLS-1$
+			}
+			stream.writeInt(fStrings.size());
+			for (int i= 0; i < fStrings.size(); i++)
+				stream.writeUTF(fStrings.get(i));
+			stream.writeInt(fSize - fRemoved);
+			for (int i= 0; i < fSize; i++) {
+				if (fNames[i] == -1)
+					continue;
+				stream.writeInt(fNames[i]);
+				stream.writeInt(fPackages[i]);
+				stream.writeInt(fContainers[i]);
+				stream.writeInt(fFiles[i]);
+				stream.writeInt(fRootIndices[i]);
+				stream.writeInt(fModifiers[i]);
+			}
+		}
+
+		public static Table read(DataInputStream stream) throws IOException {
+			if (stream.readInt() != VERSION)
+				return null;
+			int roots= stream.readInt();
+			List<IPackageFragmentRoot> rootList= new ArrayList<IPackageFragmentRoot>(roots);
+			for (int i= 0; i < roots; i++) {
+				IJavaElement element= JavaCore.create(stream.readUTF());
+				rootList.add(element instanceof IPackageFragmentRoot ? (IPackageFragmentRoot) element : null);
+			}
+			int strings= stream.readInt();
+			List<String> stringList= new ArrayList<String>(strings);
+			for (int i= 0; i < strings; i++)
+				stringList.add(stream.readUTF());
+			int size= stream.readInt();
+			Table table= new Table(size);
+			for (int i= 0; i < roots; i++) {
+				IPackageFragmentRoot root= rootList.get(i);
+				table.fRoots.add(root);
+				if (root != null)
+					table.fRootIds.put(root, new Integer(i));
+			}
+			for (int i= 0; i < strings; i++) {
+				String string= stringList.get(i);
+				table.fStrings.add(string);
+				table.fStringIds.put(string, new Integer(i));
+			}
+			for (int i= 0; i < size; i++) {
+				table.fNames[i]= checkIndex(stream.readInt(), strings);
+				table.fPackages[i]= checkIndex(stream.readInt(), strings);
+				table.fContainers[i]= checkIndex(stream.readInt(), strings);
+				table.fFiles[i]= checkIndex(stream.readInt(), strings);
+				table.fRootIndices[i]= checkIndex(stream.readInt(), roots);
+				table.fModifiers[i]= stream.readInt();
+			}
+			table.fSize= size;
+			return table;
+		}
+
+		private static int checkIndex(int index, int size) throws IOException {
+			if (index < 0 || index >= size)
+				throw new IOException("Corrupt type name cache"); //$NON-NLS-1$
+			return index;
+		}
+	}
+
+	private class UpdateJob extends Job {
+
+		public UpdateJob() {
+			super(CorextMessages.TypeNameCache_update_job);
+			setSystem(true);
+			setPriority(Job.LONG);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			synchronized (fDirtyUnits) {
+				fBuildUnits= new HashSet<ICompilationUnit>();
+			}
+			try {
+				int stamp;
+				synchronized (TypeNameCache.this) {
+					stamp= fStamp;
+				}
+				final Table table= new Table(1024);
+				try {
+					new SearchEngine().searchAllTypeNames(null, SearchPattern.R_PATTERN_MATCH, null, SearchPattern.R_PATTERN_MATCH, IJavaSearchConstants.TYPE, SearchEngine.createWorkspaceScope(), new TypeNameMatchRequestor() {
+						@Override
+						public void acceptTypeNameMatch(TypeNameMatch match) {
+							table.add(match);
+						}
+					}, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+				} catch (JavaModelException e) {
+					JavaPlugin.log(e);
+					return Status.OK_STATUS;
+				} catch (OperationCanceledException e) {
+					return Status.CANCEL_STATUS;
+				}
+				synchronized (TypeNameCache.this) {
+					if (fDisposed)
+						return Status.OK_STATUS;
+					if (stamp != fStamp) {
+						// the workspace has changed structurally while building
+						schedule();
+						return Status.OK_STATUS;
+					}
+					// the search may not have seen the units changed while building
+					ICompilationUnit[] buildUnits;
+					synchronized (fDirtyUnits) {
+						buildUnits= fBuildUnits.toArray(new ICompilationUnit[fBuildUnits.size()]);
+						fBuildUnits= null;
+					}
+					for (int i= 0; i < buildUnits.length; i++)
+						table.update(buildUnits[i]);
+					fTable= table;
+					fAvailable= true;
+					fRefreshed= true;
+					fChanged= true;
+				}
+				return Status.OK_STATUS;
+			} finally {
+				synchronized (fDirtyUnits) {
+					fBuildUnits= null;
+				}
+			}
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return FAMILY.equals(family);
+		}
+	}
+
+	/**
+	 * Family of the job which builds the cache.
+	 */
+	public static final String FAMILY= TypeNameCache.class.getName();
+
+	private static final String FILENAME= "TypeNameCache.dat"; //$NON-NLS-1$
+
+	private static final int VERSION= 1;
+
+	private static TypeNameCache fgInstance;
+
+	public static synchronized TypeNameCache getInstance() {
+		if (fgInstance == null)
+			fgInstance= new TypeNameCache();
+		return fgInstance;
+	}
+
+	public static synchronized void shutdown() {
+		if (fgInstance == null)
+			return;
+		fgInstance.doShutdown();
+		fgInstance= null;
+	}
+
+	private final UpdateJob fUpdateJob;
+
+	// guarded by this
+	private Table fTable;
+	private boolean fAvailable;
+	private boolean fRefreshed;
+	private boolean fChanged;
+	private boolean fDisposed;
+	private int fStamp;
+
+	// guarded by fDirtyUnits
+	private final Set<ICompilationUnit> fDirtyUnits;
+	/** The units changed since the running build has started, or <code>null</code> */
+	private Set<ICompilationUnit> fBuildUnits;
+
+	private TypeNameCache() {
+		fDirtyUnits= new HashSet<ICompilationUnit>();
+		fUpdateJob= new UpdateJob();
+		JavaCore.addElementChangedListener(this, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		synchronized (this) {
+			fTable= load();
+			fAvailable= fTable != null;
+		}
+		// the workspace may have changed since the table has been saved
+		fUpdateJob.schedule();
+	}
+
+	/**
+	 * Returns whether the cache can answer queries.
+	 *
+	 * @return <code>true</code> if queries are answered from the cache, <code>false</code> if they
+	 *         have to be answered by the search engine
+	 */
+	public synchronized boolean isAvailable() {
+		return fAvailable;
+	}
+
+	/**
+	 * Reports the types matching the given filter to the requestor if the cache is available and
+	 * the filter searches the whole workspace. The type filter and the filter extension are not
+	 * applied.
+	 *
+	 * @param filter the type info filter
+	 * @param requestor the requestor to report matches to
+	 * @param monitor the progress monitor
+	 * @return <code>true</code> if the query has been answered from the cache, <code>false</code>
+	 *         if it has to be answered by the search engine
+	 * @throws OperationCanceledException if the monitor has been canceled
+	 */
+	public boolean search(TypeInfoFilter filter, TypeNameMatchRequestor requestor, IProgressMonitor monitor) {
+		if (!filter.isWorkspaceScope())
+			return false;
+		ICompilationUnit[] dirtyUnits;
+		synchronized (fDirtyUnits) {
+			dirtyUnits= fDirtyUnits.toArray(new ICompilationUnit[fDirtyUnits.size()]);
+			fDirtyUnits.clear();
+		}
+		synchronized (this) {
+			if (fTable != null && dirtyUnits.length > 0) {
+				for (int i= 0; i < dirtyUnits.length; i++)
+					fTable.update(dirtyUnits[i]);
+				fChanged= true;
+			}
+			if (!fAvailable)
+				return false;
+			fTable.search(filter, requestor, monitor);
+			return true;
+		}
+	}
+
+	/**
+	 * Saves the cache if it has changed since it has been loaded or saved.
+	 */
+	public synchronized void save() {
+		if (fTable == null || !fChanged || !fRefreshed)
+			return;
+		File file= getFile();
+		DataOutputStream stream= null;
+		try {
+			stream= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			fTable.write(stream);
+			fChanged= false;
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+		} finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					JavaPlugin.log(e);
+				}
+			}
+		}
+	}
+
+	private Table load() {
+		File file= getFile();
+		if (!file.exists())
+			return null;
+		DataInputStream stream= null;
+		try {
+			stream= new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			return Table.read(stream);
+		} catch (IOException e) {
+			JavaPlugin.log(e);
+			return null;
+		} finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					JavaPlugin.log(e);
+				}
+			}
+		}
+	}
+
+	private static File getFile() {
+		return JavaPlugin.getDefault().getStateLocation().append(FILENAME).toFile();
+	}
+
+	private void doShutdown() {
+		JavaCore.removeElementChangedListener(this);
+		fUpdateJob.cancel();
+		synchronized (fDirtyUnits) {
+			fDirtyUnits.clear();
+		}
+		save();
+		synchronized (this) {
+			fDisposed= true;
+			fTable= null;
+			fAvailable= false;
+		}
+	}
+
+	private void invalidate() {
+		synchronized (this) {
+			fStamp++;
+			fAvailable= false;
+			fTable= null;
+		}
+		synchronized (fDirtyUnits) {
+			fDirtyUnits.clear();
+		}
+		fUpdateJob.cancel();
+		fUpdateJob.schedule();
+	}
+
+	/*
+	 * @see org.eclipse.jdt.core.IElementChangedListener#elementChanged(org.eclipse.jdt.core.ElementChangedEvent)
+	 */
+	public void elementChanged(ElementChangedEvent event) {
+		if (processDelta(event.getDelta()))
+			invalidate();
+	}
+
+	/**
+	 * Processes a Java element delta.
+	 *
+	 * @param delta the Java element delta
+	 * @return <code>true</code> if the cache has to be rebuilt, <code>false</code> otherwise
+	 */
+	private boolean processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED)) != 0)
+					return true;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED)) != 0)
+					return true;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (kind != IJavaElementDelta.CHANGED)
+					return true;
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				synchronized (fDirtyUnits) {
+					ICompilationUnit unit= ((ICompilationUnit) element).getPrimary();
+					fDirtyUnits.add(unit);
+					if (fBuildUnits != null)
+						fBuildUnits.add(unit);
+				}
+				return false;
+			case IJavaElement.CLASS_FILE:
+				return true;
+			default:
+				return false;
+		}
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (processDelta(children[i]))
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+import org.eclipse.jdt.core.search.TypeNameMatchRequestor;
+
+/**
+ * An index from simple type names to the types visible in a Java project.
+ * <p>
+ * Operations that look up the types of many compilation units of the same project, like
+ * organizing the imports of a whole project, can {@link #connect(IJavaProject) connect} to the
+ * index of the project and hand it to the code that looks up the types. The index is built by a single search for all types on the first lookup
+ * and kept up to date from Java element deltas: changed compilation units are re-read on the
+ * next lookup, any other structural change discards the index. The index is discarded when the
+ * last client has disconnected.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 3.10
+ */
+public class TypeNameIndex implements IElementChangedListener {
+
+	private static final Map<IJavaProject, TypeNameIndex> fgIndexes= new HashMap<IJavaProject, TypeNameIndex>();
+
+	/**
+	 * Connects to the type name index of the given project. Every call has to be balanced by a
+	 * call to {@link #disconnect()}.
+	 *
+	 * @param project the Java project
+	 * @return the type name index of the project
+	 */
+	public static TypeNameIndex connect(IJavaProject project) {
+		synchronized (fgIndexes) {
+			TypeNameIndex index= fgIndexes.get(project);
+			if (index == null) {
+				index= new TypeNameIndex(project);
+				fgIndexes.put(project, index);
+				JavaCore.addElementChangedListener(index, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+			}
+			index.fConnections++;
+			return index;
+		}
+	}
+
+	private final IJavaProject fProject;
+	private int fConnections;
+
+	// guarded by this
+	private IJavaSearchScope fScope;
+	private Map<String, List<TypeNameMatch>> fMatches;
+	private Map<ICompilationUnit, List<TypeNameMatch>> fUnitMatches;
+
+	// guarded by fDirtyUnits
+	private final Set<ICompilationUnit> fDirtyUnits;
+	private boolean fInvalid;
+
+	private TypeNameIndex(IJavaProject project) {
+		fProject= project;
+		fDirtyUnits= new HashSet<ICompilationUnit>();
+	}
+
+	/**
+	 * Returns the project of this index.
+	 *
+	 * @return the Java project
+	 */
+	public IJavaProject getProject() {
+		return fProject;
+	}
+
+	/**
+	 * Disconnects from this index.
+	 */
+	public void disconnect() {
+		synchronized (fgIndexes) {
+			if (--fConnections > 0)
+				return;
+			fgIndexes.remove(fProject);
+			JavaCore.removeElementChangedListener(this);
+		}
+		synchronized (this) {
+			fMatches= null;
+			fUnitMatches= null;
+			fScope= null;
+		}
+	}
+
+	/**
+	 * Adds the types with the given simple names to the result. Types hidden by the type filter
+	 * are not added.
+	 *
+	 * @param simpleNames the simple type names
+	 * @param result the collection to add the found types to
+	 * @param monitor the progress monitor, used while the index is built
+	 * @throws JavaModelException if the index could not be built
+	 */
+	public synchronized void findTypes(Collection<String> simpleNames, Collection<TypeNameMatch> result, IProgressMonitor monitor) throws JavaModelException {
+		ICompilationUnit[] dirtyUnits;
+		synchronized (fDirtyUnits) {
+			if (fInvalid) {
+				fMatches= null;
+				fInvalid= false;
+			}
+			dirtyUnits= fDirtyUnits.toArray(new ICompilationUnit[fDirtyUnits.size()]);
+			fDirtyUnits.clear();
+		}
+		if (fMatches == null) {
+			build(monitor);
+		} else {
+			for (int i= 0; i < dirtyUnits.length; i++)
+				update(dirtyUnits[i]);
+		}
+
+		for (Iterator<String> iter= simpleNames.iterator(); iter.hasNext();) {
+			List<TypeNameMatch> matches= fMatches.get(iter.next());
+			if (matches == null)
+				continue;
+			for (int i= 0, n= matches.size(); i < n; i++) {
+				TypeNameMatch match= matches.get(i);
+				if (!TypeFilter.isFiltered(match))
+					result.add(match);
+			}
+		}
+	}
+
+	private void build(IProgressMonitor monitor) throws JavaModelException {
+		final Map<String, List<TypeNameMatch>> matches= new HashMap<String, List<TypeNameMatch>>();
+		final Map<ICompilationUnit, List<TypeNameMatch>> unitMatches= new HashMap<ICompilationUnit, List<TypeNameMatch>>();
+		IJavaSearchScope scope= SearchEngine.createJavaSearchScope(new IJavaElement[] { fProject });
+		TypeNameMatchRequestor requestor= new TypeNameMatchRequestor() {
+			@Override
+			public void acceptTypeNameMatch(TypeNameMatch match) {
+				add(matches, unitMatches, match);
+			}
+		};
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_PATTERN_MATCH, null, SearchPattern.R_PATTERN_MATCH, IJavaSearchConstants.TYPE, scope, requestor, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+		fScope= scope;
+		fMatches= matches;
+		fUnitMatches= unitMatches;
+	}
+
+	private static void add(Map<String, List<TypeNameMatch>> matches, Map<ICompilationUnit, List<TypeNameMatch>> unitMatches, TypeNameMatch match) {
+		String simpleName= match.getSimpleTypeName();
+		List<TypeNameMatch> list= matches.get(simpleName);
+		if (list == null) {
+			list= new ArrayList<TypeNameMatch>(1);
+			matches.put(simpleName, list);
+		}
+		list.add(match);
+
+		ICompilationUnit unit= match.getType().getCompilationUnit();
+		if (unit != null) {
+			list= unitMatches.get(unit);
+			if (list == null) {
+				list= new ArrayList<TypeNameMatch>(2);
+				unitMatches.put(unit, list);
+			}
+			list.add(match);
+		}
+	}
+
+	private void update(ICompilationUnit unit) {
+		List<TypeNameMatch> oldMatches= fUnitMatches.remove(unit);
+		if (oldMatches != null) {
+			for (int i= 0, n= oldMatches.size(); i < n; i++) {
+				TypeNameMatch match= oldMatches.get(i);
+				List<TypeNameMatch> list= fMatches.get(match.getSimpleTypeName());
+				if (list != null) {
+					list.remove(match);
+					if (list.isEmpty())
+						fMatches.remove(match.getSimpleTypeName());
+				}
+			}
+		}
+		if (!unit.exists() || !fScope.encloses(unit))
+			return;
+		try {
+			IType[] types= unit.getAllTypes();
+			for (int i= 0; i < types.length; i++)
+				add(fMatches, fUnitMatches, SearchEngine.createTypeNameMatch(types[i], types[i].getFlags()));
+		} catch (JavaModelException e) {
+			// the compilation unit has been removed in the meantime
+		}
+	}
+
+	/*
+	 * @see org.eclipse.jdt.core.IElementChangedListener#elementChanged(org.eclipse.jdt.core.ElementChangedEvent)
+	 */
+	public void elementChanged(ElementChangedEvent event) {
+		synchronized (fDirtyUnits) {
+			if (!fInvalid)
+				processDelta(event.getDelta());
+		}
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED)) != 0) {
+					fInvalid= true;
+					return;
+				}
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED)) != 0) {
+					fInvalid= true;
+					return;
+				}
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (kind != IJavaElementDelta.CHANGED) {
+					fInvalid= true;
+					return;
+				}
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				fDirtyUnits.add(((ICompilationUnit) element).getPrimary());
+				return;
+			case IJavaElement.CLASS_FILE:
+				fInvalid= true;
+				return;
+			default:
+				return;
+		}
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length && !fInvalid; i++)
+			processDelta(children[i]);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -244,7 +244,7 @@ public class CallInliner {
 		fLocals= new ArrayList<VariableDeclarationStatement>(3);
 		fRewrite= ASTRewrite.create(targetAstRoot.getAST());
 		fRewrite.setTargetSourceRangeComputer(new NoCommentSourceRangeComputer());
-		fTypeEnvironment= new TypeEnvironment();
+		fTypeEnvironment= TypeEnvironment.getSharedEnvironment(fCUnit.getJavaProject());
 	}
 
 	public void dispose() {
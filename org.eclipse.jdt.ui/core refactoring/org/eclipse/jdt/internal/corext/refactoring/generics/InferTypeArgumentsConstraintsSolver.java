@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,13 +14,13 @@ package org.eclipse.jdt.internal.corext.refactoring.generics;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -57,6 +57,53 @@ public class InferTypeArgumentsConstraintsSolver {
 		public static TTypeComparator INSTANCE= new TTypeComparator();
 	}
 
+	/**
+	 * A FIFO queue of constraint variable indices that holds every index at most once.
+	 * Adding an index that is already queued has no effect: the variable's constraints
+	 * are processed with its current type estimate when it is removed from the queue.
+	 */
+	private static class WorkList {
+		/** Ring buffer of the queued indices, its length is a power of 2 */
+		private int[] fElements= new int[16];
+		private int fHead= 0;
+		private int fSize= 0;
+		private final BitSet fQueued= new BitSet();
+
+		public void add(int index) {
+			if (fQueued.get(index))
+				return;
+			fQueued.set(index);
+			if (fSize == fElements.length) {
+				int[] elements= new int[fElements.length * 2];
+				int headLength= fElements.length - fHead;
+				System.arraycopy(fElements, fHead, elements, 0, headLength);
+				System.arraycopy(fElements, 0, elements, headLength, fHead);
+				fElements= elements;
+				fHead= 0;
+			}
+			fElements[(fHead + fSize) & (fElements.length - 1)]= index;
+			fSize++;
+		}
+
+		public int removeFirst() {
+			int index= fElements[fHead];
+			fHead= (fHead + 1) & (fElements.length - 1);
+			fSize--;
+			fQueued.clear(index);
+			return index;
+		}
+
+		public boolean isEmpty() {
+			return fSize == 0;
+		}
+
+		public int size() {
+			return fSize;
+		}
+	}
+
+	private static final ITypeConstraint2[] NO_CONSTRAINTS= new ITypeConstraint2[0];
+
 	private final static String CHOSEN_TYPE= "chosenType"; //$NON-NLS-1$
 
 	private final InferTypeArgumentsTCModel fTCModel;
@@ -65,16 +112,25 @@ public class InferTypeArgumentsConstraintsSolver {
 	/**
 	 * The work-list used by the type constraint solver to hold the set of
 	 * nodes in the constraint graph that remain to be (re-)processed. Entries
-	 * are <code>ConstraintVariable2</code>s.
+	 * are indices of <code>ConstraintVariable2</code>s.
 	 */
-	private LinkedList<ConstraintVariable2> fWorkList;
+	private WorkList fWorkList;
+
+	/**
+	 * The indexed constraint variables: <code>fVariables[i]</code> is the variable
+	 * with index <code>i</code>, and <code>fUsedIn[i]</code> are the type constraints
+	 * it is used in. Only valid while the solver runs.
+	 */
+	private ConstraintVariable2[] fVariables;
+	private ITypeConstraint2[][] fUsedIn;
+	private int fVariableCount;
 
 	private InferTypeArgumentsUpdate fUpdate;
 
 
 	public InferTypeArgumentsConstraintsSolver(InferTypeArgumentsTCModel typeConstraintFactory) {
 		fTCModel= typeConstraintFactory;
-		fWorkList= new LinkedList<ConstraintVariable2>();
+		fWorkList= new WorkList();
 	}
 
 	public InferTypeArgumentsUpdate solveConstraints(IProgressMonitor pm) {
@@ -122,8 +178,12 @@ public class InferTypeArgumentsConstraintsSolver {
 		initializeTypeEstimates(allConstraintVariables);
 		if (pm.isCanceled())
 			throw new OperationCanceledException();
-		fWorkList.addAll(Arrays.asList(allConstraintVariables));
+		fVariables= new ConstraintVariable2[allConstraintVariables.length];
+		fUsedIn= new ITypeConstraint2[allConstraintVariables.length][];
+		addToWorkList(allConstraintVariables);
 		runSolver(new SubProgressMonitor(pm, 1));
+		fVariables= null;
+		fUsedIn= null;
 		chooseTypes(allConstraintVariables, new SubProgressMonitor(pm, 1));
 		findCastsToRemove(fTCModel.getCastVariables());
 		return fUpdate;
@@ -194,9 +254,8 @@ public class InferTypeArgumentsConstraintsSolver {
 		pm.beginTask("", fWorkList.size() * 3); //$NON-NLS-1$
 		while (! fWorkList.isEmpty()) {
 			// Get a variable whose type estimate has changed
-			ConstraintVariable2 cv= fWorkList.removeFirst();
-			List<ITypeConstraint2> usedIn= fTCModel.getUsedIn(cv);
-			processConstraints(usedIn);
+			int index= fWorkList.removeFirst();
+			processConstraints(fUsedIn[index]);
 			pm.worked(1);
 			if (pm.isCanceled())
 				throw new OperationCanceledException();
@@ -205,18 +264,16 @@ public class InferTypeArgumentsConstraintsSolver {
 	}
 
 	/**
-	 * Given a list of <code>ITypeConstraint2</code>s that all refer to a
+	 * Given an array of <code>ITypeConstraint2</code>s that all refer to a
 	 * given <code>ConstraintVariable2</code> (whose type bound has presumably
 	 * just changed), process each <code>ITypeConstraint</code>, propagating
 	 * the type bound across the constraint as needed.
 	 *
-	 * @param usedIn the <code>List</code> of <code>ITypeConstraint2</code>s
-	 * to process
+	 * @param usedIn the <code>ITypeConstraint2</code>s to process
 	 */
-	private void processConstraints(List<ITypeConstraint2> usedIn) {
-		Iterator<ITypeConstraint2> iter= usedIn.iterator();
-		while (iter.hasNext()) {
-			ITypeConstraint2 tc= iter.next();
+	private void processConstraints(ITypeConstraint2[] usedIn) {
+		for (int i= 0; i < usedIn.length; i++) {
+			ITypeConstraint2 tc= usedIn[i];
 
 				maintainSimpleConstraint(tc);
 				//TODO: prune tcs which cannot cause further changes
@@ -252,7 +309,7 @@ public class InferTypeArgumentsConstraintsSolver {
 //				throw new IllegalStateException("Type estimate set is now empty for LHS in " + left + " <= " + right + "; estimates were " + leftEstimate + " <= " + rightEstimate); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 
 			leftSet.setTypeEstimate(xsection);
-			fWorkList.addAll(Arrays.asList(leftSet.getContributingVariables()));
+			addToWorkList(leftSet.getContributingVariables());
 		}
 		if (! lhsSuperTypes.containsAll(rightEstimate)) {
 			TypeSet xsection= rightEstimate.intersectedWith(lhsSuperTypes);
@@ -261,10 +318,43 @@ public class InferTypeArgumentsConstraintsSolver {
 //				throw new IllegalStateException("Type estimate set is now empty for RHS in " + left + " <= " + right + "; estimates were " + leftEstimate + " <= " + rightEstimate); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 
 			rightSet.setTypeEstimate(xsection);
-			fWorkList.addAll(Arrays.asList(rightSet.getContributingVariables()));
+			addToWorkList(rightSet.getContributingVariables());
 		}
 	}
 
+	private void addToWorkList(ConstraintVariable2[] cvs) {
+		for (int i= 0; i < cvs.length; i++)
+			fWorkList.add(getIndex(cvs[i]));
+	}
+
+	/**
+	 * Returns the index of a constraint variable, indexing it first if necessary.
+	 *
+	 * @param cv the constraint variable
+	 * @return the index of the variable in {@link #fVariables}
+	 */
+	private int getIndex(ConstraintVariable2 cv) {
+		int index= cv.getIndex();
+		if (index >= 0 && index < fVariableCount && fVariables[index] == cv)
+			return index;
+
+		index= fVariableCount++;
+		if (index == fVariables.length) {
+			int length= Math.max(16, index * 2);
+			ConstraintVariable2[] variables= new ConstraintVariable2[length];
+			System.arraycopy(fVariables, 0, variables, 0, index);
+			fVariables= variables;
+			ITypeConstraint2[][] usedIn= new ITypeConstraint2[length][];
+			System.arraycopy(fUsedIn, 0, usedIn, 0, index);
+			fUsedIn= usedIn;
+		}
+		fVariables[index]= cv;
+		List<ITypeConstraint2> usedIn= fTCModel.getUsedIn(cv);
+		fUsedIn[index]= usedIn.isEmpty() ? NO_CONSTRAINTS : usedIn.toArray(new ITypeConstraint2[usedIn.size()]);
+		cv.setIndex(index);
+		return index;
+	}
+
 	private void chooseTypes(ConstraintVariable2[] allConstraintVariables, SubProgressMonitor pm) {
 		pm.beginTask("", allConstraintVariables.length); //$NON-NLS-1$
 		for (int i= 0; i < allConstraintVariables.length; i++) {
@@ -325,14 +415,11 @@ public class InferTypeArgumentsConstraintsSolver {
 		}
 	}
 
-	private static final int MAX_CACHE= 1024;
-	private Map<TType, Boolean> fInterfaceTaggingCache= new LinkedHashMap<TType, Boolean>(MAX_CACHE, 0.75f, true) {
-		private static final long serialVersionUID= 1L;
-		@Override
-		protected boolean removeEldestEntry(Map.Entry<TType, Boolean> eldest) {
-			return size() > MAX_CACHE;
-		}
-	};
+	/**
+	 * Caches whether an interface is a tagging interface. The cache is not bounded, since it only
+	 * holds the interfaces that occur in the lower bounds of the type estimates.
+	 */
+	private final Map<TType, Boolean> fInterfaceTaggingCache= new HashMap<TType, Boolean>();
 
 	private ArrayList<TType> getNonTaggingInterfaces(ArrayList<TType> interfaceCandidates) {
 		ArrayList<TType> unresolvedTypes= new ArrayList<TType>();
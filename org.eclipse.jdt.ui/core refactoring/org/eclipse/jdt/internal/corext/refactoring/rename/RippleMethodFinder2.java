@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,14 +16,23 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.jdt.core.IMember;
@@ -42,6 +51,7 @@ import org.eclipse.jdt.core.search.SearchParticipant;
 import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.search.SearchRequestor;
 
+import org.eclipse.jdt.internal.corext.dom.ASTBatchParser;
 import org.eclipse.jdt.internal.corext.refactoring.RefactoringScopeFactory;
 import org.eclipse.jdt.internal.corext.refactoring.base.ReferencesInBinaryContext;
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
@@ -49,6 +59,8 @@ import org.eclipse.jdt.internal.corext.util.SearchUtils;
 
 public class RippleMethodFinder2 {
 
+	private static final boolean DEBUG= "true".equalsIgnoreCase(Platform.getDebugOption("org.eclipse.jdt.ui/debug/RippleMethodFinder")); //$NON-NLS-1$//$NON-NLS-2$
+
 	private final IMethod fMethod;
 	private List<IMethod> fDeclarations;
 	private ITypeHierarchy fHierarchy;
@@ -58,10 +70,15 @@ public class RippleMethodFinder2 {
 	private Map<IType, ITypeHierarchy> fRootHierarchies;
 	private UnionFind fUnionFind;
 
+	private Set<IType> fUnitedTypes;
+
 	private final boolean fExcludeBinaries;
 	private final ReferencesInBinaryContext fBinaryRefs;
 	private Map<IMethod, SearchMatch> fDeclarationToMatch;
 
+	private final int fParallelism;
+	private long fPhaseStart;
+
 	private static class MultiMap<K, V> {
 		HashMap<K, Collection<V>> fImplementation= new HashMap<K, Collection<V>>();
 
@@ -78,58 +95,80 @@ public class RippleMethodFinder2 {
 			return fImplementation.get(key);
 		}
 	}
+	/**
+	 * Union-find over the declaring types, indexed by array position, with path compression and
+	 * union by rank.
+	 */
 	private static class UnionFind {
-		HashMap<IType, IType> fElementToRepresentative= new HashMap<IType, IType>();
-
-		public void init(IType type) {
-			fElementToRepresentative.put(type, type);
+		private final Map<IType, Integer> fIndices;
+		private final IType[] fTypes;
+		private final int[] fParents;
+		private final int[] fRanks;
+
+		public UnionFind(Collection<IType> types) {
+			int size= types.size();
+			fIndices= new HashMap<IType, Integer>(size * 4 / 3 + 1);
+			fTypes= new IType[size];
+			fParents= new int[size];
+			fRanks= new int[size];
+			int index= 0;
+			for (Iterator<IType> iter= types.iterator(); iter.hasNext(); index++) {
+				IType type= iter.next();
+				fIndices.put(type, new Integer(index));
+				fTypes[index]= type;
+				fParents[index]= index;
+			}
 		}
 
-		//path compression:
+		/**
+		 * Returns the representative of a type.
+		 *
+		 * @param element the type
+		 * @return the representative, or <code>null</code> if the type is not part of this
+		 *         union-find
+		 */
 		public IType find(IType element) {
-			IType root= element;
-			IType rep= fElementToRepresentative.get(root);
-			while (rep != null && ! rep.equals(root)) {
-				root= rep;
-				rep= fElementToRepresentative.get(root);
-			}
-			if (rep == null)
+			Integer index= fIndices.get(element);
+			if (index == null)
 				return null;
+			return fTypes[find(index.intValue())];
+		}
 
-			rep= fElementToRepresentative.get(element);
-			while (! rep.equals(root)) {
-				IType temp= element;
-				element= rep;
-				fElementToRepresentative.put(temp, root);
-				rep= fElementToRepresentative.get(element);
+		private int find(int index) {
+			int root= index;
+			while (fParents[root] != root)
+				root= fParents[root];
+			//path compression:
+			while (fParents[index] != root) {
+				int next= fParents[index];
+				fParents[index]= root;
+				index= next;
 			}
 			return root;
 		}
 
-//		//straightforward:
-//		public IType find(IType element) {
-//			IType current= element;
-//			IType rep= (IType) fElementToRepresentative.get(current);
-//			while (rep != null && ! rep.equals(current)) {
-//				current= rep;
-//				rep= (IType) fElementToRepresentative.get(current);
-//			}
-//			if (rep == null)
-//				return null;
-//			else
-//				return current;
-//		}
-
 		public void union(IType rep1, IType rep2) {
-			fElementToRepresentative.put(rep1, rep2);
+			int root1= find(fIndices.get(rep1).intValue());
+			int root2= find(fIndices.get(rep2).intValue());
+			if (root1 == root2)
+				return;
+			if (fRanks[root1] < fRanks[root2]) {
+				fParents[root1]= root2;
+			} else if (fRanks[root1] > fRanks[root2]) {
+				fParents[root2]= root1;
+			} else {
+				fParents[root1]= root2;
+				fRanks[root2]++;
+			}
 		}
 	}
 
 
-	private RippleMethodFinder2(IMethod method, boolean excludeBinaries){
+	private RippleMethodFinder2(IMethod method, boolean excludeBinaries, int parallelism){
 		fMethod= method;
 		fExcludeBinaries= excludeBinaries;
 		fBinaryRefs= null;
+		fParallelism= Math.max(1, parallelism);
 	}
 
 	private RippleMethodFinder2(IMethod method, ReferencesInBinaryContext binaryRefs) {
@@ -137,14 +176,32 @@ public class RippleMethodFinder2 {
 		fExcludeBinaries= true;
 		fDeclarationToMatch= new HashMap<IMethod, SearchMatch>();
 		fBinaryRefs= binaryRefs;
+		fParallelism= ASTBatchParser.getDefaultParallelism();
 	}
 
 	public static IMethod[] getRelatedMethods(IMethod method, boolean excludeBinaries, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
+		return getRelatedMethods(method, excludeBinaries, ASTBatchParser.getDefaultParallelism(), pm, owner);
+	}
+
+	/**
+	 * Finds the methods that have to be renamed together with the given method.
+	 *
+	 * @param method the method
+	 * @param excludeBinaries <code>true</code> to exclude methods declared in binary types
+	 * @param parallelism the maximum number of type hierarchies to build concurrently,
+	 *            <code>1</code> to build them one after the other
+	 * @param pm the progress monitor
+	 * @param owner the working copy owner, or <code>null</code>
+	 * @return the related methods
+	 * @throws CoreException if the declarations could not be searched
+	 * @since 3.10
+	 */
+	public static IMethod[] getRelatedMethods(IMethod method, boolean excludeBinaries, int parallelism, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
 		try{
 			if (! MethodChecks.isVirtual(method))
 				return new IMethod[]{ method };
 
-			return new RippleMethodFinder2(method, excludeBinaries).getAllRippleMethods(pm, owner);
+			return new RippleMethodFinder2(method, excludeBinaries, parallelism).getAllRippleMethods(pm, owner);
 		} finally{
 			pm.done();
 		}
@@ -165,7 +222,9 @@ public class RippleMethodFinder2 {
 	}
 
 	private IMethod[] getAllRippleMethods(IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
+		fPhaseStart= System.currentTimeMillis();
 		IMethod[] rippleMethods= findAllRippleMethods(pm, owner);
+		tracePhase("ripple methods"); //$NON-NLS-1$
 		if (fDeclarationToMatch == null)
 			return rippleMethods;
 
@@ -185,6 +244,7 @@ public class RippleMethodFinder2 {
 		pm.beginTask("", 4); //$NON-NLS-1$
 
 		findAllDeclarations(new SubProgressMonitor(pm, 1), owner);
+		tracePhase("declarations"); //$NON-NLS-1$
 
 		//TODO: report assertion as error status and fall back to only return fMethod
 		//check for bug 81058:
@@ -192,8 +252,10 @@ public class RippleMethodFinder2 {
 			Assert.isTrue(false, "Search for method declaration did not find original element: " + fMethod.toString()); //$NON-NLS-1$
 
 		createHierarchyOfDeclarations(new SubProgressMonitor(pm, 1), owner);
+		tracePhase("hierarchy of declarations"); //$NON-NLS-1$
 		createTypeToMethod();
 		createUnionFind();
+		tracePhase("union-find"); //$NON-NLS-1$
 		if (pm.isCanceled())
 			throw new OperationCanceledException();
 
@@ -247,6 +309,9 @@ public class RippleMethodFinder2 {
 		if (! hasRelatedInterfaces && ! hasAlienInterfaces) //no nasty marriage scenarios without interfaces...
 			return relatedMethods.toArray(new IMethod[relatedMethods.size()]);
 
+		createRootHierarchies(relatedTypes, alienTypes, owner, pm);
+		tracePhase("root hierarchies"); //$NON-NLS-1$
+
 		//find all subtypes of related types:
 		HashSet<IType> relatedSubTypes= new HashSet<IType>();
 		List<IType> relatedTypesToProcess= new ArrayList<IType>(relatedTypes);
@@ -310,6 +375,92 @@ public class RippleMethodFinder2 {
 		return relatedMethods.toArray(new IMethod[relatedMethods.size()]);
 	}
 
+	/**
+	 * Builds the hierarchies of the roots of the partitions of the given types concurrently.
+	 * The hierarchies of the different roots are independent of each other. With a parallelism
+	 * of 1, they are built on demand by {@link #getCachedHierarchy(IType, WorkingCopyOwner, IProgressMonitor)}.
+	 *
+	 * @param relatedTypes the types related to the renamed method
+	 * @param alienTypes the other types declaring a method with the same signature
+	 * @param owner the working copy owner
+	 * @param pm the progress monitor
+	 * @throws JavaModelException if a hierarchy could not be built
+	 */
+	private void createRootHierarchies(List<IType> relatedTypes, List<IType> alienTypes, final WorkingCopyOwner owner, final IProgressMonitor pm) throws JavaModelException {
+		Set<IType> roots= new LinkedHashSet<IType>();
+		addRoots(relatedTypes, roots);
+		addRoots(alienTypes, roots);
+		roots.removeAll(fRootHierarchies.keySet());
+		int workers= Math.min(fParallelism, roots.size());
+		if (workers <= 1)
+			return;
+
+		final IProgressMonitor monitor= new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return pm.isCanceled();
+			}
+		};
+		ExecutorService executor= Executors.newFixedThreadPool(workers, new ThreadFactory() {
+			private int fCount= 0;
+
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread thread= new Thread(runnable, "RippleMethodFinder2 worker " + ++fCount); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			Map<IType, Future<ITypeHierarchy>> futures= new HashMap<IType, Future<ITypeHierarchy>>();
+			for (Iterator<IType> iter= roots.iterator(); iter.hasNext();) {
+				final IType root= iter.next();
+				futures.put(root, executor.submit(new Callable<ITypeHierarchy>() {
+					public ITypeHierarchy call() throws JavaModelException {
+						return root.newTypeHierarchy(owner, monitor);
+					}
+				}));
+			}
+			for (Iterator<IType> iter= roots.iterator(); iter.hasNext();) {
+				IType root= iter.next();
+				try {
+					fRootHierarchies.put(root, futures.get(root).get());
+				} catch (InterruptedException e) {
+					throw new OperationCanceledException();
+				} catch (ExecutionException e) {
+					Throwable cause= e.getCause();
+					if (cause instanceof JavaModelException)
+						throw (JavaModelException) cause;
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new IllegalStateException(cause.toString());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void addRoots(List<IType> types, Set<IType> roots) {
+		for (Iterator<IType> iter= types.iterator(); iter.hasNext();) {
+			IType rep= fUnionFind.find(iter.next());
+			if (rep != null) {
+				Collection<IType> collection= fRootReps.get(rep);
+				if (collection != null)
+					roots.addAll(collection);
+			}
+		}
+	}
+
+	private void tracePhase(String phase) {
+		if (DEBUG) {
+			long now= System.currentTimeMillis();
+			System.out.println("RippleMethodFinder2 - " + fMethod.getElementName() + " - " + phase + ": " + (now - fPhaseStart) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			fPhaseStart= now;
+		}
+	}
+
 	private ITypeHierarchy getCachedHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor monitor) throws JavaModelException {
 		IType rep= fUnionFind.find(type);
 		if (rep != null) {
@@ -375,15 +526,13 @@ public class RippleMethodFinder2 {
 
 	private void createUnionFind() throws JavaModelException {
 		fRootTypes= new HashSet<IType>(fTypeToMethod.keySet());
-		fUnionFind= new UnionFind();
-		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
-			IType type= iter.next();
-			fUnionFind.init(type);
-		}
+		fUnionFind= new UnionFind(fTypeToMethod.keySet());
+		fUnitedTypes= new HashSet<IType>();
 		for (Iterator<IType> iter= fTypeToMethod.keySet().iterator(); iter.hasNext();) {
 			IType type= iter.next();
-			uniteWithSupertypes(type, type);
+			uniteWithSupertypes(type);
 		}
+		fUnitedTypes= null;
 		fRootReps= new MultiMap<IType, IType>();
 		for (Iterator<IType> iter= fRootTypes.iterator(); iter.hasNext();) {
 			IType type= iter.next();
@@ -394,6 +543,12 @@ public class RippleMethodFinder2 {
 		fRootHierarchies= new HashMap<IType, ITypeHierarchy>();
 	}
 
+	private void uniteWithSupertypes(IType type) throws JavaModelException {
+		// uniting a declaring type with its supertypes always yields the same partitions
+		if (fUnitedTypes.add(type))
+			uniteWithSupertypes(type, type);
+	}
+
 	private void uniteWithSupertypes(IType anchor, IType type) throws JavaModelException {
 		IType[] supertypes= fHierarchy.getSupertypes(type);
 		for (int i= 0; i < supertypes.length; i++) {
@@ -410,7 +565,7 @@ public class RippleMethodFinder2 {
 					fUnionFind.union(rep, superRep);
 					// current type is no root anymore
 					fRootTypes.remove(anchor);
-					uniteWithSupertypes(supertype, supertype);
+					uniteWithSupertypes(supertype);
 				} else {
 					//Not overridden -> overriding chain ends here.
 				}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -520,11 +520,13 @@ public abstract class TType {
 		Map<TType, ArrayList<TType>> subTypes= fEnvironment.getSubTypes();
 		if (subTypes == null)
 			throw new IllegalStateException("This TypeEnvironment does not remember subtypes"); //$NON-NLS-1$
-		List<TType> subtypes= subTypes.get(this);
-		if (subtypes == null)
-			return EMPTY_TYPE_ARRAY;
-		else
-			return subtypes.toArray(new TType[subtypes.size()]);
+		synchronized (fEnvironment) {
+			List<TType> subtypes= subTypes.get(this);
+			if (subtypes == null)
+				return EMPTY_TYPE_ARRAY;
+			else
+				return subtypes.toArray(new TType[subtypes.size()]);
+		}
 	}
 
 	/**
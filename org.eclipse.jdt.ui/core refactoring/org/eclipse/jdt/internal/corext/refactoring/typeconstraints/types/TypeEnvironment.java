@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,20 +11,22 @@
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.runtime.Assert;
 
 import org.eclipse.jdt.core.BindingKey;
+import org.eclipse.jdt.core.ElementChangedEvent;
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
 import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeParameter;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTRequestor;
@@ -39,36 +41,164 @@ import org.eclipse.jdt.internal.ui.javaeditor.ASTProvider;
  * A type environment comprises a set of {@link TType}s that stand for Java {@link ITypeBinding}s.
  * In contrast to type bindings, TTypes of the same type environment also work across project boundaries and
  * across compiler environments, i.e. a type environment can handle bindings from multiple {@link ASTParser} sessions.
+ * <p>
+ * A type environment is thread-safe. Every type is created once per environment, so types of
+ * the same environment can be compared by identity. Refactorings of a project can share an
+ * environment, see {@link #getSharedEnvironment(IJavaProject)}.
+ * </p>
  * 
  * @see TType
  */
 public class TypeEnvironment {
 
-	private static class ProjectKeyPair {
-		private final IJavaProject fProject;
-		private final String fBindingKey;
-
-		public ProjectKeyPair(IJavaProject project, String bindingKey) {
-			fProject= project;
-			fBindingKey= bindingKey;
+	/**
+	 * Key of an interned type: the kind of the type and the components that identify the type
+	 * within its kind.
+	 */
+	private static final class TypeKey {
+		private final int fKind;
+		private final Object fFirst;
+		private final Object fSecond;
+
+		public TypeKey(int kind, Object first, Object second) {
+			fKind= kind;
+			fFirst= first;
+			fSecond= second;
 		}
 
 		@Override
 		public boolean equals(Object other) {
 			if (this == other)
 				return true;
-			if (! (other instanceof ProjectKeyPair))
+			if (! (other instanceof TypeKey))
 				return false;
-			ProjectKeyPair otherPair= (ProjectKeyPair) other;
-			return fProject.equals(otherPair.fProject) && fBindingKey.equals(otherPair.fBindingKey);
+			TypeKey otherKey= (TypeKey) other;
+			return fKind == otherKey.fKind && equals(fFirst, otherKey.fFirst) && equals(fSecond, otherKey.fSecond);
 		}
 
 		@Override
 		public int hashCode() {
-			return fProject.hashCode() + fBindingKey.hashCode();
+			return (fKind * 31 + hashCode(fFirst)) * 31 + hashCode(fSecond);
+		}
+
+		private static boolean equals(Object first, Object second) {
+			return first == null ? second == null : first.equals(second);
+		}
+
+		private static int hashCode(Object object) {
+			return object == null ? 0 : object.hashCode();
+		}
+	}
+
+	/**
+	 * Entry of the subtype cache. Entries are immutable, so that they can be read and written
+	 * without locking: a reader either sees a complete entry or misses.
+	 */
+	private static final class SubTypeEntry {
+		final HierarchyType fSubType;
+		final HierarchyType fSuperType;
+		final boolean fIsSubType;
+
+		SubTypeEntry(HierarchyType subType, HierarchyType superType, boolean isSubType) {
+			fSubType= subType;
+			fSuperType= superType;
+			fIsSubType= isSubType;
+		}
+	}
+
+	/**
+	 * Drops the shared environments when the Java model changes in a way that can affect types.
+	 */
+	private static final class SharedEnvironmentsListener implements IElementChangedListener {
+
+		/*
+		 * @see org.eclipse.jdt.core.IElementChangedListener#elementChanged(org.eclipse.jdt.core.ElementChangedEvent)
+		 */
+		public void elementChanged(ElementChangedEvent event) {
+			if (affectsTypes(event.getDelta())) {
+				synchronized (TypeEnvironment.class) {
+					fgSharedEnvironments.clear();
+				}
+			}
+		}
+
+		private static boolean affectsTypes(IJavaElementDelta delta) {
+			int kind= delta.getKind();
+			int flags= delta.getFlags();
+			switch (delta.getElement().getElementType()) {
+				case IJavaElement.JAVA_MODEL:
+					break;
+				case IJavaElement.JAVA_PROJECT:
+					if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED)) != 0)
+						return true;
+					break;
+				case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+					if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED)) != 0)
+						return true;
+					break;
+				case IJavaElement.PACKAGE_FRAGMENT:
+					if (kind != IJavaElementDelta.CHANGED)
+						return true;
+					break;
+				case IJavaElement.COMPILATION_UNIT:
+					// becoming or ceasing to be a working copy does not change any type
+					return kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_CHILDREN)) != 0;
+				case IJavaElement.CLASS_FILE:
+					return true;
+				default:
+					return false;
+			}
+			IJavaElementDelta[] children= delta.getAffectedChildren();
+			for (int i= 0; i < children.length; i++) {
+				if (affectsTypes(children[i]))
+					return true;
+			}
+			return false;
 		}
 	}
 
+	/**
+	 * Size of the subtype cache of an environment, a power of 2.
+	 */
+	private static final int SUB_TYPE_CACHE_SIZE= 1 << 10;
+
+	/**
+	 * Size of the subtype cache of a shared environment, a power of 2.
+	 */
+	private static final int SHARED_SUB_TYPE_CACHE_SIZE= 1 << 16;
+
+	/**
+	 * The shared environments, by project. Guarded by the class.
+	 */
+	private static final Map<IJavaProject, TypeEnvironment> fgSharedEnvironments= new HashMap<IJavaProject, TypeEnvironment>();
+
+	private static SharedEnvironmentsListener fgListener;
+
+	/**
+	 * Returns the type environment that is shared by the refactorings of a project. The shared
+	 * environment is dropped on every Java model change that can affect types, including the
+	 * reconciling of working copies, so that it never answers questions about outdated types.
+	 * <p>
+	 * Shared environments neither remember subtypes nor remove capture types.
+	 * </p>
+	 *
+	 * @param project the project
+	 * @return the shared type environment of the project
+	 * @since 3.10
+	 */
+	public static synchronized TypeEnvironment getSharedEnvironment(IJavaProject project) {
+		if (fgListener == null) {
+			fgListener= new SharedEnvironmentsListener();
+			JavaCore.addElementChangedListener(fgListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		}
+		TypeEnvironment environment= fgSharedEnvironments.get(project);
+		if (environment == null) {
+			environment= new TypeEnvironment(false, false, SHARED_SUB_TYPE_CACHE_SIZE);
+			fgSharedEnvironments.put(project, environment);
+		}
+		return environment;
+	}
+
 	/** Type code for the primitive type "int". */
 	public final PrimitiveType INT= new PrimitiveType(this, PrimitiveType.INT, BindingKey.createTypeBindingKey("int")); //$NON-NLS-1$
 	/** Type code for the primitive type "char". */
@@ -103,27 +233,22 @@ public class TypeEnvironment {
 		"java.lang.Double",  //$NON-NLS-1$
 		"java.lang.Byte"};  //$NON-NLS-1$
 
-	private TType OBJECT_TYPE= null;
-
-	private List<Map<TType, ArrayType>>      fArrayTypes= new ArrayList<Map<TType, ArrayType>>();
-	private Map<IJavaElement, StandardType>  fStandardTypes= new HashMap<IJavaElement, StandardType>();
-	private Map<IJavaElement, GenericType>   fGenericTypes= new HashMap<IJavaElement, GenericType>();
-	private Map<ProjectKeyPair, ParameterizedType> fParameterizedTypes= new HashMap<ProjectKeyPair, ParameterizedType>();
-	private Map<IJavaElement, RawType>       fRawTypes= new HashMap<IJavaElement, RawType>();
-	private Map<IJavaElement, TypeVariable>  fTypeVariables= new HashMap<IJavaElement, TypeVariable>();
-	private Map<ProjectKeyPair, CaptureType> fCaptureTypes= new HashMap<ProjectKeyPair, CaptureType>();
-	private Map<TType, ExtendsWildcardType>  fExtendsWildcardTypes= new HashMap<TType, ExtendsWildcardType>();
-	private Map<TType, SuperWildcardType>    fSuperWildcardTypes= new HashMap<TType, SuperWildcardType>();
+	private volatile TType OBJECT_TYPE= null;
+
+	/**
+	 * The interned array, hierarchy, type variable, capture and bounded wildcard types.
+	 * Guarded by this environment.
+	 */
+	private final Map<TypeKey, TType> fTypes= new HashMap<TypeKey, TType>();
 	private UnboundWildcardType fUnboundWildcardType= null;
 
-	private static final int MAX_ENTRIES= 1024;
-	private Map<TypeTuple, Boolean> fSubTypeCache= new LinkedHashMap<TypeTuple, Boolean>(50, 0.75f, true) {
-		private static final long serialVersionUID= 1L;
-		@Override
-		protected boolean removeEldestEntry(Map.Entry<TypeTuple, Boolean> eldest) {
-			return size() > MAX_ENTRIES;
-		}
-	};
+	private final int fSubTypeCacheSize;
+
+	/**
+	 * Direct-mapped cache of subtype relations, allocated on first use. Colliding entries
+	 * replace each other.
+	 */
+	private volatile SubTypeEntry[] fSubTypeCache;
 
 	/**
 	 * Map from TType to its known subtypes, or <code>null</code> iff subtype
@@ -176,17 +301,60 @@ public class TypeEnvironment {
 	}
 	
 	public TypeEnvironment(boolean rememberSubtypes, boolean removeCapures) {
+		this(rememberSubtypes, removeCapures, SUB_TYPE_CACHE_SIZE);
+	}
+
+	private TypeEnvironment(boolean rememberSubtypes, boolean removeCapures, int subTypeCacheSize) {
 		if (rememberSubtypes) {
 			fSubTypes= new HashMap<TType, ArrayList<TType>>();
 		}
 		fRemoveCapures= removeCapures;
+		fSubTypeCacheSize= subTypeCacheSize;
 	}
 
-	Map<TypeTuple, Boolean> getSubTypeCache() {
-		return fSubTypeCache;
+	/**
+	 * Returns the cached subtype relation between two types of this environment.
+	 *
+	 * @param subType the potential subtype
+	 * @param superType the potential supertype
+	 * @return {@link Boolean#TRUE} or {@link Boolean#FALSE}, or <code>null</code> if the
+	 *         relation is not cached
+	 */
+	Boolean getCachedSubType(HierarchyType subType, HierarchyType superType) {
+		SubTypeEntry[] cache= fSubTypeCache;
+		if (cache == null)
+			return null;
+		SubTypeEntry entry= cache[getSubTypeCacheIndex(subType, superType)];
+		if (entry != null && entry.fSubType == subType && entry.fSuperType == superType)
+			return Boolean.valueOf(entry.fIsSubType);
+		return null;
 	}
 
-	public TType create(ITypeBinding binding) {
+	/**
+	 * Caches the subtype relation between two types of this environment.
+	 *
+	 * @param subType the potential subtype
+	 * @param superType the potential supertype
+	 * @param isSubType whether <code>subType</code> is a subtype of <code>superType</code>
+	 */
+	void putCachedSubType(HierarchyType subType, HierarchyType superType, boolean isSubType) {
+		SubTypeEntry[] cache= fSubTypeCache;
+		if (cache == null) {
+			synchronized (this) {
+				if (fSubTypeCache == null)
+					fSubTypeCache= new SubTypeEntry[fSubTypeCacheSize];
+				cache= fSubTypeCache;
+			}
+		}
+		cache[getSubTypeCacheIndex(subType, superType)]= new SubTypeEntry(subType, superType, isSubType);
+	}
+
+	private int getSubTypeCacheIndex(HierarchyType subType, HierarchyType superType) {
+		int hash= System.identityHashCode(subType) * 31 + System.identityHashCode(superType);
+		return (hash ^ (hash >>> 16)) & (fSubTypeCacheSize - 1);
+	}
+
+	public synchronized TType create(ITypeBinding binding) {
 		if (binding.isPrimitive()) {
 			return createPrimitiveType(binding);
 		} else if (binding.isArray()) {
@@ -219,7 +387,7 @@ public class TypeEnvironment {
 		return createStandardType(binding);
 	}
 
-	public TType[] create(ITypeBinding[] bindings) {
+	public synchronized TType[] create(ITypeBinding[] bindings) {
 		TType[] result= new TType[bindings.length];
 		for (int i= 0; i < bindings.length; i++) {
 			result[i]= create(bindings[i]);
@@ -241,7 +409,7 @@ public class TypeEnvironment {
 		return OBJECT_TYPE;
 	}
 
-	public void initializeJavaLangObject(IJavaProject project) {
+	public synchronized void initializeJavaLangObject(IJavaProject project) {
 		if (OBJECT_TYPE != null)
 			return;
 		
@@ -249,7 +417,7 @@ public class TypeEnvironment {
 		Assert.isTrue(objectType.isJavaLangObject());
 	}
 	
-	void initializeJavaLangObject(ITypeBinding object) {
+	synchronized void initializeJavaLangObject(ITypeBinding object) {
 		if (OBJECT_TYPE != null)
 			return;
 
@@ -266,7 +434,7 @@ public class TypeEnvironment {
 		return null;
 	}
 
-	StandardType createBoxed(PrimitiveType type, IJavaProject focus) {
+	synchronized StandardType createBoxed(PrimitiveType type, IJavaProject focus) {
 		String fullyQualifiedName= BOXED_PRIMITIVE_NAMES[type.getId()];
 		return createStandardType(fullyQualifiedName, focus);
 	}
@@ -274,7 +442,7 @@ public class TypeEnvironment {
 	private StandardType createStandardType(String fullyQualifiedName, IJavaProject focus) {
 		try {
 			IType javaElementType= focus.findType(fullyQualifiedName);
-			StandardType result= fStandardTypes.get(javaElementType);
+			StandardType result= (StandardType) fTypes.get(new TypeKey(TType.STANDARD_TYPE, javaElementType, null));
 			if (result != null)
 				return result;
 			ASTParser parser= ASTParser.newParser(ASTProvider.SHARED_AST_LEVEL);
@@ -326,55 +494,40 @@ public class TypeEnvironment {
 	}
 
 	private ArrayType createArrayType(ITypeBinding binding) {
-		int index= binding.getDimensions() - 1;
 		TType elementType= create(binding.getElementType());
-		Map<TType, ArrayType> arrayTypes= getArrayTypesMap(index);
-		ArrayType result= arrayTypes.get(elementType);
+		TypeKey key= new TypeKey(TType.ARRAY_TYPE, elementType, Integer.valueOf(binding.getDimensions()));
+		ArrayType result= (ArrayType) fTypes.get(key);
 		if (result != null)
 			return result;
 		result= new ArrayType(this);
-		arrayTypes.put(elementType, result);
+		fTypes.put(key, result);
 		result.initialize(binding, elementType);
 		return result;
 	}
 
-	public ArrayType createArrayType(TType elementType, int dimensions) {
+	public synchronized ArrayType createArrayType(TType elementType, int dimensions) {
 		Assert.isTrue(! elementType.isArrayType());
 		Assert.isTrue(! elementType.isAnonymous());
 		Assert.isTrue(dimensions > 0);
 
-		int index= dimensions - 1;
-		Map<TType, ArrayType> arrayTypes= getArrayTypesMap(index);
-		ArrayType result= arrayTypes.get(elementType);
+		TypeKey key= new TypeKey(TType.ARRAY_TYPE, elementType, Integer.valueOf(dimensions));
+		ArrayType result= (ArrayType) fTypes.get(key);
 		if (result != null)
 			return result;
 		result= new ArrayType(this, BindingKey.createArrayTypeBindingKey(elementType.getBindingKey(), dimensions));
-		arrayTypes.put(elementType, result);
+		fTypes.put(key, result);
 		result.initialize(elementType, dimensions);
 		return result;
 	}
 
-	private Map<TType, ArrayType> getArrayTypesMap(int index) {
-		int oldLength= fArrayTypes.size();
-		if (index >= oldLength) {
-			fArrayTypes.addAll(Collections.<Map<TType,ArrayType>>nCopies(index + 1 - oldLength, null));
-		}
-		Map<TType, ArrayType> arrayTypes= fArrayTypes.get(index);
-		if (arrayTypes == null) {
-			arrayTypes= new HashMap<TType, ArrayType>();
-			fArrayTypes.set(index, arrayTypes);
-		}
-		return arrayTypes;
-	}
-
 	private StandardType createStandardType(ITypeBinding binding) {
-		IJavaElement javaElement= binding.getJavaElement();
-		StandardType result= fStandardTypes.get(javaElement);
+		TypeKey key= new TypeKey(TType.STANDARD_TYPE, binding.getJavaElement(), null);
+		StandardType result= (StandardType) fTypes.get(key);
 		if (result != null)
 			return result;
 		result= new StandardType(this);
-		fStandardTypes.put(javaElement, result);
-		result.initialize(binding, (IType)javaElement);
+		fTypes.put(key, result);
+		result.initialize(binding, (IType)binding.getJavaElement());
 		if (OBJECT_TYPE == null && result.isJavaLangObject())
 			OBJECT_TYPE= result;
 		return result;
@@ -382,11 +535,12 @@ public class TypeEnvironment {
 
 	private GenericType createGenericType(ITypeBinding binding) {
 		IJavaElement javaElement= binding.getJavaElement();
-		GenericType result= fGenericTypes.get(javaElement);
+		TypeKey key= new TypeKey(TType.GENERIC_TYPE, javaElement, null);
+		GenericType result= (GenericType) fTypes.get(key);
 		if (result != null)
 			return result;
 		result= new GenericType(this);
-		fGenericTypes.put(javaElement, result);
+		fTypes.put(key, result);
 		result.initialize(binding, (IType)javaElement);
 		cacheSubType(result.getSuperclass(), result);
 		cacheSubTypes(result.getInterfaces(), result);
@@ -396,12 +550,12 @@ public class TypeEnvironment {
 	private ParameterizedType createParameterizedType(ITypeBinding binding) {
 		IJavaProject javaProject= binding.getJavaElement().getJavaProject();
 		String bindingKey= binding.getKey();
-		ProjectKeyPair pair= new ProjectKeyPair(javaProject, bindingKey);
-		ParameterizedType result= fParameterizedTypes.get(pair);
+		TypeKey key= new TypeKey(TType.PARAMETERIZED_TYPE, javaProject, bindingKey);
+		ParameterizedType result= (ParameterizedType) fTypes.get(key);
 		if (result != null)
 			return result;
 		result= new ParameterizedType(this);
-		fParameterizedTypes.put(pair, result);
+		fTypes.put(key, result);
 		result.initialize(binding, (IType)binding.getJavaElement());
 		cacheSubType(result.getSuperclass(), result);
 		cacheSubTypes(result.getInterfaces(), result);
@@ -410,11 +564,12 @@ public class TypeEnvironment {
 
 	private RawType createRawType(ITypeBinding binding) {
 		IJavaElement javaElement= binding.getJavaElement();
-		RawType result= fRawTypes.get(javaElement);
+		TypeKey key= new TypeKey(TType.RAW_TYPE, javaElement, null);
+		RawType result= (RawType) fTypes.get(key);
 		if (result != null)
 			return result;
 		result= new RawType(this);
-		fRawTypes.put(javaElement, result);
+		fTypes.put(key, result);
 		result.initialize(binding, (IType)javaElement);
 		cacheSubType(result.getSuperclass(), result);
 		cacheSubTypes(result.getInterfaces(), result);
@@ -431,33 +586,36 @@ public class TypeEnvironment {
 
 	private TType createExtendsWildCardType(ITypeBinding binding) {
 		TType bound= create(binding.getBound());
-		ExtendsWildcardType result= fExtendsWildcardTypes.get(bound);
+		TypeKey key= new TypeKey(TType.EXTENDS_WILDCARD_TYPE, bound, null);
+		ExtendsWildcardType result= (ExtendsWildcardType) fTypes.get(key);
 		if (result != null)
 			return result;
 		result= new ExtendsWildcardType(this);
-		fExtendsWildcardTypes.put(bound, result);
+		fTypes.put(key, result);
 		result.initialize(binding);
 		return result;
 	}
 
 	private TType createSuperWildCardType(ITypeBinding binding) {
 		TType bound= create(binding.getBound());
-		SuperWildcardType result= fSuperWildcardTypes.get(bound);
+		TypeKey key= new TypeKey(TType.SUPER_WILDCARD_TYPE, bound, null);
+		SuperWildcardType result= (SuperWildcardType) fTypes.get(key);
 		if (result != null)
 			return result;
 		result= new SuperWildcardType(this);
-		fSuperWildcardTypes.put(bound, result);
+		fTypes.put(key, result);
 		result.initialize(binding);
 		return result;
 	}
 
 	private TypeVariable createTypeVariable(ITypeBinding binding) {
 		IJavaElement javaElement= binding.getJavaElement();
-		TypeVariable result= fTypeVariables.get(javaElement);
+		TypeKey key= new TypeKey(TType.TYPE_VARIABLE, javaElement, null);
+		TypeVariable result= (TypeVariable) fTypes.get(key);
 		if (result != null)
 			return result;
 		result= new TypeVariable(this);
-		fTypeVariables.put(javaElement, result);
+		fTypes.put(key, result);
 		result.initialize(binding, (ITypeParameter)javaElement);
 		return result;
 	}
@@ -465,12 +623,12 @@ public class TypeEnvironment {
 	private CaptureType createCaptureType(ITypeBinding binding) {
 		IJavaProject javaProject= binding.getDeclaringClass().getJavaElement().getJavaProject();
 		String bindingKey= binding.getKey();
-		ProjectKeyPair pair= new ProjectKeyPair(javaProject, bindingKey);
-		CaptureType result= fCaptureTypes.get(pair);
+		TypeKey key= new TypeKey(TType.CAPTURE_TYPE, javaProject, bindingKey);
+		CaptureType result= (CaptureType) fTypes.get(key);
 		if (result != null)
 			return result;
 		result= new CaptureType(this);
-		fCaptureTypes.put(pair, result);
+		fTypes.put(key, result);
 		result.initialize(binding, javaProject);
 		return result;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,9 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets;
 
+import java.util.BitSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.NoSuchElementException;
 
 import org.eclipse.core.runtime.Assert;
 
@@ -23,6 +23,11 @@ import org.eclipse.jdt.internal.corext.refactoring.typeconstraints2.TTypes;
 /**
  * A type-safe wrapper for {@code Set<TType>} that also adds {@code TType}-specific
  * functionality, e.g. subTypes() and superTypes().
+ * <p>
+ * The members are represented by their ids in the {@link TypeSetEnvironment}, so that
+ * intersections and containment checks between sets of the same environment are bit set
+ * operations. Iterators return the members in insertion order.
+ * </p>
  */
 public class EnumeratedTypeSet extends TypeSet {
 	static private int sCount= 0;
@@ -35,29 +40,43 @@ public class EnumeratedTypeSet extends TypeSet {
 		sCount= 0;
 	}
 
+	private static final int[] NO_IDS= new int[0];
+
+	/**
+	 * Ids of the TTypes in this EnumeratedTypeSet.
+	 *
+	 * @see TypeSetEnvironment#getTypeId(TType)
+	 */
+	private BitSet fMembers= new BitSet();
+
 	/**
-	 * Set containing the TTypes in this EnumeratedTypeSet.
+	 * Ids of the members in insertion order. Also contains the ids of types that have been
+	 * removed since, which are skipped by iterators and dropped by {@link #compact()}.
 	 */
-	Set<TType> fMembers= new LinkedHashSet<TType>();
+	private int[] fOrder= NO_IDS;
+
+	private int fOrderLength= 0;
+
+	private int fSize= 0;
 
 	/**
 	 * Constructs a new EnumeratedTypeSet with the members of Set s in it.
 	 * All elements of s must be TTypes.
-	 * 
+	 *
 	 * @param types the types
 	 * @param typeSetEnvironment the environment
 	 */
 	public EnumeratedTypeSet(Iterator<TType> types, TypeSetEnvironment typeSetEnvironment) {
 		super(typeSetEnvironment);
 		while (types.hasNext()) {
-			fMembers.add(types.next());
+			add(types.next());
 		}
 		sCount++;
 	}
 
 	/**
 	 * Constructs an empty EnumeratedTypeSet.
-	 * 
+	 *
 	 * @param typeSetEnvironment the environment
 	 */
 	public EnumeratedTypeSet(TypeSetEnvironment typeSetEnvironment) {
@@ -67,14 +86,14 @@ public class EnumeratedTypeSet extends TypeSet {
 
 	/**
 	 * Constructs a new EnumeratedTypeSet with the given single TType in it.
-	 * 
+	 *
 	 * @param t the type
 	 * @param typeSetEnvironment the environment
 	 */
 	public EnumeratedTypeSet(TType t, TypeSetEnvironment typeSetEnvironment) {
 		super(typeSetEnvironment);
 		Assert.isNotNull(t);
-		fMembers.add(t);
+		add(t);
 		sCount++;
 	}
 
@@ -92,19 +111,21 @@ public class EnumeratedTypeSet extends TypeSet {
 		if (o instanceof EnumeratedTypeSet) {
 			EnumeratedTypeSet other= (EnumeratedTypeSet) o;
 
-			return fMembers.equals(other.fMembers);
+			if (isCompatible(other))
+				return fMembers.equals(other.fMembers);
+			return fSize == other.fSize && containsAll(other);
 		} else if (o instanceof SingletonTypeSet) {
 			SingletonTypeSet other= (SingletonTypeSet) o;
 
-			return (fMembers.size() == 1) && fMembers.contains(other.anyMember());
+			return (fSize == 1) && contains(other.anyMember());
 		} else if (o instanceof TypeSet) {
 			TypeSet other= (TypeSet) o;
 
 			for(Iterator<TType> otherIter= other.iterator(); otherIter.hasNext(); ) {
-				if (!fMembers.contains(otherIter.next()))
+				if (!contains(otherIter.next()))
 					return false;
 			}
-			for(Iterator<TType> myIter= fMembers.iterator(); myIter.hasNext(); ) {
+			for(Iterator<TType> myIter= iterator(); myIter.hasNext(); ) {
 				if (!other.contains(myIter.next()))
 					return false;
 			}
@@ -115,7 +136,10 @@ public class EnumeratedTypeSet extends TypeSet {
 
 	@Override
 	public int hashCode() {
-		return 37 + fMembers.hashCode();
+		int hashCode= 0;
+		for (int id= fMembers.nextSetBit(0); id >= 0; id= fMembers.nextSetBit(id + 1))
+			hashCode+= getTypeSetEnvironment().getType(id).hashCode();
+		return 37 + hashCode;
 	}
 
 	/**
@@ -149,12 +173,29 @@ public class EnumeratedTypeSet extends TypeSet {
 			// More than an optimization: the universe never contains array types, so
 			// if s2 has array types, the following will retain them, as it should.
 			EnumeratedTypeSet ets2= (EnumeratedTypeSet) s2;
-			fMembers= new LinkedHashSet<TType>();
-			fMembers.addAll(ets2.fMembers);
+			clear();
+			addAll(ets2);
 		} else
 			retainAll(s2);
 	}
 
+	/**
+	 * Tells whether this set and the given set have a member in common.
+	 *
+	 * @param other the other set
+	 * @return <code>true</code> iff the intersection of the sets is not empty
+	 * @since 3.10
+	 */
+	boolean intersects(EnumeratedTypeSet other) {
+		if (isCompatible(other))
+			return fMembers.intersects(other.fMembers);
+		for (Iterator<TType> iter= other.iterator(); iter.hasNext();) {
+			if (contains(iter.next()))
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * @return a new TypeSet representing the set of all sub-types of the
 	 * types in the receiver
@@ -164,7 +205,7 @@ public class EnumeratedTypeSet extends TypeSet {
 		if (isUniverse())
 			return makeClone(); // subtypes(universe) = universe
 
-		if (fMembers.contains(getJavaLangObject()))
+		if (contains(getJavaLangObject()))
 			return getTypeSetEnvironment().getUniverseTypeSet();
 
 		return getTypeSetEnvironment().createSubTypesSet(this);
@@ -197,7 +238,7 @@ public class EnumeratedTypeSet extends TypeSet {
 	public TypeSet makeClone() {
 		EnumeratedTypeSet result= new EnumeratedTypeSet(getTypeSetEnvironment());
 
-		result.fMembers.addAll(fMembers);
+		result.addAll(this);
 		result.initComplete();
 		return result;
 	}
@@ -206,17 +247,17 @@ public class EnumeratedTypeSet extends TypeSet {
 	 * @see java.util.Set#size()
 	 */
 	public int size() {
-		return fMembers.size();
+		return fSize;
 	}
 
 	/* (non-Javadoc)
 	 * @see java.util.Set#clear()
 	 */
 	public void clear() {
-		if (isUniverse())
-			fMembers= new LinkedHashSet<TType>();
-		else
-			fMembers.clear();
+		fMembers= new BitSet();
+		fOrder= NO_IDS;
+		fOrderLength= 0;
+		fSize= 0;
 	}
 
 	/* (non-Javadoc)
@@ -224,14 +265,18 @@ public class EnumeratedTypeSet extends TypeSet {
 	 */
 	@Override
 	public boolean isEmpty() {
-		return fMembers.isEmpty();
+		return fSize == 0;
 	}
 
 	/* (non-Javadoc)
 	 * @see java.util.Set#toArray()
 	 */
 	public TType[] toArray() {
-		return fMembers.toArray(new TType[fMembers.size()]);
+		TType[] result= new TType[fSize];
+		int i= 0;
+		for (Iterator<TType> iter= iterator(); iter.hasNext();)
+			result[i++]= iter.next();
+		return result;
 	}
 
 	/* (non-Javadoc)
@@ -240,7 +285,7 @@ public class EnumeratedTypeSet extends TypeSet {
 	public boolean add(TType t) {
 		// Doesn't make sense to do here what other methods do (copy-and-modify)
 		Assert.isTrue(!isUniverse(), "Someone's trying to expand the universe!"); //$NON-NLS-1$
-		return fMembers.add(t);
+		return addId(getTypeSetEnvironment().getTypeId(t));
 	}
 
 	/* (non-Javadoc)
@@ -250,37 +295,40 @@ public class EnumeratedTypeSet extends TypeSet {
 	public boolean contains(TType t) {
 		if (isUniverse())
 			return true;
-		return fMembers.contains(t);
+		int id= getTypeSetEnvironment().findTypeId(t);
+		return id >= 0 && fMembers.get(id);
 	}
 
 	/* (non-Javadoc)
 	 * @see java.util.Set#remove(java.lang.Object)
 	 */
 	public boolean remove(TType t) {
-		if (isUniverse())
-			fMembers= cloneSet(fMembers);
-		return fMembers.remove(t);
-	}
-
-	private Set<TType> cloneSet(Set<TType> members) {
-		Set<TType> result= new LinkedHashSet<TType>();
-		result.addAll(members);
-		return result;
+		int id= getTypeSetEnvironment().findTypeId(t);
+		return id >= 0 && removeId(id);
 	}
 
 	/* (non-Javadoc)
 	 * @see java.util.Set#addAll(java.util.Collection)
 	 */
 	public boolean addAll(TypeSet s) {
-		if (s instanceof EnumeratedTypeSet) {
-			EnumeratedTypeSet ets= (EnumeratedTypeSet) s;
-
-			return fMembers.addAll(ets.fMembers);
+		EnumeratedTypeSet ets;
+		if (s instanceof EnumeratedTypeSet)
+			ets= (EnumeratedTypeSet) s;
+		else
+			ets= s.enumerate();
+
+		boolean changed= false;
+		if (isCompatible(ets)) {
+			for (int i= 0; i < ets.fOrderLength; i++) {
+				int id= ets.fOrder[i];
+				if (ets.fMembers.get(id))
+					changed|= addId(id);
+			}
 		} else {
-			EnumeratedTypeSet ets= s.enumerate();
-
-			return fMembers.addAll(ets.fMembers);
+			for (Iterator<TType> iter= ets.iterator(); iter.hasNext();)
+				changed|= add(iter.next());
 		}
+		return changed;
 	}
 
 	@Override
@@ -304,16 +352,37 @@ public class EnumeratedTypeSet extends TypeSet {
 			return false;
 		EnumeratedTypeSet ets= s.enumerate();
 
-		return fMembers.containsAll(ets.fMembers);
+		if (ets.fSize > fSize)
+			return false;
+		if (isCompatible(ets)) {
+			BitSet members= ets.fMembers;
+			for (int id= members.nextSetBit(0); id >= 0; id= members.nextSetBit(id + 1)) {
+				if (!fMembers.get(id))
+					return false;
+			}
+		} else {
+			for (Iterator<TType> iter= ets.iterator(); iter.hasNext();) {
+				if (!contains(iter.next()))
+					return false;
+			}
+		}
+		return true;
 	}
 
 	/* (non-Javadoc)
 	 * @see java.util.Set#removeAll(java.util.Collection)
 	 */
 	public boolean removeAll(EnumeratedTypeSet s) {
-		if (isUniverse())
-			fMembers= cloneSet(fMembers);
-		return fMembers.removeAll(s.fMembers);
+		if (isCompatible(s)) {
+			int size= fSize;
+			fMembers.andNot(s.fMembers);
+			fSize= fMembers.cardinality();
+			return fSize != size;
+		}
+		boolean changed= false;
+		for (Iterator<TType> iter= s.iterator(); iter.hasNext();)
+			changed|= remove(iter.next());
+		return changed;
 	}
 
 	/* (non-Javadoc)
@@ -325,10 +394,24 @@ public class EnumeratedTypeSet extends TypeSet {
 		EnumeratedTypeSet ets= (EnumeratedTypeSet) s;
 
 		if (isUniverse()) {
-			fMembers= cloneSet(ets.fMembers);
+			clear();
+			addAll(ets);
 			return true;
-		} else
-			return fMembers.retainAll(ets.fMembers);
+		} else if (isCompatible(ets)) {
+			int size= fSize;
+			fMembers.and(ets.fMembers);
+			fSize= fMembers.cardinality();
+			return fSize != size;
+		} else {
+			boolean changed= false;
+			for (Iterator<TType> iter= iterator(); iter.hasNext();) {
+				if (!ets.contains(iter.next())) {
+					iter.remove();
+					changed= true;
+				}
+			}
+			return changed;
+		}
 	}
 
 	/* (non-Javadoc)
@@ -336,7 +419,7 @@ public class EnumeratedTypeSet extends TypeSet {
 	 */
 	@Override
 	public boolean isSingleton() {
-		return fMembers.size() == 1;
+		return fSize == 1;
 	}
 
 	/* (non-Javadoc)
@@ -344,7 +427,7 @@ public class EnumeratedTypeSet extends TypeSet {
 	 */
 	@Override
 	public TType anyMember() {
-		return fMembers.iterator().next();
+		return iterator().next();
 	}
 
 	/* (non-Javadoc)
@@ -352,27 +435,27 @@ public class EnumeratedTypeSet extends TypeSet {
 	 */
 	@Override
 	public TypeSet upperBound() {
-		if (fMembers.size() == 1)
-			return new SingletonTypeSet(fMembers.iterator().next(), getTypeSetEnvironment());
-		if (fMembers.contains(getJavaLangObject()))
+		if (fSize == 1)
+			return new SingletonTypeSet(anyMember(), getTypeSetEnvironment());
+		if (contains(getJavaLangObject()))
 			return new SingletonTypeSet(getJavaLangObject(), getTypeSetEnvironment());
 
 		EnumeratedTypeSet result= new EnumeratedTypeSet(getTypeSetEnvironment());
 
 		// Add to result each element of fMembers that has no proper supertype in fMembers
-		result.fMembers.addAll(fMembers);
-		for(Iterator<TType> iter= fMembers.iterator(); iter.hasNext(); ) {
+		result.addAll(this);
+		for(Iterator<TType> iter= iterator(); iter.hasNext(); ) {
 			TType t= iter.next();
 
 			if (t.isArrayType()) {
 				ArrayType at= (ArrayType) t;
 				int numDims= at.getDimensions();
 				for(Iterator<TType> subIter=TTypes.getAllSubTypesIterator(at.getElementType()); subIter.hasNext(); ) {
-					result.fMembers.remove(TTypes.createArrayType(subIter.next(), numDims));
+					result.remove(TTypes.createArrayType(subIter.next(), numDims));
 				}
 			} else {
 				for (Iterator<TType> iterator= TTypes.getAllSubTypesIterator(t); iterator.hasNext();) {
-					result.fMembers.remove(iterator.next());
+					result.remove(iterator.next());
 				}
 			}
 		}
@@ -385,21 +468,21 @@ public class EnumeratedTypeSet extends TypeSet {
 	 */
 	@Override
 	public TypeSet lowerBound() {
-		if (fMembers.size() == 1)
-			return new SingletonTypeSet(fMembers.iterator().next(), getTypeSetEnvironment());
+		if (fSize == 1)
+			return new SingletonTypeSet(anyMember(), getTypeSetEnvironment());
 
 		EnumeratedTypeSet result= new EnumeratedTypeSet(getTypeSetEnvironment());
 
 		// Add to result each element of fMembers that has no proper subtype in fMembers
-		result.fMembers.addAll(fMembers);
+		result.addAll(this);
 
-		for(Iterator<TType> iter= fMembers.iterator(); iter.hasNext(); ) {
+		for(Iterator<TType> iter= iterator(); iter.hasNext(); ) {
 			TType t= iter.next();
 
 			// java.lang.Object is only in the lower bound if fMembers consists
 			// of only java.lang.Object, but that case is handled above.
 			if (t.equals(getJavaLangObject())) {
-				result.fMembers.remove(t);
+				result.remove(t);
 				continue;
 			}
 
@@ -407,11 +490,11 @@ public class EnumeratedTypeSet extends TypeSet {
 				ArrayType at= (ArrayType) t;
 				int numDims= at.getDimensions();
 				for(Iterator<TType> superIter=TTypes.getAllSuperTypesIterator(at.getElementType()); superIter.hasNext(); ) {
-					result.fMembers.remove(TTypes.createArrayType(superIter.next(), numDims));
+					result.remove(TTypes.createArrayType(superIter.next(), numDims));
 				}
 			} else {
 				for (Iterator<TType> iterator= TTypes.getAllSuperTypesIterator(t); iterator.hasNext();) {
-					result.fMembers.remove(iterator.next());
+					result.remove(iterator.next());
 				}
 			}
 		}
@@ -426,7 +509,7 @@ public class EnumeratedTypeSet extends TypeSet {
 	 */
 	@Override
 	public boolean hasUniqueLowerBound() {
-		return fMembers.size() == 1;
+		return fSize == 1;
 	}
 
 	/* (non-Javadoc)
@@ -434,7 +517,7 @@ public class EnumeratedTypeSet extends TypeSet {
 	 */
 	@Override
 	public boolean hasUniqueUpperBound() {
-		return fMembers.size() == 1;
+		return fSize == 1;
 	}
 
 	/* (non-Javadoc)
@@ -442,8 +525,8 @@ public class EnumeratedTypeSet extends TypeSet {
 	 */
 	@Override
 	public TType uniqueLowerBound() {
-		if (fMembers.size() == 1)
-			return fMembers.iterator().next();
+		if (fSize == 1)
+			return anyMember();
 		return null;
 	}
 
@@ -452,8 +535,8 @@ public class EnumeratedTypeSet extends TypeSet {
 	 */
 	@Override
 	public TType uniqueUpperBound() {
-		if (fMembers.size() == 1)
-			return fMembers.iterator().next();
+		if (fSize == 1)
+			return anyMember();
 		return null;
 	}
 
@@ -462,7 +545,72 @@ public class EnumeratedTypeSet extends TypeSet {
 	 */
 	@Override
 	public Iterator<TType> iterator() {
-		return fMembers.iterator();
+		return new Iterator<TType>() {
+			private int fIndex= 0;
+			private int fLast= -1;
+
+			public boolean hasNext() {
+				while (fIndex < fOrderLength && !fMembers.get(fOrder[fIndex]))
+					fIndex++;
+				return fIndex < fOrderLength;
+			}
+
+			public TType next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				fLast= fOrder[fIndex++];
+				return getTypeSetEnvironment().getType(fLast);
+			}
+
+			public void remove() {
+				if (fLast == -1)
+					throw new IllegalStateException();
+				removeId(fLast);
+				fLast= -1;
+			}
+		};
+	}
+
+	private boolean isCompatible(EnumeratedTypeSet other) {
+		return getTypeSetEnvironment() == other.getTypeSetEnvironment();
+	}
+
+	private boolean addId(int id) {
+		if (fMembers.get(id))
+			return false;
+		// a removed id must not keep its old position
+		if (fOrderLength > fSize)
+			compact();
+		if (fOrderLength == fOrder.length) {
+			int[] order= new int[Math.max(4, fOrderLength * 2)];
+			System.arraycopy(fOrder, 0, order, 0, fOrderLength);
+			fOrder= order;
+		}
+		fOrder[fOrderLength++]= id;
+		fMembers.set(id);
+		fSize++;
+		return true;
+	}
+
+	private boolean removeId(int id) {
+		if (!fMembers.get(id))
+			return false;
+		fMembers.clear(id);
+		fSize--;
+		return true;
+	}
+
+	/**
+	 * Drops the ids of removed types from {@link #fOrder}.
+	 */
+	private void compact() {
+		int length= 0;
+		for (int i= 0; i < fOrderLength; i++) {
+			int id= fOrder[i];
+			if (fMembers.get(id))
+				fOrder[length++]= id;
+		}
+		fOrderLength= length;
 	}
 
 	/**
@@ -506,7 +654,7 @@ public class EnumeratedTypeSet extends TypeSet {
 	}
 
 	public void initComplete() {
-		Assert.isTrue(! fMembers.isEmpty());
+		Assert.isTrue(fSize > 0);
 	}
 
 }
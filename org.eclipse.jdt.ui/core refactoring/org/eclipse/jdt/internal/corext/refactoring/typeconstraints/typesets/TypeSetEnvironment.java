@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,10 @@
 
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.jdt.internal.corext.refactoring.typeconstraints.types.TType;
@@ -30,6 +33,13 @@ public class TypeSetEnvironment {
 	private final Map<TType, SuperTypesOfSingleton> fSuperTypesOfSingletons= new LinkedHashMap<TType, SuperTypesOfSingleton>();//@perf
 	private final Map<Object, SuperTypesSet> fSuperTypesSets= new LinkedHashMap<Object, SuperTypesSet>();//@perf
 
+	/**
+	 * The members of {@link EnumeratedTypeSet}s, indexed by their id.
+	 * @since 3.10
+	 */
+	private final List<TType> fTypes= new ArrayList<TType>();
+	private final Map<TType, Integer> fTypeIds= new HashMap<TType, Integer>();
+
 	private int fgCommonExprHits= 0;
 	private int fgCommonExprMisses= 0;
 
@@ -116,6 +126,46 @@ public class TypeSetEnvironment {
 		}
 	}
 
+	/**
+	 * Returns the id of a type, assigning a new id if the type has none yet.
+	 *
+	 * @param type the type
+	 * @return the id of the type
+	 * @since 3.10
+	 */
+	int getTypeId(TType type) {
+		Integer id= fTypeIds.get(type);
+		if (id == null) {
+			id= Integer.valueOf(fTypes.size());
+			fTypes.add(type);
+			fTypeIds.put(type, id);
+		}
+		return id.intValue();
+	}
+
+	/**
+	 * Returns the id of a type.
+	 *
+	 * @param type the type
+	 * @return the id of the type, or <code>-1</code> if the type has no id
+	 * @since 3.10
+	 */
+	int findTypeId(TType type) {
+		Integer id= fTypeIds.get(type);
+		return id != null ? id.intValue() : -1;
+	}
+
+	/**
+	 * Returns the type with the given id.
+	 *
+	 * @param id an id returned by {@link #getTypeId(TType)}
+	 * @return the type
+	 * @since 3.10
+	 */
+	TType getType(int id) {
+		return fTypes.get(id);
+	}
+
 	public void dumpStats() {
 		System.out.println("Common expression hits:   " + fgCommonExprHits); //$NON-NLS-1$
 		System.out.println("Common expression misses: " + fgCommonExprMisses); //$NON-NLS-1$
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -64,6 +64,10 @@ public class TypeSetIntersection extends TypeSet {
 			return true;
 		if (fLHS.isUniverse() || fRHS.isUniverse())
 			return false;
+		if (fEnumCache != null)
+			return fEnumCache.isEmpty();
+		if (hasEnumeratedOperands())
+			return !((EnumeratedTypeSet) fLHS).intersects((EnumeratedTypeSet) fRHS);
 		// Another quick check we can make before jumping to the expensive stuff
 		if (fLHS.contains(getJavaLangObject()) && fRHS.contains(getJavaLangObject()))
 			return false;
@@ -207,7 +211,7 @@ public class TypeSetIntersection extends TypeSet {
 	 */
 	@Override
 	public boolean isSingleton() {
-		if (fEnumCache != null) return fEnumCache.isSingleton();
+		if (fEnumCache != null || hasEnumeratedOperands()) return enumerate().isSingleton();
 
 		int count= 0;
 		for(Iterator<TType> lhsIter= fLHS.iterator(); lhsIter.hasNext(); ) {
@@ -225,7 +229,10 @@ public class TypeSetIntersection extends TypeSet {
 	 */
 	@Override
 	public TType anyMember() {
-		if (fEnumCache != null) return fEnumCache.anyMember();
+		if (fEnumCache != null || hasEnumeratedOperands()) {
+			EnumeratedTypeSet members= enumerate();
+			return members.isEmpty() ? null : members.anyMember();
+		}
 
 		for(Iterator<TType> lhsIter= fLHS.iterator(); lhsIter.hasNext(); ) {
 			TType t= lhsIter.next();
@@ -330,6 +337,16 @@ public class TypeSetIntersection extends TypeSet {
 
 	private EnumeratedTypeSet fEnumCache= null;
 
+	/**
+	 * Tells whether both operands are enumerated, in which case the intersection is
+	 * computed on the member bit sets, which is cheaper than testing every member.
+	 *
+	 * @return <code>true</code> iff both operands are {@link EnumeratedTypeSet}s
+	 */
+	private boolean hasEnumeratedOperands() {
+		return fLHS instanceof EnumeratedTypeSet && fRHS instanceof EnumeratedTypeSet;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.jdt.internal.corext.refactoring.typeconstraints.typesets.TypeSet#enumerate()
 	 */
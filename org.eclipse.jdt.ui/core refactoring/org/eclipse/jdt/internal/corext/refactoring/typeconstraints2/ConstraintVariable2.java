@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,12 @@ public abstract class ConstraintVariable2 {
 
 	private TypeEquivalenceSet fTypeEquivalenceSet;
 
+	/**
+	 * The index of this variable in the constraint solver, or <code>-1</code>.
+	 * @since 3.10
+	 */
+	private int fIndex= -1;
+
 	protected final TType fType;
 
 	/**
@@ -45,6 +51,16 @@ public abstract class ConstraintVariable2 {
 		}
 	}
 
+	/**
+	 * Returns the index that the constraint solver has assigned to this variable.
+	 *
+	 * @return the index, or <code>-1</code> if the variable has not been indexed
+	 * @since 3.10
+	 */
+	public int getIndex() {
+		return fIndex;
+	}
+
 	public TypeEquivalenceSet getTypeEquivalenceSet() {
 		return fTypeEquivalenceSet;
 	}
@@ -99,6 +115,16 @@ public abstract class ConstraintVariable2 {
 		}
 	}
 
+	/**
+	 * Sets the index of this variable in the constraint solver.
+	 *
+	 * @param index the index
+	 * @since 3.10
+	 */
+	public void setIndex(int index) {
+		fIndex= index;
+	}
+
 	public void setTypeEquivalenceSet(TypeEquivalenceSet set) {
 		fTypeEquivalenceSet= set;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@ package org.eclipse.jdt.internal.ui;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
 
 import org.osgi.framework.Bundle;
 
@@ -28,6 +29,8 @@ import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ImageRegistry;
 
+import org.eclipse.jdt.internal.ui.viewsupport.ImageRequests;
+
 
 /**
  * Bundle of most images used by the Java plug-in.
@@ -496,12 +499,20 @@ public class JavaPluginImages {
 	}
 
 	/**
-	 * Returns the image managed under the given key in this registry.
+	 * Returns the image managed under the given key in this registry. Requests of worker
+	 * threads are forwarded, see {@link ImageRequests}.
 	 *
 	 * @param key the image's key
 	 * @return the image managed under the given key
 	 */
-	public static Image get(String key) {
+	public static Image get(final String key) {
+		if (ImageRequests.isForwarded()) {
+			return ImageRequests.run(new Callable<Image>() {
+				public Image call() {
+					return getImageRegistry().get(key);
+				}
+			});
+		}
 		return getImageRegistry().get(key);
 	}
 
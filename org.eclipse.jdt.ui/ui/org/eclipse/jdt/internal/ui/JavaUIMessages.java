@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -181,6 +181,8 @@ public final class JavaUIMessages extends NLS {
 	public static String JavaElementLabels_category_separator_string;
 	public static String JavaElementLabels_onClassPathOf;
 
+	public static String JavaUILabelProvider_computing_labels_job;
+
 	public static String StatusBarUpdater_num_elements_selected;
 
 	public static String OpenTypeHierarchyUtil_error_open_view;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -98,6 +98,7 @@ import org.eclipse.jdt.internal.corext.util.Strings;
 import org.eclipse.jdt.internal.corext.util.TypeFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoFilter;
 import org.eclipse.jdt.internal.corext.util.TypeInfoRequestorAdapter;
+import org.eclipse.jdt.internal.corext.util.TypeNameCache;
 
 import org.eclipse.jdt.launching.IVMInstall;
 import org.eclipse.jdt.launching.IVMInstallType;
@@ -569,6 +570,8 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 		typeSearchFilter.setMatchEverythingMode(true);
 
 		try {
+			if (TypeNameCache.getInstance().search(typeSearchFilter.getTypeInfoFilter(), requestor, progressMonitor))
+				return;
 			engine.searchAllTypeNames(packPattern == null ? null : packPattern.toCharArray(),
 					typeSearchFilter.getPackageFlags(),
 					typePattern.toCharArray(),
@@ -643,6 +646,12 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 	 */
 	private static class ConsistencyRunnable implements IRunnableWithProgress {
 		public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+			if (fgFirstTime && TypeNameCache.getInstance().isAvailable()) {
+				// the type name cache answers queries without waiting for the indexer
+				OpenTypeHistory.getInstance().checkConsistency(monitor);
+				fgFirstTime= false;
+				return;
+			}
 			if (fgFirstTime) {
 				// Join the initialize after load job.
 				IJobManager manager= Job.getJobManager();
@@ -1210,6 +1219,10 @@ public class FilteredTypesSelectionDialog extends FilteredItemsSelectionDialog i
 			return fTypeInfoFilter.getPackageFlags();
 		}
 
+		public TypeInfoFilter getTypeInfoFilter() {
+			return fTypeInfoFilter;
+		}
+
 		public boolean matchesRawNamePattern(TypeNameMatch type) {
 			return fTypeInfoFilter.matchesRawNamePattern(type);
 		}
@@ -25,7 +25,7 @@ import org.eclipse.jdt.ui.cleanup.CleanUpContext;
 import org.eclipse.jdt.ui.cleanup.CleanUpRequirements;
 import org.eclipse.jdt.ui.cleanup.ICleanUpFix;
 
-public class ConvertLoopCleanUp extends AbstractCleanUp {
+public class ConvertLoopCleanUp extends AbstractCleanUp implements IConcurrentCleanUp {
 
 	public ConvertLoopCleanUp(Map<String, String> options) {
 		super(options);
@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.fix;
+
+import org.eclipse.jdt.ui.cleanup.CleanUpContext;
+import org.eclipse.jdt.ui.cleanup.ICleanUp;
+
+/**
+ * A clean up whose {@link ICleanUp#createFix(CleanUpContext)} can be called
+ * concurrently for different compilation units.
+ * <p>
+ * The clean up must not modify shared state in <code>createFix</code>. It is
+ * called with ASTs of different batches at the same time, but never with two
+ * ASTs of the same batch at the same time.
+ * </p>
+ *
+ * @since 3.10
+ */
+public interface IConcurrentCleanUp extends ICleanUp {
+}
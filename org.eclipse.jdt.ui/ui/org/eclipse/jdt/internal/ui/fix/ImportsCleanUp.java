@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.internal.corext.codemanipulation.CodeGenerationSettings;
 import org.eclipse.jdt.internal.corext.fix.CleanUpConstants;
 import org.eclipse.jdt.internal.corext.fix.ImportsFix;
+import org.eclipse.jdt.internal.corext.util.TypeNameIndex;
 
 import org.eclipse.jdt.ui.cleanup.CleanUpContext;
 import org.eclipse.jdt.ui.cleanup.CleanUpRequirements;
@@ -33,8 +34,15 @@ import org.eclipse.jdt.internal.ui.preferences.JavaPreferencesSettings;
 
 public class ImportsCleanUp extends AbstractCleanUp {
 
+	/**
+	 * The number of compilation units from which on all units of a project share one
+	 * {@link TypeNameIndex}.
+	 */
+	private static final int MIN_UNITS_FOR_TYPE_NAME_INDEX= 10;
+
 	private CodeGenerationSettings fCodeGeneratorSettings;
 	private RefactoringStatus fStatus;
+	private TypeNameIndex fTypeNameIndex;
 
 	public ImportsCleanUp(Map<String, String> options) {
 		super(options);
@@ -63,7 +71,7 @@ public class ImportsCleanUp extends AbstractCleanUp {
     		return null;
 
 		return ImportsFix.createCleanUp(compilationUnit, fCodeGeneratorSettings,
-				isEnabled(CleanUpConstants.ORGANIZE_IMPORTS), fStatus);
+				isEnabled(CleanUpConstants.ORGANIZE_IMPORTS), fStatus, fTypeNameIndex);
 	}
 
     /**
@@ -75,6 +83,13 @@ public class ImportsCleanUp extends AbstractCleanUp {
 		if (isEnabled(CleanUpConstants.ORGANIZE_IMPORTS)) {
     		fCodeGeneratorSettings= JavaPreferencesSettings.getCodeGenerationSettings(project);
     		fStatus= new RefactoringStatus();
+    		if (fTypeNameIndex != null) {
+    			fTypeNameIndex.disconnect();
+    			fTypeNameIndex= null;
+    		}
+    		// building the index costs about as much as a few searches
+    		if (compilationUnits.length >= MIN_UNITS_FOR_TYPE_NAME_INDEX)
+    			fTypeNameIndex= TypeNameIndex.connect(project);
 		}
 
 		return super.checkPreConditions(project, compilationUnits, monitor);
@@ -86,6 +101,10 @@ public class ImportsCleanUp extends AbstractCleanUp {
     @Override
 	public RefactoringStatus checkPostConditions(IProgressMonitor monitor) throws CoreException {
     	fCodeGeneratorSettings= null;
+    	if (fTypeNameIndex != null) {
+    		fTypeNameIndex.disconnect();
+    		fTypeNameIndex= null;
+    	}
     	try {
 	    	if (fStatus == null || fStatus.isOK()) {
 	    		return super.checkPostConditions(monitor);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,7 +10,13 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.javaeditor;
 
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
@@ -20,6 +26,8 @@ import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 
+import org.eclipse.core.resources.IResource;
+
 import org.eclipse.ui.IPartListener2;
 import org.eclipse.ui.IWindowListener;
 import org.eclipse.ui.IWorkbenchPart;
@@ -28,6 +36,7 @@ import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.AST;
@@ -48,6 +57,13 @@ import org.eclipse.jdt.internal.ui.JavaPlugin;
 /**
  * Provides a shared AST for clients. The shared AST is
  * the AST of the active Java editor's input element.
+ * <p>
+ * In addition, the ASTs of the most recently active inputs are kept in a
+ * small, softly referenced cache so that switching back to an editor does
+ * not require a new AST. A cached AST is dropped as soon as its input is
+ * about to be reconciled, its editor is closed or the modification stamp
+ * of the underlying resource changes.
+ * </p>
  *
  * @since 3.0
  */
@@ -104,6 +120,10 @@ public final class ASTProvider {
 		 * @see org.eclipse.ui.IPartListener2#partClosed(org.eclipse.ui.IWorkbenchPartReference)
 		 */
 		public void partClosed(IWorkbenchPartReference ref) {
+			IWorkbenchPart part= ref.getPart(false);
+			if (part instanceof JavaEditor)
+				forget(((JavaEditor)part).getInputJavaElement());
+
 			if (isActiveEditor(ref)) {
 				if (DEBUG)
 					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "closed active editor: " + ref.getTitle()); //$NON-NLS-1$ //$NON-NLS-2$
@@ -208,13 +228,52 @@ public final class ASTProvider {
 
 	private static final String DEBUG_PREFIX= "ASTProvider > "; //$NON-NLS-1$
 
+	/**
+	 * The maximal number of recently active inputs whose AST is kept in the cache.
+	 * @since 3.10
+	 */
+	private static final int CACHE_SIZE= Integer.getInteger("org.eclipse.jdt.ui.astProviderCacheSize", 5).intValue(); //$NON-NLS-1$
+
+	/**
+	 * An AST of a recently active input together with the modification stamp
+	 * of the input's resource at the time the AST was cached.
+	 *
+	 * @since 3.10
+	 */
+	private static final class CacheEntry {
+		final SoftReference<CompilationUnit> fAST;
+		final long fModificationStamp;
+
+		CacheEntry(CompilationUnit ast, long modificationStamp) {
+			fAST= new SoftReference<CompilationUnit>(ast);
+			fModificationStamp= modificationStamp;
+		}
+	}
+
 
 	private ITypeRoot fReconcilingJavaElement;
 	private ITypeRoot fActiveJavaElement;
 	private CompilationUnit fAST;
 	private ActivationListener fActivationListener;
 	private Object fReconcileLock= new Object();
-	private Object fWaitLock= new Object();
+	/**
+	 * Latches of clients waiting for the AST of an input that is being reconciled,
+	 * guarded by itself.
+	 * @since 3.10
+	 */
+	private final Map<ITypeRoot, CountDownLatch> fPendingASTs= new HashMap<ITypeRoot, CountDownLatch>();
+	/**
+	 * ASTs of the most recently active inputs in access order, guarded by <code>this</code>.
+	 * @since 3.10
+	 */
+	private final LinkedHashMap<ITypeRoot, CacheEntry> fRecentASTs= new LinkedHashMap<ITypeRoot, CacheEntry>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ITypeRoot, CacheEntry> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
 	private volatile boolean fIsReconciling;
 	private IWorkbenchPart fActiveEditor;
 
@@ -260,6 +319,9 @@ public final class ASTProvider {
 			fActiveEditor= editor;
 			fActiveJavaElement= javaElement;
 			cache(null, javaElement);
+			fAST= getRecentAST(javaElement);
+			if (DEBUG && fAST != null)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "reusing recent AST: " + toString(fAST) + " for: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		}
 
 		if (DEBUG)
@@ -274,6 +336,9 @@ public final class ASTProvider {
 				fReconcilingJavaElement= null;
 			}
 		}
+
+		// Reconciliation may have been abandoned, let waiting threads check again
+		releaseAllPendingASTs();
 	}
 
 	/**
@@ -283,8 +348,16 @@ public final class ASTProvider {
 	 * @param ast the compilation unit AST
 	 * @return <code>true</code> if the given AST is the cached one
 	 */
-	public boolean isCached(CompilationUnit ast) {
-		return ast != null && fAST == ast;
+	public synchronized boolean isCached(CompilationUnit ast) {
+		if (ast == null)
+			return false;
+		if (fAST == ast)
+			return true;
+		for (Iterator<CacheEntry> iter= fRecentASTs.values().iterator(); iter.hasNext();) {
+			if (iter.next().fAST.get() == ast)
+				return true;
+		}
+		return false;
 	}
 
 	/**
@@ -317,6 +390,7 @@ public final class ASTProvider {
 			fReconcilingJavaElement= javaElement;
 			fIsReconciling= true;
 		}
+		forget(javaElement);
 		cache(null, javaElement);
 	}
 
@@ -378,6 +452,8 @@ public final class ASTProvider {
 		if (fActiveJavaElement != null && !fActiveJavaElement.equals(javaElement)) {
 			if (DEBUG && javaElement != null) // don't report call from disposeAST()
 				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "don't cache AST for inactive: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
+			// e.g. the initial reconcile of an editor opened in the background
+			remember(ast, javaElement);
 			return;
 		}
 
@@ -388,11 +464,130 @@ public final class ASTProvider {
 			disposeAST();
 
 		fAST= ast;
+		remember(ast, javaElement);
 
 		// Signal AST change
-		synchronized (fWaitLock) {
-			fWaitLock.notifyAll();
+		if (ast != null)
+			releasePendingAST(javaElement);
+	}
+
+	/**
+	 * Adds the given AST to the cache of recently active inputs.
+	 *
+	 * @param ast the AST or <code>null</code>
+	 * @param javaElement the Java element for which the AST was built or <code>null</code>
+	 * @since 3.10
+	 */
+	private synchronized void remember(CompilationUnit ast, ITypeRoot javaElement) {
+		if (ast == null || javaElement == null || CACHE_SIZE <= 0)
+			return;
+
+		fRecentASTs.put(javaElement, new CacheEntry(ast, getModificationStamp(javaElement)));
+	}
+
+	/**
+	 * Removes the cached AST of the given Java element, if any.
+	 *
+	 * @param javaElement the Java element or <code>null</code>
+	 * @since 3.10
+	 */
+	private synchronized void forget(ITypeRoot javaElement) {
+		if (javaElement != null)
+			fRecentASTs.remove(javaElement);
+	}
+
+	/**
+	 * Returns the cached AST of a recently active input if it is still valid.
+	 *
+	 * @param javaElement the Java element or <code>null</code>
+	 * @return the cached AST or <code>null</code> if none is available
+	 * @since 3.10
+	 */
+	private synchronized CompilationUnit getRecentAST(ITypeRoot javaElement) {
+		if (javaElement == null)
+			return null;
+
+		CacheEntry entry= fRecentASTs.get(javaElement);
+		if (entry == null)
+			return null;
+
+		CompilationUnit ast= entry.fAST.get();
+		if (ast == null || entry.fModificationStamp != getModificationStamp(javaElement)) {
+			if (DEBUG)
+				System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "dropping stale recent AST for: " + toString(javaElement)); //$NON-NLS-1$ //$NON-NLS-2$
+			fRecentASTs.remove(javaElement);
+			return null;
+		}
+		return ast;
+	}
+
+	/**
+	 * Returns the modification stamp of the resource underlying the given Java element.
+	 *
+	 * @param javaElement the Java element
+	 * @return the modification stamp or {@link IResource#NULL_STAMP} if not known
+	 * @since 3.10
+	 */
+	private static long getModificationStamp(ITypeRoot javaElement) {
+		IResource resource= javaElement.getResource();
+		if (resource == null) {
+			IJavaElement root= javaElement.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+			if (root != null)
+				resource= root.getResource();
 		}
+		return resource != null ? resource.getModificationStamp() : IResource.NULL_STAMP;
+	}
+
+	/**
+	 * Returns the latch that is released once the AST for the given Java
+	 * element has been computed or its reconciliation has been abandoned.
+	 *
+	 * @param javaElement the Java element
+	 * @return the latch
+	 * @since 3.10
+	 */
+	private CountDownLatch getPendingAST(ITypeRoot javaElement) {
+		synchronized (fPendingASTs) {
+			CountDownLatch latch= fPendingASTs.get(javaElement);
+			if (latch == null) {
+				latch= new CountDownLatch(1);
+				fPendingASTs.put(javaElement, latch);
+			}
+			return latch;
+		}
+	}
+
+	/**
+	 * Releases the threads waiting for the AST of the given Java element.
+	 *
+	 * @param javaElement the Java element or <code>null</code>
+	 * @since 3.10
+	 */
+	private void releasePendingAST(ITypeRoot javaElement) {
+		if (javaElement == null)
+			return;
+
+		CountDownLatch latch;
+		synchronized (fPendingASTs) {
+			latch= fPendingASTs.remove(javaElement);
+		}
+		if (latch != null)
+			latch.countDown();
+	}
+
+	/**
+	 * Releases all threads waiting for an AST.
+	 *
+	 * @since 3.10
+	 */
+	private void releaseAllPendingASTs() {
+		CountDownLatch[] latches;
+		synchronized (fPendingASTs) {
+			latches= fPendingASTs.values().toArray(new CountDownLatch[fPendingASTs.size()]);
+			fPendingASTs.clear();
+		}
+		for (int i= 0; i < latches.length; i++)
+			latches[i].countDown();
 	}
 
 	/**
@@ -431,6 +626,14 @@ public final class ASTProvider {
 					return null;
 
 				}
+			} else {
+				CompilationUnit ast= getRecentAST(input);
+				if (ast != null) {
+					if (DEBUG)
+						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "returning recent AST:" + toString(ast) + " for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+					return ast;
+				}
 			}
 		}
 
@@ -449,13 +652,12 @@ public final class ASTProvider {
 
 		if (isReconciling) {
 			try {
-				// Wait for AST
-				synchronized (fWaitLock) {
-					if (isReconciling(input)) {
-						if (DEBUG)
-							System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "waiting for AST for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
-						fWaitLock.wait();
-					}
+				// Wait for AST, the latch is released once the reconciliation of the input ends
+				CountDownLatch pendingAST= getPendingAST(input);
+				if (isReconciling(input)) {
+					if (DEBUG)
+						System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "waiting for AST for: " + input.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+					pendingAST.await();
 				}
 
 				// Check whether active element is still valid
@@ -588,9 +790,11 @@ public final class ASTProvider {
 
 		disposeAST();
 
-		synchronized (fWaitLock) {
-			fWaitLock.notifyAll();
+		synchronized (this) {
+			fRecentASTs.clear();
 		}
+
+		releaseAllPendingASTs();
 	}
 
 	/**
@@ -615,13 +819,12 @@ public final class ASTProvider {
 					System.out.println(getThreadName() + " - " + DEBUG_PREFIX + "  ignoring AST of out-dated editor"); //$NON-NLS-1$ //$NON-NLS-2$
 
 				// Signal - threads might wait for wrong element
-				synchronized (fWaitLock) {
-					fWaitLock.notifyAll();
-				}
+				releaseAllPendingASTs();
 
 				return;
 			}
 			cache(ast, javaElement);
+			releasePendingAST(javaElement);
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1663,6 +1663,10 @@ public class CompilationUnitEditor extends JavaEditor implements IJavaReconcilin
 		for (int i = 0, length= listeners.length; i < length; ++i)
 			((IJavaReconcilingListener)listeners[i]).reconciled(ast, forced, progressMonitor);
 
+		// Index the occurrences for the mark occurrences of the next selections
+		if (ast != null && !progressMonitor.isCanceled())
+			updateOccurrencesIndex(ast);
+
 		// Update Java Outline page selection
 		if (!forced && !progressMonitor.isCanceled()) {
 			Shell shell= getSite().getShell();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -221,6 +221,7 @@ import org.eclipse.jdt.internal.ui.search.IOccurrencesFinder.OccurrenceLocation;
 import org.eclipse.jdt.internal.ui.search.ImplementOccurrencesFinder;
 import org.eclipse.jdt.internal.ui.search.MethodExitsFinder;
 import org.eclipse.jdt.internal.ui.search.OccurrencesFinder;
+import org.eclipse.jdt.internal.ui.search.OccurrencesIndex;
 import org.eclipse.jdt.internal.ui.text.DocumentCharacterIterator;
 import org.eclipse.jdt.internal.ui.text.JavaChangeHover;
 import org.eclipse.jdt.internal.ui.text.JavaPairMatcher;
@@ -1706,6 +1707,11 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 	private ActivationListener fActivationListener= new ActivationListener();
 	private ISelectionListenerWithAST fPostSelectionListenerWithAST;
 	private OccurrencesFinderJob fOccurrencesFinderJob;
+	/**
+	 * The occurrences of the bindings in the current AST.
+	 * @since 3.10
+	 */
+	private volatile OccurrencesIndex fOccurrencesIndex;
 	/** The occurrences finder job canceler */
 	private OccurrencesFinderJobCanceler fOccurrencesFinderJobCanceler;
 	/**
@@ -3350,9 +3356,14 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 		if (locations == null && selectedNode instanceof Name) {
 			IBinding binding= ((Name)selectedNode).resolveBinding();
 			if (binding != null && markOccurrencesOfType(binding)) {
-				OccurrencesFinder finder= new OccurrencesFinder();
-				if (finder.initialize(astRoot, selectedNode) == null) {
-					locations= finder.getOccurrences();
+				OccurrencesIndex index= getOccurrencesIndex(astRoot);
+				if (index.isIndexed(selectedNode)) {
+					locations= index.getOccurrences((Name) selectedNode);
+				} else {
+					OccurrencesFinder finder= new OccurrencesFinder();
+					if (finder.initialize(astRoot, selectedNode) == null) {
+						locations= finder.getOccurrences();
+					}
 				}
 			}
 		}
@@ -3372,6 +3383,34 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 		fOccurrencesFinderJob.run(new NullProgressMonitor());
 	}
 
+	/**
+	 * Returns the occurrences index of the given AST.
+	 *
+	 * @param astRoot the AST
+	 * @return the occurrences index
+	 * @since 3.10
+	 */
+	private OccurrencesIndex getOccurrencesIndex(CompilationUnit astRoot) {
+		OccurrencesIndex index= fOccurrencesIndex;
+		if (index == null || !index.isIndexOf(astRoot)) {
+			index= new OccurrencesIndex(astRoot);
+			fOccurrencesIndex= index;
+		}
+		return index;
+	}
+
+	/**
+	 * Indexes the occurrences of the bindings in a new AST so that the occurrences of the
+	 * selected binding can be marked without another pass over the AST.
+	 *
+	 * @param astRoot the reconciled AST
+	 * @since 3.10
+	 */
+	void updateOccurrencesIndex(CompilationUnit astRoot) {
+		if (fMarkOccurrenceAnnotations)
+			getOccurrencesIndex(astRoot);
+	}
+
 	protected void installOccurrencesFinder(boolean forceUpdate) {
 		fMarkOccurrenceAnnotations= true;
 
@@ -3396,6 +3435,7 @@ public abstract class JavaEditor extends AbstractDecoratedTextEditor implements
 
 	protected void uninstallOccurrencesFinder() {
 		fMarkOccurrenceAnnotations= false;
+		fOccurrencesIndex= null;
 
 		if (fOccurrencesFinderJob != null) {
 			fOccurrencesFinderJob.cancel();
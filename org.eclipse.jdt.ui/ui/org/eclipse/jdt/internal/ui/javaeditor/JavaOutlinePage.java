@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -935,6 +935,7 @@ public class JavaOutlinePage extends Page implements IContentOutlinePage, IAdapt
 			AppearanceAwareLabelProvider.DEFAULT_TEXTFLAGS |  JavaElementLabels.F_APP_TYPE_SIGNATURE | JavaElementLabels.ALL_CATEGORY,
 			AppearanceAwareLabelProvider.DEFAULT_IMAGEFLAGS
 		);
+		lprovider.setComputeLabelsInBackground(true);
 
 		fOutlineViewer= new JavaOutlineViewer(tree);
 		initDragAndDrop();
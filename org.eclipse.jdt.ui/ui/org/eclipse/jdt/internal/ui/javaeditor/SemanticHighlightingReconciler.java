@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,7 +22,9 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.jface.text.ITextInputListener;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.TextPresentation;
@@ -32,12 +34,16 @@ import org.eclipse.ui.IWorkbenchPartSite;
 
 import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.BooleanLiteral;
 import org.eclipse.jdt.core.dom.CharacterLiteral;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.NumberLiteral;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
@@ -186,15 +192,13 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 */
 		private void addPosition(int offset, int length, Highlighting highlighting) {
 			boolean isExisting= false;
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
-				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
-				if (position == null)
+			for (int i= computeIndexAtOffset(offset), n= fRemovedOffsets.length; i < n && fRemovedOffsets[i] == offset; i++) {
+				if (fRetainedPositions[i])
 					continue;
+				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
 				if (position.isEqual(offset, length, highlighting)) {
 					isExisting= true;
-					fRemovedPositions.set(i, null);
-					fNOfRemovedPositions--;
+					retainPosition(i);
 					break;
 				}
 			}
@@ -211,17 +215,80 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		 * @param length The range length
 		 */
 		private void retainPositions(int offset, int length) {
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
-				HighlightedPosition position= (HighlightedPosition) fRemovedPositions.get(i);
-				if (position != null && position.isContained(offset, length)) {
-					fRemovedPositions.set(i, null);
-					fNOfRemovedPositions--;
-				}
+			int end= offset + length;
+			for (int i= computeIndexAtOffset(offset), n= fRemovedOffsets.length; i < n && fRemovedOffsets[i] <= end; i++) {
+				if (!fRetainedPositions[i] && ((HighlightedPosition) fRemovedPositions.get(i)).isContained(offset, length))
+					retainPosition(i);
 			}
 		}
 	}
 
+	/**
+	 * Tracks the region of the document which has changed since the last reconcile.
+	 *
+	 * @since 3.10
+	 */
+	private class DirtyRegionTracker implements IDocumentListener, ITextInputListener {
+
+		/*
+		 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+		 */
+		public void documentAboutToBeChanged(DocumentEvent event) {
+			// Do nothing
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+		 */
+		public void documentChanged(DocumentEvent event) {
+			int offset= event.getOffset();
+			int oldEnd= offset + event.getLength();
+			int newEnd= offset + (event.getText() == null ? 0 : event.getText().length());
+			synchronized (fDirtyRegionLock) {
+				fDirtyRegion= addChange(fDirtyRegion, offset, oldEnd, newEnd);
+				if (fReconcilePending)
+					fReconcileRegion= addChange(fReconcileRegion, offset, oldEnd, newEnd);
+			}
+		}
+
+		/**
+		 * Adds a document change to a changed region.
+		 *
+		 * @param region the changed region as <code>{start, end}</code> or <code>null</code> if there is none
+		 * @param offset the offset of the document change
+		 * @param oldEnd the end of the replaced text
+		 * @param newEnd the end of the inserted text
+		 * @return the changed region including the document change
+		 */
+		private int[] addChange(int[] region, int offset, int oldEnd, int newEnd) {
+			if (region == null)
+				return new int[] { offset, newEnd };
+			int end= region[1];
+			if (end >= oldEnd)
+				end+= newEnd - oldEnd;
+			else if (end > offset)
+				end= newEnd;
+			return new int[] { Math.min(region[0], offset), Math.max(end, newEnd) };
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.ITextInputListener#inputDocumentAboutToBeChanged(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IDocument)
+		 */
+		public void inputDocumentAboutToBeChanged(IDocument oldInput, IDocument newInput) {
+			if (oldInput != null)
+				oldInput.removeDocumentListener(this);
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.ITextInputListener#inputDocumentChanged(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IDocument)
+		 */
+		public void inputDocumentChanged(IDocument oldInput, IDocument newInput) {
+			if (newInput != null)
+				newInput.addDocumentListener(this);
+			requestFullReconcile();
+		}
+	}
+
 	/** Position collector */
 	private PositionCollector fCollector= new PositionCollector();
 
@@ -242,6 +309,49 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private List<Position> fRemovedPositions= new ArrayList<Position>();
 	/** Number of removed positions */
 	private int fNOfRemovedPositions;
+	/**
+	 * Offsets of the background job's removed highlighted positions at the start of the reconcile.
+	 * @since 3.10
+	 */
+	private int[] fRemovedOffsets;
+	/**
+	 * <code>true</code> at the index of every removed highlighted position which is retained.
+	 * @since 3.10
+	 */
+	private boolean[] fRetainedPositions;
+
+	/**
+	 * The dirty region tracker, or <code>null</code> if not installed on a compilation unit editor.
+	 * @since 3.10
+	 */
+	private DirtyRegionTracker fDirtyRegionTracker;
+	/**
+	 * Lock for the dirty region state.
+	 * @since 3.10
+	 */
+	private final Object fDirtyRegionLock= new Object();
+	/**
+	 * The region changed since the last call to {@link #aboutToBeReconciled()} as
+	 * <code>{start, end}</code>, or <code>null</code> if there is none.
+	 * @since 3.10
+	 */
+	private int[] fDirtyRegion;
+	/**
+	 * The changed region the announced reconcile has to visit as <code>{start, end}</code>, or
+	 * <code>null</code> if there is none.
+	 * @since 3.10
+	 */
+	private int[] fReconcileRegion;
+	/**
+	 * <code>true</code> iff a reconcile has been announced by {@link #aboutToBeReconciled()}.
+	 * @since 3.10
+	 */
+	private boolean fReconcilePending;
+	/**
+	 * <code>true</code> iff the next reconcile has to visit the whole AST.
+	 * @since 3.10
+	 */
+	private boolean fFullReconcile= true;
 
 	/** Background job */
 	private Job fJob;
@@ -276,7 +386,11 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @see org.eclipse.jdt.internal.ui.text.java.IJavaReconcilingListener#aboutToBeReconciled()
 	 */
 	public void aboutToBeReconciled() {
-		// Do nothing
+		synchronized (fDirtyRegionLock) {
+			fReconcileRegion= fDirtyRegion;
+			fDirtyRegion= null;
+			fReconcilePending= true;
+		}
 	}
 
 	/*
@@ -285,15 +399,24 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	public void reconciled(CompilationUnit ast, boolean forced, IProgressMonitor progressMonitor) {
 		// ensure at most one thread can be reconciling at any time
 		synchronized (fReconcileLock) {
-			if (fIsReconciling)
+			if (fIsReconciling) {
+				requestFullReconcile();
 				return;
-			else
+			} else
 				fIsReconciling= true;
 		}
+		int[] changedRegion;
+		synchronized (fDirtyRegionLock) {
+			changedRegion= fReconcilePending && !fFullReconcile && !forced ? fReconcileRegion : null;
+			fReconcileRegion= null;
+			fReconcilePending= false;
+			fFullReconcile= false;
+		}
 		fJobPresenter= fPresenter;
 		fJobSemanticHighlightings= fSemanticHighlightings;
 		fJobHighlightings= fHighlightings;
 
+		boolean updated= false;
 		try {
 			if (fJobPresenter == null || fJobSemanticHighlightings == null || fJobHighlightings == null)
 				return;
@@ -303,7 +426,7 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			if (ast == null || fJobPresenter.isCanceled())
 				return;
 
-			ASTNode[] subtrees= getAffectedSubtrees(ast);
+			ASTNode[] subtrees= getAffectedSubtrees(ast, changedRegion);
 			if (subtrees.length == 0)
 				return;
 
@@ -326,10 +449,12 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 				textPresentation= fJobPresenter.createPresentation(fAddedPositions, fRemovedPositions);
 
 			if (!fJobPresenter.isCanceled())
-				updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
+				updated= updatePresentation(textPresentation, fAddedPositions, fRemovedPositions);
 
 			stopReconcilingPositions();
 		} finally {
+			if (!updated)
+				requestFullReconcile();
 			fJobPresenter= null;
 			fJobSemanticHighlightings= null;
 			fJobHighlightings= null;
@@ -341,12 +466,43 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	}
 
 	/**
-	 * @param node Root node
+	 * Returns the subtrees which may be affected by the document changes in the given region.
+	 * <p>
+	 * Changes inside the body of a method or initializer cannot change the semantic highlighting
+	 * outside of that body, so only the outermost such body declaration enclosing the region is
+	 * returned. For all other changes, the whole AST is returned.
+	 * </p>
+	 *
+	 * @param ast the AST
+	 * @param changedRegion the changed region as <code>{start, end}</code>, or <code>null</code> if
+	 *            the whole AST is affected
 	 * @return Array of subtrees that may be affected by past document changes
 	 */
-	private ASTNode[] getAffectedSubtrees(ASTNode node) {
-		// TODO: only return nodes which are affected by document changes - would require an 'anchor' concept for taking distant effects into account
-		return new ASTNode[] { node };
+	private ASTNode[] getAffectedSubtrees(CompilationUnit ast, int[] changedRegion) {
+		if (changedRegion != null) {
+			int start= changedRegion[0];
+			int end= changedRegion[1];
+			ASTNode subtree= null;
+			for (ASTNode node= NodeFinder.perform(ast, start, end - start); node != null; node= node.getParent()) {
+				if (node instanceof Block && isBody((Block) node) && node.getStartPosition() < start && end < node.getStartPosition() + node.getLength())
+					subtree= node.getParent();
+			}
+			if (subtree != null && (subtree.getFlags() & (ASTNode.MALFORMED | ASTNode.RECOVERED)) == 0)
+				return new ASTNode[] { subtree };
+		}
+		return new ASTNode[] { ast };
+	}
+
+	/**
+	 * @param block the block
+	 * @return <code>true</code> iff the block is the body of a method or initializer
+	 * @since 3.10
+	 */
+	private static boolean isBody(Block block) {
+		ASTNode parent= block.getParent();
+		if (parent instanceof MethodDeclaration)
+			return ((MethodDeclaration) parent).getBody() == block;
+		return parent instanceof Initializer;
 	}
 
 	/**
@@ -355,6 +511,10 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private void startReconcilingPositions() {
 		fJobPresenter.addAllPositions(fRemovedPositions);
 		fNOfRemovedPositions= fRemovedPositions.size();
+		fRemovedOffsets= new int[fNOfRemovedPositions];
+		for (int i= 0; i < fNOfRemovedPositions; i++)
+			fRemovedOffsets[i]= fRemovedPositions.get(i).getOffset();
+		fRetainedPositions= new boolean[fNOfRemovedPositions];
 	}
 
 	/**
@@ -363,51 +523,125 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	 * @param subtrees the AST subtrees
 	 */
 	private void reconcilePositions(ASTNode[] subtrees) {
-		// FIXME: remove positions not covered by subtrees
-
-
+		if (subtrees.length != 1 || !(subtrees[0] instanceof CompilationUnit)) {
+			// positions not covered by the subtrees are not affected
+			for (int i= 0, n= fRemovedOffsets.length; i < n; i++) {
+				if (!isCovered(fRemovedOffsets[i], subtrees))
+					retainPosition(i);
+			}
+		}
 
 		for (int i= 0, n= subtrees.length; i < n; i++)
 			subtrees[i].accept(fCollector);
 		List<Position> oldPositions= fRemovedPositions;
 		List<Position> newPositions= new ArrayList<Position>(fNOfRemovedPositions);
 		for (int i= 0, n= oldPositions.size(); i < n; i ++) {
-			Position current= oldPositions.get(i);
-			if (current != null)
-				newPositions.add(current);
+			if (!fRetainedPositions[i])
+				newPositions.add(oldPositions.get(i));
 		}
 		fRemovedPositions= newPositions;
 	}
 
+	/**
+	 * @param offset the offset
+	 * @param subtrees the AST subtrees
+	 * @return <code>true</code> iff the offset lies in one of the subtrees
+	 * @since 3.10
+	 */
+	private static boolean isCovered(int offset, ASTNode[] subtrees) {
+		for (int i= 0; i < subtrees.length; i++) {
+			int start= subtrees[i].getStartPosition();
+			if (start <= offset && offset < start + subtrees[i].getLength())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the index of the first removed position with an offset equal or greater than the
+	 * given offset.
+	 *
+	 * @param offset the offset
+	 * @return the index of the first removed position with an offset equal or greater than the
+	 *         given offset
+	 * @since 3.10
+	 */
+	private int computeIndexAtOffset(int offset) {
+		int i= -1;
+		int j= fRemovedOffsets.length;
+		while (j - i > 1) {
+			int k= (i + j) >> 1;
+			if (fRemovedOffsets[k] >= offset)
+				j= k;
+			else
+				i= k;
+		}
+		return j;
+	}
+
+	/**
+	 * Retains the removed position at the given index.
+	 *
+	 * @param index the index of the position
+	 * @since 3.10
+	 */
+	private void retainPosition(int index) {
+		if (!fRetainedPositions[index]) {
+			fRetainedPositions[index]= true;
+			fNOfRemovedPositions--;
+		}
+	}
+
+	/**
+	 * Makes the next reconcile visit the whole AST.
+	 *
+	 * @since 3.10
+	 */
+	private void requestFullReconcile() {
+		synchronized (fDirtyRegionLock) {
+			fFullReconcile= true;
+		}
+	}
+
 	/**
 	 * Update the presentation.
 	 *
 	 * @param textPresentation the text presentation
 	 * @param addedPositions the added positions
 	 * @param removedPositions the removed positions
+	 * @return <code>true</code> if the update has been posted, <code>false</code> otherwise
 	 */
-	private void updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions) {
-		Runnable runnable= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions);
+	private boolean updatePresentation(TextPresentation textPresentation, List<Position> addedPositions, List<Position> removedPositions) {
+		final Runnable runnable= fJobPresenter.createUpdateRunnable(textPresentation, addedPositions, removedPositions);
 		if (runnable == null)
-			return;
+			return false;
 
 		JavaEditor editor= fEditor;
 		if (editor == null)
-			return;
+			return false;
 
 		IWorkbenchPartSite site= editor.getSite();
 		if (site == null)
-			return;
+			return false;
 
 		Shell shell= site.getShell();
 		if (shell == null || shell.isDisposed())
-			return;
+			return false;
 
 		Display display= shell.getDisplay();
 		if (display == null || display.isDisposed())
-			return;
+			return false;
 
-		display.asyncExec(runnable);
+		final SemanticHighlightingPresenter presenter= fJobPresenter;
+		display.asyncExec(new Runnable() {
+			public void run() {
+				runnable.run();
+				// the update is dropped if the document has changed in the meantime
+				if (presenter.isCanceled())
+					requestFullReconcile();
+			}
+		});
+		return true;
 	}
 
 	/**
@@ -416,6 +650,8 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 	private void stopReconcilingPositions() {
 		fRemovedPositions.clear();
 		fNOfRemovedPositions= 0;
+		fRemovedOffsets= null;
+		fRetainedPositions= null;
 		fAddedPositions.clear();
 	}
 
@@ -436,6 +672,11 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 		fSourceViewer= sourceViewer;
 
 		if (fEditor instanceof CompilationUnitEditor) {
+			fDirtyRegionTracker= new DirtyRegionTracker();
+			fSourceViewer.addTextInputListener(fDirtyRegionTracker);
+			IDocument document= fSourceViewer.getDocument();
+			if (document != null)
+				document.addDocumentListener(fDirtyRegionTracker);
 			((CompilationUnitEditor)fEditor).addReconcileListener(this);
 		} else if (fEditor == null) {
 			fSourceViewer.addTextInputListener(this);
@@ -451,9 +692,14 @@ public class SemanticHighlightingReconciler implements IJavaReconcilingListener,
 			fPresenter.setCanceled(true);
 
 		if (fEditor != null) {
-			if (fEditor instanceof CompilationUnitEditor)
+			if (fEditor instanceof CompilationUnitEditor) {
 				((CompilationUnitEditor)fEditor).removeReconcileListener(this);
-			else
+				fSourceViewer.removeTextInputListener(fDirtyRegionTracker);
+				IDocument document= fSourceViewer.getDocument();
+				if (document != null)
+					document.removeDocumentListener(fDirtyRegionTracker);
+				fDirtyRegionTracker= null;
+			} else
 				fSourceViewer.removeTextInputListener(this);
 			fEditor= null;
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,11 +12,17 @@ package org.eclipse.jdt.internal.ui.packageview;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Tree;
 import org.eclipse.swt.widgets.TreeItem;
 import org.eclipse.swt.widgets.Widget;
 
@@ -77,6 +83,75 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	protected static final int GRANT_PARENT= 1 << 1;
 	protected static final int PROJECT= 1 << 2;
 
+	/**
+	 * The minimal time between two runs of the pending updates, in milliseconds.
+	 * @since 3.10
+	 */
+	private static final int UPDATE_INTERVAL= 200;
+
+	/**
+	 * The time a run of the pending updates may take before the remaining updates are
+	 * postponed to the next run, in milliseconds.
+	 * @since 3.10
+	 */
+	private static final int UPDATE_BUDGET= 100;
+
+	/**
+	 * The number of pending refreshes of siblings above which their parent is refreshed
+	 * instead.
+	 * @since 3.10
+	 */
+	private static final int MAX_SIBLING_REFRESHES= 10;
+
+	/**
+	 * Update of the viewer that refreshes elements. Pending refreshes are merged before they
+	 * are run.
+	 * @since 3.10
+	 */
+	private final class RefreshUpdate implements Runnable {
+
+		private final List<Object> fElements;
+		private final boolean fUpdateLabels;
+
+		public RefreshUpdate(List<Object> elements, boolean updateLabels) {
+			fElements= elements;
+			fUpdateLabels= updateLabels;
+		}
+
+		public void run() {
+			Object[] elements= fElements.toArray();
+			for (int i= 0; i < elements.length; i++) {
+				Object element= elements[i];
+				if (element == null || fViewer.testFindItems(element).length > 0) {
+					fViewer.refresh(element, fUpdateLabels);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Update of the viewer that only affects a single element. The update is dropped if the
+	 * element is refreshed by a pending refresh of one of its ancestors.
+	 * @since 3.10
+	 */
+	private abstract class ElementUpdate implements Runnable {
+
+		private final Object fElement;
+		private final boolean fCoveredBySelf;
+
+		/**
+		 * Creates a new element update.
+		 *
+		 * @param element the element affected by the update
+		 * @param coveredBySelf <code>true</code> if a refresh of the element itself makes the
+		 *            update obsolete, <code>false</code> if only refreshes of its ancestors do
+		 */
+		public ElementUpdate(Object element, boolean coveredBySelf) {
+			fElement= element;
+			fCoveredBySelf= coveredBySelf;
+		}
+	}
+
 	private TreeViewer fViewer;
 	private Object fInput;
 	private boolean fIsFlatLayout;
@@ -87,6 +162,12 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 
 	private UIJob fUpdateJob;
 
+	/**
+	 * The time the pending updates have been run last.
+	 * @since 3.10
+	 */
+	private volatile long fLastUpdateTime;
+
 	/**
 	 * Creates a new content provider for Java elements.
 	 * @param provideMembers if set, members of compilation units and class files are shown
@@ -162,20 +243,33 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 					if (viewer != null && viewer.isBusy()) {
 						schedule(100); // reschedule when viewer is busy: bug 184991
 					} else {
-						runPendingUpdates();
+						runPendingUpdates(UPDATE_BUDGET);
 					}
 					return Status.OK_STATUS;
 				}
 			};
 			fUpdateJob.setSystem(true);
 		}
-		fUpdateJob.schedule();
+		// updates posted while the job is waiting are run with the already pending updates
+		fUpdateJob.schedule(Math.max(0, fLastUpdateTime + UPDATE_INTERVAL - System.currentTimeMillis()));
 	}
 
 	/**
 	 * Run all of the runnables that are the widget updates. Must be called in the display thread.
 	 */
 	public void runPendingUpdates() {
+		runPendingUpdates(-1);
+	}
+
+	/**
+	 * Merges the pending updates and runs them. Updates that do not fit into the time budget
+	 * are postponed to the next run. Must be called in the display thread.
+	 *
+	 * @param budget the time the updates may take in milliseconds, or <code>-1</code> to run
+	 *            all pending updates
+	 * @since 3.10
+	 */
+	private void runPendingUpdates(long budget) {
 		Collection<Runnable> pendingUpdates;
 		synchronized (this) {
 			pendingUpdates= fPendingUpdates;
@@ -184,7 +278,22 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 		if (pendingUpdates != null && fViewer != null) {
 			Control control = fViewer.getControl();
 			if (control != null && !control.isDisposed()) {
-				runUpdates(pendingUpdates);
+				List<Runnable> updates= mergeUpdates(pendingUpdates);
+				long start= System.currentTimeMillis();
+				int count= 0;
+				while (count < updates.size() && (budget < 0 || count == 0 || System.currentTimeMillis() - start < budget)) {
+					updates.get(count++).run();
+				}
+				fLastUpdateTime= System.currentTimeMillis();
+				if (count < updates.size()) {
+					synchronized (this) {
+						List<Runnable> remaining= new ArrayList<Runnable>(updates.subList(count, updates.size()));
+						if (fPendingUpdates != null)
+							remaining.addAll(fPendingUpdates);
+						fPendingUpdates= remaining;
+					}
+					postAsyncUpdate(control.getDisplay());
+				}
 			}
 		}
 	}
@@ -196,6 +305,203 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 		}
 	}
 
+	/**
+	 * Merges the given pending updates. Refreshes of elements whose ancestors are refreshed
+	 * as well are dropped, and many refreshed siblings are replaced by a refresh of their
+	 * parent. Updates of single elements covered by a refresh are dropped. Every remaining
+	 * refresh runs at the position of the first refresh it replaces; refreshes at the same
+	 * position are ordered such that expanded and visible elements are refreshed first.
+	 *
+	 * @param updates the pending updates, in the order they have been posted
+	 * @return the updates to run
+	 * @since 3.10
+	 */
+	private List<Runnable> mergeUpdates(Collection<Runnable> updates) {
+		Map<Object, Boolean> refreshed= new LinkedHashMap<Object, Boolean>();
+		// the position of the first refresh of every element
+		Map<Object, Integer> positions= new HashMap<Object, Integer>();
+		Integer firstPosition= null;
+		int position= 0;
+		for (Iterator<Runnable> iter= updates.iterator(); iter.hasNext(); position++) {
+			Runnable update= iter.next();
+			if (update instanceof RefreshUpdate) {
+				RefreshUpdate refresh= (RefreshUpdate) update;
+				for (Iterator<Object> elements= refresh.fElements.iterator(); elements.hasNext();) {
+					Object element= elements.next();
+					addRefresh(refreshed, element, refresh.fUpdateLabels);
+					if (!positions.containsKey(element))
+						positions.put(element, new Integer(position));
+				}
+				if (firstPosition == null)
+					firstPosition= new Integer(position);
+			}
+		}
+		removeCoveredRefreshes(refreshed);
+		if (mergeSiblingRefreshes(refreshed))
+			removeCoveredRefreshes(refreshed);
+
+		// a remaining refresh runs at the first position of the refreshes it replaces
+		Map<Object, Integer> refreshPositions= new HashMap<Object, Integer>();
+		for (Iterator<Map.Entry<Object, Integer>> iter= positions.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<Object, Integer> entry= iter.next();
+			Object element= getRefreshingElement(refreshed, entry.getKey());
+			Integer previous= refreshPositions.get(element);
+			if (previous == null || entry.getValue().intValue() < previous.intValue())
+				refreshPositions.put(element, entry.getValue());
+		}
+		Map<Integer, List<Object>> refreshesAt= new HashMap<Integer, List<Object>>();
+		for (Iterator<Object> iter= refreshed.keySet().iterator(); iter.hasNext();) {
+			Object element= iter.next();
+			Integer at= refreshPositions.get(element);
+			if (at == null)
+				at= firstPosition;
+			List<Object> elements= refreshesAt.get(at);
+			if (elements == null) {
+				elements= new ArrayList<Object>();
+				refreshesAt.put(at, elements);
+			}
+			elements.add(element);
+		}
+
+		List<Runnable> result= new ArrayList<Runnable>(updates.size());
+		position= 0;
+		for (Iterator<Runnable> iter= updates.iterator(); iter.hasNext(); position++) {
+			Runnable update= iter.next();
+			if (update instanceof RefreshUpdate) {
+				List<Object> elements= refreshesAt.get(new Integer(position));
+				if (elements != null)
+					addRefreshes(result, elements, refreshed);
+				continue;
+			}
+			if (update instanceof ElementUpdate) {
+				ElementUpdate elementUpdate= (ElementUpdate) update;
+				Object element= elementUpdate.fCoveredBySelf ? elementUpdate.fElement : getParent(elementUpdate.fElement);
+				if (isRefreshed(refreshed, element, true))
+					continue;
+			}
+			result.add(update);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the refreshed element which refreshes the given element, that is the element
+	 * itself or its closest refreshed ancestor.
+	 *
+	 * @param refreshed the refreshed elements
+	 * @param element the element or <code>null</code>
+	 * @return the refreshing element, may be <code>null</code> for a refresh of the input
+	 */
+	private Object getRefreshingElement(Map<Object, Boolean> refreshed, Object element) {
+		while (element != null) {
+			if (refreshed.containsKey(element))
+				return element;
+			element= getParent(element);
+		}
+		return null;
+	}
+
+	private void addRefreshes(List<Runnable> result, List<Object> elements, Map<Object, Boolean> refreshed) {
+		List<Object> visible= new ArrayList<Object>();
+		List<Object> hidden= new ArrayList<Object>();
+		for (int i= 0; i < elements.size(); i++) {
+			Object element= elements.get(i);
+			if (isVisibleOrExpanded(element))
+				visible.add(element);
+			else
+				hidden.add(element);
+		}
+		visible.addAll(hidden);
+		for (int i= 0; i < visible.size(); i++) {
+			Object element= visible.get(i);
+			result.add(new RefreshUpdate(Collections.singletonList(element), refreshed.get(element).booleanValue()));
+		}
+	}
+
+	private static void addRefresh(Map<Object, Boolean> refreshed, Object element, boolean updateLabels) {
+		Boolean previous= refreshed.get(element);
+		if (previous == null || !previous.booleanValue() && updateLabels)
+			refreshed.put(element, Boolean.valueOf(updateLabels));
+	}
+
+	private void removeCoveredRefreshes(Map<Object, Boolean> refreshed) {
+		for (Iterator<Map.Entry<Object, Boolean>> iter= refreshed.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<Object, Boolean> entry= iter.next();
+			Object element= entry.getKey();
+			if (element != null && isRefreshed(refreshed, getParent(element), entry.getValue().booleanValue()))
+				iter.remove();
+		}
+	}
+
+	private boolean mergeSiblingRefreshes(Map<Object, Boolean> refreshed) {
+		Map<Object, List<Object>> siblings= new HashMap<Object, List<Object>>();
+		for (Iterator<Object> iter= refreshed.keySet().iterator(); iter.hasNext();) {
+			Object element= iter.next();
+			Object parent= element != null ? getParent(element) : null;
+			if (parent == null)
+				continue;
+			List<Object> children= siblings.get(parent);
+			if (children == null) {
+				children= new ArrayList<Object>();
+				siblings.put(parent, children);
+			}
+			children.add(element);
+		}
+
+		boolean merged= false;
+		for (Iterator<Map.Entry<Object, List<Object>>> iter= siblings.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry<Object, List<Object>> entry= iter.next();
+			List<Object> children= entry.getValue();
+			Object parent= entry.getKey();
+			if (children.size() <= MAX_SIBLING_REFRESHES || !parent.equals(fInput) && fViewer.testFindItems(parent).length == 0)
+				continue;
+			boolean updateLabels= false;
+			for (int i= 0; i < children.size(); i++) {
+				updateLabels|= refreshed.remove(children.get(i)).booleanValue();
+			}
+			addRefresh(refreshed, parent, updateLabels);
+			merged= true;
+		}
+		return merged;
+	}
+
+	/**
+	 * Tells whether the given element or one of its ancestors is refreshed.
+	 *
+	 * @param refreshed the refreshed elements, mapped to whether their labels are updated
+	 * @param element the element or <code>null</code>
+	 * @param updateLabels <code>true</code> if the labels have to be updated
+	 * @return <code>true</code> if the element is refreshed
+	 */
+	private boolean isRefreshed(Map<Object, Boolean> refreshed, Object element, boolean updateLabels) {
+		if (refreshed.containsKey(null) && (!updateLabels || refreshed.get(null).booleanValue()))
+			return true;
+		while (element != null) {
+			Boolean labels= refreshed.get(element);
+			if (labels != null && (!updateLabels || labels.booleanValue()))
+				return true;
+			element= getParent(element);
+		}
+		return false;
+	}
+
+	private boolean isVisibleOrExpanded(Object element) {
+		if (element == null || element.equals(fInput))
+			return true;
+		Widget[] items= fViewer.testFindItems(element);
+		for (int i= 0; i < items.length; i++) {
+			if (items[i] instanceof TreeItem && !items[i].isDisposed()) {
+				TreeItem item= (TreeItem) items[i];
+				if (item.getExpanded())
+					return true;
+				Tree tree= item.getParent();
+				Rectangle bounds= item.getBounds();
+				if (bounds.height > 0 && bounds.intersects(tree.getClientArea()))
+					return true;
+			}
+		}
+		return false;
+	}
 
 	private boolean inputDeleted(Collection<Runnable> runnables) {
 		if (fInput == null)
@@ -829,7 +1135,7 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	 * @param runnables the resulting view changes as runnables (type {@link Runnable})
 	 */
 	 private void postUpdateIcon(final IJavaElement element, Collection<Runnable> runnables) {
-		 runnables.add(new Runnable() {
+		 runnables.add(new ElementUpdate(element, true) {
 			public void run() {
 				// 1GF87WR: ITPUI:ALL - SWTEx + NPE closing a workbench window.
 				fViewer.update(element, new String[]{IBasicPropertyConstants.P_IMAGE});
@@ -946,21 +1252,11 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	}
 
 	protected void postRefresh(final List<Object> toRefresh, final boolean updateLabels, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
-			public void run() {
-				Object[] elements= toRefresh.toArray();
-				for (int i= 0; i < elements.length; i++) {
-					Object element= elements[i];
-					if (element == null || fViewer.testFindItems(element).length > 0) {
-						fViewer.refresh(element, updateLabels);
-					}
-				}
-			}
-		});
+		runnables.add(new RefreshUpdate(toRefresh, updateLabels));
 	}
 
 	protected void postAdd(final Object parent, final Object element, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
+		runnables.add(new ElementUpdate(parent, true) {
 			public void run() {
 				Widget[] items= fViewer.testFindItems(element);
 				for (int i= 0; i < items.length; i++) {
@@ -978,7 +1274,7 @@ public class PackageExplorerContentProvider extends StandardJavaElementContentPr
 	}
 
 	protected void postRemove(final Object element, Collection<Runnable> runnables) {
-		runnables.add(new Runnable() {
+		runnables.add(new ElementUpdate(element, false) {
 			public void run() {
 				if (fViewer.testFindItems(element).length > 0) {
 					fViewer.remove(element);
@@ -0,0 +1,336 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.search;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression.Operator;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SimpleType;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import org.eclipse.jdt.internal.corext.util.Messages;
+
+import org.eclipse.jdt.internal.ui.search.IOccurrencesFinder.OccurrenceLocation;
+
+import org.eclipse.jdt.internal.ui.viewsupport.BasicElementLabels;
+
+/**
+ * The occurrences of all bindings in a compilation unit AST, keyed by the binding key of their
+ * declaration.
+ * <p>
+ * The index is built by a single pass over the AST and finds the same occurrences as the
+ * {@link OccurrencesFinder} for every selected name, except for the names of statically imported
+ * methods in import declarations, see {@link #isIndexed(ASTNode)}.
+ * </p>
+ * <p>
+ * The index only holds binding keys and positions, and a weak reference to the AST, so it does
+ * not keep the AST alive.
+ * </p>
+ *
+ * @since 3.10
+ */
+public class OccurrencesIndex extends ASTVisitor {
+
+	private static final class Occurrence {
+		private final int fOffset;
+		private final int fLength;
+		private final boolean fIsWrite;
+
+		Occurrence(int offset, int length, boolean isWrite) {
+			fOffset= offset;
+			fLength= length;
+			fIsWrite= isWrite;
+		}
+	}
+
+	/**
+	 * The name of a statically imported method in an import declaration.
+	 */
+	private static final class StaticImport {
+		private final String fName;
+		private final int fOffset;
+		private final int fLength;
+		private final String fDeclaringTypeKey;
+		private final boolean fIsStatic;
+
+		StaticImport(SimpleName name, IMethodBinding binding) {
+			fName= name.getIdentifier();
+			fOffset= name.getStartPosition();
+			fLength= name.getLength();
+			fDeclaringTypeKey= binding.getDeclaringClass().getTypeDeclaration().getKey();
+			fIsStatic= Modifier.isStatic(binding.getModifiers());
+		}
+	}
+
+	private final WeakReference<CompilationUnit> fRoot;
+	private final Map<String, List<Occurrence>> fOccurrences= new HashMap<String, List<Occurrence>>();
+
+	/* the names of statically imported methods */
+	private final List<StaticImport> fStaticImports= new ArrayList<StaticImport>();
+
+	/* state of the pass */
+	private Set<Name> fWriteUsages= new HashSet<Name>();
+	/**
+	 * The keys of the enclosing qualified names. The occurrences of a binding inside a qualified
+	 * name that is an occurrence of the same binding are not counted.
+	 */
+	private List<String> fEnclosingKeys= new ArrayList<String>();
+
+	/**
+	 * Creates the index of an AST.
+	 *
+	 * @param root the AST with bindings
+	 */
+	public OccurrencesIndex(CompilationUnit root) {
+		super(true);
+		fRoot= new WeakReference<CompilationUnit>(root);
+		root.accept(this);
+		fWriteUsages= null;
+		fEnclosingKeys= null;
+	}
+
+	/**
+	 * Tells whether this is the index of an AST.
+	 *
+	 * @param root the AST
+	 * @return <code>true</code> if this index has been created for the given AST
+	 */
+	public boolean isIndexOf(CompilationUnit root) {
+		return root != null && fRoot.get() == root;
+	}
+
+	/**
+	 * Tells whether the occurrences of a selected node can be looked up in this index.
+	 *
+	 * @param selectedNode the selected node
+	 * @return <code>true</code> if the node is a name with a binding
+	 */
+	public boolean isIndexed(ASTNode selectedNode) {
+		if (!(selectedNode instanceof Name))
+			return false;
+		// occurrences of a statically imported method are matched by name
+		if (isStaticImport(selectedNode.getParent()))
+			return false;
+		IBinding binding= ((Name) selectedNode).resolveBinding();
+		return binding != null && getBindingDeclaration(binding).getKey() != null;
+	}
+
+	/**
+	 * Returns the occurrences of the binding of a selected name.
+	 *
+	 * @param selectedNode the selected name, see {@link #isIndexed(ASTNode)}
+	 * @return the occurrences, or <code>null</code> if there are none
+	 */
+	public OccurrenceLocation[] getOccurrences(Name selectedNode) {
+		IBinding target= getBindingDeclaration(selectedNode.resolveBinding());
+		String readDescription= Messages.format(SearchMessages.OccurrencesFinder_occurrence_description, BasicElementLabels.getJavaElementName(target.getName()));
+		String writeDescription= Messages.format(SearchMessages.OccurrencesFinder_occurrence_write_description, BasicElementLabels.getJavaElementName(target.getName()));
+
+		List<OccurrenceLocation> result= new ArrayList<OccurrenceLocation>();
+		if (target instanceof IMethodBinding) {
+			for (int i= 0; i < fStaticImports.size(); i++) {
+				StaticImport staticImport= fStaticImports.get(i);
+				if (isPossibleStaticImport(staticImport, (IMethodBinding) target))
+					result.add(new OccurrenceLocation(staticImport.fOffset, staticImport.fLength, 0, readDescription));
+			}
+		}
+		List<Occurrence> occurrences= fOccurrences.get(target.getKey());
+		if (occurrences != null) {
+			boolean isVariable= target instanceof IVariableBinding;
+			for (int i= 0; i < occurrences.size(); i++) {
+				Occurrence occurrence= occurrences.get(i);
+				if (!isVariable)
+					result.add(new OccurrenceLocation(occurrence.fOffset, occurrence.fLength, 0, readDescription));
+				else if (occurrence.fIsWrite)
+					result.add(new OccurrenceLocation(occurrence.fOffset, occurrence.fLength, IOccurrencesFinder.F_WRITE_OCCURRENCE, writeDescription));
+				else
+					result.add(new OccurrenceLocation(occurrence.fOffset, occurrence.fLength, IOccurrencesFinder.F_READ_OCCURRENCE, readDescription));
+			}
+		}
+		if (result.isEmpty())
+			return null;
+		return result.toArray(new OccurrenceLocation[result.size()]);
+	}
+
+	@Override
+	public boolean visit(QualifiedName node) {
+		final IBinding binding= node.resolveBinding();
+		if (binding instanceof IVariableBinding && ((IVariableBinding)binding).isField()) {
+			SimpleName name= node.getName();
+			fEnclosingKeys.add(addUsage(name, name.resolveBinding()));
+			return true;
+		}
+		if (binding instanceof IMethodBinding && isStaticImport(node)) {
+			fStaticImports.add(new StaticImport(node.getName(), (IMethodBinding) binding));
+			// the imported name is only an occurrence of the methods it imports
+			fEnclosingKeys.add(getBindingDeclaration(binding).getKey());
+			return true;
+		}
+		fEnclosingKeys.add(addUsage(node, binding));
+		return true;
+	}
+
+	@Override
+	public void endVisit(QualifiedName node) {
+		fEnclosingKeys.remove(fEnclosingKeys.size() - 1);
+	}
+
+	private static boolean isStaticImport(ASTNode node) {
+		if (!(node instanceof QualifiedName))
+			return false;
+
+		ASTNode parent= ((QualifiedName)node).getParent();
+		return parent instanceof ImportDeclaration && ((ImportDeclaration) parent).isStatic();
+	}
+
+	@Override
+	public boolean visit(SimpleName node) {
+		addUsage(node, node.resolveBinding());
+		return true;
+	}
+
+	@Override
+	public boolean visit(ClassInstanceCreation node) {
+		// match with the constructor and the type.
+
+		Type type= node.getType();
+		if (type instanceof ParameterizedType) {
+			type= ((ParameterizedType) type).getType();
+		}
+		if (type instanceof SimpleType) {
+			Name name= ((SimpleType) type).getName();
+			if (name instanceof QualifiedName)
+				name= ((QualifiedName)name).getName();
+			addUsage(name, node.resolveConstructorBinding());
+		}
+		return super.visit(node);
+	}
+
+	@Override
+	public boolean visit(Assignment node) {
+		SimpleName name= getSimpleName(node.getLeftHandSide());
+		if (name != null)
+			fWriteUsages.add(name);
+		return true;
+	}
+
+	@Override
+	public boolean visit(SingleVariableDeclaration node) {
+		fWriteUsages.add(node.getName());
+		return true;
+	}
+
+	@Override
+	public boolean visit(VariableDeclarationFragment node) {
+		if (node.getParent() instanceof FieldDeclaration || node.getInitializer() != null)
+			fWriteUsages.add(node.getName());
+		return true;
+	}
+
+	@Override
+	public boolean visit(PrefixExpression node) {
+		PrefixExpression.Operator operator= node.getOperator();
+		if (operator == Operator.INCREMENT || operator == Operator.DECREMENT) {
+			SimpleName name= getSimpleName(node.getOperand());
+			if (name != null)
+				fWriteUsages.add(name);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean visit(PostfixExpression node) {
+		SimpleName name= getSimpleName(node.getOperand());
+		if (name != null)
+			fWriteUsages.add(name);
+		return true;
+	}
+
+	/**
+	 * Adds an occurrence of a binding.
+	 *
+	 * @param node the name
+	 * @param binding the binding of the name, may be <code>null</code>
+	 * @return the key of the declaration of the binding, or <code>null</code> if no occurrence
+	 *         was added
+	 */
+	private String addUsage(Name node, IBinding binding) {
+		if (binding == null)
+			return null;
+		String key= getBindingDeclaration(binding).getKey();
+		if (key == null || fEnclosingKeys.contains(key))
+			return null;
+		List<Occurrence> occurrences= fOccurrences.get(key);
+		if (occurrences == null) {
+			occurrences= new ArrayList<Occurrence>(2);
+			fOccurrences.put(key, occurrences);
+		}
+		occurrences.add(new Occurrence(node.getStartPosition(), node.getLength(), fWriteUsages.remove(node)));
+		return key;
+	}
+
+	private static boolean isPossibleStaticImport(StaticImport staticImport, IMethodBinding target) {
+		if (!staticImport.fIsStatic || !Modifier.isStatic(target.getModifiers()))
+			return false;
+		return staticImport.fName.equals(target.getName()) && staticImport.fDeclaringTypeKey.equals(target.getDeclaringClass().getTypeDeclaration().getKey());
+	}
+
+	private static SimpleName getSimpleName(Expression expression) {
+		if (expression instanceof SimpleName)
+			return ((SimpleName)expression);
+		else if (expression instanceof QualifiedName)
+			return (((QualifiedName) expression).getName());
+		else if (expression instanceof FieldAccess)
+			return ((FieldAccess)expression).getName();
+		return null;
+	}
+
+	private static IBinding getBindingDeclaration(IBinding binding) {
+		switch (binding.getKind()) {
+			case IBinding.TYPE :
+				return ((ITypeBinding)binding).getTypeDeclaration();
+			case IBinding.METHOD :
+				return ((IMethodBinding)binding).getMethodDeclaration();
+			case IBinding.VARIABLE :
+				return ((IVariableBinding)binding).getVariableDeclaration();
+			default:
+				return binding;
+		}
+	}
+}
@@ -0,0 +1,387 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IDocumentPartitioningListener;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.TextUtilities;
+
+import org.eclipse.jdt.ui.text.IJavaPartitions;
+
+/**
+ * An index of the parentheses, square brackets and braces in the default partition of a
+ * document, used to find matching peers without scanning the document.
+ * <p>
+ * For every kind of bracket, the index stores the line and column of every bracket and the
+ * bracket depth in front of it. A minimum tree over the depths finds the matching peer of any
+ * position in logarithmic time.
+ * </p>
+ * <p>
+ * The index listens to its document. Inserting or removing blanks within a line only moves the
+ * brackets on that line; any other change discards the index, and it is rebuilt on the next
+ * query.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 3.10
+ */
+final class JavaBracketIndex implements IDocumentListener, IDocumentPartitioningListener {
+
+	/**
+	 * The indexed peers, every opening peer followed by its closing peer.
+	 */
+	private static final String PEERS= "()[]{}"; //$NON-NLS-1$
+
+	/**
+	 * The positions and depths of one kind of bracket.
+	 */
+	private static final class Brackets {
+		private int fCount;
+		private int[] fLines= new int[64];
+		private int[] fColumns= new int[64];
+		/**
+		 * The depth in front of every bracket, followed by the depth behind the last bracket.
+		 */
+		private int[] fDepths= new int[65];
+		/**
+		 * The minimum tree over <code>fDepths</code>: node <code>i</code> has the children
+		 * <code>2i</code> and <code>2i + 1</code>, the leaves start at <code>fLeaves</code>.
+		 */
+		private int[] fTree;
+		private int fLeaves;
+
+		void add(int line, int column, boolean opening) {
+			if (fCount == fLines.length) {
+				fLines= grow(fLines, fCount * 2);
+				fColumns= grow(fColumns, fCount * 2);
+				fDepths= grow(fDepths, fCount * 2 + 1);
+			}
+			fLines[fCount]= line;
+			fColumns[fCount]= column;
+			fDepths[fCount + 1]= fDepths[fCount] + (opening ? 1 : -1);
+			fCount++;
+		}
+
+		private static int[] grow(int[] array, int length) {
+			int[] result= new int[length];
+			System.arraycopy(array, 0, result, 0, array.length);
+			return result;
+		}
+
+		void buildTree() {
+			fLeaves= 1;
+			while (fLeaves < fCount + 1)
+				fLeaves*= 2;
+			fTree= new int[2 * fLeaves];
+			for (int i= 0; i < fLeaves; i++)
+				fTree[fLeaves + i]= i <= fCount ? fDepths[i] : Integer.MAX_VALUE;
+			for (int i= fLeaves - 1; i > 0; i--)
+				fTree[i]= Math.min(fTree[2 * i], fTree[2 * i + 1]);
+		}
+
+		/**
+		 * Returns the number of brackets in front of the given location.
+		 *
+		 * @param line the line
+		 * @param column the column
+		 * @return the number of brackets in front of the location
+		 */
+		int countBefore(int line, int column) {
+			int low= 0;
+			int high= fCount;
+			while (low < high) {
+				int mid= (low + high) >>> 1;
+				if (fLines[mid] < line || fLines[mid] == line && fColumns[mid] < column)
+					low= mid + 1;
+				else
+					high= mid;
+			}
+			return low;
+		}
+
+		/**
+		 * Moves the brackets on a line that are at or behind a column.
+		 *
+		 * @param line the line
+		 * @param column the first column to move
+		 * @param delta the number of columns to move by
+		 */
+		void shift(int line, int column, int delta) {
+			for (int i= countBefore(line, column); i < fCount && fLines[i] == line; i++)
+				fColumns[i]+= delta;
+		}
+
+		int getOffset(IDocument document, int index) throws BadLocationException {
+			return document.getLineOffset(fLines[index]) + fColumns[index];
+		}
+
+		/**
+		 * Returns the highest index in <code>[0, end)</code> whose depth is at most
+		 * <code>depth</code>.
+		 *
+		 * @param end the end of the index range
+		 * @param depth the depth
+		 * @return the index, or <code>-1</code> if there is none
+		 */
+		int findLast(int end, int depth) {
+			return findLast(1, 0, fLeaves, end, depth);
+		}
+
+		private int findLast(int node, int low, int high, int end, int depth) {
+			if (low >= end || fTree[node] > depth)
+				return -1;
+			if (high - low == 1)
+				return low;
+			int mid= (low + high) >>> 1;
+			int result= findLast(2 * node + 1, mid, high, end, depth);
+			return result != -1 ? result : findLast(2 * node, low, mid, end, depth);
+		}
+
+		/**
+		 * Returns the lowest index at or above <code>start</code> whose depth is at most
+		 * <code>depth</code>.
+		 *
+		 * @param start the start of the index range
+		 * @param depth the depth
+		 * @return the index, or <code>-1</code> if there is none
+		 */
+		int findFirst(int start, int depth) {
+			return findFirst(1, 0, fLeaves, start, depth);
+		}
+
+		private int findFirst(int node, int low, int high, int start, int depth) {
+			if (high <= start || fTree[node] > depth)
+				return -1;
+			if (high - low == 1)
+				return low;
+			int mid= (low + high) >>> 1;
+			int result= findFirst(2 * node, low, mid, start, depth);
+			return result != -1 ? result : findFirst(2 * node + 1, mid, high, start, depth);
+		}
+	}
+
+	private static final Map<IDocument, JavaBracketIndex> fgIndexes= new WeakHashMap<IDocument, JavaBracketIndex>();
+
+	/**
+	 * The brackets of every kind, or <code>null</code> if the index must be rebuilt.
+	 */
+	private Brackets[] fBrackets;
+
+	/* the blank change that is announced but not yet applied */
+	private boolean fHasPendingChange;
+	private int fPendingLine;
+	private int fPendingColumn;
+	private int fPendingDelta;
+
+	private JavaBracketIndex() {
+	}
+
+	/**
+	 * Returns the index of the Java partitioning of a document.
+	 *
+	 * @param document the document
+	 * @return the index
+	 */
+	static synchronized JavaBracketIndex getIndex(IDocument document) {
+		JavaBracketIndex index= fgIndexes.get(document);
+		if (index == null) {
+			index= new JavaBracketIndex();
+			document.addDocumentListener(index);
+			document.addDocumentPartitioningListener(index);
+			fgIndexes.put(document, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Tells whether the given peers are indexed.
+	 *
+	 * @param openingPeer the opening peer
+	 * @param closingPeer the closing peer
+	 * @return <code>true</code> if the peers are indexed
+	 */
+	static boolean isIndexed(char openingPeer, char closingPeer) {
+		int kind= PEERS.indexOf(openingPeer);
+		return kind != -1 && kind % 2 == 0 && PEERS.charAt(kind + 1) == closingPeer;
+	}
+
+	/**
+	 * Returns the position of the opening peer that matches a position (backward search).
+	 *
+	 * @param document the document of the index
+	 * @param start the first position to consider
+	 * @param bound the first position to not consider any more, with <code>bound</code> &lt;
+	 *            <code>start</code>, or {@link JavaHeuristicScanner#UNBOUND}
+	 * @param openingPeer the opening peer, see {@link #isIndexed(char, char)}
+	 * @return the position of the matching peer, or {@link JavaHeuristicScanner#NOT_FOUND}
+	 * @throws BadLocationException if <code>start</code> is not a position of the document
+	 */
+	synchronized int findOpeningPeer(IDocument document, int start, int bound, char openingPeer) throws BadLocationException {
+		Brackets brackets= getBrackets(document, openingPeer);
+		int line= document.getLineOfOffset(start);
+		int end= brackets.countBefore(line, start - document.getLineOffset(line) + 1);
+		int index= brackets.findLast(end, brackets.fDepths[end] - 1);
+		if (index == -1)
+			return JavaHeuristicScanner.NOT_FOUND;
+		int offset= brackets.getOffset(document, index);
+		if (bound != JavaHeuristicScanner.UNBOUND && offset <= bound)
+			return JavaHeuristicScanner.NOT_FOUND;
+		return offset;
+	}
+
+	/**
+	 * Returns the position of the closing peer that matches a position (forward search).
+	 *
+	 * @param document the document of the index
+	 * @param start the first position to consider
+	 * @param bound the first position to not consider any more, with <code>bound</code> &gt;
+	 *            <code>start</code>, or {@link JavaHeuristicScanner#UNBOUND}
+	 * @param openingPeer the opening peer, see {@link #isIndexed(char, char)}
+	 * @return the position of the matching peer, or {@link JavaHeuristicScanner#NOT_FOUND}
+	 * @throws BadLocationException if <code>start</code> is not a position of the document
+	 */
+	synchronized int findClosingPeer(IDocument document, int start, int bound, char openingPeer) throws BadLocationException {
+		Brackets brackets= getBrackets(document, openingPeer);
+		int line= document.getLineOfOffset(start);
+		int first= brackets.countBefore(line, start - document.getLineOffset(line));
+		int index= brackets.findFirst(first + 1, brackets.fDepths[first] - 1);
+		if (index == -1)
+			return JavaHeuristicScanner.NOT_FOUND;
+		int offset= brackets.getOffset(document, index - 1);
+		if (bound != JavaHeuristicScanner.UNBOUND && offset >= bound)
+			return JavaHeuristicScanner.NOT_FOUND;
+		return offset;
+	}
+
+	private Brackets getBrackets(IDocument document, char openingPeer) throws BadLocationException {
+		if (fBrackets == null)
+			fBrackets= computeBrackets(document);
+		return fBrackets[PEERS.indexOf(openingPeer) / 2];
+	}
+
+	private static Brackets[] computeBrackets(IDocument document) throws BadLocationException {
+		Brackets[] result= new Brackets[PEERS.length() / 2];
+		for (int i= 0; i < result.length; i++)
+			result[i]= new Brackets();
+
+		int line= -1;
+		int lineOffset= 0;
+		int lineEnd= 0;
+		ITypedRegion[] partitions= TextUtilities.computePartitioning(document, IJavaPartitions.JAVA_PARTITIONING, 0, document.getLength(), false);
+		for (int i= 0; i < partitions.length; i++) {
+			ITypedRegion partition= partitions[i];
+			if (!IDocument.DEFAULT_CONTENT_TYPE.equals(partition.getType()))
+				continue;
+			String content= document.get(partition.getOffset(), partition.getLength());
+			for (int k= 0; k < content.length(); k++) {
+				int kind= PEERS.indexOf(content.charAt(k));
+				if (kind == -1)
+					continue;
+				int offset= partition.getOffset() + k;
+				if (offset >= lineEnd) {
+					line= document.getLineOfOffset(offset);
+					lineOffset= document.getLineOffset(line);
+					lineEnd= lineOffset + document.getLineLength(line);
+				}
+				result[kind / 2].add(line, offset - lineOffset, kind % 2 == 0);
+			}
+		}
+
+		for (int i= 0; i < result.length; i++)
+			result[i].buildTree();
+		return result;
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public synchronized void documentAboutToBeChanged(DocumentEvent event) {
+		if (fBrackets == null)
+			return;
+		if (fHasPendingChange) {
+			// the document does not report its changes one by one
+			invalidate();
+			return;
+		}
+		try {
+			IDocument document= event.getDocument();
+			int offset= event.getOffset();
+			int end= offset + event.getLength();
+			String text= event.getText() == null ? "" : event.getText(); //$NON-NLS-1$
+			if (!isBlank(text) || !isBlank(document.get(offset, event.getLength())))
+				return;
+			// blanks between '/' and '*' and after '\' can change the partitioning
+			if (offset > 0 && isPartitionDelimiter(document.getChar(offset - 1)))
+				return;
+			// blanks inserted into "\r\n" split the line
+			if (offset > 0 && document.getChar(offset - 1) == '\r')
+				return;
+			if (end < document.getLength() && isPartitionDelimiter(document.getChar(end)))
+				return;
+			fPendingLine= document.getLineOfOffset(end);
+			fPendingColumn= end - document.getLineOffset(fPendingLine);
+			fPendingDelta= text.length() - event.getLength();
+			fHasPendingChange= true;
+		} catch (BadLocationException e) {
+			// handled below
+		} finally {
+			if (!fHasPendingChange)
+				invalidate();
+		}
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public synchronized void documentChanged(DocumentEvent event) {
+		if (fHasPendingChange) {
+			fHasPendingChange= false;
+			if (fPendingDelta != 0) {
+				for (int i= 0; i < fBrackets.length; i++)
+					fBrackets[i].shift(fPendingLine, fPendingColumn, fPendingDelta);
+			}
+		}
+	}
+
+	/*
+	 * @see org.eclipse.jface.text.IDocumentPartitioningListener#documentPartitioningChanged(org.eclipse.jface.text.IDocument)
+	 */
+	public synchronized void documentPartitioningChanged(IDocument document) {
+		invalidate();
+	}
+
+	private void invalidate() {
+		fBrackets= null;
+		fHasPendingChange= false;
+	}
+
+	private static boolean isBlank(String text) {
+		for (int i= 0; i < text.length(); i++) {
+			char ch= text.charAt(i);
+			if (ch != ' ' && ch != '\t')
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isPartitionDelimiter(char ch) {
+		return ch == '/' || ch == '*' || ch == '\\';
+	}
+}
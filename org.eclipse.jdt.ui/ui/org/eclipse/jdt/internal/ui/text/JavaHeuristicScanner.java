@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -62,6 +62,18 @@ public final class JavaHeuristicScanner implements Symbols {
 	private static final char PLUS= '+';
 	private static final char AT= '@';
 
+	/**
+	 * The minimal length of a document whose peer searches use the {@link JavaBracketIndex}.
+	 * @since 3.10
+	 */
+	private static final int MIN_INDEXED_LENGTH= 10000;
+	/**
+	 * The number of characters that peer searches scan before they use the
+	 * {@link JavaBracketIndex}.
+	 * @since 3.10
+	 */
+	private static final int LINEAR_PEER_SEARCH_LENGTH= 1000;
+
 	/**
 	 * Specifies the stop condition, upon which the <code>scanXXX</code> methods will decide whether
 	 * to keep scanning or not. This interface may implemented by clients.
@@ -556,6 +568,25 @@ public final class JavaHeuristicScanner implements Symbols {
 	public int findClosingPeer(int start, int bound, final char openingPeer, final char closingPeer) {
 		Assert.isLegal(start >= 0);
 
+		JavaBracketIndex index= getBracketIndex(openingPeer, closingPeer);
+		if (index != null) {
+			int end= bound == UNBOUND ? fDocument.getLength() : bound;
+			if (end - start > LINEAR_PEER_SEARCH_LENGTH) {
+				// most peers are close, only use the index for the remaining search
+				int peer= scanForClosingPeer(start, start + LINEAR_PEER_SEARCH_LENGTH, openingPeer, closingPeer);
+				if (peer != NOT_FOUND)
+					return peer;
+				try {
+					return index.findClosingPeer(fDocument, start, bound, openingPeer);
+				} catch (BadLocationException e) {
+					return NOT_FOUND;
+				}
+			}
+		}
+		return scanForClosingPeer(start, bound, openingPeer, closingPeer);
+	}
+
+	private int scanForClosingPeer(int start, int bound, final char openingPeer, final char closingPeer) {
 		try {
 			CharacterMatch match= new CharacterMatch(new char[] {openingPeer, closingPeer});
 			int depth= 1;
@@ -611,6 +642,25 @@ public final class JavaHeuristicScanner implements Symbols {
 	public int findOpeningPeer(int start, int bound, char openingPeer, char closingPeer) {
 		Assert.isLegal(start < fDocument.getLength());
 
+		JavaBracketIndex index= getBracketIndex(openingPeer, closingPeer);
+		if (index != null) {
+			int end= bound == UNBOUND ? -1 : bound;
+			if (start - end > LINEAR_PEER_SEARCH_LENGTH) {
+				// most peers are close, only use the index for the remaining search
+				int peer= scanForOpeningPeer(start, start - LINEAR_PEER_SEARCH_LENGTH, openingPeer, closingPeer);
+				if (peer != NOT_FOUND)
+					return peer;
+				try {
+					return index.findOpeningPeer(fDocument, start, bound, openingPeer);
+				} catch (BadLocationException e) {
+					return NOT_FOUND;
+				}
+			}
+		}
+		return scanForOpeningPeer(start, bound, openingPeer, closingPeer);
+	}
+
+	private int scanForOpeningPeer(int start, int bound, char openingPeer, char closingPeer) {
 		try {
 			final CharacterMatch match= new CharacterMatch(new char[] {openingPeer, closingPeer});
 			int depth= 1;
@@ -634,6 +684,22 @@ public final class JavaHeuristicScanner implements Symbols {
 		}
 	}
 
+	/**
+	 * Returns the bracket index of the document if it can answer peer searches of this scanner.
+	 *
+	 * @param openingPeer the opening peer character
+	 * @param closingPeer the closing peer character
+	 * @return the index, or <code>null</code> if the document is scanned
+	 * @since 3.10
+	 */
+	private JavaBracketIndex getBracketIndex(char openingPeer, char closingPeer) {
+		if (fDocument.getLength() < MIN_INDEXED_LENGTH || !JavaBracketIndex.isIndexed(openingPeer, closingPeer))
+			return null;
+		if (!IJavaPartitions.JAVA_PARTITIONING.equals(fPartitioning) || !IDocument.DEFAULT_CONTENT_TYPE.equals(fPartition))
+			return null;
+		return JavaBracketIndex.getIndex(fDocument);
+	}
+
 	/**
 	 * Computes the surrounding block around <code>offset</code>. The search is started at the
 	 * beginning of <code>offset</code>, i.e. an opening brace at <code>offset</code> will not be
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -1935,6 +1935,14 @@ public final class JavaIndenter {
 	 *         otherwise
 	 */
 	private boolean skipScope(int openToken, int closeToken) {
+		switch (openToken) {
+			case Symbols.TokenLPAREN:
+				return skipScope(openToken, '(', ')');
+			case Symbols.TokenLBRACKET:
+				return skipScope(openToken, '[', ']');
+			case Symbols.TokenLBRACE:
+				return skipScope(openToken, '{', '}');
+		}
 
 		int depth= 1;
 
@@ -1952,4 +1960,42 @@ public final class JavaIndenter {
 			}
 		}
 	}
+
+	/**
+	 * Skips the scope of a pair of peers and leaves the same state as scanning the tokens for
+	 * the opening peer would, but lets the heuristic scanner find the opening peer.
+	 *
+	 * @param openToken the opening peer token
+	 * @param openingPeer the opening peer character
+	 * @param closingPeer the closing peer character
+	 * @return <code>true</code> if a matching peer was found, <code>false</code>
+	 *         otherwise
+	 * @since 3.10
+	 */
+	private boolean skipScope(int openToken, char openingPeer, char closingPeer) {
+		int peer= fPosition > 0 ? fScanner.findOpeningPeer(fPosition - 1, openingPeer, closingPeer) : JavaHeuristicScanner.NOT_FOUND;
+		if (peer == JavaHeuristicScanner.NOT_FOUND) {
+			// the token scan ends on the first token of the document
+			int first= fScanner.findNonWhitespaceForward(0, fPosition);
+			if (first != JavaHeuristicScanner.NOT_FOUND)
+				fPreviousPos= first;
+			else
+				fPreviousPos= fPosition;
+			fToken= Symbols.TokenEOF;
+			fPosition= 0;
+			fLine= 0;
+			return false;
+		}
+
+		int next= fScanner.findNonWhitespaceForward(peer + 1, JavaHeuristicScanner.UNBOUND);
+		fToken= openToken;
+		fPreviousPos= next != JavaHeuristicScanner.NOT_FOUND ? next : peer + 1;
+		fPosition= peer;
+		try {
+			fLine= fDocument.getLineOfOffset(peer);
+		} catch (BadLocationException e) {
+			fLine= -1;
+		}
+		return true;
+	}
 }
@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.correction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.ISafeRunnable;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.ui.ISharedImages;
+
+import org.eclipse.jdt.ui.JavaUI;
+import org.eclipse.jdt.ui.text.java.IInvocationContext;
+import org.eclipse.jdt.ui.text.java.IJavaCompletionProposal;
+import org.eclipse.jdt.ui.text.java.IProblemLocation;
+import org.eclipse.jdt.ui.text.java.IQuickAssistProcessor;
+import org.eclipse.jdt.ui.text.java.IQuickFixProcessor;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+import org.eclipse.jdt.internal.ui.viewsupport.ImageRequests;
+
+/**
+ * Evaluates quick fix and quick assist processors concurrently against the AST of an
+ * invocation context.
+ * <p>
+ * Every {@link IConcurrentProcessor} is evaluated on a worker thread of its own, with all the
+ * problems it handles, since processors avoid duplicate proposals by looking at the proposals
+ * they have already collected. Other processors are evaluated one after the other on the
+ * calling thread. The processors are created and the AST of the context is computed on the
+ * calling thread before the evaluation starts. The images that the workers request from the
+ * image registries of JDT UI are created by the calling thread while it waits, see
+ * {@link ImageRequests}.
+ * </p>
+ * <p>
+ * The calling thread waits at most for the latency budget for the results of the concurrent
+ * evaluations. Proposals are collected in the order in which the sequential evaluation would
+ * compute them; the proposals of concurrent evaluations that are still running when the budget
+ * is spent are dropped. Those evaluations are interrupted, and the calling thread waits until
+ * they have stopped, so that no evaluation uses the AST after {@link #collect(Collection)}
+ * has returned.
+ * </p>
+ *
+ * @since 3.10
+ */
+public final class ConcurrentProposalCollector {
+
+	/**
+	 * The maximal number of threads that evaluate processors. Evaluations that find all workers
+	 * busy run on the calling thread.
+	 */
+	private static final int MAX_WORKERS= 16;
+
+	/**
+	 * The executor for the worker threads. Idle workers terminate after a while.
+	 */
+	private static ThreadPoolExecutor fgExecutor;
+
+	private final class Evaluation implements Callable<IJavaCompletionProposal[]>, ISafeRunnable {
+		private static final int NEW= 0;
+		private static final int RUNNING= 1;
+		private static final int DONE= 2;
+
+		private final ContributedProcessorDescriptor fDescriptor;
+		private final Object fProcessor;
+		private final IProblemLocation[] fLocations;
+		private final AtomicInteger fState= new AtomicInteger(NEW);
+		private volatile boolean fCanceled;
+		private IJavaCompletionProposal[] fResult;
+
+		public Evaluation(ContributedProcessorDescriptor descriptor, Object processor, IProblemLocation[] locations) {
+			fDescriptor= descriptor;
+			fProcessor= processor;
+			fLocations= locations;
+		}
+
+		private boolean isCorrection() {
+			return fProcessor instanceof IQuickFixProcessor;
+		}
+
+		private boolean isConcurrent() {
+			return fProcessor instanceof IConcurrentProcessor;
+		}
+
+		/*
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public IJavaCompletionProposal[] call() {
+			if (!fState.compareAndSet(NEW, RUNNING))
+				return null;
+			boolean forward= Thread.currentThread() != fCallingThread;
+			if (forward)
+				fImageRequests.install();
+			try {
+				long start= System.currentTimeMillis();
+				SafeRunner.run(this);
+				JavaCorrectionProcessor.recordRun(fDescriptor, isCorrection() ? JavaCorrectionProcessor.GET_CORRECTIONS : JavaCorrectionProcessor.GET_ASSISTS, System.currentTimeMillis() - start);
+				return fResult;
+			} finally {
+				if (forward)
+					fImageRequests.uninstall();
+				fState.set(DONE);
+				fImageRequests.wakeUp();
+			}
+		}
+
+		private boolean isDone() {
+			return fState.get() == DONE;
+		}
+
+		/**
+		 * Cancels the evaluation and interrupts it if it is running.
+		 *
+		 * @param future the future of the evaluation
+		 */
+		private void cancel(Future<IJavaCompletionProposal[]> future) {
+			fCanceled= true;
+			if (!fState.compareAndSet(NEW, DONE))
+				future.cancel(true);
+		}
+
+		/*
+		 * @see org.eclipse.core.runtime.ISafeRunnable#run()
+		 */
+		public void run() throws Exception {
+			if (isCorrection())
+				fResult= ((IQuickFixProcessor) fProcessor).getCorrections(fContext, fLocations);
+			else
+				fResult= ((IQuickAssistProcessor) fProcessor).getAssists(fContext, fLocations);
+		}
+
+		/*
+		 * @see org.eclipse.core.runtime.ISafeRunnable#handleException(java.lang.Throwable)
+		 */
+		public void handleException(Throwable exception) {
+			if (!fCanceled)
+				addException(isCorrection(), exception);
+		}
+	}
+
+	private final IInvocationContext fContext;
+	private final int fBudget;
+	private final List<Evaluation> fEvaluations= new ArrayList<Evaluation>();
+	private MultiStatus fCorrectionStatus;
+	private MultiStatus fAssistStatus;
+	private Thread fCallingThread;
+	private ImageRequests fImageRequests;
+
+	/**
+	 * Creates a collector.
+	 *
+	 * @param context the invocation context
+	 * @param budget the time in milliseconds to wait for the processors, a value that is not
+	 *            positive means no limit
+	 */
+	public ConcurrentProposalCollector(IInvocationContext context, int budget) {
+		fContext= context;
+		fBudget= budget;
+	}
+
+	/**
+	 * Adds the evaluations of the quick fix processors.
+	 *
+	 * @param locations the problem locations
+	 */
+	public void addCorrections(IProblemLocation[] locations) {
+		ContributedProcessorDescriptor[] descriptors= JavaCorrectionProcessor.getCorrectionProcessors();
+		for (int i= 0; i < descriptors.length; i++) {
+			ContributedProcessorDescriptor descriptor= descriptors[i];
+			IProblemLocation[] handled= JavaCorrectionProcessor.getHandledProblems(locations, descriptor);
+			if (handled == null)
+				continue;
+			Object processor= getProcessor(descriptor, IQuickFixProcessor.class);
+			if (processor != null)
+				fEvaluations.add(new Evaluation(descriptor, processor, handled));
+		}
+	}
+
+	/**
+	 * Adds the evaluations of the quick assist processors.
+	 *
+	 * @param locations the problem locations
+	 */
+	public void addAssists(IProblemLocation[] locations) {
+		ContributedProcessorDescriptor[] descriptors= JavaCorrectionProcessor.getAssistProcessors();
+		for (int i= 0; i < descriptors.length; i++) {
+			Object processor= getProcessor(descriptors[i], IQuickAssistProcessor.class);
+			if (processor != null)
+				fEvaluations.add(new Evaluation(descriptors[i], processor, locations));
+		}
+	}
+
+	private Object getProcessor(final ContributedProcessorDescriptor descriptor, final Class<?> expectedType) {
+		final Object[] result= new Object[1];
+		SafeRunner.run(new ISafeRunnable() {
+			public void run() throws Exception {
+				result[0]= descriptor.getProcessor(fContext.getCompilationUnit(), expectedType);
+			}
+
+			public void handleException(Throwable exception) {
+				addException(expectedType == IQuickFixProcessor.class, exception);
+			}
+		});
+		return result[0];
+	}
+
+	/**
+	 * Evaluates the processors and adds their proposals to the given collection.
+	 *
+	 * @param proposals the collection to add the proposals to
+	 */
+	public void collect(Collection<IJavaCompletionProposal> proposals) {
+		if (fEvaluations.isEmpty())
+			return;
+
+		// share the AST and the node finder with the workers
+		fContext.getASTRoot();
+		fContext.getCoveringNode();
+		fContext.getCoveredNode();
+		// create the shared images that are not taken from the image registries of JDT UI
+		JavaPlugin.getDefault().getWorkbench().getSharedImages().getImage(ISharedImages.IMG_TOOL_DELETE);
+
+		fCallingThread= Thread.currentThread();
+		fImageRequests= new ImageRequests();
+
+		// null for the evaluations on the calling thread
+		List<Future<IJavaCompletionProposal[]>> futures= new ArrayList<Future<IJavaCompletionProposal[]>>(fEvaluations.size());
+		long deadline= System.currentTimeMillis() + fBudget;
+		boolean interrupted= false;
+		try {
+			for (int i= 0; i < fEvaluations.size(); i++) {
+				Evaluation evaluation= fEvaluations.get(i);
+				futures.add(evaluation.isConcurrent() ? getExecutor().submit(evaluation) : null);
+			}
+
+			for (int i= 0; i < futures.size(); i++) {
+				Evaluation evaluation= fEvaluations.get(i);
+				Future<IJavaCompletionProposal[]> future= futures.get(i);
+				IJavaCompletionProposal[] result;
+				if (future == null) {
+					result= evaluation.call();
+				} else {
+					if (!await(evaluation, deadline))
+						continue;
+					try {
+						result= future.get();
+					} catch (ExecutionException e) {
+						// exceptions are handled by the safe runner
+						continue;
+					}
+				}
+				if (result != null) {
+					for (int k= 0; k < result.length; k++)
+						proposals.add(result[k]);
+				}
+			}
+		} catch (InterruptedException e) {
+			interrupted= true;
+		} finally {
+			for (int i= 0; i < futures.size(); i++) {
+				Future<IJavaCompletionProposal[]> future= futures.get(i);
+				if (future != null && !fEvaluations.get(i).isDone())
+					fEvaluations.get(i).cancel(future);
+			}
+			// canceled evaluations can still request images
+			for (int i= 0; i < fEvaluations.size(); i++) {
+				while (!fEvaluations.get(i).isDone()) {
+					try {
+						fImageRequests.runPending(0);
+					} catch (InterruptedException e) {
+						interrupted= true;
+					}
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits for a concurrent evaluation and runs the image requests of the workers meanwhile.
+	 *
+	 * @param evaluation the evaluation
+	 * @param deadline the time when the budget is spent
+	 * @return <code>true</code> if the evaluation is done, <code>false</code> if the budget has
+	 *         been spent
+	 * @throws InterruptedException if the calling thread has been interrupted
+	 */
+	private boolean await(Evaluation evaluation, long deadline) throws InterruptedException {
+		while (!evaluation.isDone()) {
+			long timeout= 0;
+			if (fBudget > 0) {
+				timeout= deadline - System.currentTimeMillis();
+				if (timeout <= 0)
+					return false;
+			}
+			fImageRequests.runPending(timeout);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the status of the quick fix processors.
+	 *
+	 * @return the status
+	 */
+	public synchronized IStatus getCorrectionStatus() {
+		return fCorrectionStatus != null ? fCorrectionStatus : Status.OK_STATUS;
+	}
+
+	/**
+	 * Returns the status of the quick assist processors.
+	 *
+	 * @return the status
+	 */
+	public synchronized IStatus getAssistStatus() {
+		return fAssistStatus != null ? fAssistStatus : Status.OK_STATUS;
+	}
+
+	private synchronized void addException(boolean isCorrection, Throwable exception) {
+		MultiStatus status= isCorrection ? fCorrectionStatus : fAssistStatus;
+		if (status == null) {
+			status= new MultiStatus(JavaUI.ID_PLUGIN, IStatus.OK, CorrectionMessages.JavaCorrectionProcessor_error_status, null);
+			if (isCorrection)
+				fCorrectionStatus= status;
+			else
+				fAssistStatus= status;
+		}
+		status.merge(new Status(IStatus.ERROR, JavaUI.ID_PLUGIN, IStatus.ERROR, CorrectionMessages.JavaCorrectionProcessor_error_status, exception));
+	}
+
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (fgExecutor == null) {
+			fgExecutor= new ThreadPoolExecutor(0, MAX_WORKERS, 30, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+				private int fCount= 0;
+
+				public synchronized Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "Quick fix worker " + ++fCount); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			}, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return fgExecutor;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -151,6 +151,16 @@ public final class ContributedProcessorDescriptor {
 		return null;
 	}
 
+	/**
+	 * Returns the id of the processor.
+	 *
+	 * @return the id of the processor
+	 * @since 3.10
+	 */
+	public String getId() {
+		return fConfigurationElement.getAttribute(ID);
+	}
+
 	public boolean canHandleMarkerType(String markerType) {
 		return fHandledMarkerTypes == null || fHandledMarkerTypes.contains(markerType);
 	}
@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.correction;
+
+/**
+ * A quick fix or quick assist processor that can be evaluated concurrently with other
+ * processors, see {@link ConcurrentProposalCollector}.
+ * <p>
+ * The processor must not modify shared state or the AST of the invocation context. It is
+ * called with the same context as other processors at the same time. Images must only be taken
+ * from {@link org.eclipse.jdt.internal.ui.JavaPluginImages}, the image descriptor registry of
+ * {@link org.eclipse.jdt.internal.ui.JavaPlugin} or the shared images of the workbench that are
+ * created by the collector; the requests to the image registries of JDT UI are forwarded to
+ * the calling thread. The evaluation is interrupted when it takes too long.
+ * </p>
+ *
+ * @since 3.10
+ */
+public interface IConcurrentProcessor {
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.PerformanceStats;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
@@ -51,6 +52,7 @@ import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.internal.corext.util.Messages;
 
 import org.eclipse.jdt.ui.JavaUI;
+import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.text.java.CompletionProposalComparator;
 import org.eclipse.jdt.ui.text.java.IInvocationContext;
 import org.eclipse.jdt.ui.text.java.IJavaCompletionProposal;
@@ -69,6 +71,24 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 	private static final String QUICKFIX_PROCESSOR_CONTRIBUTION_ID= "quickFixProcessors"; //$NON-NLS-1$
 	private static final String QUICKASSIST_PROCESSOR_CONTRIBUTION_ID= "quickAssistProcessors"; //$NON-NLS-1$
 
+	/**
+	 * The name of the performance event used to trace processors.
+	 * @since 3.10
+	 */
+	private static final String PERFORMANCE_EVENT= JavaPlugin.getPluginId() + "/perf/quickfix/processors"; //$NON-NLS-1$
+	/**
+	 * If <code>true</code>, execution time of processors is measured and the data forwarded to
+	 * core's {@link PerformanceStats} service.
+	 * @since 3.10
+	 */
+	private static final boolean MEASURE_PERFORMANCE= PerformanceStats.isEnabled(PERFORMANCE_EVENT);
+
+	/* performance event contexts */
+	static final String GET_CORRECTIONS= "getCorrections()"; //$NON-NLS-1$
+	static final String GET_ASSISTS= "getAssists()"; //$NON-NLS-1$
+	private static final String HAS_CORRECTIONS= "hasCorrections()"; //$NON-NLS-1$
+	private static final String HAS_ASSISTS= "hasAssists()"; //$NON-NLS-1$
+
 	private static ContributedProcessorDescriptor[] fgContributedAssistProcessors= null;
 	private static ContributedProcessorDescriptor[] fgContributedCorrectionProcessors= null;
 
@@ -88,14 +108,14 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		return res.toArray(new ContributedProcessorDescriptor[res.size()]);
 	}
 
-	private static ContributedProcessorDescriptor[] getCorrectionProcessors() {
+	static ContributedProcessorDescriptor[] getCorrectionProcessors() {
 		if (fgContributedCorrectionProcessors == null) {
 			fgContributedCorrectionProcessors= getProcessorDescriptors(QUICKFIX_PROCESSOR_CONTRIBUTION_ID, true);
 		}
 		return fgContributedCorrectionProcessors;
 	}
 
-	private static ContributedProcessorDescriptor[] getAssistProcessors() {
+	static ContributedProcessorDescriptor[] getAssistProcessors() {
 		if (fgContributedAssistProcessors == null) {
 			fgContributedAssistProcessors= getProcessorDescriptors(QUICKASSIST_PROCESSOR_CONTRIBUTION_ID, false);
 		}
@@ -276,21 +296,32 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		MultiStatus resStatus= null;
 
 		IProblemLocation[] problemLocations= problems.toArray(new IProblemLocation[problems.size()]);
-		if (addQuickFixes) {
-			IStatus status= collectCorrections(context, problemLocations, proposals);
-			if (!status.isOK()) {
-				resStatus= new MultiStatus(JavaUI.ID_PLUGIN, IStatus.ERROR, CorrectionMessages.JavaCorrectionProcessor_error_quickfix_message, null);
-				resStatus.add(status);
-			}
-		}
-		if (addQuickAssists) {
-			IStatus status= collectAssists(context, problemLocations, proposals);
-			if (!status.isOK()) {
-				if (resStatus == null) {
-					resStatus= new MultiStatus(JavaUI.ID_PLUGIN, IStatus.ERROR, CorrectionMessages.JavaCorrectionProcessor_error_quickassist_message, null);
-				}
-				resStatus.add(status);
+		IStatus correctionStatus= Status.OK_STATUS;
+		IStatus assistStatus= Status.OK_STATUS;
+		if ((addQuickFixes || addQuickAssists) && PreferenceConstants.getPreferenceStore().getBoolean(PreferenceConstants.EDITOR_QUICKFIX_CONCURRENT)) {
+			ConcurrentProposalCollector collector= new ConcurrentProposalCollector(context, PreferenceConstants.getPreferenceStore().getInt(PreferenceConstants.EDITOR_QUICKFIX_LATENCY_BUDGET));
+			if (addQuickFixes)
+				collector.addCorrections(problemLocations);
+			if (addQuickAssists)
+				collector.addAssists(problemLocations);
+			collector.collect(proposals);
+			correctionStatus= collector.getCorrectionStatus();
+			assistStatus= collector.getAssistStatus();
+		} else {
+			if (addQuickFixes)
+				correctionStatus= collectCorrections(context, problemLocations, proposals);
+			if (addQuickAssists)
+				assistStatus= collectAssists(context, problemLocations, proposals);
+		}
+		if (!correctionStatus.isOK()) {
+			resStatus= new MultiStatus(JavaUI.ID_PLUGIN, IStatus.ERROR, CorrectionMessages.JavaCorrectionProcessor_error_quickfix_message, null);
+			resStatus.add(correctionStatus);
+		}
+		if (!assistStatus.isOK()) {
+			if (resStatus == null) {
+				resStatus= new MultiStatus(JavaUI.ID_PLUGIN, IStatus.ERROR, CorrectionMessages.JavaCorrectionProcessor_error_quickassist_message, null);
 			}
+			resStatus.add(assistStatus);
 		}
 		if (resStatus != null) {
 			return resStatus;
@@ -319,10 +350,28 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		}
 	}
 
+	/**
+	 * Records the time that a processor took to compute its proposals.
+	 *
+	 * @param descriptor the processor descriptor
+	 * @param operation the processor method
+	 * @param elapsed the time in milliseconds
+	 * @since 3.10
+	 */
+	static void recordRun(ContributedProcessorDescriptor descriptor, String operation, long elapsed) {
+		if (MEASURE_PERFORMANCE)
+			PerformanceStats.getStats(PERFORMANCE_EVENT, descriptor.getId()).addRun(elapsed, operation);
+	}
+
 	private static abstract class SafeCorrectionProcessorAccess implements ISafeRunnable {
+		private final String fOperation;
 		private MultiStatus fMulti= null;
 		private ContributedProcessorDescriptor fDescriptor;
 
+		protected SafeCorrectionProcessorAccess(String operation) {
+			fOperation= operation;
+		}
+
 		public void process(ContributedProcessorDescriptor[] desc) {
 			for (int i= 0; i < desc.length; i++) {
 				fDescriptor= desc[i];
@@ -336,7 +385,13 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		}
 
 		public void run() throws Exception {
-			safeRun(fDescriptor);
+			long start= MEASURE_PERFORMANCE ? System.currentTimeMillis() : 0;
+			try {
+				safeRun(fDescriptor);
+			} finally {
+				if (MEASURE_PERFORMANCE)
+					recordRun(fDescriptor, fOperation, System.currentTimeMillis() - start);
+			}
 		}
 
 		protected abstract void safeRun(ContributedProcessorDescriptor processor) throws Exception;
@@ -363,6 +418,7 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		private IProblemLocation[] fLocations;
 
 		public SafeCorrectionCollector(IInvocationContext context, Collection<IJavaCompletionProposal> proposals) {
+			super(GET_CORRECTIONS);
 			fContext= context;
 			fProposals= proposals;
 		}
@@ -391,6 +447,7 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		private final Collection<IJavaCompletionProposal> fProposals;
 
 		public SafeAssistCollector(IInvocationContext context, IProblemLocation[] locations, Collection<IJavaCompletionProposal> proposals) {
+			super(GET_ASSISTS);
 			fContext= context;
 			fLocations= locations;
 			fProposals= proposals;
@@ -415,6 +472,7 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		private boolean fHasAssists;
 
 		public SafeHasAssist(IInvocationContext context) {
+			super(HAS_ASSISTS);
 			fContext= context;
 			fHasAssists= false;
 		}
@@ -438,6 +496,7 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		private boolean fHasCorrections;
 
 		public SafeHasCorrections(ICompilationUnit cu, int problemId) {
+			super(HAS_CORRECTIONS);
 			fCu= cu;
 			fProblemId= problemId;
 			fHasCorrections= false;
@@ -471,7 +530,7 @@ public class JavaCorrectionProcessor implements org.eclipse.jface.text.quickassi
 		return collector.getStatus();
 	}
 
-	private static IProblemLocation[] getHandledProblems(IProblemLocation[] locations, ContributedProcessorDescriptor processor) {
+	static IProblemLocation[] getHandledProblems(IProblemLocation[] locations, ContributedProcessorDescriptor processor) {
 		// implementation tries to avoid creating a new array
 		boolean allHandled= true;
 		ArrayList<IProblemLocation> res= null;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -43,7 +43,7 @@ import org.eclipse.jdt.internal.ui.text.correction.proposals.TaskMarkerProposal;
 
 /**
   */
-public class QuickFixProcessor implements IQuickFixProcessor {
+public class QuickFixProcessor implements IQuickFixProcessor, IConcurrentProcessor {
 
 
 	public boolean hasCorrections(ICompilationUnit cu, int problemId) {
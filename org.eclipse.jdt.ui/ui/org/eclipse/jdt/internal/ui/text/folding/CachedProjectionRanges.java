@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.folding;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+
+/**
+ * The projection ranges of a source reference, relative to its source range. The ranges only
+ * depend on the length of the source range and on the text in front of the first token, so they
+ * stay valid as long as both are unchanged.
+ *
+ * @since 3.10
+ */
+public final class CachedProjectionRanges {
+
+	/**
+	 * Returns the cached ranges that can be reused after the given delta. A fine-grained delta
+	 * lists the members that have changed their structure, so the ranges of all other members
+	 * are kept. Any other delta discards all ranges.
+	 *
+	 * @param delta the delta of the compilation unit or class file
+	 * @param ranges the cached ranges of the last update, by element
+	 * @return the ranges that can be reused, by element
+	 */
+	public static Map<IJavaElement, CachedProjectionRanges> getReusableRanges(IJavaElementDelta delta, Map<IJavaElement, CachedProjectionRanges> ranges) {
+		if ((delta.getFlags() & IJavaElementDelta.F_FINE_GRAINED) == 0)
+			return Collections.emptyMap();
+
+		Map<IJavaElement, CachedProjectionRanges> result= new HashMap<IJavaElement, CachedProjectionRanges>(ranges);
+		removeChangedElements(delta.getAffectedChildren(), result);
+		return result;
+	}
+
+	private static void removeChangedElements(IJavaElementDelta[] deltas, Map<IJavaElement, CachedProjectionRanges> ranges) {
+		for (int i= 0; i < deltas.length; i++) {
+			ranges.remove(deltas[i].getElement());
+			removeChangedElements(deltas[i].getAffectedChildren(), ranges);
+		}
+	}
+
+	private final int fLength;
+	private final char[] fPrefix;
+	private final IRegion[] fRegions;
+
+	/**
+	 * Creates the cached ranges of a source reference.
+	 *
+	 * @param source the source of the compilation unit
+	 * @param offset the offset of the source range
+	 * @param length the length of the source range
+	 * @param prefixLength the length of the text the ranges depend on, from the offset of the
+	 *            source range
+	 * @param regions the projection ranges, relative to the source
+	 */
+	public CachedProjectionRanges(char[] source, int offset, int length, int prefixLength, IRegion[] regions) {
+		fLength= length;
+		fPrefix= new char[prefixLength];
+		System.arraycopy(source, offset, fPrefix, 0, prefixLength);
+		fRegions= new IRegion[regions.length];
+		for (int i= 0; i < regions.length; i++)
+			fRegions[i]= new Region(regions[i].getOffset() - offset, regions[i].getLength());
+	}
+
+	/**
+	 * Tells whether the ranges are still valid for the given source range.
+	 *
+	 * @param source the source of the compilation unit
+	 * @param offset the offset of the source range
+	 * @param length the length of the source range
+	 * @return <code>true</code> if the ranges can be reused
+	 */
+	public boolean isValid(char[] source, int offset, int length) {
+		if (fLength != length || offset + fPrefix.length > source.length)
+			return false;
+		for (int i= 0; i < fPrefix.length; i++) {
+			if (fPrefix[i] != source[offset + i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the projection ranges for a source range at the given offset.
+	 *
+	 * @param offset the offset of the source range
+	 * @return the projection ranges, relative to the source
+	 */
+	public IRegion[] getRegions(int offset) {
+		IRegion[] result= new IRegion[fRegions.length];
+		for (int i= 0; i < fRegions.length; i++)
+			result[i]= new Region(fRegions[i].getOffset() + offset, fRegions[i].getLength());
+		return result;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,9 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.text.java;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -28,18 +28,11 @@ import java.util.Set;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -68,11 +61,22 @@ import org.eclipse.jdt.internal.ui.JavaUIStatus;
 public final class ContentAssistHistory {
 	/**
 	 * Persistence implementation.
+	 * <p>
+	 * The history is stored in a line-oriented format: a header line with the format version,
+	 * a line with the maximum number of left and right hand sides, and then a line per left hand
+	 * side followed by a tab-indented line per right hand side. Histories stored as XML by
+	 * previous releases are still read.
+	 * </p>
 	 *
 	 * @since 3.2
 	 */
 	private static final class ReaderWriter {
 
+		private static final String HEADER= "#history 1"; //$NON-NLS-1$
+		private static final char SEPARATOR= ',';
+		private static final char RHS_PREFIX= '\t';
+		private static final char LINE_DELIMITER= '\n';
+
 		private static final String NODE_ROOT= "history"; //$NON-NLS-1$
 		private static final String NODE_LHS= "lhs"; //$NON-NLS-1$
 		private static final String NODE_RHS= "rhs"; //$NON-NLS-1$
@@ -80,43 +84,53 @@ public final class ContentAssistHistory {
 		private static final String ATTRIBUTE_MAX_LHS= "maxLHS"; //$NON-NLS-1$
 		private static final String ATTRIBUTE_MAX_RHS= "maxRHS"; //$NON-NLS-1$
 
-		public void store(ContentAssistHistory history, StreamResult result) throws CoreException {
+		public String store(ContentAssistHistory history) {
+			StringBuffer buffer= new StringBuffer(history.fLHSCache.size() * 128);
+			buffer.append(HEADER).append(LINE_DELIMITER);
+			buffer.append(history.fMaxLHS).append(SEPARATOR).append(history.fMaxRHS).append(LINE_DELIMITER);
+			for (Iterator<Entry<String, MRUSet<String>>> leftHandSides= history.fLHSCache.entrySet().iterator(); leftHandSides.hasNext();) {
+				Entry<String, MRUSet<String>> entry= leftHandSides.next();
+				buffer.append(entry.getKey()).append(LINE_DELIMITER);
+				for (Iterator<String> rhsIterator= entry.getValue().iterator(); rhsIterator.hasNext();)
+					buffer.append(RHS_PREFIX).append(rhsIterator.next()).append(LINE_DELIMITER);
+			}
+			return buffer.toString();
+		}
+
+		public ContentAssistHistory load(String value) throws CoreException {
+			if (value.charAt(0) == '<')
+				return load(new InputSource(new StringReader(value)));
+
 			try {
-				DocumentBuilderFactory factory= DocumentBuilderFactory.newInstance();
-				DocumentBuilder builder= factory.newDocumentBuilder();
-				Document document= builder.newDocument();
-
-				Element rootElement = document.createElement(NODE_ROOT);
-				rootElement.setAttribute(ATTRIBUTE_MAX_LHS, Integer.toString(history.fMaxLHS));
-				rootElement.setAttribute(ATTRIBUTE_MAX_RHS, Integer.toString(history.fMaxRHS));
-				document.appendChild(rootElement);
-
-				for (Iterator<String> leftHandSides= history.fLHSCache.keySet().iterator(); leftHandSides.hasNext();) {
-					String lhs= leftHandSides.next();
-					Element lhsElement= document.createElement(NODE_LHS);
-					lhsElement.setAttribute(ATTRIBUTE_NAME, lhs);
-					rootElement.appendChild(lhsElement);
-
-					MRUSet<String> rightHandSides= history.fLHSCache.get(lhs);
-					for (Iterator<String> rhsIterator= rightHandSides.iterator(); rhsIterator.hasNext();) {
-						String rhs= rhsIterator.next();
-						Element rhsElement= document.createElement(NODE_RHS);
-						rhsElement.setAttribute(ATTRIBUTE_NAME, rhs);
-						lhsElement.appendChild(rhsElement);
+				BufferedReader reader= new BufferedReader(new StringReader(value));
+				if (!HEADER.equals(reader.readLine()))
+					return null;
+
+				String limits= reader.readLine();
+				if (limits == null)
+					return null;
+				int separator= limits.indexOf(SEPARATOR);
+				if (separator == -1)
+					return null;
+				int maxLHS= parseNaturalInt(limits.substring(0, separator), DEFAULT_TRACKED_LHS);
+				int maxRHS= parseNaturalInt(limits.substring(separator + 1), DEFAULT_TRACKED_RHS);
+
+				ContentAssistHistory history= new ContentAssistHistory(maxLHS, maxRHS);
+				Set<String> cache= null;
+				String line;
+				while ((line= reader.readLine()) != null) {
+					if (line.length() == 0)
+						continue;
+					if (line.charAt(0) == RHS_PREFIX) {
+						if (cache != null)
+							cache.add(line.substring(1));
+					} else {
+						cache= history.getCache(line);
 					}
 				}
-
-				Transformer transformer=TransformerFactory.newInstance().newTransformer();
-				transformer.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
-				transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8"); //$NON-NLS-1$
-				transformer.setOutputProperty(OutputKeys.INDENT, "no"); //$NON-NLS-1$
-				DOMSource source = new DOMSource(document);
-
-				transformer.transform(source, result);
-			} catch (TransformerException e) {
-				throw createException(e, JavaTextMessages.ContentAssistHistory_serialize_error);
-			} catch (ParserConfigurationException e) {
-				throw createException(e, JavaTextMessages.ContentAssistHistory_serialize_error);
+				return history;
+			} catch (IOException e) {
+				throw createException(e, JavaTextMessages.ContentAssistHistory_deserialize_error);
 			}
 		}
 
@@ -456,22 +470,20 @@ public final class ContentAssistHistory {
 	}
 
 	/**
-	 * Stores the history as XML document into the given preferences.
+	 * Stores the history into the given preferences.
 	 *
 	 * @param history the history to store
 	 * @param preferences the preferences to store the history into
 	 * @param key the key under which to store the history
-	 * @throws CoreException if serialization fails
 	 * @see #load(Preferences, String) on how to restore a history stored by this method
 	 */
-	public static void store(ContentAssistHistory history, Preferences preferences, String key) throws CoreException {
-		StringWriter writer= new StringWriter();
-		new ReaderWriter().store(history, new StreamResult(writer));
-		preferences.setValue(key, writer.toString());
+	public static void store(ContentAssistHistory history, Preferences preferences, String key) {
+		preferences.setValue(key, new ReaderWriter().store(history));
 	}
 
 	/**
-	 * Loads a history from an XML encoded preference value.
+	 * Loads a history from a preference value. Both the current format and the XML format of
+	 * previous releases are read.
 	 *
 	 * @param preferences the preferences to retrieve the history from
 	 * @param key the key under which the history is stored
@@ -484,7 +496,7 @@ public final class ContentAssistHistory {
 	public static ContentAssistHistory load(Preferences preferences, String key) throws CoreException {
 		String value= preferences.getString(key);
 		if (value != null && value.length() > 0) {
-			return new ReaderWriter().load(new InputSource(new StringReader(value)));
+			return new ReaderWriter().load(value);
 		}
 		return null;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ final class JavaHoverMessages extends NLS {
 	public static String JavadocHover_back;
 	public static String JavadocHover_back_toElement_toolTip;
 	public static String JavadocHover_constantValue_hexValue;
+	public static String JavadocHover_fetchingJavadoc;
 	public static String JavadocHover_forward;
 	public static String JavadocHover_forward_toElement_toolTip;
 	public static String JavadocHover_forward_toolTip;
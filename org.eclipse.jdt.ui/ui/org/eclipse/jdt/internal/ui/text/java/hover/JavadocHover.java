@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,17 +18,25 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.osgi.framework.Bundle;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.graphics.FontData;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.core.resources.IFile;
 
@@ -270,6 +278,164 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 	}
 
 
+	/**
+	 * Listener that is notified when the Javadoc of a pending input has been computed.
+	 *
+	 * @since 3.10
+	 */
+	public static interface IPendingInputListener {
+
+		/**
+		 * Called when the Javadoc of a pending input has been computed.
+		 *
+		 * @param pendingInput the pending input
+		 * @param completeInput the complete input, or an input that explains why the Javadoc is
+		 *            missing
+		 */
+		void update(PendingJavadocInput pendingInput, JavadocBrowserInformationControlInput completeInput);
+	}
+
+	/**
+	 * Hover input that shows the header of a member while its Javadoc is computed by a job. The
+	 * controls that show the input when the job is done get the complete input.
+	 *
+	 * @since 3.10
+	 */
+	public static final class PendingJavadocInput extends JavadocBrowserInformationControlInput {
+
+		private final ITypeRoot fEditorInputElement;
+		private final IRegion fHoverRegion;
+		private final List<IPendingInputListener> fListeners= new ArrayList<IPendingInputListener>();
+		private Job fJob;
+		private JavadocBrowserInformationControlInput fCompleteInput;
+
+		public PendingJavadocInput(JavadocBrowserInformationControlInput previous, IJavaElement element, String html, int leadingImageWidth, ITypeRoot editorInputElement, IRegion hoverRegion) {
+			super(previous, element, html, leadingImageWidth);
+			fEditorInputElement= editorInputElement;
+			fHoverRegion= hoverRegion;
+		}
+
+		/**
+		 * Replaces this input with the complete input once it is computed.
+		 *
+		 * @param listener the listener of the control that shows this input
+		 */
+		public synchronized void complete(IPendingInputListener listener) {
+			if (fCompleteInput != null) {
+				listener.update(this, fCompleteInput);
+				return;
+			}
+			fListeners.add(listener);
+			if (fJob == null) {
+				fJob= new Job(JavaHoverMessages.JavadocHover_fetchingJavadoc) {
+					@Override
+					protected IStatus run(IProgressMonitor monitor) {
+						JavadocBrowserInformationControlInput previous= (JavadocBrowserInformationControlInput) getPrevious();
+						JavadocBrowserInformationControlInput input= null;
+						String failure= ""; //$NON-NLS-1$
+						try {
+							input= getHoverInfo(new IJavaElement[] { getElement() }, fEditorInputElement, fHoverRegion, previous, false);
+						} catch (RuntimeException e) {
+							failure= JavaDocLocations.handleFailedJavadocFetch(new CoreException(new Status(IStatus.ERROR, JavaPlugin.getPluginId(), e.getMessage(), e)));
+						} finally {
+							if (input != null)
+								completed(input, true);
+							else
+								completed(createFailedInput(failure), false);
+						}
+						return Status.OK_STATUS;
+					}
+				};
+				fJob.setSystem(true);
+				fJob.setPriority(Job.SHORT);
+				fJob.schedule();
+			}
+		}
+
+		/**
+		 * Shows the given input in the controls that wait for this input.
+		 *
+		 * @param input the complete input or the input that explains the failure
+		 * @param success <code>true</code> if the input is complete, <code>false</code> if the
+		 *            Javadoc is fetched again for the next control
+		 */
+		private void completed(JavadocBrowserInformationControlInput input, boolean success) {
+			IPendingInputListener[] listeners;
+			synchronized (this) {
+				if (success)
+					fCompleteInput= input;
+				fJob= null;
+				listeners= fListeners.toArray(new IPendingInputListener[fListeners.size()]);
+				fListeners.clear();
+			}
+			for (int i= 0; i < listeners.length; i++)
+				listeners[i].update(this, input);
+		}
+
+		/**
+		 * Returns an input with the header of this input and the given explanation instead of
+		 * the Javadoc.
+		 *
+		 * @param explanation the HTML that explains why the Javadoc is missing
+		 * @return the input
+		 */
+		private JavadocBrowserInformationControlInput createFailedInput(String explanation) {
+			String html= getHtml().replace(JavaHoverMessages.JavadocHover_fetchingJavadoc, explanation);
+			return new JavadocBrowserInformationControlInput((JavadocBrowserInformationControlInput) getPrevious(), getElement(), html, getLeadingImageWidth());
+		}
+	}
+
+	/**
+	 * Completes the pending inputs of a browser information control.
+	 *
+	 * @since 3.10
+	 */
+	private static final class PendingInputListener implements IInputChangedListener, DisposeListener, IPendingInputListener {
+
+		private final BrowserInformationControl fControl;
+		private Display fDisplay;
+		private boolean fDisposed;
+
+		public PendingInputListener(BrowserInformationControl control) {
+			fControl= control;
+			control.addInputChangeListener(this);
+			control.addDisposeListener(this);
+		}
+
+		/*
+		 * @see org.eclipse.jface.text.IInputChangedListener#inputChanged(java.lang.Object)
+		 */
+		public void inputChanged(Object newInput) {
+			if (newInput instanceof PendingJavadocInput) {
+				fDisplay= Display.getCurrent();
+				((PendingJavadocInput) newInput).complete(this);
+			}
+		}
+
+		/*
+		 * @see org.eclipse.swt.events.DisposeListener#widgetDisposed(org.eclipse.swt.events.DisposeEvent)
+		 */
+		public void widgetDisposed(DisposeEvent e) {
+			fDisposed= true;
+		}
+
+		/*
+		 * Shows the complete input if the control still shows the pending input.
+		 * @see org.eclipse.jdt.internal.ui.text.java.hover.JavadocHover.IPendingInputListener#update(org.eclipse.jdt.internal.ui.text.java.hover.JavadocHover.PendingJavadocInput, org.eclipse.jdt.internal.ui.text.java.hover.JavadocBrowserInformationControlInput)
+		 */
+		public void update(final PendingJavadocInput pendingInput, final JavadocBrowserInformationControlInput completeInput) {
+			Display display= fDisplay;
+			if (display == null || display.isDisposed())
+				return;
+			display.asyncExec(new Runnable() {
+				public void run() {
+					if (!fDisposed && fControl.getInput() == pendingInput)
+						fControl.setInput(completeInput);
+				}
+			});
+		}
+	}
+
 	/**
 	 * Presenter control creator.
 	 *
@@ -343,6 +509,7 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 				tbm.update(true);
 
 				addLinkListener(iControl);
+				new PendingInputListener(iControl);
 				return iControl;
 
 			} else {
@@ -404,6 +571,7 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 					}
 				};
 				addLinkListener(iControl);
+				new PendingInputListener(iControl);
 				return iControl;
 			} else {
 				return new DefaultInformationControl(parent, tooltipAffordanceString);
@@ -592,7 +760,7 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 	 */
 	@Deprecated
 	public String getHoverInfo(ITextViewer textViewer, IRegion hoverRegion) {
-		JavadocBrowserInformationControlInput info= (JavadocBrowserInformationControlInput) getHoverInfo2(textViewer, hoverRegion);
+		JavadocBrowserInformationControlInput info= internalGetHoverInfo(textViewer, hoverRegion, false);
 		return info != null ? info.getHtml() : null;
 	}
 
@@ -601,15 +769,15 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 	 */
 	@Override
 	public Object getHoverInfo2(ITextViewer textViewer, IRegion hoverRegion) {
-		return internalGetHoverInfo(textViewer, hoverRegion);
+		return internalGetHoverInfo(textViewer, hoverRegion, true);
 	}
 
-	private JavadocBrowserInformationControlInput internalGetHoverInfo(ITextViewer textViewer, IRegion hoverRegion) {
+	private JavadocBrowserInformationControlInput internalGetHoverInfo(ITextViewer textViewer, IRegion hoverRegion, boolean progressive) {
 		IJavaElement[] elements= getJavaElementsAt(textViewer, hoverRegion);
 		if (elements == null || elements.length == 0)
 			return null;
 
-		return getHoverInfo(elements, getEditorInputJavaElement(), hoverRegion, null);
+		return getHoverInfo(elements, getEditorInputJavaElement(), hoverRegion, null, progressive);
 	}
 
 	/**
@@ -654,8 +822,26 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 	 * @since 3.4
 	 */
 	public static JavadocBrowserInformationControlInput getHoverInfo(IJavaElement[] elements, ITypeRoot editorInputElement, IRegion hoverRegion, JavadocBrowserInformationControlInput previousInput) {
+		return getHoverInfo(elements, editorInputElement, hoverRegion, previousInput, false);
+	}
+
+	/**
+	 * Computes the hover info.
+	 *
+	 * @param elements the resolved elements
+	 * @param editorInputElement the editor input, or <code>null</code>
+	 * @param hoverRegion the text range of the hovered word, or <code>null</code>
+	 * @param previousInput the previous input, or <code>null</code>
+	 * @param progressive <code>true</code> to return a pending input with the header of a member
+	 *            if its Javadoc cannot be computed quickly, see
+	 *            {@link JavadocContentAccess2#isHTMLContentCached(IMember)}
+	 * @return the HTML hover info for the given element(s) or <code>null</code> if no information is available
+	 * @since 3.10
+	 */
+	private static JavadocBrowserInformationControlInput getHoverInfo(IJavaElement[] elements, ITypeRoot editorInputElement, IRegion hoverRegion, JavadocBrowserInformationControlInput previousInput, boolean progressive) {
 		StringBuffer buffer= new StringBuffer();
 		boolean hasContents= false;
+		boolean isPending= false;
 		String base= null;
 		IJavaElement element= null;
 		int leadingImageWidth= 0;
@@ -690,18 +876,23 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 				addAnnotations(buffer, element, editorInputElement, hoverRegion);
 				Reader reader= null;
 				try {
-					String content= element instanceof IMember
-							? JavadocContentAccess2.getHTMLContent((IMember) element, true)
-							: JavadocContentAccess2.getHTMLContent((IPackageFragment) element);
-					IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
-					boolean isBinary= root.exists() && root.getKind() == IPackageFragmentRoot.K_BINARY;
-					if (content != null) {
-						base= JavaDocLocations.getBaseURL(element, isBinary);
-						reader= new StringReader(content);
+					if (progressive && element instanceof IMember && !JavadocContentAccess2.isHTMLContentCached((IMember) element)) {
+						isPending= true;
+						reader= new StringReader(JavaHoverMessages.JavadocHover_fetchingJavadoc);
 					} else {
-						String explanationForMissingJavadoc= JavaDocLocations.getExplanationForMissingJavadoc(element, root);
-						if (explanationForMissingJavadoc != null)
-							reader= new StringReader(explanationForMissingJavadoc);
+						String content= element instanceof IMember
+								? JavadocContentAccess2.getHTMLContent((IMember) element, true)
+								: JavadocContentAccess2.getHTMLContent((IPackageFragment) element);
+						IPackageFragmentRoot root= (IPackageFragmentRoot) element.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+						boolean isBinary= root.exists() && root.getKind() == IPackageFragmentRoot.K_BINARY;
+						if (content != null) {
+							base= JavaDocLocations.getBaseURL(element, isBinary);
+							reader= new StringReader(content);
+						} else {
+							String explanationForMissingJavadoc= JavaDocLocations.getExplanationForMissingJavadoc(element, root);
+							if (explanationForMissingJavadoc != null)
+								reader= new StringReader(explanationForMissingJavadoc);
+						}
 					}
 				} catch (CoreException ex) {
 					reader= new StringReader(JavaDocLocations.handleFailedJavadocFetch(ex));
@@ -731,6 +922,8 @@ public class JavadocHover extends AbstractJavaEditorTextHover {
 				buffer.insert(endHeadIdx, "\n<base href='" + base + "'>\n"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 			HTMLPrinter.addPageEpilog(buffer);
+			if (isPending)
+				return new PendingJavadocInput(previousInput, element, buffer.toString(), leadingImageWidth, editorInputElement, hoverRegion);
 			return new JavadocBrowserInformationControlInput(previousInput, element, buffer.toString(), leadingImageWidth);
 		}
 
@@ -0,0 +1,394 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.javadoc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.URIUtil;
+
+import org.eclipse.core.resources.IResource;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMember;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaModelException;
+
+import org.eclipse.jdt.internal.corext.javadoc.JavaDocLocations;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+
+/**
+ * Persistent cache of the attached Javadoc of the members of binary libraries.
+ * <p>
+ * Fetching attached Javadoc reads and parses the HTML page of the declaring type, often from an
+ * archive or a remote location. The fragments extracted for the members are kept in one file per
+ * library and Javadoc location in the state location of the plug-in. A file is only used while
+ * the modification stamps of the library and of the Javadoc archive are the ones it was written
+ * for. Members without attached Javadoc are remembered as well; failed fetches are not.
+ * </p>
+ * <p>
+ * The stamps of remote locations and of Javadoc folders do not tell whether the pages have
+ * changed, since a folder is not modified when a file in it is edited. The Javadoc from these
+ * locations is fetched again when its file is older than {@link #MAX_UNVERIFIED_AGE}.
+ * </p>
+ *
+ * @since 3.10
+ */
+public final class AttachedJavadocCache {
+
+	/** The folder of the cache files in the state location */
+	private static final String CACHE_FOLDER= "attachedJavadoc"; //$NON-NLS-1$
+
+	/** The file magic */
+	private static final int MAGIC= 0x4A44414A;
+
+	/** The file format version */
+	private static final int VERSION= 2;
+
+	/** Canonical name for UTF-8 encoding */
+	private static final String UTF_8= "UTF-8"; //$NON-NLS-1$
+
+	/** The maximal number of members cached per library */
+	private static final int MAX_MEMBERS= 2000;
+
+	/** The archive stamp of remote locations and folders */
+	public static final long UNKNOWN_STAMP= 0;
+
+	/** The time in milliseconds after which Javadoc with an unknown archive stamp is fetched again */
+	public static final long MAX_UNVERIFIED_AGE= 7 * 24 * 60 * 60 * 1000L;
+
+	/**
+	 * The cached Javadoc of one library for one Javadoc location. Access is guarded by the
+	 * {@link AttachedJavadocCache} class.
+	 */
+	public static final class Library {
+		private final File fFile;
+		private final String fPath;
+		private final String fLocation;
+		private final long fLibraryStamp;
+		private final long fArchiveStamp;
+		private long fCreated;
+		/** The Javadoc by member key, the empty string if a member has no Javadoc */
+		private final Map<String, String> fJavadoc= new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID= 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > MAX_MEMBERS;
+			}
+		};
+		private boolean fDirty;
+
+		/**
+		 * Creates an empty library.
+		 *
+		 * @param file the cache file
+		 * @param path the portable path of the library
+		 * @param location the Javadoc location
+		 * @param libraryStamp the modification stamp of the library
+		 * @param archiveStamp the modification stamp of the Javadoc archive, or
+		 *            {@link AttachedJavadocCache#UNKNOWN_STAMP}
+		 * @param now the current time in milliseconds
+		 */
+		public Library(File file, String path, String location, long libraryStamp, long archiveStamp, long now) {
+			fFile= file;
+			fPath= path;
+			fLocation= location;
+			fLibraryStamp= libraryStamp;
+			fArchiveStamp= archiveStamp;
+			fCreated= now;
+		}
+
+		/**
+		 * Tells whether the cached Javadoc can be used for the given stamps.
+		 *
+		 * @param libraryStamp the modification stamp of the library
+		 * @param archiveStamp the modification stamp of the Javadoc archive
+		 * @param now the current time in milliseconds
+		 * @return <code>true</code> if the stamps are unchanged and the Javadoc is not too old
+		 */
+		public boolean isValid(long libraryStamp, long archiveStamp, long now) {
+			if (fLibraryStamp != libraryStamp || fArchiveStamp != archiveStamp)
+				return false;
+			return archiveStamp != UNKNOWN_STAMP || now - fCreated < MAX_UNVERIFIED_AGE;
+		}
+
+		/**
+		 * Tells whether the Javadoc of a member is cached.
+		 *
+		 * @param key the member key
+		 * @return <code>true</code> if the Javadoc or its absence is cached
+		 */
+		public boolean contains(String key) {
+			return fJavadoc.containsKey(key);
+		}
+
+		/**
+		 * Returns the cached Javadoc of a member.
+		 *
+		 * @param key the member key
+		 * @return the Javadoc, or <code>null</code> if the member has no Javadoc or is not cached
+		 */
+		public String get(String key) {
+			String javadoc= fJavadoc.get(key);
+			return javadoc == null || javadoc.length() == 0 ? null : javadoc;
+		}
+
+		/**
+		 * Caches the Javadoc of a member.
+		 *
+		 * @param key the member key
+		 * @param javadoc the Javadoc, or <code>null</code> if the member has no Javadoc
+		 */
+		public void put(String key, String javadoc) {
+			fJavadoc.put(key, javadoc == null ? "" : javadoc); //$NON-NLS-1$
+			fDirty= true;
+		}
+
+		/**
+		 * Reads the cache file if it has been written for the stamps of this library and is
+		 * not too old.
+		 *
+		 * @throws IOException if the file cannot be read
+		 */
+		public void load() throws IOException {
+			if (!fFile.isFile())
+				return;
+
+			DataInputStream input= new DataInputStream(new BufferedInputStream(new FileInputStream(fFile), 64 * 1024));
+			try {
+				if (input.readInt() != MAGIC || input.readInt() != VERSION)
+					return;
+				if (!fPath.equals(input.readUTF()) || !fLocation.equals(input.readUTF()) || fLibraryStamp != input.readLong() || fArchiveStamp != input.readLong())
+					return;
+				long created= input.readLong();
+				if (fArchiveStamp == UNKNOWN_STAMP && fCreated - created >= MAX_UNVERIFIED_AGE)
+					return;
+				fCreated= created;
+				int count= input.readInt();
+				for (int i= 0; i < count; i++) {
+					String key= input.readUTF();
+					byte[] javadoc= new byte[input.readInt()];
+					input.readFully(javadoc);
+					fJavadoc.put(key, new String(javadoc, UTF_8));
+				}
+			} finally {
+				input.close();
+			}
+		}
+
+		/**
+		 * Writes the cache file.
+		 *
+		 * @throws IOException if the file cannot be written
+		 */
+		public void save() throws IOException {
+			fFile.getParentFile().mkdirs();
+			DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fFile), 64 * 1024));
+			try {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeUTF(fPath);
+				output.writeUTF(fLocation);
+				output.writeLong(fLibraryStamp);
+				output.writeLong(fArchiveStamp);
+				output.writeLong(fCreated);
+				output.writeInt(fJavadoc.size());
+				for (Iterator<Map.Entry<String, String>> iter= fJavadoc.entrySet().iterator(); iter.hasNext();) {
+					Map.Entry<String, String> entry= iter.next();
+					output.writeUTF(entry.getKey());
+					byte[] javadoc= entry.getValue().getBytes(UTF_8);
+					output.writeInt(javadoc.length);
+					output.write(javadoc);
+				}
+			} finally {
+				output.close();
+			}
+			fDirty= false;
+		}
+	}
+
+	/** The loaded libraries by cache file name */
+	private static final Map<String, Library> fgLibraries= new HashMap<String, Library>();
+
+	private AttachedJavadocCache() {
+	}
+
+	/**
+	 * Returns the attached Javadoc of a member, see {@link IMember#getAttachedJavadoc(org.eclipse.core.runtime.IProgressMonitor)}.
+	 *
+	 * @param member the member of a binary library
+	 * @return the attached Javadoc, or <code>null</code> if the member has no attached Javadoc
+	 * @throws JavaModelException if the attached Javadoc could not be fetched
+	 */
+	public static String getAttachedJavadoc(IMember member) throws JavaModelException {
+		Library library= getLibrary(member);
+		if (library == null)
+			return member.getAttachedJavadoc(null);
+
+		String key= getMemberKey(member);
+		synchronized (AttachedJavadocCache.class) {
+			if (library.contains(key))
+				return library.get(key);
+		}
+
+		String javadoc= member.getAttachedJavadoc(null);
+		synchronized (AttachedJavadocCache.class) {
+			library.put(key, javadoc);
+		}
+		return javadoc;
+	}
+
+	/**
+	 * Tells whether the attached Javadoc of a member is in the cache.
+	 *
+	 * @param member the member of a binary library
+	 * @return <code>true</code> if {@link #getAttachedJavadoc(IMember)} answers from the cache
+	 *         or without a Javadoc location to fetch from
+	 */
+	public static boolean isCached(IMember member) {
+		try {
+			Library library= getLibrary(member);
+			if (library == null)
+				return JavaDocLocations.getJavadocBaseLocation(member) == null;
+			synchronized (AttachedJavadocCache.class) {
+				return library.contains(getMemberKey(member));
+			}
+		} catch (JavaModelException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the changed libraries to the state location.
+	 */
+	public static void shutdown() {
+		List<Library> dirty= new ArrayList<Library>();
+		synchronized (AttachedJavadocCache.class) {
+			for (Iterator<Library> iter= fgLibraries.values().iterator(); iter.hasNext();) {
+				Library library= iter.next();
+				if (library.fDirty)
+					dirty.add(library);
+			}
+			for (int i= 0; i < dirty.size(); i++) {
+				try {
+					dirty.get(i).save();
+				} catch (IOException e) {
+					JavaPlugin.log(e);
+				}
+			}
+			fgLibraries.clear();
+		}
+	}
+
+	private static String getMemberKey(IMember member) {
+		IPackageFragmentRoot root= (IPackageFragmentRoot) member.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		return member.getHandleIdentifier().substring(root.getHandleIdentifier().length());
+	}
+
+	/**
+	 * Returns the cached library of a member, loading it if necessary.
+	 *
+	 * @param member the member
+	 * @return the library, or <code>null</code> if the attached Javadoc of the member is not
+	 *         cached
+	 * @throws JavaModelException if the Javadoc location cannot be accessed
+	 */
+	private static Library getLibrary(IMember member) throws JavaModelException {
+		IPackageFragmentRoot root= (IPackageFragmentRoot) member.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+		if (root == null || root.getKind() != IPackageFragmentRoot.K_BINARY)
+			return null;
+		File libraryFile= getFile(root);
+		URL location= JavaDocLocations.getJavadocBaseLocation(member);
+		if (libraryFile == null || location == null)
+			return null;
+
+		String path= root.getPath().toPortableString();
+		String locationString= location.toExternalForm();
+		String name= Integer.toHexString(path.hashCode()) + Integer.toHexString(locationString.hashCode()) + ".dat"; //$NON-NLS-1$
+		long libraryStamp= libraryFile.lastModified();
+		long archiveStamp= getArchiveStamp(location);
+		long now= System.currentTimeMillis();
+
+		synchronized (AttachedJavadocCache.class) {
+			Library library= fgLibraries.get(name);
+			if (library != null && library.fPath.equals(path) && library.fLocation.equals(locationString) && library.isValid(libraryStamp, archiveStamp, now))
+				return library;
+
+			File file= JavaPlugin.getDefault().getStateLocation().append(CACHE_FOLDER).append(name).toFile();
+			library= new Library(file, path, locationString, libraryStamp, archiveStamp, now);
+			try {
+				library.load();
+			} catch (IOException e) {
+				// the library is fetched again
+				library.fJavadoc.clear();
+			}
+			fgLibraries.put(name, library);
+			return library;
+		}
+	}
+
+	private static File getFile(IPackageFragmentRoot root) {
+		IPath path;
+		if (root.isExternal()) {
+			path= root.getPath();
+		} else {
+			IResource resource= root.getResource();
+			path= resource != null ? resource.getLocation() : null;
+		}
+		return path != null ? path.toFile() : null;
+	}
+
+	/**
+	 * Returns the modification stamp of the archive of a Javadoc location.
+	 *
+	 * @param location the Javadoc location
+	 * @return the modification stamp, or {@link #UNKNOWN_STAMP} for a remote location or a
+	 *         folder
+	 */
+	private static long getArchiveStamp(URL location) {
+		String spec= location.toExternalForm();
+		if (spec.startsWith("jar:")) { //$NON-NLS-1$
+			int end= spec.indexOf("!/"); //$NON-NLS-1$
+			spec= spec.substring(4, end != -1 ? end : spec.length());
+		}
+		try {
+			URL url= new URL(spec);
+			if ("file".equals(url.getProtocol())) { //$NON-NLS-1$
+				File file= URIUtil.toFile(URIUtil.toURI(url));
+				if (file != null && file.isFile())
+					return file.lastModified();
+			}
+		} catch (IOException e) {
+			// remote location
+		} catch (URISyntaxException e) {
+			// remote location
+		}
+		return UNKNOWN_STAMP;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -496,7 +496,7 @@ public class JavadocContentAccess2 {
 		if (sourceJavadoc == null || sourceJavadoc.length() == 0 || sourceJavadoc.trim().equals("{@inheritDoc}")) { //$NON-NLS-1$
 			if (useAttachedJavadoc) {
 				if (member.getOpenable().getBuffer() == null) { // only if no source available
-					return member.getAttachedJavadoc(null);
+					return AttachedJavadocCache.getAttachedJavadoc(member);
 				}
 				if (canInheritJavadoc(member)) {
 					IMethod method= (IMethod) member;
@@ -517,6 +517,24 @@ public class JavadocContentAccess2 {
 		return sourceJavadoc;
 	}
 
+	/**
+	 * Tells whether {@link #getHTMLContent(IMember, boolean)} can compute the content of a member
+	 * without fetching attached Javadoc that is not cached and without computing the type hierarchy
+	 * of the declaring type to look up inherited Javadoc.
+	 *
+	 * @param member the member to get the Javadoc of
+	 * @return <code>true</code> if the content can be computed quickly
+	 * @throws JavaModelException is thrown when the element's source cannot be accessed
+	 * @since 3.10
+	 */
+	public static boolean isHTMLContentCached(IMember member) throws JavaModelException {
+		if (member.getOpenable().getBuffer() == null)
+			return AttachedJavadocCache.isCached(member);
+		if (!canInheritJavadoc(member))
+			return true;
+		return SuperTypeHierarchyCache.hasInCache(((IMethod) member).getDeclaringType());
+	}
+
 	private static StringBuffer createSuperMethodReferences(final IMethod method) throws JavaModelException {
 		IType type= method.getDeclaringType();
 		ITypeHierarchy hierarchy= SuperTypeHierarchyCache.getTypeHierarchy(type);
@@ -739,7 +757,7 @@ public class JavadocContentAccess2 {
 				if (overridden.getOpenable().getBuffer() == null) { // only if no source available
 					//TODO: BaseURL for method can be wrong for attached Javadoc from overridden
 					// (e.g. when overridden is from rt.jar). Fix would be to add baseURL here.
-					String attachedJavadoc= overridden.getAttachedJavadoc(null);
+					String attachedJavadoc= AttachedJavadocCache.getAttachedJavadoc(overridden);
 					if (attachedJavadoc != null)
 						return attachedJavadoc;
 				}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,16 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.text.spelling;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.core.runtime.AssertionFailedException;
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -25,6 +35,8 @@ import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.text.IJavaPartitions;
 
 import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellEvent;
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellEventListener;
 
 
 /**
@@ -34,6 +46,50 @@ import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker;
  */
 public class JavaSpellingEngine extends SpellingEngine {
 
+	/**
+	 * Spell event listener that collects the events of a slice of partitions checked on a
+	 * worker thread, to be reported on the calling thread.
+	 *
+	 * @since 3.10
+	 */
+	private static class SpellEventCollector implements ISpellEventListener {
+
+		private final List<ISpellEvent> fEvents= new ArrayList<ISpellEvent>();
+
+		/*
+		 * @see org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellEventListener#handle(org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellEvent)
+		 */
+		public void handle(ISpellEvent event) {
+			fEvents.add(event);
+		}
+	}
+
+	/**
+	 * The minimal total length of the partitions to check before they are checked
+	 * concurrently.
+	 * @since 3.10
+	 */
+	private static final int MIN_CONCURRENT_LENGTH= 16 * 1024;
+
+	/**
+	 * The minimal length of the partitions checked by one thread.
+	 * @since 3.10
+	 */
+	private static final int MIN_SLICE_LENGTH= 4 * 1024;
+
+	/**
+	 * The maximal number of threads that check partitions concurrently.
+	 * @since 3.10
+	 */
+	private static final int MAX_PARALLELISM= Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The executor for the worker threads. Idle workers terminate after a while, and slices
+	 * that find all workers busy are checked by the calling thread.
+	 * @since 3.10
+	 */
+	private static ThreadPoolExecutor fgExecutor;
+
 
 	/*
 	 * @see org.eclipse.jdt.internal.ui.text.spelling.SpellingEngine#check(org.eclipse.jface.text.IDocument, org.eclipse.jface.text.IRegion[], org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker, org.eclipse.ui.texteditor.spelling.ISpellingProblemCollector, org.eclipse.core.runtime.IProgressMonitor)
@@ -43,30 +99,128 @@ public class JavaSpellingEngine extends SpellingEngine {
 		SpellEventListener listener= new SpellEventListener(collector, document);
 		boolean isIgnoringJavaStrings= PreferenceConstants.getPreferenceStore().getBoolean(PreferenceConstants.SPELLING_IGNORE_JAVA_STRINGS);
 		try {
+			List<ITypedRegion> checked= new ArrayList<ITypedRegion>();
+			int length= 0;
 			for (int i= 0; i < regions.length; i++) {
 				IRegion region= regions[i];
 				ITypedRegion[] partitions= TextUtilities.computePartitioning(document, IJavaPartitions.JAVA_PARTITIONING, region.getOffset(), region.getLength(), false);
 				for (int index= 0; index < partitions.length; index++) {
-					if (monitor != null && monitor.isCanceled())
-						return;
-
-					if (listener.isProblemsThresholdReached())
-						return;
-
 					ITypedRegion partition= partitions[index];
 					final String type= partition.getType();
 
 					if (isIgnoringJavaStrings && type.equals(IJavaPartitions.JAVA_STRING))
 						continue;
 
-					if (!type.equals(IDocument.DEFAULT_CONTENT_TYPE) && !type.equals(IJavaPartitions.JAVA_CHARACTER))
-						checker.execute(listener, new SpellCheckIterator(document, partition, checker.getLocale()));
+					if (!type.equals(IDocument.DEFAULT_CONTENT_TYPE) && !type.equals(IJavaPartitions.JAVA_CHARACTER)) {
+						checked.add(partition);
+						length+= partition.getLength();
+					}
 				}
 			}
+
+			int parallelism= Math.min(Math.min(MAX_PARALLELISM, checked.size()), length / MIN_SLICE_LENGTH);
+			if (length >= MIN_CONCURRENT_LENGTH && parallelism > 1) {
+				checkConcurrently(document, checked, length, parallelism, checker, listener, monitor);
+				return;
+			}
+
+			for (int index= 0, n= checked.size(); index < n; index++) {
+				if (monitor != null && monitor.isCanceled())
+					return;
+
+				if (listener.isProblemsThresholdReached())
+					return;
+
+				checker.execute(listener, new SpellCheckIterator(document, checked.get(index), checker.getLocale()));
+			}
 		} catch (BadLocationException x) {
 			// ignore: the document has been changed in another thread and will be checked again
 		} catch (AssertionFailedException x) {
 			// ignore: the document has been changed in another thread and will be checked again
 		}
 	}
+
+	/**
+	 * Checks the given partitions in <code>parallelism</code> slices of consecutive partitions
+	 * of about equal length. The spell events are reported to the listener on the calling
+	 * thread, in the order of the partitions.
+	 *
+	 * @param document the document
+	 * @param partitions the partitions to check
+	 * @param length the total length of the partitions
+	 * @param parallelism the number of slices
+	 * @param checker the spell checker
+	 * @param listener the listener to report the spell events to
+	 * @param monitor the progress monitor, can be <code>null</code>
+	 * @since 3.10
+	 */
+	private void checkConcurrently(IDocument document, List<ITypedRegion> partitions, int length, int parallelism, ISpellChecker checker, SpellEventListener listener, IProgressMonitor monitor) {
+		List<Future<List<ISpellEvent>>> futures= new ArrayList<Future<List<ISpellEvent>>>(parallelism);
+		int sliceLength= (length + parallelism - 1) / parallelism;
+		int start= 0;
+		try {
+			while (start < partitions.size()) {
+				int end= start;
+				int current= 0;
+				while (end < partitions.size() && current < sliceLength)
+					current+= partitions.get(end++).getLength();
+				futures.add(getExecutor().submit(createSliceChecker(document, partitions.subList(start, end), checker, monitor)));
+				start= end;
+			}
+
+			for (int i= 0; i < futures.size(); i++) {
+				List<ISpellEvent> events;
+				try {
+					events= futures.get(i).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (ExecutionException e) {
+					Throwable cause= e.getCause();
+					if (cause instanceof RuntimeException && !(cause instanceof AssertionFailedException))
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					// ignore: the document has been changed in another thread and will be checked again
+					return;
+				}
+				for (int index= 0, n= events.size(); index < n && !listener.isProblemsThresholdReached(); index++)
+					listener.handle(events.get(index));
+				if (listener.isProblemsThresholdReached() || monitor != null && monitor.isCanceled())
+					return;
+			}
+		} finally {
+			for (int i= 0; i < futures.size(); i++)
+				futures.get(i).cancel(false);
+		}
+	}
+
+	private static Callable<List<ISpellEvent>> createSliceChecker(final IDocument document, final List<ITypedRegion> partitions, final ISpellChecker checker, final IProgressMonitor monitor) {
+		return new Callable<List<ISpellEvent>>() {
+			public List<ISpellEvent> call() throws Exception {
+				SpellEventCollector collector= new SpellEventCollector();
+				for (int index= 0, n= partitions.size(); index < n; index++) {
+					if (monitor != null && monitor.isCanceled())
+						break;
+					checker.execute(collector, new SpellCheckIterator(document, partitions.get(index), checker.getLocale()));
+				}
+				return collector.fEvents;
+			}
+		};
+	}
+
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (fgExecutor == null) {
+			fgExecutor= new ThreadPoolExecutor(0, MAX_PARALLELISM, 30, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+				private int fCount= 0;
+
+				public synchronized Thread newThread(Runnable runnable) {
+					Thread thread= new Thread(runnable, "Spelling worker " + ++fCount); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			}, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return fgExecutor;
+	}
 }
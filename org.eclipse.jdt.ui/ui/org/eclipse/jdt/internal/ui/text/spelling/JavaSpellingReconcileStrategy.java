@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,12 +10,21 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.text.spelling;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.content.IContentType;
 
+import org.eclipse.jface.preference.IPreferenceStore;
+
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.TextUtilities;
 import org.eclipse.jface.text.source.IAnnotationModel;
 import org.eclipse.jface.text.source.ISourceViewer;
 
@@ -34,6 +43,11 @@ import org.eclipse.jdt.core.IProblemRequestor;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.compiler.IProblem;
 
+import org.eclipse.jdt.ui.PreferenceConstants;
+import org.eclipse.jdt.ui.text.IJavaPartitions;
+
+import org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker;
+
 
 /**
  * Reconcile strategy for spell checking comments.
@@ -44,8 +58,37 @@ public class JavaSpellingReconcileStrategy extends SpellingReconcileStrategy {
 
 
 	/**
-	 * Spelling problem collector that forwards {@link SpellingProblem}s as
-	 * {@link IProblem}s to the {@link IProblemRequestor}.
+	 * A spelling problem found by the last spell check. Its offset is updated when the
+	 * document changes in front of it.
+	 *
+	 * @since 3.10
+	 */
+	private static class CheckedProblem {
+
+		int fOffset;
+		final int fLength;
+		final String fMessage;
+		final boolean fDictionaryMatch;
+		final boolean fSentenceStart;
+
+		CheckedProblem(SpellingProblem problem) {
+			fOffset= problem.getOffset();
+			fLength= problem.getLength();
+			fMessage= problem.getMessage();
+			if (problem instanceof JavaSpellingProblem) {
+				fDictionaryMatch= ((JavaSpellingProblem) problem).isDictionaryMatch();
+				fSentenceStart= ((JavaSpellingProblem) problem).isSentenceStart();
+			} else {
+				fDictionaryMatch= false;
+				fSentenceStart= false;
+			}
+		}
+	}
+
+	/**
+	 * Spelling problem collector that collects the {@link SpellingProblem}s of a spell check,
+	 * to be forwarded as {@link IProblem}s to the {@link IProblemRequestor} together with the
+	 * problems of the unchanged regions.
 	 */
 	private class SpellingProblemCollector implements ISpellingProblemCollector {
 
@@ -53,43 +96,20 @@ public class JavaSpellingReconcileStrategy extends SpellingReconcileStrategy {
 		 * @see org.eclipse.ui.texteditor.spelling.ISpellingProblemCollector#accept(org.eclipse.ui.texteditor.spelling.SpellingProblem)
 		 */
 		public void accept(SpellingProblem problem) {
-			IProblemRequestor requestor= fRequestor;
-			if (requestor != null) {
-				try {
-					int line= getDocument().getLineOfOffset(problem.getOffset()) + 1;
-					String word= getDocument().get(problem.getOffset(), problem.getLength());
-					boolean dictionaryMatch= false;
-					boolean sentenceStart= false;
-					if (problem instanceof JavaSpellingProblem) {
-						dictionaryMatch= ((JavaSpellingProblem)problem).isDictionaryMatch();
-						sentenceStart= ((JavaSpellingProblem) problem).isSentenceStart();
-					}
-					// see https://bugs.eclipse.org/bugs/show_bug.cgi?id=81514
-					IEditorInput editorInput= fEditor.getEditorInput();
-					if (editorInput != null) {
-						CoreSpellingProblem iProblem= new CoreSpellingProblem(problem.getOffset(), problem.getOffset() + problem.getLength() - 1, line, problem.getMessage(), word, dictionaryMatch, sentenceStart, getDocument(), editorInput.getName());
-						requestor.acceptProblem(iProblem);
-					}
-				} catch (BadLocationException x) {
-					// drop this SpellingProblem
-				}
-			}
+			fCollected.add(new CheckedProblem(problem));
 		}
 
 		/*
 		 * @see org.eclipse.ui.texteditor.spelling.ISpellingProblemCollector#beginCollecting()
 		 */
 		public void beginCollecting() {
-			if (fRequestor != null)
-				fRequestor.beginReporting();
+			fCollected.clear();
 		}
 
 		/*
 		 * @see org.eclipse.ui.texteditor.spelling.ISpellingProblemCollector#endCollecting()
 		 */
 		public void endCollecting() {
-			if (fRequestor != null)
-				fRequestor.endReporting();
 		}
 	}
 
@@ -106,6 +126,32 @@ public class JavaSpellingReconcileStrategy extends SpellingReconcileStrategy {
 	/** The problem requester. */
 	private IProblemRequestor fRequestor;
 
+	/**
+	 * The problems collected by the current spell check.
+	 * @since 3.10
+	 */
+	private final List<CheckedProblem> fCollected= new ArrayList<CheckedProblem>();
+
+	/**
+	 * The problems of the whole document found by the previous reconcile, in ascending
+	 * order of their offsets, or <code>null</code> if the next reconcile has to check the
+	 * whole document.
+	 * @since 3.10
+	 */
+	private List<CheckedProblem> fProblems;
+
+	/**
+	 * The content of the document the {@link #fProblems} have been found in.
+	 * @since 3.10
+	 */
+	private String fContent;
+
+	/**
+	 * The spell checker and preferences the {@link #fProblems} have been found with.
+	 * @since 3.10
+	 */
+	private String fConfiguration;
+
 
 	/**
 	 * Creates a new comment reconcile strategy.
@@ -123,8 +169,237 @@ public class JavaSpellingReconcileStrategy extends SpellingReconcileStrategy {
 	 */
 	@Override
 	public void reconcile(IRegion region) {
-		if (fRequestor != null && isSpellingEnabled())
+		if (fRequestor == null || !isSpellingEnabled())
+			return;
+
+		fCollected.clear();
+		IDocument document= getDocument();
+		if (region.getOffset() != 0 || region.getLength() != document.getLength() || !(document instanceof IDocumentExtension4)) {
+			fProblems= null;
+			fContent= null;
 			super.reconcile(region);
+			report(fCollected);
+			return;
+		}
+
+		IDocumentExtension4 extension= (IDocumentExtension4) document;
+		long stamp= extension.getModificationStamp();
+		String content= document.get();
+		String configuration= computeConfiguration();
+
+		List<CheckedProblem> problems= fProblems;
+		IRegion dirtyRegion= null;
+		if (problems != null && configuration.equals(fConfiguration))
+			dirtyRegion= computeDirtyRegion(document, fContent, content, problems);
+
+		fProblems= null;
+		fContent= null;
+		if (dirtyRegion == null) {
+			super.reconcile(region);
+			problems= new ArrayList<CheckedProblem>(fCollected);
+		} else if (dirtyRegion.getLength() > 0) {
+			super.reconcile(dirtyRegion);
+			merge(problems, dirtyRegion, fCollected);
+		}
+
+		int threshold= PreferenceConstants.getPreferenceStore().getInt(PreferenceConstants.SPELLING_PROBLEMS_THRESHOLD);
+		if (problems.size() >= threshold) {
+			// problems beyond the threshold are not known
+			problems= problems.subList(0, threshold);
+		} else if (extension.getModificationStamp() == stamp) {
+			// otherwise the check may have been canceled by the change
+			fProblems= problems;
+			fContent= content;
+			fConfiguration= configuration;
+		}
+		report(problems);
+	}
+
+	/**
+	 * Computes the region that has to be checked again after the document content has
+	 * changed, and updates the offsets of the given problems outside of it.
+	 *
+	 * @param document the document
+	 * @param oldContent the content of the document the problems have been found in
+	 * @param newContent the current content of the document
+	 * @param problems the problems found in the old content, updated in place
+	 * @return the region consisting of the partitions that have changed, or
+	 *         <code>null</code> if the whole document has to be checked again
+	 * @since 3.10
+	 */
+	private static IRegion computeDirtyRegion(IDocument document, String oldContent, String newContent, List<CheckedProblem> problems) {
+		int oldLength= oldContent.length();
+		int newLength= newContent.length();
+		int prefix= 0;
+		int common= Math.min(oldLength, newLength);
+		while (prefix < common && oldContent.charAt(prefix) == newContent.charAt(prefix))
+			prefix++;
+		if (prefix == oldLength && prefix == newLength)
+			return new Region(0, 0);
+
+		int suffix= 0;
+		common-= prefix;
+		while (suffix < common && oldContent.charAt(oldLength - suffix - 1) == newContent.charAt(newLength - suffix - 1))
+			suffix++;
+
+		int oldEnd= oldLength - suffix;
+		int newEnd= newLength - suffix;
+		try {
+			// edits that can change the partitioning require a full check
+			boolean isMultiLineComment= false;
+			ITypedRegion partition= TextUtilities.getPartition(document, IJavaPartitions.JAVA_PARTITIONING, prefix, false);
+			if (partition.getOffset() + partition.getLength() >= newEnd) {
+				String type= partition.getType();
+				isMultiLineComment= IJavaPartitions.JAVA_DOC.equals(type) || IJavaPartitions.JAVA_MULTI_LINE_COMMENT.equals(type);
+			}
+			if (changesPartitioning(oldContent, prefix, oldEnd, isMultiLineComment) || changesPartitioning(newContent, prefix, newEnd, isMultiLineComment))
+				return null;
+
+			ITypedRegion first= TextUtilities.getPartition(document, IJavaPartitions.JAVA_PARTITIONING, prefix, false);
+			ITypedRegion last= TextUtilities.getPartition(document, IJavaPartitions.JAVA_PARTITIONING, newEnd, false);
+			int start= Math.min(first.getOffset(), prefix);
+			int end= Math.max(last.getOffset() + last.getLength(), newEnd);
+
+			// problems in the dirty region are checked again, the ones behind it are shifted
+			int delta= newLength - oldLength;
+			for (int i= problems.size() - 1; i >= 0; i--) {
+				CheckedProblem problem= problems.get(i);
+				if (problem.fOffset + problem.fLength < prefix)
+					break;
+				if (problem.fOffset > oldEnd)
+					problem.fOffset+= delta;
+				else
+					problem.fOffset= start;
+			}
+			return new Region(start, end - start);
+		} catch (BadLocationException e) {
+			// the document has been changed in another thread
+			return null;
+		}
+	}
+
+	/**
+	 * Tells whether replacing the given text range can change the partitioning of the
+	 * document, i.e. whether it contains or separates comment delimiters, or contains quotes,
+	 * escapes or line delimiters outside of a multi-line comment.
+	 *
+	 * @param content the text
+	 * @param start the start offset of the range
+	 * @param end the end offset of the range
+	 * @param isMultiLineComment <code>true</code> if the range is inside a multi-line comment
+	 * @return <code>true</code> if the partitioning may change
+	 * @since 3.10
+	 */
+	private static boolean changesPartitioning(String content, int start, int end, boolean isMultiLineComment) {
+		if (start == end)
+			return start > 0 && end < content.length() && isCommentDelimiter(content.charAt(start - 1)) && isCommentDelimiter(content.charAt(end));
+
+		for (int i= start; i < end; i++) {
+			switch (content.charAt(i)) {
+				case '/':
+				case '*':
+					if (i > 0 && isCommentDelimiter(content.charAt(i - 1)) || i + 1 < content.length() && isCommentDelimiter(content.charAt(i + 1)))
+						return true;
+					break;
+				case '"':
+				case '\'':
+				case '\\':
+				case '\n':
+				case '\r':
+					if (!isMultiLineComment)
+						return true;
+					break;
+				default:
+					break;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isCommentDelimiter(char character) {
+		return character == '/' || character == '*';
+	}
+
+	/**
+	 * Replaces the problems in the given region by the problems found by checking it again.
+	 *
+	 * @param problems the problems of the whole document, ordered by offset
+	 * @param region the region that has been checked again
+	 * @param checked the problems found in the region, ordered by offset
+	 * @since 3.10
+	 */
+	private static void merge(List<CheckedProblem> problems, IRegion region, List<CheckedProblem> checked) {
+		int start= region.getOffset();
+		int end= start + region.getLength();
+		int from= 0;
+		while (from < problems.size() && problems.get(from).fOffset < start)
+			from++;
+		int to= from;
+		while (to < problems.size() && problems.get(to).fOffset < end)
+			to++;
+		problems.subList(from, to).clear();
+		problems.addAll(from, checked);
+	}
+
+	/**
+	 * Computes a description of the spell checker and the preferences that determine the
+	 * spelling problems found in a document.
+	 *
+	 * @return the configuration
+	 * @since 3.10
+	 */
+	private static String computeConfiguration() {
+		StringBuffer buffer= new StringBuffer();
+		buffer.append(EditorsUI.getPreferenceStore().getString(SpellingService.PREFERENCE_SPELLING_ENGINE));
+		try {
+			ISpellChecker checker= SpellCheckEngine.getInstance().getSpellChecker();
+			if (checker != null) {
+				buffer.append(' ').append(checker.getLocale());
+				buffer.append(' ').append(System.identityHashCode(checker));
+				buffer.append(' ').append(checker.getModificationStamp());
+			}
+		} catch (IllegalStateException e) {
+			// the spell checker has been shut down
+		}
+		IPreferenceStore store= PreferenceConstants.getPreferenceStore();
+		String[] preferences= { PreferenceConstants.SPELLING_IGNORE_DIGITS, PreferenceConstants.SPELLING_IGNORE_MIXED, PreferenceConstants.SPELLING_IGNORE_SENTENCE,
+				PreferenceConstants.SPELLING_IGNORE_UPPER, PreferenceConstants.SPELLING_IGNORE_URLS, PreferenceConstants.SPELLING_IGNORE_NON_LETTERS,
+				PreferenceConstants.SPELLING_IGNORE_SINGLE_LETTERS, PreferenceConstants.SPELLING_IGNORE_JAVA_STRINGS };
+		for (int i= 0; i < preferences.length; i++)
+			buffer.append(store.getBoolean(preferences[i]) ? '1' : '0');
+		return buffer.toString();
+	}
+
+	/**
+	 * Reports the given problems to the problem requestor, replacing the previously reported
+	 * spelling problems.
+	 *
+	 * @param problems the spelling problems
+	 * @since 3.10
+	 */
+	private void report(List<CheckedProblem> problems) {
+		IProblemRequestor requestor= fRequestor;
+		if (requestor == null)
+			return;
+
+		IDocument document= getDocument();
+		// see https://bugs.eclipse.org/bugs/show_bug.cgi?id=81514
+		IEditorInput editorInput= fEditor.getEditorInput();
+		requestor.beginReporting();
+		try {
+			for (int i= 0, n= problems.size(); editorInput != null && i < n; i++) {
+				CheckedProblem problem= problems.get(i);
+				try {
+					int line= document.getLineOfOffset(problem.fOffset) + 1;
+					String word= document.get(problem.fOffset, problem.fLength);
+					requestor.acceptProblem(new CoreSpellingProblem(problem.fOffset, problem.fOffset + problem.fLength - 1, line, problem.fMessage, word, problem.fDictionaryMatch, problem.fSentenceStart, document, editorInput.getName()));
+				} catch (BadLocationException x) {
+					// drop this SpellingProblem
+				}
+			}
+		} finally {
+			requestor.endReporting();
+		}
 	}
 
 	private boolean isSpellingEnabled() {
@@ -156,6 +431,8 @@ public class JavaSpellingReconcileStrategy extends SpellingReconcileStrategy {
 	public void setDocument(IDocument document) {
 		super.setDocument(document);
 		updateProblemRequester();
+		fProblems= null;
+		fContent= null;
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
 package org.eclipse.jdt.internal.ui.text.spelling.engine;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -18,17 +19,22 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.MalformedInputException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -122,6 +128,41 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	/** The phonetic distance algorithm */
 	private IPhoneticDistanceAlgorithm fDistanceAlgorithm= new DefaultPhoneticDistanceAlgorithm();
 
+	/**
+	 * The maximum number of candidates considered per phonetic hash
+	 * @since 3.10
+	 */
+	private static final int MAX_CANDIDATES= 500;
+
+	/**
+	 * The name of the folder in the state location that holds the compiled word lists
+	 * @since 3.10
+	 */
+	private static final String COMPILED_WORD_LIST_FOLDER= "dictionaries"; //$NON-NLS-1$
+
+	/**
+	 * The compiled word list, or <code>null</code> if the word list has not been compiled
+	 * @since 3.10
+	 */
+	private volatile CompiledWordList fWordList;
+
+	/**
+	 * Counts the modifications of the words of all dictionaries.
+	 * @since 3.10
+	 */
+	private static final AtomicInteger fgModificationCount= new AtomicInteger();
+
+	/**
+	 * Returns the modification count of all dictionaries. The count changes whenever a word is
+	 * added to a dictionary, a dictionary is unloaded or the stripping of non-letters changes.
+	 *
+	 * @return the modification count
+	 * @since 3.10
+	 */
+	static int getModificationCount() {
+		return fgModificationCount.get();
+	}
+
 	/** The mapping from phonetic hashes to word lists */
 	private final Map<ByteArrayWrapper, Object> fHashBuckets= new HashMap<ByteArrayWrapper, Object>(getInitialSize(), LOAD_FACTOR);
 
@@ -153,21 +194,46 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	}
 
 	/**
-	 * Returns all candidates with the same phonetic hash.
+	 * Adds the candidates with the same phonetic hash to the given list.
 	 *
 	 * @param hash
 	 *                   The hash to retrieve the candidates of
-	 * @return Array of candidates for the phonetic hash
+	 * @param limit
+	 *                   The maximum size of the list
+	 * @param candidates
+	 *                   The list to add the candidates to
+	 * @since 3.10
 	 */
-	protected final Object getCandidates(final String hash) {
-		ByteArrayWrapper hashBytes;
+	private void addCandidates(final String hash, final int limit, final List<String> candidates) {
+		byte[] hashBytes;
 		try {
-			hashBytes= new ByteArrayWrapper(hash.getBytes(UTF_8));
+			hashBytes= hash.getBytes(UTF_8);
+		} catch (UnsupportedEncodingException e) {
+			JavaPlugin.log(e);
+			return;
+		}
+
+		final CompiledWordList wordList= fWordList;
+		if (wordList != null) {
+			int bucket= wordList.find(hashBytes);
+			if (bucket >= 0)
+				wordList.addWords(bucket, limit, candidates);
+		}
+
+		final Object bucket= fHashBuckets.get(new ByteArrayWrapper(hashBytes));
+		try {
+			if (bucket instanceof byte[]) {
+				if (candidates.size() < limit)
+					candidates.add(new String((byte[])bucket, UTF_8));
+			} else if (bucket != null) {
+				@SuppressWarnings("unchecked")
+				final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)bucket;
+				for (int index= 0; index < candidateList.size() && candidates.size() < limit; index++)
+					candidates.add(new String(candidateList.get(index), UTF_8));
+			}
 		} catch (UnsupportedEncodingException e) {
 			JavaPlugin.log(e);
-			return null;
 		}
-		return fHashBuckets.get(hashBytes);
 	}
 
 	/**
@@ -186,49 +252,19 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	protected final Set<RankedWordProposal> getCandidates(final String word, final boolean sentence, final ArrayList<String> hashs) {
 
 		int distance= 0;
-		String hash= null;
 
 		final StringBuffer buffer= new StringBuffer(BUFFER_CAPACITY);
 		final HashSet<RankedWordProposal> result= new HashSet<RankedWordProposal>(BUCKET_CAPACITY * hashs.size());
+		final ArrayList<String> candidates= new ArrayList<String>(BUCKET_CAPACITY);
 
 		for (int index= 0; index < hashs.size(); index++) {
 
-			hash= hashs.get(index);
+			candidates.clear();
+			addCandidates(hashs.get(index), MAX_CANDIDATES, candidates); // see https://bugs.eclipse.org/bugs/show_bug.cgi?id=195357
 
-			final Object candidates= getCandidates(hash);
-			if (candidates == null)
-				continue;
-			else if (candidates instanceof byte[]) {
-				String candidate;
-				try {
-					candidate= new String((byte[])candidates, UTF_8);
-				} catch (UnsupportedEncodingException e) {
-					JavaPlugin.log(e);
-					return result;
-				}
-				distance= fDistanceAlgorithm.getDistance(word, candidate);
-				if (distance < DISTANCE_THRESHOLD) {
-					buffer.setLength(0);
-					buffer.append(candidate);
-					if (sentence)
-						buffer.setCharAt(0, Character.toUpperCase(buffer.charAt(0)));
-					result.add(new RankedWordProposal(buffer.toString(), -distance));
-				}
-				continue;
-			}
+			for (int offset= 0; offset < candidates.size(); offset++) {
 
-			@SuppressWarnings("unchecked")
-			final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
-			int candidateSize= Math.min(500, candidateList.size()); // see https://bugs.eclipse.org/bugs/show_bug.cgi?id=195357
-			for (int offset= 0; offset < candidateSize; offset++) {
-
-				String candidate;
-				try {
-					candidate= new String(candidateList.get(offset), UTF_8);
-				} catch (UnsupportedEncodingException e) {
-					JavaPlugin.log(e);
-					return result;
-				}
+				final String candidate= candidates.get(offset);
 				distance= fDistanceAlgorithm.getDistance(word, candidate);
 
 				if (distance < DISTANCE_THRESHOLD) {
@@ -266,37 +302,12 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 
 		StringBuffer buffer= new StringBuffer(BUFFER_CAPACITY);
 
-		final Object candidates= getCandidates(fHashProvider.getHash(word));
-		if (candidates == null)
-			return;
-		else if (candidates instanceof byte[]) {
-			String candidate;
-			try {
-				candidate= new String((byte[])candidates, UTF_8);
-			} catch (UnsupportedEncodingException e) {
-				JavaPlugin.log(e);
-				return;
-			}
-			distance= fDistanceAlgorithm.getDistance(word, candidate);
-			buffer.append(candidate);
-			if (sentence)
-				buffer.setCharAt(0, Character.toUpperCase(buffer.charAt(0)));
-			result.add(new RankedWordProposal(buffer.toString(), -distance));
-			return;
-		}
-
-		@SuppressWarnings("unchecked")
-		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
-		final ArrayList<RankedWordProposal> matches= new ArrayList<RankedWordProposal>(candidateList.size());
+		final ArrayList<String> candidates= new ArrayList<String>(BUCKET_CAPACITY);
+		addCandidates(fHashProvider.getHash(word), Integer.MAX_VALUE, candidates);
+		final ArrayList<RankedWordProposal> matches= new ArrayList<RankedWordProposal>(candidates.size());
 
-		for (int index= 0; index < candidateList.size(); index++) {
-			String candidate;
-			try {
-				candidate= new String(candidateList.get(index), UTF_8);
-			} catch (UnsupportedEncodingException e) {
-				JavaPlugin.log(e);
-				return;
-			}
+		for (int index= 0; index < candidates.size(); index++) {
+			final String candidate= candidates.get(index);
 			distance= fDistanceAlgorithm.getDistance(word, candidate);
 
 			if (distance <= minimum) {
@@ -325,7 +336,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	protected boolean isEmpty() {
-		return fHashBuckets.size() == 0;
+		return fHashBuckets.size() == 0 && (fWordList == null || fWordList.isEmpty());
 	}
 
 	/**
@@ -501,6 +512,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			list.add(wordBytes);
 			fHashBuckets.put(hashBytes, list);
 		}
+		fgModificationCount.incrementAndGet();
 	}
 
 	/*
@@ -522,32 +534,34 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			// Do nothing
 		}
 
-		final Object candidates= getCandidates(fHashProvider.getHash(word));
-		if (candidates == null)
-			return false;
-		else if (candidates instanceof byte[]) {
-			String candidate;
-			try {
-				candidate= new String((byte[])candidates, UTF_8);
-			} catch (UnsupportedEncodingException e) {
-				JavaPlugin.log(e);
-				return false;
-			}
-			if (candidate.equals(word) || candidate.equals(word.toLowerCase()))
-				return true;
-			return false;
-		}
-		@SuppressWarnings("unchecked")
-		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
+		byte[] hashBytes;
 		byte[] wordBytes;
 		byte[] lowercaseWordBytes;
 		try {
+			hashBytes= fHashProvider.getHash(word).getBytes(UTF_8);
 			wordBytes= word.getBytes(UTF_8);
 			lowercaseWordBytes= word.toLowerCase().getBytes(UTF_8);
 		} catch (UnsupportedEncodingException e) {
 			JavaPlugin.log(e);
 			return false;
 		}
+
+		final CompiledWordList wordList= fWordList;
+		if (wordList != null) {
+			int bucket= wordList.find(hashBytes);
+			if (bucket >= 0 && (wordList.contains(bucket, wordBytes) || wordList.contains(bucket, lowercaseWordBytes)))
+				return true;
+		}
+
+		final Object candidates= fHashBuckets.get(new ByteArrayWrapper(hashBytes));
+		if (candidates == null)
+			return false;
+		else if (candidates instanceof byte[]) {
+			byte[] candidate= (byte[])candidates;
+			return Arrays.equals(candidate, wordBytes) || Arrays.equals(candidate, lowercaseWordBytes);
+		}
+		@SuppressWarnings("unchecked")
+		final ArrayList<byte[]> candidateList= (ArrayList<byte[]>)candidates;
 		for (int index= 0; index < candidateList.size(); index++) {
 			byte[] candidate= candidateList.get(index);
 			if (Arrays.equals(candidate, wordBytes) || Arrays.equals(candidate, lowercaseWordBytes)) {
@@ -562,7 +576,10 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @since 3.3
 	 */
 	public void setStripNonLetters(boolean state) {
-		fIsStrippingNonLetters= state;
+		if (fIsStrippingNonLetters != state) {
+			fIsStrippingNonLetters= state;
+			fgModificationCount.incrementAndGet();
+		}
 	}
 
 	/**
@@ -596,7 +613,7 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 	 * @see org.eclipse.jdt.ui.text.spelling.engine.ISpellDictionary#isLoaded()
 	 */
 	public synchronized final boolean isLoaded() {
-		return fLoaded || fHashBuckets.size() > 0;
+		return fLoaded || fHashBuckets.size() > 0 || fWordList != null;
 	}
 
 	/**
@@ -612,11 +629,19 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 			 return fLoaded;
 
 		if (url != null) {
+			if (isCompiled() && loadCompiledWordList(url)) {
+				fMustLoad= false;
+				return true;
+			}
+
 			InputStream stream= null;
 			int line= 0;
 			try {
-				stream= url.openStream();
+				URLConnection connection= url.openConnection();
+				stream= connection.getInputStream();
 				if (stream != null) {
+					long stamp= connection.getLastModified();
+					long length= connection.getContentLength();
 					String word= null;
 
 					// Setup a reader with a decoder in order to read over malformed input if needed.
@@ -647,6 +672,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 						if (doRead)
 							hashWord(word);
 					}
+					if (isCompiled())
+						compileWordList(url, stamp, length);
 					return true;
 				}
 			} catch (FileNotFoundException ex) {
@@ -679,6 +706,119 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		return false;
 	}
 
+	/**
+	 * Tells whether the word list of this dictionary is compiled into the state location on
+	 * the first load and memory-mapped from there afterwards, until the word list changes.
+	 * Words added with {@link #hashWord(String)} are kept in memory.
+	 *
+	 * @return <code>true</code> if the word list is compiled, <code>false</code> to always
+	 *         read the word list into memory
+	 * @since 3.10
+	 */
+	protected boolean isCompiled() {
+		return false;
+	}
+
+	/**
+	 * Returns the name prefix of the compiled files of a word list.
+	 *
+	 * @param url the URL of the word list
+	 * @return the name prefix
+	 * @since 3.10
+	 */
+	private static String getCompiledWordListPrefix(final URL url) {
+		return Integer.toHexString(url.toString().hashCode()) + '-';
+	}
+
+	/**
+	 * Returns the file of the compiled word list. The name depends on the version of the word
+	 * list, so that a changed word list is never compiled into a file that is still mapped.
+	 *
+	 * @param url the URL of the word list
+	 * @param stamp the modification stamp of the word list
+	 * @param length the length of the word list
+	 * @return the file of the compiled word list
+	 * @since 3.10
+	 */
+	private File getCompiledWordListFile(final URL url, final long stamp, final long length) {
+		String version= stamp + "/" + length + '/' + getEncoding() + '/' + fHashProvider.getClass().getName(); //$NON-NLS-1$
+		String name= getCompiledWordListPrefix(url) + Integer.toHexString(version.hashCode()) + ".dat"; //$NON-NLS-1$
+		return JavaPlugin.getDefault().getStateLocation().append(COMPILED_WORD_LIST_FOLDER).append(name).toFile();
+	}
+
+	/**
+	 * Maps the compiled word list if it is up to date.
+	 *
+	 * @param url the URL of the word list
+	 * @return <code>true</code> if the compiled word list has been mapped, <code>false</code>
+	 *         if the word list has to be read
+	 * @since 3.10
+	 */
+	private boolean loadCompiledWordList(final URL url) {
+		try {
+			URLConnection connection= url.openConnection();
+			long stamp= connection.getLastModified();
+			long length= connection.getContentLength();
+			connection.getInputStream().close();
+			CompiledWordList wordList= CompiledWordList.open(getCompiledWordListFile(url, stamp, length), url.toString(), stamp, length, getEncoding(), fHashProvider.getClass().getName());
+			if (wordList == null)
+				return false;
+			fWordList= wordList;
+			return true;
+		} catch (IOException e) {
+			// read the word list
+			return false;
+		}
+	}
+
+	/**
+	 * Compiles the words read from the word list and maps the compiled word list.
+	 *
+	 * @param url the URL of the word list
+	 * @param stamp the modification stamp of the word list
+	 * @param length the length of the word list
+	 * @since 3.10
+	 */
+	private void compileWordList(final URL url, final long stamp, final long length) {
+		List<Map.Entry<ByteArrayWrapper, Object>> entries= new ArrayList<Map.Entry<ByteArrayWrapper, Object>>(fHashBuckets.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<ByteArrayWrapper, Object>>() {
+			public int compare(Map.Entry<ByteArrayWrapper, Object> left, Map.Entry<ByteArrayWrapper, Object> right) {
+				return CompiledWordList.compare(left.getKey().byteArray, right.getKey().byteArray);
+			}
+		});
+
+		byte[][] hashes= new byte[entries.size()][];
+		byte[][][] words= new byte[entries.size()][][];
+		for (int index= 0; index < hashes.length; index++) {
+			Map.Entry<ByteArrayWrapper, Object> entry= entries.get(index);
+			hashes[index]= entry.getKey().byteArray;
+			Object bucket= entry.getValue();
+			if (bucket instanceof byte[]) {
+				words[index]= new byte[][] { (byte[])bucket };
+			} else {
+				@SuppressWarnings("unchecked")
+				ArrayList<byte[]> bucketList= (ArrayList<byte[]>)bucket;
+				words[index]= bucketList.toArray(new byte[bucketList.size()][]);
+			}
+		}
+
+		File file= getCompiledWordListFile(url, stamp, length);
+		String encoding= getEncoding();
+		String hashProvider= fHashProvider.getClass().getName();
+		try {
+			CompiledWordList.write(file, url.toString(), stamp, length, encoding, hashProvider, hashes, words);
+			CompiledWordList wordList= CompiledWordList.open(file, url.toString(), stamp, length, encoding, hashProvider);
+			if (wordList != null) {
+				fWordList= wordList;
+				fHashBuckets.clear();
+				CompiledWordList.deleteStale(file, getCompiledWordListPrefix(url));
+			}
+		} catch (IOException e) {
+			// keep the words in memory
+			JavaPlugin.log(e);
+		}
+	}
+
 	/**
 	 * Compacts the dictionary.
 	 *
@@ -720,6 +860,8 @@ public abstract class AbstractSpellDictionary implements ISpellDictionary {
 		fLoaded= false;
 		fMustLoad= true;
 		fHashBuckets.clear();
+		fWordList= null;
+		fgModificationCount.incrementAndGet();
 	}
 
 	/*
@@ -0,0 +1,349 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.text.spelling.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Word list compiled from a dictionary word list, queried in place from a memory-mapped file.
+ * <p>
+ * The file starts with a header that identifies the word list it was compiled from. The
+ * body consists of the phonetic hashes in ascending order of their UTF-8 bytes, the
+ * index of the first word of every hash, and the words grouped by hash in the order of the
+ * word list. Hashes and words are stored as offsets into packed UTF-8 byte arenas.
+ * </p>
+ * <p>
+ * A mapped file cannot be unmapped explicitly, so it is never overwritten or deleted while
+ * it is in use: a file is only written under a name that has not been mapped in this
+ * session, and stale files are only deleted if they have not been mapped in this session.
+ * </p>
+ *
+ * @since 3.10
+ */
+final class CompiledWordList {
+
+	/** The file magic */
+	private static final int MAGIC= 0x4A445744;
+
+	/** The file format version */
+	private static final int VERSION= 1;
+
+	/** Canonical name for UTF-8 encoding */
+	private static final String UTF_8= "UTF-8"; //$NON-NLS-1$
+
+	/** The files which have been mapped in this session */
+	private static final Set<File> fgMappedFiles= Collections.synchronizedSet(new HashSet<File>());
+
+	/**
+	 * Compares two byte arrays as unsigned bytes.
+	 *
+	 * @param left the first array
+	 * @param right the second array
+	 * @return a negative number, zero or a positive number if the first array is less than,
+	 *         equal to or greater than the second array
+	 */
+	static int compare(byte[] left, byte[] right) {
+		int length= Math.min(left.length, right.length);
+		for (int index= 0; index < length; index++) {
+			int difference= (left[index] & 0xff) - (right[index] & 0xff);
+			if (difference != 0)
+				return difference;
+		}
+		return left.length - right.length;
+	}
+
+	/**
+	 * Opens a compiled word list.
+	 *
+	 * @param file the compiled word list file
+	 * @param source the URL of the word list it must have been compiled from
+	 * @param stamp the modification stamp of the word list
+	 * @param length the length of the word list
+	 * @param encoding the encoding of the word list
+	 * @param hashProvider the name of the phonetic hash provider that must have been used
+	 * @return the compiled word list, or <code>null</code> if the file does not exist or has
+	 *         not been compiled from the given word list
+	 * @throws IOException if the file could not be read
+	 */
+	static CompiledWordList open(File file, String source, long stamp, long length, String encoding, String hashProvider) throws IOException {
+		if (!file.isFile())
+			return null;
+
+		FileInputStream stream= new FileInputStream(file);
+		try {
+			DataInputStream input= new DataInputStream(stream);
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+				return null;
+			byte[] header= new byte[input.readInt()];
+			input.readFully(header);
+
+			DataInputStream headerInput= new DataInputStream(new ByteArrayInputStream(header));
+			if (!source.equals(headerInput.readUTF()) || stamp != headerInput.readLong() || length != headerInput.readLong()
+					|| !encoding.equals(headerInput.readUTF()) || !hashProvider.equals(headerInput.readUTF()))
+				return null;
+			int hashCount= headerInput.readInt();
+			int wordCount= headerInput.readInt();
+			int hashBytes= headerInput.readInt();
+			int wordBytes= headerInput.readInt();
+
+			long bodyStart= 3 * 4 + header.length;
+			long bodyLength= 4L * (hashCount + 1) * 2 + 4L * (wordCount + 1) + hashBytes + wordBytes;
+			FileChannel channel= stream.getChannel();
+			if (channel.size() != bodyStart + bodyLength)
+				return null;
+			fgMappedFiles.add(file);
+			return new CompiledWordList(channel.map(FileChannel.MapMode.READ_ONLY, bodyStart, bodyLength), hashCount, wordCount, hashBytes);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Writes a compiled word list. The list is written to a temporary file first, which is then
+	 * renamed.
+	 *
+	 * @param file the compiled word list file, must not have been mapped in this session
+	 * @param source the URL of the word list
+	 * @param stamp the modification stamp of the word list
+	 * @param length the length of the word list
+	 * @param encoding the encoding of the word list
+	 * @param hashProvider the name of the phonetic hash provider
+	 * @param hashes the UTF-8 bytes of the phonetic hashes, in ascending order as defined by
+	 *            {@link #compare(byte[], byte[])}
+	 * @param words the UTF-8 bytes of the words of every hash
+	 * @throws IOException if the file could not be written or is mapped
+	 */
+	static void write(File file, String source, long stamp, long length, String encoding, String hashProvider, byte[][] hashes, byte[][][] words) throws IOException {
+		int wordCount= 0;
+		int hashBytes= 0;
+		int wordBytes= 0;
+		for (int index= 0; index < hashes.length; index++) {
+			hashBytes+= hashes[index].length;
+			wordCount+= words[index].length;
+			for (int word= 0; word < words[index].length; word++)
+				wordBytes+= words[index][word].length;
+		}
+
+		ByteArrayOutputStream header= new ByteArrayOutputStream();
+		DataOutputStream headerOutput= new DataOutputStream(header);
+		headerOutput.writeUTF(source);
+		headerOutput.writeLong(stamp);
+		headerOutput.writeLong(length);
+		headerOutput.writeUTF(encoding);
+		headerOutput.writeUTF(hashProvider);
+		headerOutput.writeInt(hashes.length);
+		headerOutput.writeInt(wordCount);
+		headerOutput.writeInt(hashBytes);
+		headerOutput.writeInt(wordBytes);
+		headerOutput.close();
+
+		if (fgMappedFiles.contains(file))
+			throw new IOException("Compiled word list is mapped: " + file); //$NON-NLS-1$
+
+		file.getParentFile().mkdirs();
+		File tempFile= new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream output= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(header.size());
+			header.writeTo(output);
+
+			int offset= 0;
+			for (int index= 0; index < hashes.length; index++) {
+				output.writeInt(offset);
+				offset+= hashes[index].length;
+			}
+			output.writeInt(offset);
+
+			offset= 0;
+			for (int index= 0; index < hashes.length; index++) {
+				output.writeInt(offset);
+				offset+= words[index].length;
+			}
+			output.writeInt(offset);
+
+			offset= 0;
+			for (int index= 0; index < hashes.length; index++) {
+				for (int word= 0; word < words[index].length; word++) {
+					output.writeInt(offset);
+					offset+= words[index][word].length;
+				}
+			}
+			output.writeInt(offset);
+
+			for (int index= 0; index < hashes.length; index++)
+				output.write(hashes[index]);
+			for (int index= 0; index < hashes.length; index++) {
+				for (int word= 0; word < words[index].length; word++)
+					output.write(words[index][word]);
+			}
+		} finally {
+			output.close();
+		}
+		if (file.exists() && !file.delete() || !tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("Could not write compiled word list: " + file); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Deletes the compiled word list files in the folder of the given file whose names start
+	 * with the given prefix, except for the given file and the files mapped in this session.
+	 *
+	 * @param file the current compiled word list file
+	 * @param prefix the name prefix of the files compiled from the same word list
+	 */
+	static void deleteStale(File file, String prefix) {
+		File[] files= file.getParentFile().listFiles();
+		if (files == null)
+			return;
+		for (int index= 0; index < files.length; index++) {
+			File stale= files[index];
+			if (stale.getName().startsWith(prefix) && !stale.equals(file) && !fgMappedFiles.contains(stale))
+				stale.delete();
+		}
+	}
+
+	/** The mapped body, only accessed with absolute gets */
+	private final ByteBuffer fBuffer;
+
+	/** The number of hashes */
+	private final int fHashCount;
+
+	/** The position of the hash offsets */
+	private final int fHashOffsets;
+
+	/** The position of the first word indices of the hashes */
+	private final int fBucketStarts;
+
+	/** The position of the word offsets */
+	private final int fWordOffsets;
+
+	/** The position of the hash arena */
+	private final int fHashArena;
+
+	/** The position of the word arena */
+	private final int fWordArena;
+
+	private CompiledWordList(ByteBuffer buffer, int hashCount, int wordCount, int hashBytes) {
+		fBuffer= buffer;
+		fHashCount= hashCount;
+		fHashOffsets= 0;
+		fBucketStarts= fHashOffsets + 4 * (hashCount + 1);
+		fWordOffsets= fBucketStarts + 4 * (hashCount + 1);
+		fHashArena= fWordOffsets + 4 * (wordCount + 1);
+		fWordArena= fHashArena + hashBytes;
+	}
+
+	/**
+	 * Tells whether this word list is empty.
+	 *
+	 * @return <code>true</code> if this word list does not contain any word
+	 */
+	boolean isEmpty() {
+		return fHashCount == 0;
+	}
+
+	/**
+	 * Returns the bucket of the words with the given phonetic hash.
+	 *
+	 * @param hash the UTF-8 bytes of the phonetic hash
+	 * @return the bucket, or <code>-1</code> if there is no word with this hash
+	 */
+	int find(byte[] hash) {
+		int low= 0;
+		int high= fHashCount - 1;
+		while (low <= high) {
+			int middle= (low + high) >>> 1;
+			int comparison= compareHash(middle, hash);
+			if (comparison < 0)
+				low= middle + 1;
+			else if (comparison > 0)
+				high= middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds the words of a bucket to the given list.
+	 *
+	 * @param bucket the bucket
+	 * @param limit the maximum size of the list
+	 * @param words the list to add the words to
+	 */
+	void addWords(int bucket, int limit, List<String> words) {
+		int end= fBuffer.getInt(fBucketStarts + 4 * (bucket + 1));
+		for (int word= fBuffer.getInt(fBucketStarts + 4 * bucket); word < end && words.size() < limit; word++) {
+			int start= fBuffer.getInt(fWordOffsets + 4 * word);
+			byte[] bytes= new byte[fBuffer.getInt(fWordOffsets + 4 * (word + 1)) - start];
+			for (int index= 0; index < bytes.length; index++)
+				bytes[index]= fBuffer.get(fWordArena + start + index);
+			try {
+				words.add(new String(bytes, UTF_8));
+			} catch (UnsupportedEncodingException e) {
+				// UTF-8 is always supported
+			}
+		}
+	}
+
+	/**
+	 * Tells whether a bucket contains the given word.
+	 *
+	 * @param bucket the bucket
+	 * @param word the UTF-8 bytes of the word
+	 * @return <code>true</code> if the bucket contains the word
+	 */
+	boolean contains(int bucket, byte[] word) {
+		int end= fBuffer.getInt(fBucketStarts + 4 * (bucket + 1));
+		for (int candidate= fBuffer.getInt(fBucketStarts + 4 * bucket); candidate < end; candidate++) {
+			int start= fBuffer.getInt(fWordOffsets + 4 * candidate);
+			if (fBuffer.getInt(fWordOffsets + 4 * (candidate + 1)) - start != word.length)
+				continue;
+			int index= 0;
+			while (index < word.length && fBuffer.get(fWordArena + start + index) == word[index])
+				index++;
+			if (index == word.length)
+				return true;
+		}
+		return false;
+	}
+
+	private int compareHash(int bucket, byte[] hash) {
+		int start= fBuffer.getInt(fHashOffsets + 4 * bucket);
+		int length= fBuffer.getInt(fHashOffsets + 4 * (bucket + 1)) - start;
+		int common= Math.min(length, hash.length);
+		for (int index= 0; index < common; index++) {
+			int difference= (fBuffer.get(fHashArena + start + index) & 0xff) - (hash[index] & 0xff);
+			if (difference != 0)
+				return difference;
+		}
+		return length - hash.length;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,8 +13,11 @@ package org.eclipse.jdt.internal.ui.text.spelling.engine;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.Assert;
 
@@ -30,6 +33,39 @@ import org.eclipse.jdt.ui.PreferenceConstants;
  */
 public class DefaultSpellChecker implements ISpellChecker {
 
+	/**
+	 * Cache of the dictionary lookup results of the most recently checked words, in access
+	 * order.
+	 *
+	 * @since 3.10
+	 */
+	private static final class WordCache extends LinkedHashMap<String, Boolean> {
+
+		private static final long serialVersionUID= 1L;
+
+		/** The maximal number of cached words */
+		private static final int CAPACITY= 5000;
+
+		/** The dictionary modification count the cached results are valid for */
+		int fModificationCount;
+
+		/** Incremented whenever the dictionaries of the checker change */
+		int fGeneration;
+
+		WordCache() {
+			super(CAPACITY * 4 / 3 + 1, 0.75f, true);
+			fModificationCount= AbstractSpellDictionary.getModificationCount();
+		}
+
+		/*
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > CAPACITY;
+		}
+	}
+
 	/** Array of URL prefixes */
 	public static final String[] URL_PREFIXES= new String[] { "http://", "https://", "www.", "ftp://", "ftps://", "news://", "mailto://" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
 
@@ -131,6 +167,21 @@ public class DefaultSpellChecker implements ISpellChecker {
 	 */
 	private final Set<String> fIgnored= Collections.synchronizedSet(new HashSet<String>());
 
+	/**
+	 * The results of the dictionary lookups of the recently checked words. Since the locale of
+	 * a checker does not change, the words are cached per locale. Guarded by itself.
+	 *
+	 * @since 3.10
+	 */
+	private final WordCache fWordCache= new WordCache();
+
+	/**
+	 * Counts the changes of the dictionaries and ignored words of this checker.
+	 *
+	 * @since 3.10
+	 */
+	private final AtomicInteger fModificationCount= new AtomicInteger();
+
 	/**
 	 * The preference store. Assumes the <code>IPreferenceStore</code>
 	 * implementation is thread safe.
@@ -163,6 +214,7 @@ public class DefaultSpellChecker implements ISpellChecker {
 	public final void addDictionary(final ISpellDictionary dictionary) {
 		// synchronizing is necessary as this is a write access
 		fDictionaries.add(dictionary);
+		clearWordCache();
 	}
 
 	/*
@@ -203,7 +255,7 @@ public class DefaultSpellChecker implements ISpellChecker {
 			if (dictionary.acceptsWords())
 				dictionary.addWord(addable);
 		}
-
+		clearWordCache();
 	}
 
 	/*
@@ -212,6 +264,7 @@ public class DefaultSpellChecker implements ISpellChecker {
 	public final void checkWord(final String word) {
 		// synchronizing is necessary as this is a write access
 		fIgnored.remove(word.toLowerCase());
+		fModificationCount.incrementAndGet();
 	}
 
 	/*
@@ -301,29 +354,51 @@ public class DefaultSpellChecker implements ISpellChecker {
 	public final void ignoreWord(final String word) {
 		// synchronizing is necessary as this is a write access
 		fIgnored.add(word.toLowerCase());
+		fModificationCount.incrementAndGet();
 	}
 
 	/*
 	 * @see org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker#isCorrect(java.lang.String)
 	 */
 	public final boolean isCorrect(final String word) {
+		if (fIgnored.contains(word.toLowerCase()))
+			return true;
+
+		final int modificationCount;
+		final int generation;
+		synchronized (fWordCache) {
+			generation= fWordCache.fGeneration;
+			modificationCount= AbstractSpellDictionary.getModificationCount();
+			if (fWordCache.fModificationCount != modificationCount) {
+				fWordCache.clear();
+				fWordCache.fModificationCount= modificationCount;
+			} else {
+				Boolean cached= fWordCache.get(word);
+				if (cached != null)
+					return cached.booleanValue();
+			}
+		}
+
 		// synchronizing is necessary as this is called from execute
 		Set<ISpellDictionary> copy;
 		synchronized (fDictionaries) {
 			copy= new HashSet<ISpellDictionary>(fDictionaries);
 		}
 
-		if (fIgnored.contains(word.toLowerCase()))
-			return true;
-
+		boolean correct= false;
 		ISpellDictionary dictionary= null;
-		for (final Iterator<ISpellDictionary> iterator= copy.iterator(); iterator.hasNext();) {
+		for (final Iterator<ISpellDictionary> iterator= copy.iterator(); iterator.hasNext() && !correct;) {
 
 			dictionary= iterator.next();
-			if (dictionary.isCorrect(word))
-				return true;
+			correct= dictionary.isCorrect(word);
 		}
-		return false;
+
+		synchronized (fWordCache) {
+			// a result computed while a dictionary has changed is not cached
+			if (fWordCache.fGeneration == generation && fWordCache.fModificationCount == modificationCount && AbstractSpellDictionary.getModificationCount() == modificationCount)
+				fWordCache.put(word, Boolean.valueOf(correct));
+		}
+		return correct;
 	}
 
 	/*
@@ -332,6 +407,20 @@ public class DefaultSpellChecker implements ISpellChecker {
 	public final void removeDictionary(final ISpellDictionary dictionary) {
 		// synchronizing is necessary as this is a write access
 		fDictionaries.remove(dictionary);
+		clearWordCache();
+	}
+
+	/**
+	 * Clears the cached dictionary lookup results.
+	 *
+	 * @since 3.10
+	 */
+	private void clearWordCache() {
+		fModificationCount.incrementAndGet();
+		synchronized (fWordCache) {
+			fWordCache.clear();
+			fWordCache.fGeneration++;
+		}
 	}
 
 	/*
@@ -341,4 +430,12 @@ public class DefaultSpellChecker implements ISpellChecker {
 	public Locale getLocale() {
 		return fLocale;
 	}
+
+	/*
+	 * @see org.eclipse.jdt.internal.ui.text.spelling.engine.ISpellChecker#getModificationStamp()
+	 * @since 3.10
+	 */
+	public long getModificationStamp() {
+		return (long) fModificationCount.get() << 32 | AbstractSpellDictionary.getModificationCount() & 0xffffffffL;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -107,4 +107,14 @@ public interface ISpellChecker {
 	 * @since 3.3
 	 */
 	Locale getLocale();
+
+	/**
+	 * Returns the modification stamp of this spell checker. The stamp changes whenever words
+	 * are added or ignored, or the dictionaries of this checker change, i.e. whenever
+	 * previous spell check results may have become stale.
+	 *
+	 * @return the modification stamp
+	 * @since 3.10
+	 */
+	long getModificationStamp();
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@ package org.eclipse.jdt.internal.ui.viewsupport;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
 
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Display;
@@ -47,8 +48,20 @@ public class ImageDescriptorRegistry {
 	 *  or <code>null</code> for a missing image descriptor
 	 * @return the image associated with the image descriptor or <code>null</code>
 	 *  if the image descriptor can't create the requested image.
+	 * @see ImageRequests
 	 */
-	public Image get(ImageDescriptor descriptor) {
+	public Image get(final ImageDescriptor descriptor) {
+		if (ImageRequests.isForwarded()) {
+			return ImageRequests.run(new Callable<Image>() {
+				public Image call() {
+					return internalGet(descriptor);
+				}
+			});
+		}
+		return internalGet(descriptor);
+	}
+
+	private Image internalGet(ImageDescriptor descriptor) {
 		if (descriptor == null)
 			descriptor= ImageDescriptor.getMissingImageDescriptor();
 
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.viewsupport;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwards the image requests of worker threads to the thread that waits for the workers.
+ * <p>
+ * The image registries of JDT UI are not thread-safe and create SWT images, so they are only
+ * used by one thread. A thread that waits for workers creates the requests, the workers
+ * {@link #install() install} them, and the waiting thread runs the forwarded requests with
+ * {@link #runPending(long)} while it waits. {@link org.eclipse.jdt.internal.ui.JavaPluginImages#get(String)}
+ * and {@link ImageDescriptorRegistry#get(org.eclipse.jface.resource.ImageDescriptor)} forward
+ * their requests with {@link #run(Callable)}.
+ * </p>
+ *
+ * @since 3.10
+ */
+public final class ImageRequests {
+
+	/** A request that only wakes up the waiting thread */
+	private static final Runnable WAKE_UP= new Runnable() {
+		public void run() {
+		}
+	};
+
+	/** The requests installed in the current thread */
+	private static final ThreadLocal<ImageRequests> fgInstalled= new ThreadLocal<ImageRequests>();
+
+	private final BlockingQueue<Runnable> fQueue= new LinkedBlockingQueue<Runnable>();
+
+	/**
+	 * Forwards the image requests of the current thread to these requests, until
+	 * {@link #uninstall()} is called.
+	 */
+	public void install() {
+		fgInstalled.set(this);
+	}
+
+	/**
+	 * Stops forwarding the image requests of the current thread.
+	 */
+	public void uninstall() {
+		fgInstalled.remove();
+	}
+
+	/**
+	 * Wakes up the thread that waits in {@link #runPending(long)}.
+	 */
+	public void wakeUp() {
+		fQueue.add(WAKE_UP);
+	}
+
+	/**
+	 * Runs the forwarded requests, waiting for the first one.
+	 *
+	 * @param timeout the time in milliseconds to wait for a request, a value that is not
+	 *            positive means no limit
+	 * @throws InterruptedException if the current thread has been interrupted while waiting
+	 */
+	public void runPending(long timeout) throws InterruptedException {
+		Runnable request= timeout > 0 ? fQueue.poll(timeout, TimeUnit.MILLISECONDS) : fQueue.take();
+		while (request != null) {
+			request.run();
+			request= fQueue.poll();
+		}
+	}
+
+	/**
+	 * Returns an image. If requests are installed in the current thread, the image is
+	 * requested by the thread that waits for the current thread.
+	 *
+	 * @param request the request of the image
+	 * @return the image
+	 */
+	public static <T> T run(Callable<T> request) {
+		ImageRequests installed= fgInstalled.get();
+		if (installed == null) {
+			try {
+				return request.call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		FutureTask<T> task= new FutureTask<T>(request);
+		installed.fQueue.add(task);
+		boolean interrupted= false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException e) {
+					// the waiting thread runs the request in any case
+					interrupted= true;
+				} catch (ExecutionException e) {
+					Throwable cause= e.getCause();
+					if (cause instanceof RuntimeException)
+						throw (RuntimeException) cause;
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new IllegalStateException(cause);
+				}
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Tells whether the image requests of the current thread are forwarded.
+	 *
+	 * @return <code>true</code> if requests are installed in the current thread
+	 */
+	public static boolean isForwarded() {
+		return fgInstalled.get() != null;
+	}
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.viewsupport;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.jface.viewers.StyledString;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.JavaCore;
+
+import org.eclipse.jdt.ui.JavaElementLabels;
+import org.eclipse.jdt.ui.PreferenceConstants;
+
+/**
+ * A bounded cache of the labels of the members of class files, keyed by element handle and
+ * rendering flags.
+ * <p>
+ * Computing the label of a binary member can open its class file and its source attachment,
+ * which is too slow to be done for every row of a large library. Members of class files only
+ * change when the library or its source attachment changes: the cache is cleared on every Java
+ * element delta that affects a class file and on every change of the Java UI preferences.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @since 3.10
+ */
+final class JavaElementLabelCache {
+
+	private static final int CAPACITY= 10000;
+
+	private static final class Key {
+		private final IJavaElement fElement;
+		private final long fFlags;
+
+		Key(IJavaElement element, long flags) {
+			fElement= element;
+			fFlags= flags;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			return fFlags == other.fFlags && fElement.equals(other.fElement);
+		}
+
+		@Override
+		public int hashCode() {
+			return fElement.hashCode() * 31 + (int) (fFlags ^ (fFlags >>> 32));
+		}
+	}
+
+	private static final class Listener implements IElementChangedListener, IPropertyChangeListener {
+
+		/*
+		 * @see org.eclipse.jdt.core.IElementChangedListener#elementChanged(org.eclipse.jdt.core.ElementChangedEvent)
+		 */
+		public void elementChanged(ElementChangedEvent event) {
+			if (affectsClassFiles(event.getDelta()))
+				clear();
+		}
+
+		/*
+		 * @see org.eclipse.jface.util.IPropertyChangeListener#propertyChange(org.eclipse.jface.util.PropertyChangeEvent)
+		 */
+		public void propertyChange(PropertyChangeEvent event) {
+			clear();
+		}
+	}
+
+	private static final Map<Key, Object> fgLabels= new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+			return size() > CAPACITY;
+		}
+	};
+
+	private static Listener fgListener;
+
+	/**
+	 * Counts the invalidations so that labels computed from a stale model are not cached.
+	 */
+	private static int fgGeneration;
+
+	private JavaElementLabelCache() {
+	}
+
+	/**
+	 * Tells whether the labels of the given element are cached.
+	 *
+	 * @param element the element
+	 * @return <code>true</code> if the element is a member of a class file
+	 */
+	static boolean isCacheable(Object element) {
+		if (!(element instanceof IJavaElement))
+			return false;
+		IJavaElement javaElement= (IJavaElement) element;
+		switch (javaElement.getElementType()) {
+			case IJavaElement.TYPE:
+			case IJavaElement.FIELD:
+			case IJavaElement.METHOD:
+			case IJavaElement.INITIALIZER:
+				return javaElement.getAncestor(IJavaElement.CLASS_FILE) != null;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Returns the generation of the cache, to be passed to
+	 * {@link #put(IJavaElement, long, Object, int)} after the label has been computed.
+	 *
+	 * @return the current generation
+	 */
+	static synchronized int getGeneration() {
+		if (fgListener == null) {
+			fgListener= new Listener();
+			JavaCore.addElementChangedListener(fgListener, ElementChangedEvent.POST_CHANGE);
+			PreferenceConstants.getPreferenceStore().addPropertyChangeListener(fgListener);
+		}
+		return fgGeneration;
+	}
+
+	/**
+	 * Returns the cached text label of an element.
+	 *
+	 * @param element the element
+	 * @param flags the rendering flags
+	 * @return the label or <code>null</code> if it is not cached
+	 */
+	static synchronized String getText(IJavaElement element, long flags) {
+		return (String) fgLabels.get(new Key(element, flags));
+	}
+
+	/**
+	 * Returns a copy of the cached styled label of an element.
+	 *
+	 * @param element the element
+	 * @param flags the rendering flags, without {@link JavaElementLabels#COLORIZE}
+	 * @return the label or <code>null</code> if it is not cached
+	 */
+	static StyledString getStyledText(IJavaElement element, long flags) {
+		StyledString label;
+		synchronized (JavaElementLabelCache.class) {
+			label= (StyledString) fgLabels.get(new Key(element, flags | JavaElementLabels.COLORIZE));
+		}
+		return label != null ? new StyledString().append(label) : null;
+	}
+
+	/**
+	 * Computes the text label of an element and caches it.
+	 *
+	 * @param element the element
+	 * @param flags the rendering flags
+	 * @return the label
+	 */
+	static String computeText(IJavaElement element, long flags) {
+		int generation= getGeneration();
+		String label= JavaElementLabels.getTextLabel(element, flags);
+		put(element, flags, label, generation);
+		return label;
+	}
+
+	/**
+	 * Computes the styled label of an element and caches it.
+	 *
+	 * @param element the element
+	 * @param flags the rendering flags, without {@link JavaElementLabels#COLORIZE}
+	 * @return a copy of the label
+	 */
+	static StyledString computeStyledText(IJavaElement element, long flags) {
+		int generation= getGeneration();
+		StyledString label= JavaElementLabels.getStyledTextLabel(element, flags | JavaElementLabels.COLORIZE);
+		put(element, flags | JavaElementLabels.COLORIZE, label, generation);
+		return new StyledString().append(label);
+	}
+
+	private static synchronized void put(IJavaElement element, long flags, Object label, int generation) {
+		if (generation == fgGeneration)
+			fgLabels.put(new Key(element, flags), label);
+	}
+
+	static synchronized void clear() {
+		fgGeneration++;
+		fgLabels.clear();
+	}
+
+	private static boolean affectsClassFiles(IJavaElementDelta delta) {
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+		switch (delta.getElement().getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED)) != 0)
+					return true;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+						| IJavaElementDelta.F_SOURCEATTACHED | IJavaElementDelta.F_SOURCEDETACHED)) != 0)
+					return true;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (kind != IJavaElementDelta.CHANGED)
+					return true;
+				break;
+			case IJavaElement.CLASS_FILE:
+				return true;
+			default:
+				return false;
+		}
+		IJavaElementDelta[] children= delta.getAffectedChildren();
+		for (int i= 0; i < children.length; i++) {
+			if (affectsClassFiles(children[i]))
+				return true;
+		}
+		return false;
+	}
+}
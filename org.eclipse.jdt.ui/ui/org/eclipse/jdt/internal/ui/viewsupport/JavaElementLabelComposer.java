@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -139,6 +139,46 @@ public class JavaElementLabelComposer {
 		}
 	}
 
+	/**
+	 * A buffer backed by an unsynchronized {@link StringBuilder}.
+	 *
+	 * @since 3.10
+	 */
+	public static class FlexibleStringBuilder extends FlexibleBuffer {
+		private final StringBuilder fStringBuilder;
+
+		public FlexibleStringBuilder(StringBuilder stringBuilder) {
+			fStringBuilder= stringBuilder;
+		}
+
+		@Override
+		public FlexibleBuffer append(char ch) {
+			fStringBuilder.append(ch);
+			return this;
+		}
+
+		@Override
+		public FlexibleBuffer append(String string) {
+			fStringBuilder.append(string);
+			return this;
+		}
+
+		@Override
+		public int length() {
+			return fStringBuilder.length();
+		}
+
+		@Override
+		public void setStyle(int offset, int length, Styler styler) {
+			// no style
+		}
+
+		@Override
+		public String toString() {
+			return fStringBuilder.toString();
+		}
+	}
+
 	public static class FlexibleStyledString extends FlexibleBuffer {
 		private final StyledString fStyledString;
 
@@ -201,7 +241,8 @@ public class JavaElementLabelComposer {
 	private static final Styler DECORATIONS_STYLE= StyledString.DECORATIONS_STYLER;
 	
 	/*
-	 * Package name compression
+	 * Package name compression, guarded by JavaElementLabelComposer.class as labels can be
+	 * computed in background threads
 	 */
 	private static String fgPkgNamePattern= ""; //$NON-NLS-1$
 	private static String fgPkgNamePrefix;
@@ -210,7 +251,7 @@ public class JavaElementLabelComposer {
 	private static int fgPkgNameLength= -1;
 	
 	/*
-	 * Package name abbreviation
+	 * Package name abbreviation, guarded by JavaElementLabelComposer.class
 	 */
 	private static String fgPkgNameAbbreviationPattern= ""; //$NON-NLS-1$
 	private static PackageNameAbbreviation[] fgPkgNameAbbreviation;
@@ -248,6 +289,16 @@ public class JavaElementLabelComposer {
 		this(new FlexibleStringBuffer(buffer));
 	}
 
+	/**
+	 * Creates a new java element composer based on the given buffer.
+	 *
+	 * @param buffer the buffer
+	 * @since 3.10
+	 */
+	public JavaElementLabelComposer(StringBuilder buffer) {
+		this(new FlexibleStringBuilder(buffer));
+	}
+
 	/**
 	 * Appends the label for a Java element with the flags as defined by this class.
 	 *
@@ -630,7 +681,7 @@ public class JavaElementLabelComposer {
 		String[] categories= member.getCategories();
 		if (categories.length > 0) {
 			int offset= fBuffer.length();
-			StringBuffer categoriesBuf= new StringBuffer();
+			StringBuilder categoriesBuf= new StringBuilder();
 			for (int i= 0; i < categories.length; i++) {
 				if (i > 0)
 					categoriesBuf.append(JavaElementLabels.CATEGORY_SEPARATOR_STRING);
@@ -1185,8 +1236,18 @@ public class JavaElementLabelComposer {
 	}
 	
 	private void appendCompressedPackageFragment(String elementName) {
-		refreshPackageNamePattern();
-		if (fgPkgNameLength < 0) {
+		String prefix;
+		String postfix;
+		int chars;
+		int length;
+		synchronized (JavaElementLabelComposer.class) {
+			refreshPackageNamePattern();
+			prefix= fgPkgNamePrefix;
+			postfix= fgPkgNamePostfix;
+			chars= fgPkgNameChars;
+			length= fgPkgNameLength;
+		}
+		if (length < 0) {
 			fBuffer.append(elementName);
 			return;
 		}
@@ -1194,11 +1255,11 @@ public class JavaElementLabelComposer {
 		int start= 0;
 		int dot= name.indexOf('.', start);
 		while (dot > 0) {
-			if (dot - start > fgPkgNameLength-1) {
-				fBuffer.append(fgPkgNamePrefix);
-				if (fgPkgNameChars > 0)
-					fBuffer.append(name.substring(start, Math.min(start+ fgPkgNameChars, dot)));
-				fBuffer.append(fgPkgNamePostfix);
+			if (dot - start > length-1) {
+				fBuffer.append(prefix);
+				if (chars > 0)
+					fBuffer.append(name.substring(start, Math.min(start+ chars, dot)));
+				fBuffer.append(postfix);
 			} else
 				fBuffer.append(name.substring(start, dot + 1));
 			start= dot + 1;
@@ -1208,14 +1269,18 @@ public class JavaElementLabelComposer {
 	}
 
 	private void appendAbbreviatedPackageFragment(IPackageFragment pack) {
-		refreshPackageNameAbbreviation();
+		PackageNameAbbreviation[] abbreviations;
+		synchronized (JavaElementLabelComposer.class) {
+			refreshPackageNameAbbreviation();
+			abbreviations= fgPkgNameAbbreviation;
+		}
 
 		String pkgName= pack.getElementName();
 
-		if (fgPkgNameAbbreviation != null && fgPkgNameAbbreviation.length != 0) {
+		if (abbreviations != null && abbreviations.length != 0) {
 
-			for (int i= 0; i < fgPkgNameAbbreviation.length; i++) {
-				PackageNameAbbreviation abbr= fgPkgNameAbbreviation[i];
+			for (int i= 0; i < abbreviations.length; i++) {
+				PackageNameAbbreviation abbr= abbreviations[i];
 
 				String abbrPrefix= abbr.getPackagePrefix();
 				if (pkgName.startsWith(abbrPrefix)) {
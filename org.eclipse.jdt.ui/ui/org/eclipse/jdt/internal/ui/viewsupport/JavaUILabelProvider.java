@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,12 +11,21 @@
 package org.eclipse.jdt.internal.ui.viewsupport;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Display;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.core.resources.IStorage;
 
@@ -30,10 +39,92 @@ import org.eclipse.jface.viewers.StyledCellLabelProvider;
 import org.eclipse.jface.viewers.StyledString;
 import org.eclipse.jface.viewers.DelegatingStyledCellLabelProvider.IStyledLabelProvider;
 
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.Signature;
+
+import org.eclipse.jdt.internal.corext.util.Strings;
+
 import org.eclipse.jdt.ui.JavaElementLabels;
 
+import org.eclipse.jdt.internal.ui.JavaUIMessages;
+
 public class JavaUILabelProvider implements ILabelProvider, IColorProvider, IStyledLabelProvider {
 
+	/**
+	 * Computes the styled labels of members of class files in the background and notifies the
+	 * listeners in batches.
+	 *
+	 * @since 3.10
+	 */
+	private class LabelJob extends Job {
+
+		private static final int BATCH_SIZE= 200;
+		private static final long BATCH_TIME= 100;
+
+		// guarded by fPending
+		private final Map<IJavaElement, Long> fPending= new LinkedHashMap<IJavaElement, Long>();
+		private Display fDisplay;
+
+		public LabelJob() {
+			super(JavaUIMessages.JavaUILabelProvider_computing_labels_job);
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		public void add(IJavaElement element, long flags, Display display) {
+			synchronized (fPending) {
+				fDisplay= display;
+				if (fPending.put(element, new Long(flags)) != null)
+					return;
+			}
+			schedule();
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			while (!monitor.isCanceled()) {
+				List<IJavaElement> batch= new ArrayList<IJavaElement>();
+				long end= System.currentTimeMillis() + BATCH_TIME;
+				do {
+					IJavaElement element;
+					long flags;
+					synchronized (fPending) {
+						Iterator<Map.Entry<IJavaElement, Long>> iter= fPending.entrySet().iterator();
+						if (!iter.hasNext())
+							break;
+						Map.Entry<IJavaElement, Long> entry= iter.next();
+						iter.remove();
+						element= entry.getKey();
+						flags= entry.getValue().longValue();
+					}
+					JavaElementLabelCache.computeStyledText(element, flags);
+					batch.add(element);
+				} while (batch.size() < BATCH_SIZE && System.currentTimeMillis() < end && !monitor.isCanceled());
+
+				if (batch.isEmpty())
+					break;
+				update(batch.toArray());
+			}
+			return Status.OK_STATUS;
+		}
+
+		private void update(final Object[] elements) {
+			Display display;
+			synchronized (fPending) {
+				display= fDisplay;
+			}
+			if (display.isDisposed())
+				return;
+			display.asyncExec(new Runnable() {
+				public void run() {
+					if (fLabelJob == LabelJob.this)
+						fireLabelProviderChanged(new LabelProviderChangedEvent(JavaUILabelProvider.this, elements));
+				}
+			});
+		}
+	}
+
 	protected ListenerList fListeners = new ListenerList();
 
 	protected JavaElementImageProvider fImageLabelProvider;
@@ -44,6 +135,12 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 	private int fImageFlags;
 	private long fTextFlags;
 
+	/**
+	 * The job computing the labels of members of class files, or <code>null</code> if the
+	 * labels are computed when requested. Only accessed in the UI thread.
+	 */
+	private LabelJob fLabelJob;
+
 	/**
 	 * Creates a new label provider with default flags.
 	 */
@@ -83,6 +180,25 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 		fTextFlags= textFlags;
 	}
 
+	/**
+	 * Sets whether the styled labels of members of class files are computed in the background.
+	 * Until the label of such a member has been computed, {@link #getStyledText(Object)} returns
+	 * a provisional label that is derived from the element handle, and the listeners are notified
+	 * when the full label is available. Labels requested outside the UI thread are always computed
+	 * right away.
+	 *
+	 * @param enable <code>true</code> to compute the labels of binary members in the background
+	 * @since 3.10
+	 */
+	public final void setComputeLabelsInBackground(boolean enable) {
+		if (!enable && fLabelJob != null) {
+			fLabelJob.cancel();
+			fLabelJob= null;
+		} else if (enable && fLabelJob == null) {
+			fLabelJob= new LabelJob();
+		}
+	}
+
 	/**
 	 * Sets the imageFlags
 	 * @param imageFlags The imageFlags to set
@@ -167,7 +283,15 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 	 * @see ILabelProvider#getText
 	 */
 	public String getText(Object element) {
-		String result= JavaElementLabels.getTextLabel(element, evaluateTextFlags(element));
+		String result;
+		if (JavaElementLabelCache.isCacheable(element)) {
+			long flags= evaluateTextFlags(element);
+			result= JavaElementLabelCache.getText((IJavaElement) element, flags);
+			if (result == null)
+				result= JavaElementLabelCache.computeText((IJavaElement) element, flags);
+		} else {
+			result= JavaElementLabels.getTextLabel(element, evaluateTextFlags(element));
+		}
 		if (result.length() == 0 && (element instanceof IStorage)) {
 			result= fStorageLabelProvider.getText(element);
 		}
@@ -175,7 +299,11 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 	}
 
 	public StyledString getStyledText(Object element) {
-		StyledString string= JavaElementLabels.getStyledTextLabel(element, (evaluateTextFlags(element) | JavaElementLabels.COLORIZE));
+		StyledString string;
+		if (JavaElementLabelCache.isCacheable(element))
+			string= getCachedStyledText((IJavaElement) element, evaluateTextFlags(element) & ~JavaElementLabels.COLORIZE);
+		else
+			string= JavaElementLabels.getStyledTextLabel(element, (evaluateTextFlags(element) | JavaElementLabels.COLORIZE));
 		if (string.length() == 0 && (element instanceof IStorage)) {
 			string= new StyledString(fStorageLabelProvider.getText(element));
 		}
@@ -186,10 +314,50 @@ public class JavaUILabelProvider implements ILabelProvider, IColorProvider, ISty
 		return string;
 	}
 
+	private StyledString getCachedStyledText(IJavaElement element, long flags) {
+		StyledString string= JavaElementLabelCache.getStyledText(element, flags);
+		if (string != null)
+			return string;
+		if (fLabelJob != null) {
+			Display display= Display.getCurrent();
+			if (display != null) {
+				fLabelJob.add(element, flags, display);
+				return getProvisionalLabel(element);
+			}
+		}
+		return JavaElementLabelCache.computeStyledText(element, flags);
+	}
+
+	/**
+	 * Returns the label of a member of a class file that can be computed from its handle, without
+	 * opening the class file.
+	 *
+	 * @param element the member
+	 * @return the provisional label
+	 * @since 3.10
+	 */
+	private static StyledString getProvisionalLabel(IJavaElement element) {
+		if (element.getElementType() == IJavaElement.INITIALIZER)
+			return new StyledString(JavaUIMessages.JavaElementLabels_initializer);
+		StringBuilder buf= new StringBuilder(element.getElementName());
+		if (element instanceof IMethod) {
+			String[] types= ((IMethod) element).getParameterTypes();
+			buf.append('(');
+			for (int i= 0; i < types.length; i++) {
+				if (i > 0)
+					buf.append(JavaElementLabels.COMMA_STRING);
+				buf.append(Signature.getSimpleName(Signature.toString(types[i])));
+			}
+			buf.append(')');
+		}
+		return new StyledString(Strings.markJavaElementLabelLTR(buf.toString()));
+	}
+
 	/* (non-Javadoc)
 	 * @see IBaseLabelProvider#dispose
 	 */
 	public void dispose() {
+		setComputeLabelsInBackground(false);
 		if (fLabelDecorators != null) {
 			for (int i= 0; i < fLabelDecorators.size(); i++) {
 				ILabelDecorator decorator= fLabelDecorators.get(i);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -113,6 +113,32 @@ public class PreferenceConstants {
 	 */
 	public static final String EDITOR_QUICKASSIST_LIGHTBULB="org.eclipse.jdt.quickassist.lightbulb"; //$NON-NLS-1$
 
+	/**
+	 * A named preference that controls whether the quick fix and quick assist processors are
+	 * evaluated concurrently.
+	 * <p>
+	 * Value is of type <code>Boolean</code>: if <code>true</code> the processors and the
+	 * problems handled by the default quick fix processor are evaluated on worker threads.
+	 * </p>
+	 *
+	 * @see #EDITOR_QUICKFIX_LATENCY_BUDGET
+	 * @since 3.10
+	 */
+	public static final String EDITOR_QUICKFIX_CONCURRENT= "org.eclipse.jdt.ui.quickfix.concurrent"; //$NON-NLS-1$
+
+	/**
+	 * A named preference that holds the time in milliseconds that quick fix waits for
+	 * concurrently evaluated processors. The proposals of processors that take longer are
+	 * dropped.
+	 * <p>
+	 * Value is of type <code>Integer</code>. A value that is not positive means no limit.
+	 * </p>
+	 *
+	 * @see #EDITOR_QUICKFIX_CONCURRENT
+	 * @since 3.10
+	 */
+	public static final String EDITOR_QUICKFIX_LATENCY_BUDGET= "org.eclipse.jdt.ui.quickfix.latencyBudget"; //$NON-NLS-1$
+
 
 
 	/**
@@ -3857,6 +3883,10 @@ public class PreferenceConstants {
 		store.setDefault(PreferenceConstants.EDITOR_MARK_IMPLEMENTORS, true);
 
 
+		// quick fix
+		store.setDefault(PreferenceConstants.EDITOR_QUICKFIX_CONCURRENT, false);
+		store.setDefault(PreferenceConstants.EDITOR_QUICKFIX_LATENCY_BUDGET, 2000);
+
 		// spell checking
 		store.setDefault(PreferenceConstants.SPELLING_LOCALE, "en_US"); //$NON-NLS-1$
 		String isInitializedKey= "spelling_locale_initialized"; //$NON-NLS-1$
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2011 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.PerformanceStats;
 
 import org.eclipse.jface.preference.IPreferenceStore;
 
@@ -73,6 +74,7 @@ import org.eclipse.jdt.internal.ui.actions.SelectionConverter;
 import org.eclipse.jdt.internal.ui.javaeditor.EditorUtility;
 import org.eclipse.jdt.internal.ui.javaeditor.JavaEditor;
 import org.eclipse.jdt.internal.ui.text.DocumentCharacterIterator;
+import org.eclipse.jdt.internal.ui.text.folding.CachedProjectionRanges;
 
 /**
  * Updates the projection model of a class file or compilation unit.
@@ -101,14 +103,25 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		private boolean fHasHeaderComment;
 		private LinkedHashMap<JavaProjectionAnnotation, Position> fMap= new LinkedHashMap<JavaProjectionAnnotation, Position>();
 		private IScanner fScanner;
+		/**
+		 * The projection ranges of the previous computation that may be reused.
+		 * @since 3.10
+		 */
+		private final Map<IJavaElement, CachedProjectionRanges> fPreviousRanges;
+		/**
+		 * The projection ranges of this computation.
+		 * @since 3.10
+		 */
+		private final Map<IJavaElement, CachedProjectionRanges> fRanges= new HashMap<IJavaElement, CachedProjectionRanges>();
 
-		private FoldingStructureComputationContext(IDocument document, ProjectionAnnotationModel model, boolean allowCollapsing, IScanner scanner) {
+		private FoldingStructureComputationContext(IDocument document, ProjectionAnnotationModel model, boolean allowCollapsing, IScanner scanner, Map<IJavaElement, CachedProjectionRanges> previousRanges) {
 			Assert.isNotNull(document);
 			Assert.isNotNull(model);
 			fDocument= document;
 			fModel= model;
 			fAllowCollapsing= allowCollapsing;
 			fScanner= scanner;
+			fPreviousRanges= previousRanges;
 		}
 
 		private void setFirstType(IType type) {
@@ -356,9 +369,11 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 				if (shouldIgnoreDelta(e.getDelta().getCompilationUnitAST(), delta))
 					return;
 
+				Map<IJavaElement, CachedProjectionRanges> ranges= CachedProjectionRanges.getReusableRanges(delta, fCachedRanges);
+
 				fUpdatingCount++;
 				try {
-					update(createContext(false));
+					update(createContext(false, ranges));
 				} finally {
 					fUpdatingCount--;
 				}
@@ -708,6 +723,12 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 	/** Comment filter, matches comments. */
 	private final Filter fCommentFilter = new CommentFilter();
 
+	/**
+	 * The performance event that reports the time to update the folding structure.
+	 * @since 3.10
+	 */
+	private static final String PERF_UPDATE= "org.eclipse.jdt.ui/perf/folding/update"; //$NON-NLS-1$
+
 	/**
 	 * Reusable scanner.
 	 * @since 3.3
@@ -716,6 +737,12 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 
 	private volatile int fUpdatingCount= 0;
 
+	/**
+	 * The projection ranges of the last update, by element.
+	 * @since 3.10
+	 */
+	private volatile Map<IJavaElement, CachedProjectionRanges> fCachedRanges= Collections.emptyMap();
+
 	/**
 	 * Creates a new folding provider. It must be
 	 * {@link #install(ITextEditor, ProjectionViewer) installed} on an editor/viewer pair before it
@@ -838,10 +865,11 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		if (fInput == null)
 			return null;
 
-		return createContext(true);
+		Map<IJavaElement, CachedProjectionRanges> ranges= Collections.emptyMap();
+		return createContext(true, ranges);
 	}
 
-	private FoldingStructureComputationContext createContext(boolean allowCollapse) {
+	private FoldingStructureComputationContext createContext(boolean allowCollapse, Map<IJavaElement, CachedProjectionRanges> previousRanges) {
 		if (!isInstalled())
 			return null;
 		ProjectionAnnotationModel model= getModel();
@@ -855,7 +883,7 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		if (fUpdatingCount == 1)
 			scanner= fSharedScanner; // reuse scanner
 
-		return new FoldingStructureComputationContext(doc, model, allowCollapse, scanner);
+		return new FoldingStructureComputationContext(doc, model, allowCollapse, scanner, previousRanges);
 	}
 
 	private IJavaElement getInputElement() {
@@ -877,6 +905,16 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		if (ctx == null)
 			return;
 
+		PerformanceStats stats= PerformanceStats.getStats(PERF_UPDATE, DefaultJavaFoldingStructureProvider.class);
+		stats.startRun();
+		try {
+			update0(ctx);
+		} finally {
+			stats.endRun();
+		}
+	}
+
+	private void update0(FoldingStructureComputationContext ctx) {
 		Map<JavaProjectionAnnotation, Position> additions= new HashMap<JavaProjectionAnnotation, Position>();
 		List<JavaProjectionAnnotation> deletions= new ArrayList<JavaProjectionAnnotation>();
 		List<JavaProjectionAnnotation> updates= new ArrayList<JavaProjectionAnnotation>();
@@ -952,6 +990,7 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 		ctx.getModel().modifyAnnotations(deletedArray, additions, changedArray);
 
 		ctx.fScanner.setSource(null);
+		fCachedRanges= ctx.fRanges;
     }
 
 	private void computeFoldingStructure(FoldingStructureComputationContext ctx) {
@@ -1099,22 +1138,31 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 				if (!SourceRange.isAvailable(range))
 					return new IRegion[0];
 
-				String contents= reference.getSource();
-				if (contents == null)
+				IScanner scanner= ctx.getScanner();
+				char[] source= scanner.getSource();
+				if (source == null || range.getOffset() + range.getLength() > source.length)
 					return new IRegion[0];
 
+				final int shift= range.getOffset();
 				List<IRegion> regions= new ArrayList<IRegion>();
+				boolean hasHeaderComment= false;
 				if (!ctx.hasFirstType() && reference instanceof IType) {
 					ctx.setFirstType((IType) reference);
 					IRegion headerComment= computeHeaderComment(ctx);
 					if (headerComment != null) {
 						regions.add(headerComment);
 						ctx.setHasHeaderComment();
+						hasHeaderComment= true;
+					}
+				} else if (reference instanceof IJavaElement) {
+					// the ranges of unchanged members are not scanned again
+					CachedProjectionRanges cached= ctx.fPreviousRanges.get(reference);
+					if (cached != null && cached.isValid(source, shift, range.getLength())) {
+						ctx.fRanges.put((IJavaElement) reference, cached);
+						return cached.getRegions(shift);
 					}
 				}
 
-				final int shift= range.getOffset();
-				IScanner scanner= ctx.getScanner();
 				scanner.resetTo(shift, shift + range.getLength());
 
 				int start= shift;
@@ -1141,6 +1189,12 @@ public class DefaultJavaFoldingStructureProvider implements IJavaFoldingStructur
 
 				IRegion[] result= new IRegion[regions.size()];
 				regions.toArray(result);
+
+				if (!hasHeaderComment && reference instanceof IJavaElement) {
+					// the ranges depend on the text up to the first token
+					int prefixLength= Math.max(0, Math.min(start - shift + 1, range.getLength()));
+					ctx.fRanges.put((IJavaElement) reference, new CachedProjectionRanges(source, shift, range.getLength(), prefixLength, result));
+				}
 				return result;
 		} catch (JavaModelException e) {
 		} catch (InvalidInputException e) {
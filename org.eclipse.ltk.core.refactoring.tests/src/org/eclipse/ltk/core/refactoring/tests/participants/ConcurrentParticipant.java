@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.participants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.NullChange;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.participants.CheckConditionsContext;
+import org.eclipse.ltk.core.refactoring.participants.RenameParticipant;
+
+/**
+ * A thread safe participant which is contributed twice. Each instance waits in
+ * {@link #checkConditions(IProgressMonitor, CheckConditionsContext)} until the
+ * other one has entered it as well.
+ */
+public class ConcurrentParticipant extends RenameParticipant {
+
+	private static final Object fgLock= new Object();
+
+	private static int fgEntered;
+
+	private static boolean fgSlow;
+
+	private static boolean fgSequential;
+
+	private static List fgThreads;
+
+	public static void reset(boolean slow) {
+		synchronized (fgLock) {
+			fgEntered= 0;
+			fgSlow= slow;
+			fgSequential= false;
+			fgThreads= new ArrayList();
+		}
+	}
+
+	public static boolean ranSequentially() {
+		synchronized (fgLock) {
+			return fgSequential;
+		}
+	}
+
+	public static List getThreads() {
+		synchronized (fgLock) {
+			return new ArrayList(fgThreads);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected boolean initialize(Object element) {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getName() {
+		return ConcurrentParticipant.class.getName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public RefactoringStatus checkConditions(IProgressMonitor pm, CheckConditionsContext context) throws OperationCanceledException {
+		synchronized (fgLock) {
+			fgThreads.add(Thread.currentThread());
+			fgEntered++;
+			fgLock.notifyAll();
+			long end= System.currentTimeMillis() + 10000;
+			while (fgEntered < 2 && System.currentTimeMillis() < end) {
+				try {
+					fgLock.wait(100);
+				} catch (InterruptedException e) {
+					// wait again
+				}
+			}
+			if (fgEntered < 2)
+				fgSequential= true;
+		}
+		if (fgSlow) {
+			while (!pm.isCanceled()) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					// check again
+				}
+			}
+			throw new OperationCanceledException();
+		}
+		return RefactoringStatus.createInfoStatus(getName());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Change createChange(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+		synchronized (fgLock) {
+			fgThreads.add(Thread.currentThread());
+		}
+		return new NullChange(getName());
+	}
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.participants;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
+import org.eclipse.ltk.core.refactoring.NullChange;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.participants.CheckConditionsContext;
+import org.eclipse.ltk.core.refactoring.participants.ParticipantManager;
+import org.eclipse.ltk.core.refactoring.participants.RefactoringParticipant;
+import org.eclipse.ltk.core.refactoring.participants.RenameArguments;
+import org.eclipse.ltk.core.refactoring.participants.RenameProcessor;
+import org.eclipse.ltk.core.refactoring.participants.RenameRefactoring;
+import org.eclipse.ltk.core.refactoring.participants.SharableParticipants;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringPreferenceConstants;
+
+public class ConcurrentParticipantTests extends TestCase {
+
+	private class TestProcessor extends RenameProcessor {
+		private Object fElement= new ElementConcurrent();
+
+		public Object[] getElements() {
+			return new Object[] { fElement };
+		}
+		public String getIdentifier() {
+			return "org.eclipse.ltk.core.refactoring.tests.TestProcessor";
+		}
+		public String getProcessorName() {
+			return "processor";
+		}
+		public boolean isApplicable() throws CoreException {
+			return true;
+		}
+		public RefactoringStatus checkInitialConditions(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+			return new RefactoringStatus();
+		}
+		public RefactoringStatus checkFinalConditions(IProgressMonitor pm, CheckConditionsContext context) throws CoreException, OperationCanceledException {
+			return new RefactoringStatus();
+		}
+		public Change createChange(IProgressMonitor pm) throws CoreException, OperationCanceledException {
+			return new NullChange("test change");
+		}
+		public RefactoringParticipant[] loadParticipants(RefactoringStatus status, SharableParticipants sharedParticipants) throws CoreException {
+			return ParticipantManager.loadRenameParticipants(status, this, fElement, new RenameArguments("test", true), new String[0], sharedParticipants);
+		}
+	}
+
+	private IEclipsePreferences fPreferences;
+
+	protected void setUp() throws Exception {
+		fPreferences= new InstanceScope().getNode(RefactoringCorePlugin.getPluginId());
+		fPreferences.putBoolean(RefactoringPreferenceConstants.PREFERENCE_CONCURRENT_PARTICIPANTS, true);
+	}
+
+	protected void tearDown() throws Exception {
+		fPreferences.remove(RefactoringPreferenceConstants.PREFERENCE_CONCURRENT_PARTICIPANTS);
+		fPreferences.remove(RefactoringPreferenceConstants.PREFERENCE_PARTICIPANT_TIME_BUDGET);
+	}
+
+	public void testConcurrentParticipants() throws Exception {
+		ConcurrentParticipant.reset(false);
+		RenameRefactoring refactoring= new RenameRefactoring(new TestProcessor());
+
+		RefactoringStatus status= refactoring.checkAllConditions(new NullProgressMonitor());
+		assertFalse("participants ran sequentially", ConcurrentParticipant.ranSequentially());
+		assertEquals(RefactoringStatus.INFO, status.getSeverity());
+		assertEquals(2, status.getEntries().length);
+
+		CompositeChange change= (CompositeChange) refactoring.createChange(new NullProgressMonitor());
+		Change[] children= change.getChildren();
+		assertEquals(3, children.length);
+		assertEquals("test change", children[0].getName());
+
+		List threads= ConcurrentParticipant.getThreads();
+		assertEquals(4, threads.size());
+		assertFalse(threads.contains(Thread.currentThread()));
+	}
+
+	public void testTimeBudget() throws Exception {
+		fPreferences.putLong(RefactoringPreferenceConstants.PREFERENCE_PARTICIPANT_TIME_BUDGET, 200);
+		ConcurrentParticipant.reset(true);
+		RenameRefactoring refactoring= new RenameRefactoring(new TestProcessor());
+
+		RefactoringStatus status= refactoring.checkAllConditions(new NullProgressMonitor());
+		assertEquals(RefactoringStatus.ERROR, status.getSeverity());
+		assertEquals(2, status.getEntries().length);
+
+		// the participants which exceeded their budget do not contribute changes
+		CompositeChange change= (CompositeChange) refactoring.createChange(new NullProgressMonitor());
+		assertEquals(1, change.getChildren().length);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,8 +25,12 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.PerformanceStats;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -42,6 +46,7 @@ import org.eclipse.ltk.internal.core.refactoring.Messages;
 import org.eclipse.ltk.internal.core.refactoring.ParticipantDescriptor;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringPreferenceConstants;
 
 /**
  * An base implementation for refactorings that are split into
@@ -71,6 +76,132 @@ public class ProcessorBasedRefactoring extends Refactoring {
 
 	private static final List/*<RefactoringParticipant>*/ EMPTY_PARTICIPANTS= Collections.EMPTY_LIST;
 
+	private static final long POLL_INTERVAL= 50;
+
+	/**
+	 * Runs an operation of a thread safe participant in a job of its own.
+	 */
+	private static abstract class ParticipantJob extends Job {
+		private final RefactoringParticipant fParticipant;
+		private volatile long fStart;
+		private volatile boolean fDone;
+		private boolean fOverBudget;
+		private Object fResult;
+		private Throwable fException;
+
+		public ParticipantJob(RefactoringParticipant participant) {
+			super(participant.getName());
+			fParticipant= participant;
+			setSystem(true);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			fStart= System.currentTimeMillis();
+			try {
+				fResult= execute(monitor);
+			} catch (CoreException e) {
+				fException= e;
+			} catch (OperationCanceledException e) {
+				fException= e;
+			} catch (RuntimeException e) {
+				fException= e;
+			}
+			return Status.OK_STATUS;
+		}
+
+		protected abstract Object execute(IProgressMonitor monitor) throws CoreException;
+	}
+
+	/**
+	 * A group of participant jobs which run concurrently.
+	 */
+	private static final class ParticipantJobGroup {
+		private final List/*<ParticipantJob>*/ fJobs= new ArrayList();
+		private int fRunning;
+
+		public void schedule(final ParticipantJob job) {
+			synchronized (this) {
+				fRunning++;
+			}
+			fJobs.add(job);
+			// also counts jobs which are canceled before they run
+			job.addJobChangeListener(new JobChangeAdapter() {
+				public void done(IJobChangeEvent event) {
+					job.fDone= true;
+					ParticipantJobGroup.this.done();
+				}
+			});
+			job.schedule();
+		}
+
+		public ParticipantJob[] getJobs() {
+			return (ParticipantJob[]) fJobs.toArray(new ParticipantJob[fJobs.size()]);
+		}
+
+		private synchronized void done() {
+			fRunning--;
+			notifyAll();
+		}
+
+		/**
+		 * Waits until all jobs of this group are done. A job which runs longer
+		 * than the given budget is canceled and marked as over budget; it is not
+		 * waited for once all jobs which are not done are over budget. If the
+		 * progress monitor gets canceled, all jobs are canceled and an
+		 * {@link OperationCanceledException} is thrown once they are done.
+		 *
+		 * @param budget the time budget per job in milliseconds, or <code>0</code> for no limit
+		 * @param pm the progress monitor, with one unit of work per job
+		 */
+		public void join(long budget, IProgressMonitor pm) {
+			ParticipantJob[] jobs= getJobs();
+			pm.beginTask("", jobs.length); //$NON-NLS-1$
+			boolean canceled= false;
+			int reported= 0;
+			while (true) {
+				int running;
+				synchronized (this) {
+					if (fRunning > 0) {
+						try {
+							wait(POLL_INTERVAL);
+						} catch (InterruptedException e) {
+							// check again
+						}
+					}
+					running= fRunning;
+				}
+				pm.worked(jobs.length - running - reported);
+				reported= jobs.length - running;
+				if (running == 0)
+					break;
+				if (!canceled && pm.isCanceled()) {
+					canceled= true;
+					for (int i= 0; i < jobs.length; i++)
+						jobs[i].cancel();
+				}
+				if (budget > 0) {
+					long now= System.currentTimeMillis();
+					boolean waiting= false;
+					for (int i= 0; i < jobs.length; i++) {
+						ParticipantJob job= jobs[i];
+						if (!job.fDone && !job.fOverBudget && job.fStart > 0 && now - job.fStart > budget) {
+							job.fOverBudget= true;
+							job.cancel();
+						}
+						if (!job.fDone && !job.fOverBudget)
+							waiting= true;
+					}
+					// jobs which ignore their canceled monitor are left behind
+					if (!waiting)
+						break;
+				}
+			}
+			pm.done();
+			if (canceled)
+				throw new OperationCanceledException();
+		}
+	}
+
 	private static class ProcessorChange extends CompositeChange {
 		private Map/*<Change, RefactoringParticipant>*/ fParticipantMap;
 		private List/*<RefactoringParticipant>*/ fPreChangeParticipants; // can be null
@@ -245,10 +376,13 @@ public class ProcessorBasedRefactoring extends Refactoring {
 		}
 		IProgressMonitor sm= new SubProgressMonitor(pm, 2);
 
+		boolean concurrent= isConcurrent(fParticipants);
 		sm.beginTask("", fParticipants.size()); //$NON-NLS-1$
 		for (Iterator iter= fParticipants.iterator(); iter.hasNext() && !result.hasFatalError(); ) {
 
 			RefactoringParticipant participant= (RefactoringParticipant) iter.next();
+			if (concurrent && isThreadSafe(participant))
+				continue;
 
 			final PerformanceStats stats= PerformanceStats.getStats(PERF_CHECK_CONDITIONS, getName() + ", " + participant.getName()); //$NON-NLS-1$
 			stats.startRun();
@@ -271,6 +405,8 @@ public class ProcessorBasedRefactoring extends Refactoring {
 			if (sm.isCanceled())
 				throw new OperationCanceledException();
 		}
+		if (concurrent && !result.hasFatalError())
+			checkConditionsConcurrently(result, context, sm);
 		sm.done();
 		if (result.hasFatalError()) {
 			pm.done();
@@ -299,8 +435,12 @@ public class ProcessorBasedRefactoring extends Refactoring {
 		List/*<Change>*/ changes= new ArrayList();
 		List/*<Change>*/ preChanges= new ArrayList();
 		Map/*<Change, RefactoringParticipant>*/ participantMap= new HashMap();
+		Map/*<RefactoringParticipant, Change[]>*/ participantChanges= new HashMap();
+		boolean concurrent= isConcurrent(fParticipants);
 		for (Iterator iter= fParticipants.iterator(); iter.hasNext();) {
 			final RefactoringParticipant participant= (RefactoringParticipant) iter.next();
+			if (concurrent && isThreadSafe(participant))
+				continue;
 
 			try {
 				final PerformanceStats stats= PerformanceStats.getStats(PERF_CREATE_CHANGES, getName() + ", " + participant.getName()); //$NON-NLS-1$
@@ -311,20 +451,11 @@ public class ProcessorBasedRefactoring extends Refactoring {
 
 				stats.endRun();
 
-				if (preChange != null) {
-					if (fPreChangeParticipants == null)
-						fPreChangeParticipants= new ArrayList();
-					fPreChangeParticipants.add(participant);
-					preChanges.add(preChange);
-					participantMap.put(preChange, participant);
+				if (preChange != null)
 					addToTextChangeMap(preChange);
-				}
-
-				if (change != null) {
-					changes.add(change);
-					participantMap.put(change, participant);
+				if (change != null)
 					addToTextChangeMap(change);
-				}
+				participantChanges.put(participant, new Change[] { preChange, change });
 
 			} catch (CoreException e) {
 				disableParticipant(participant, e);
@@ -338,6 +469,28 @@ public class ProcessorBasedRefactoring extends Refactoring {
 			if (pm.isCanceled())
 				throw new OperationCanceledException();
 		}
+		if (concurrent)
+			createChangesConcurrently(participantChanges, new SubProgressMonitor(pm, 1));
+
+		for (Iterator iter= fParticipants.iterator(); iter.hasNext();) {
+			final RefactoringParticipant participant= (RefactoringParticipant) iter.next();
+			Change[] participantChange= (Change[]) participantChanges.get(participant);
+			Change preChange= participantChange[0];
+			Change change= participantChange[1];
+
+			if (preChange != null) {
+				if (fPreChangeParticipants == null)
+					fPreChangeParticipants= new ArrayList();
+				fPreChangeParticipants.add(participant);
+				preChanges.add(preChange);
+				participantMap.put(preChange, participant);
+			}
+
+			if (change != null) {
+				changes.add(change);
+				participantMap.put(change, participant);
+			}
+		}
 
 		fTextChangeMap= null;
 
@@ -417,6 +570,144 @@ public class ProcessorBasedRefactoring extends Refactoring {
 	}
 
 
+	/**
+	 * Checks the conditions of all thread safe participants concurrently and
+	 * merges their status in participant order. Participants which fail or
+	 * exceed their time budget are removed.
+	 *
+	 * @param result the status to merge the participants' status into
+	 * @param context the condition checking context
+	 * @param pm the progress monitor, with one unit of work per participant
+	 * @throws CoreException if a participant throws one
+	 */
+	private void checkConditionsConcurrently(RefactoringStatus result, final CheckConditionsContext context, IProgressMonitor pm) throws CoreException {
+		ParticipantJobGroup group= new ParticipantJobGroup();
+		for (Iterator iter= fParticipants.iterator(); iter.hasNext();) {
+			final RefactoringParticipant participant= (RefactoringParticipant) iter.next();
+			if (!isThreadSafe(participant))
+				continue;
+			final PerformanceStats stats= PerformanceStats.getStats(PERF_CHECK_CONDITIONS, getName() + ", " + participant.getName()); //$NON-NLS-1$
+			group.schedule(new ParticipantJob(participant) {
+				protected Object execute(IProgressMonitor monitor) throws CoreException {
+					stats.startRun();
+					try {
+						return participant.checkConditions(monitor, context);
+					} finally {
+						stats.endRun();
+					}
+				}
+			});
+		}
+		long budget= getParticipantTimeBudget();
+		group.join(budget, pm);
+
+		ParticipantJob[] jobs= group.getJobs();
+		for (int i= 0; i < jobs.length; i++) {
+			ParticipantJob job= jobs[i];
+			if (job.fOverBudget) {
+				// remove the participant so that it will be ignored during change execution.
+				result.merge(RefactoringStatus.createErrorStatus(Messages.format(
+					RefactoringCoreMessages.ProcessorBasedRefactoring_participant_time_budget_exceeded,
+					new Object[] { job.fParticipant.getName(), Long.toString(budget) })));
+				fParticipants.remove(job.fParticipant);
+			} else if (job.fException instanceof CoreException) {
+				throw (CoreException) job.fException;
+			} else if (job.fException instanceof OperationCanceledException) {
+				throw (OperationCanceledException) job.fException;
+			} else if (job.fException != null) {
+				// remove the participant so that it will be ignored during change execution.
+				RefactoringCorePlugin.log(job.fException);
+				result.merge(RefactoringStatus.createErrorStatus(Messages.format(
+					RefactoringCoreMessages.ProcessorBasedRefactoring_check_condition_participant_failed,
+					job.fParticipant.getName())));
+				fParticipants.remove(job.fParticipant);
+			} else if (!result.hasFatalError()) {
+				result.merge((RefactoringStatus) job.fResult);
+			}
+		}
+	}
+
+	/**
+	 * Creates the pre-changes and changes of all thread safe participants
+	 * concurrently. The participants only see the text changes of the
+	 * processor and of the participants which are not thread safe.
+	 *
+	 * @param participantChanges the map to put the pre-change and change of each participant into
+	 * @param pm the progress monitor, with one unit of work per participant
+	 * @throws CoreException if a participant throws one
+	 */
+	private void createChangesConcurrently(Map/*<RefactoringParticipant, Change[]>*/ participantChanges, IProgressMonitor pm) throws CoreException {
+		ParticipantJobGroup group= new ParticipantJobGroup();
+		for (Iterator iter= fParticipants.iterator(); iter.hasNext();) {
+			final RefactoringParticipant participant= (RefactoringParticipant) iter.next();
+			if (!isThreadSafe(participant))
+				continue;
+			final PerformanceStats stats= PerformanceStats.getStats(PERF_CREATE_CHANGES, getName() + ", " + participant.getName()); //$NON-NLS-1$
+			group.schedule(new ParticipantJob(participant) {
+				protected Object execute(IProgressMonitor monitor) throws CoreException {
+					stats.startRun();
+					try {
+						monitor.beginTask("", 2); //$NON-NLS-1$
+						Change preChange= participant.createPreChange(new SubProgressMonitor(monitor, 1));
+						Change change= participant.createChange(new SubProgressMonitor(monitor, 1));
+						return new Change[] { preChange, change };
+					} finally {
+						monitor.done();
+						stats.endRun();
+					}
+				}
+			});
+		}
+		group.join(0, pm);
+
+		ParticipantJob[] jobs= group.getJobs();
+		for (int i= 0; i < jobs.length; i++) {
+			ParticipantJob job= jobs[i];
+			if (job.fException instanceof OperationCanceledException)
+				throw (OperationCanceledException) job.fException;
+			if (job.fException != null) {
+				disableParticipant(job.fParticipant, job.fException);
+				if (job.fException instanceof CoreException)
+					throw (CoreException) job.fException;
+				throw (RuntimeException) job.fException;
+			}
+			Change[] participantChange= (Change[]) job.fResult;
+			for (int j= 0; j < participantChange.length; j++) {
+				if (participantChange[j] != null)
+					addToTextChangeMap(participantChange[j]);
+			}
+			participantChanges.put(job.fParticipant, participantChange);
+		}
+	}
+
+	/**
+	 * Returns whether the given participants are processed concurrently. This
+	 * is the case if the concurrent participants preference is enabled and at
+	 * least two of the participants are thread safe.
+	 *
+	 * @param participants the participants
+	 * @return <code>true</code> if the thread safe participants run concurrently
+	 */
+	private static boolean isConcurrent(List/*<RefactoringParticipant>*/ participants) {
+		if (participants.size() < 2 || !Platform.getPreferencesService().getBoolean(RefactoringCorePlugin.getPluginId(), RefactoringPreferenceConstants.PREFERENCE_CONCURRENT_PARTICIPANTS, false, null))
+			return false;
+		int threadSafe= 0;
+		for (Iterator iter= participants.iterator(); iter.hasNext();) {
+			if (isThreadSafe((RefactoringParticipant) iter.next()) && ++threadSafe > 1)
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean isThreadSafe(RefactoringParticipant participant) {
+		ParticipantDescriptor descriptor= participant.getDescriptor();
+		return descriptor != null && descriptor.isThreadSafe();
+	}
+
+	private static long getParticipantTimeBudget() {
+		return Platform.getPreferencesService().getLong(RefactoringCorePlugin.getPluginId(), RefactoringPreferenceConstants.PREFERENCE_PARTICIPANT_TIME_BUDGET, 0, null);
+	}
+
 	private static void disableParticipant(final RefactoringParticipant participant, Throwable e) {
 		ParticipantDescriptor descriptor= participant.getDescriptor();
 		descriptor.disable();
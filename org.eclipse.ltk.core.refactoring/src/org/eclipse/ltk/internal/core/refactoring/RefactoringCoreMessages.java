@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -138,6 +138,8 @@ public final class RefactoringCoreMessages extends NLS {
 
 	public static String ProcessorBasedRefactoring_initial_conditions;
 
+	public static String ProcessorBasedRefactoring_participant_time_budget_exceeded;
+
 	public static String ProcessorBasedRefactoring_prechange_participants_removed;
 
 	public static String Refactoring_execute_label;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,24 @@ public final class RefactoringPreferenceConstants {
 	/** The shared refactoring history preference */
 	public static final String PREFERENCE_SHARED_REFACTORING_HISTORY= "org.eclipse.ltk.core.refactoring.enable.project.refactoring.history"; //$NON-NLS-1$
 
+	/**
+	 * The concurrent participants preference. If <code>true</code>, thread
+	 * safe participants check their conditions and create their changes
+	 * concurrently.
+	 *
+	 * @since 3.6.100
+	 */
+	public static final String PREFERENCE_CONCURRENT_PARTICIPANTS= "org.eclipse.ltk.core.refactoring.concurrent.participants"; //$NON-NLS-1$
+
+	/**
+	 * The participant time budget preference. The time in milliseconds a
+	 * thread safe participant may take to check its conditions, or
+	 * <code>0</code> for no limit.
+	 *
+	 * @since 3.6.100
+	 */
+	public static final String PREFERENCE_PARTICIPANT_TIME_BUDGET= "org.eclipse.ltk.core.refactoring.participant.time.budget"; //$NON-NLS-1$
+
 	private RefactoringPreferenceConstants() {
 		// Not for instantiation
 	}
@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring.history;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+import org.eclipse.ltk.core.refactoring.RefactoringCore;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+
+/**
+ * Time stamp index of the refactoring history index files.
+ * <p>
+ * The index keeps the entries of every refactoring history index file it has
+ * read, sorted by time stamp. An index file is only read again if its
+ * modification time stamp or its length has changed. Range queries skip the
+ * year and month folders of the history tree (see
+ * {@link RefactoringHistoryManager#stampToPath(long)}) which cannot contain
+ * matching entries, and create proxies only for the matching entries.
+ * </p>
+ *
+ * @since 3.6.100
+ */
+final class RefactoringHistoryIndex {
+
+	/** The entries of one index file */
+	private static final class IndexEntry {
+
+		/** The descriptions, parallel to the time stamps */
+		private final String[] fDescriptions;
+
+		/** The length of the index file */
+		private final long fLength;
+
+		/** The modification time stamp of the index file */
+		private final long fModified;
+
+		/** The time stamps, in ascending order */
+		private final long[] fStamps;
+
+		/**
+		 * Creates a new index entry.
+		 *
+		 * @param info
+		 *            the file info of the index file
+		 * @param proxies
+		 *            the proxies read from the index file
+		 */
+		private IndexEntry(final IFileInfo info, final RefactoringDescriptorProxy[] proxies) {
+			fModified= info.getLastModified();
+			fLength= info.getLength();
+			RefactoringHistoryManager.sortRefactoringDescriptorsAscending(proxies);
+			fStamps= new long[proxies.length];
+			fDescriptions= new String[proxies.length];
+			for (int index= 0; index < proxies.length; index++) {
+				fStamps[index]= proxies[index].getTimeStamp();
+				fDescriptions[index]= proxies[index].getDescription();
+			}
+		}
+
+		/**
+		 * Is this entry up to date?
+		 *
+		 * @param info
+		 *            the current file info of the index file
+		 * @return <code>true</code> if the entry is up to date,
+		 *         <code>false</code> otherwise
+		 */
+		private boolean isCurrent(final IFileInfo info) {
+			return fModified == info.getLastModified() && fLength == info.getLength();
+		}
+
+		/**
+		 * Adds proxies for all entries in the specified range.
+		 *
+		 * @param project
+		 *            the name of the project, or <code>null</code> for the
+		 *            workspace
+		 * @param collection
+		 *            the collection of proxies to fill in
+		 * @param start
+		 *            the start time stamp, inclusive
+		 * @param end
+		 *            the end time stamp, inclusive
+		 */
+		private void addProxies(final String project, final Collection collection, final long start, final long end) {
+			int low= 0;
+			int high= fStamps.length;
+			while (low < high) {
+				final int middle= (low + high) >>> 1;
+				if (fStamps[middle] < start)
+					low= middle + 1;
+				else
+					high= middle;
+			}
+			for (int index= low; index < fStamps.length && fStamps[index] <= end; index++)
+				collection.add(new DefaultRefactoringDescriptorProxy(fDescriptions[index], project, fStamps[index]));
+		}
+	}
+
+	/** The singleton instance */
+	private static RefactoringHistoryIndex fgInstance= null;
+
+	/**
+	 * Returns the singleton instance of the index.
+	 *
+	 * @return the singleton instance
+	 */
+	static synchronized RefactoringHistoryIndex getInstance() {
+		if (fgInstance == null)
+			fgInstance= new RefactoringHistoryIndex();
+		return fgInstance;
+	}
+
+	/**
+	 * Returns the year and month folder numbers of the time stamp the
+	 * specified calendar is set to.
+	 *
+	 * @param calendar
+	 *            the calendar set to a time stamp
+	 * @return the folder numbers, as in
+	 *         {@link RefactoringHistoryManager#stampToPath(long)}
+	 */
+	private static int[] getFolders(final Calendar calendar) {
+		return new int[] { calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1 };
+	}
+
+	/**
+	 * Compares the folder path of a history tree folder with the folders of a
+	 * time stamp.
+	 *
+	 * @param path
+	 *            the folder numbers from the history root to the folder
+	 * @param depth
+	 *            the number of valid folder numbers in <code>path</code>
+	 * @param folders
+	 *            the folder numbers of the time stamp
+	 * @return a negative number, zero or a positive number if the folder is
+	 *         before, contains or is after the time stamp
+	 */
+	private static int compareFolders(final int[] path, final int depth, final int[] folders) {
+		for (int index= 0; index < depth; index++) {
+			if (path[index] != folders[index])
+				return path[index] < folders[index] ? -1 : 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Parses the name of a history tree folder.
+	 *
+	 * @param name
+	 *            the folder name
+	 * @return the folder number, or <code>-1</code> if the name is not a
+	 *         number
+	 */
+	private static int parseFolder(final String name) {
+		final int length= name.length();
+		if (length == 0 || length > 9)
+			return -1;
+		int result= 0;
+		for (int index= 0; index < length; index++) {
+			final char character= name.charAt(index);
+			if (character < '0' || character > '9')
+				return -1;
+			result= result * 10 + (character - '0');
+		}
+		return result;
+	}
+
+	/** The index entries (element type: <code>&lt;IFileStore, IndexEntry&gt;</code>) */
+	private final Map fEntries= new HashMap();
+
+	/**
+	 * Creates a new refactoring history index.
+	 */
+	private RefactoringHistoryIndex() {
+		// Not for instantiation
+	}
+
+	/**
+	 * Discards all index entries.
+	 */
+	synchronized void clear() {
+		fEntries.clear();
+	}
+
+	/**
+	 * Returns the up to date entry of the specified index file.
+	 *
+	 * @param store
+	 *            the index file
+	 * @param info
+	 *            the current file info of the index file
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @return the index entry
+	 * @throws CoreException
+	 *             if an error occurs while reading the index file
+	 */
+	private IndexEntry getEntry(final IFileStore store, final IFileInfo info, final IProgressMonitor monitor) throws CoreException {
+		synchronized (this) {
+			final IndexEntry entry= (IndexEntry) fEntries.get(store);
+			if (entry != null && entry.isCurrent(info))
+				return entry;
+		}
+		InputStream stream= null;
+		try {
+			stream= store.openInputStream(EFS.NONE, monitor);
+			final IndexEntry entry= new IndexEntry(info, RefactoringHistoryManager.readRefactoringDescriptorProxies(stream, null, 0, Long.MAX_VALUE));
+			synchronized (this) {
+				fEntries.put(store, entry);
+			}
+			return entry;
+		} catch (IOException exception) {
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCore.ID_PLUGIN, IRefactoringCoreStatusCodes.REFACTORING_HISTORY_IO_ERROR, exception.getLocalizedMessage(), exception));
+		} finally {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException exception) {
+					// Do nothing
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards the entry of the specified index file.
+	 *
+	 * @param store
+	 *            the index file
+	 */
+	synchronized void invalidate(final IFileStore store) {
+		fEntries.remove(store);
+	}
+
+	/**
+	 * Reads refactoring descriptor proxies from the history tree spanned by
+	 * the specified file store.
+	 *
+	 * @param store
+	 *            the root of the history tree
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the
+	 *            workspace
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @param task
+	 *            the task label to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	void readRefactoringDescriptorProxies(final IFileStore store, final String project, final Collection collection, final long start, final long end, final IProgressMonitor monitor, final String task) throws CoreException {
+		final Calendar calendar= Calendar.getInstance(TimeZone.getTimeZone("GMT+00:00")); //$NON-NLS-1$
+		calendar.setTimeInMillis(start);
+		final int[] first= getFolders(calendar);
+		calendar.setTimeInMillis(end);
+		final int[] last= getFolders(calendar);
+		readRefactoringDescriptorProxies(store, new int[first.length], 0, first, last, project, collection, start, end, monitor, task);
+	}
+
+	/**
+	 * Reads refactoring descriptor proxies from a folder of the history tree.
+	 *
+	 * @param store
+	 *            the folder
+	 * @param path
+	 *            the folder numbers from the history root to the folder
+	 * @param depth
+	 *            the depth of the folder below the history root
+	 * @param first
+	 *            the folder numbers of the start time stamp
+	 * @param last
+	 *            the folder numbers of the end time stamp
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the
+	 *            workspace
+	 * @param collection
+	 *            the collection of proxies to fill in
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @param task
+	 *            the task label to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private void readRefactoringDescriptorProxies(final IFileStore store, final int[] path, final int depth, final int[] first, final int[] last, final String project, final Collection collection, final long start, final long end, final IProgressMonitor monitor, final String task) throws CoreException {
+		try {
+			monitor.beginTask(task, 10);
+			final IFileInfo[] infos= store.childInfos(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			final IProgressMonitor subMonitor= new SubProgressMonitor(monitor, 9);
+			try {
+				subMonitor.beginTask(task, infos.length);
+				for (int index= 0; index < infos.length; index++) {
+					if (subMonitor.isCanceled())
+						throw new OperationCanceledException();
+					final IFileInfo info= infos[index];
+					final String name= info.getName();
+					if (info.isDirectory()) {
+						if (depth < path.length) {
+							final int folder= parseFolder(name);
+							if (folder >= 0) {
+								path[depth]= folder;
+								if (compareFolders(path, depth + 1, first) < 0 || compareFolders(path, depth + 1, last) > 0) {
+									subMonitor.worked(1);
+									continue;
+								}
+							} else {
+								// not part of the history tree structure: do not prune below
+								readRefactoringDescriptorProxies(store.getChild(name), path, path.length, first, last, project, collection, start, end, new SubProgressMonitor(subMonitor, 1), task);
+								continue;
+							}
+						}
+						readRefactoringDescriptorProxies(store.getChild(name), path, Math.min(depth + 1, path.length), first, last, project, collection, start, end, new SubProgressMonitor(subMonitor, 1), task);
+					} else {
+						if (info.exists() && name.equalsIgnoreCase(RefactoringHistoryService.NAME_INDEX_FILE))
+							getEntry(store.getChild(name), info, new SubProgressMonitor(subMonitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).addProxies(project, collection, start, end);
+						else
+							subMonitor.worked(1);
+					}
+				}
+			} finally {
+				subMonitor.done();
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,12 +13,15 @@ package org.eclipse.ltk.internal.core.refactoring.history;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -29,6 +32,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -554,6 +558,7 @@ public final class RefactoringHistoryManager {
 			output= new BufferedOutputStream(file.openOutputStream(flags, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
 			writeRefactoringDescriptorProxies(output, proxies);
 		} finally {
+			RefactoringHistoryIndex.getInstance().invalidate(file);
 			monitor.done();
 			if (output != null) {
 				try {
@@ -768,8 +773,51 @@ public final class RefactoringHistoryManager {
 		writer.flush();
 	}
 
-	/** The cached session descriptor, or <code>null</code> */
-	private RefactoringSessionDescriptor fCachedDescriptor= null;
+	/** Maximal number of cached refactoring sessions */
+	private static final int MAX_CACHED_SESSIONS= 16;
+
+	/** A refactoring session read from a history file */
+	private static final class CachedSession {
+
+		/** The refactoring descriptors (element type: <code>&lt;Long, RefactoringDescriptor&gt;</code>) */
+		private final Map fDescriptors;
+
+		/** The length of the history file */
+		private final long fLength;
+
+		/** The modification time stamp of the history file */
+		private final long fModified;
+
+		/**
+		 * Creates a new cached session.
+		 *
+		 * @param info
+		 *            the file info of the history file
+		 * @param descriptor
+		 *            the session descriptor read from the history file
+		 */
+		private CachedSession(final IFileInfo info, final RefactoringSessionDescriptor descriptor) {
+			fModified= info.getLastModified();
+			fLength= info.getLength();
+			final RefactoringDescriptor[] descriptors= descriptor.getRefactorings();
+			fDescriptors= new HashMap(descriptors.length * 2);
+			for (int index= 0; index < descriptors.length; index++)
+				fDescriptors.put(new Long(descriptors[index].getTimeStamp()), descriptors[index]);
+		}
+	}
+
+	/**
+	 * The cached refactoring sessions, in access order (element type:
+	 * <code>&lt;IFileStore, CachedSession&gt;</code>)
+	 */
+	private final Map fCachedSessions= new LinkedHashMap(MAX_CACHED_SESSIONS, 0.75f, true) {
+
+		private static final long serialVersionUID= 1L;
+
+		protected final boolean removeEldestEntry(final Map.Entry entry) {
+			return size() > MAX_CACHED_SESSIONS;
+		}
+	};
 
 	/** The cached document, or <code>null</code> */
 	private Document fCachedDocument= null;
@@ -777,9 +825,6 @@ public final class RefactoringHistoryManager {
 	/** The cached path, or <code>null</code> */
 	private IPath fCachedPath= null;
 
-	/** The cached file store, or <code>null</code> */
-	private IFileStore fCachedStore= null;
-
 	/** The history file store */
 	private final IFileStore fHistoryStore;
 
@@ -831,6 +876,14 @@ public final class RefactoringHistoryManager {
 				final IFileStore index= folder.getChild(RefactoringHistoryService.NAME_INDEX_FILE);
 				final RefactoringDescriptorProxy[] proxies= new RefactoringDescriptorProxy[] { new DefaultRefactoringDescriptorProxy(descriptor.getDescription(), descriptor.getProject(), descriptor.getTimeStamp())};
 				if (history.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists()) {
+					if (!sort && appendHistoryEntry(history, path, descriptor)) {
+						try {
+							writeIndexEntry(index, proxies, EFS.APPEND, new SubProgressMonitor(monitor, 16, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL), RefactoringCoreMessages.RefactoringHistoryService_updating_history);
+						} catch (IOException exception) {
+							throw createCoreException(exception);
+						}
+						return;
+					}
 					InputStream input= null;
 					try {
 						input= new BufferedInputStream(history.openInputStream(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
@@ -901,6 +954,84 @@ public final class RefactoringHistoryManager {
 		}
 	}
 
+	/**
+	 * Appends the specified refactoring descriptor to an existing history file
+	 * in place.
+	 * <p>
+	 * Only the end tag of the session is rewritten. The resulting file is the
+	 * same as if the history had been read into a document, the descriptor had
+	 * been appended to the document and the document had been written again.
+	 * </p>
+	 *
+	 * @param file
+	 *            the refactoring history file
+	 * @param path
+	 *            the path of the history entry
+	 * @param descriptor
+	 *            the refactoring descriptor to append
+	 * @return <code>true</code> if the descriptor has been appended,
+	 *         <code>false</code> if the file is not local or does not end with
+	 *         the end tag of a session
+	 * @throws CoreException
+	 *             if an error occurs while appending the descriptor
+	 */
+	private boolean appendHistoryEntry(final IFileStore file, final IPath path, final RefactoringDescriptor descriptor) throws CoreException {
+		final File local= file.toLocalFile(EFS.NONE, null);
+		if (local == null)
+			return false;
+		RandomAccessFile output= null;
+		try {
+			output= new RandomAccessFile(local, "rw"); //$NON-NLS-1$
+			final byte[] endTag= ("</" + IRefactoringSerializationConstants.ELEMENT_SESSION + ">").getBytes(IRefactoringSerializationConstants.OUTPUT_ENCODING); //$NON-NLS-1$ //$NON-NLS-2$
+			final long length= output.length();
+			final byte[] tail= new byte[(int) Math.min(length, 64)];
+			output.seek(length - tail.length);
+			output.readFully(tail);
+			int offset= tail.length;
+			while (offset > 0 && Character.isWhitespace((char) tail[offset - 1]))
+				offset--;
+			offset-= endTag.length;
+			if (offset < 0)
+				return false;
+			for (int index= 0; index < endTag.length; index++) {
+				if (tail[offset + index] != endTag[index])
+					return false;
+			}
+
+			final Document result= transformDescriptor(descriptor, false);
+			final StringWriter buffer= new StringWriter(256);
+			final DOMWriter writer= new DOMWriter(buffer);
+			writer.printElement((Element) result.getElementsByTagName(IRefactoringSerializationConstants.ELEMENT_REFACTORING).item(0));
+			writer.println();
+			writer.print(new String(endTag, IRefactoringSerializationConstants.OUTPUT_ENCODING));
+			writer.flush();
+			final byte[] bytes= buffer.toString().getBytes(IRefactoringSerializationConstants.OUTPUT_ENCODING);
+
+			final long position= length - tail.length + offset;
+			output.seek(position);
+			output.write(bytes);
+			output.setLength(position + bytes.length);
+			return true;
+		} catch (IOException exception) {
+			throw createCoreException(exception);
+		} finally {
+			if (path.equals(fCachedPath)) {
+				fCachedDocument= null;
+				fCachedPath= null;
+			}
+			synchronized (fCachedSessions) {
+				fCachedSessions.remove(file);
+			}
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException exception) {
+					// Do nothing
+				}
+			}
+		}
+	}
+
 	/**
 	 * Returns the cached refactoring history document.
 	 *
@@ -928,27 +1059,39 @@ public final class RefactoringHistoryManager {
 	}
 
 	/**
-	 * Returns the cached refactoring session descriptor.
+	 * Returns the cached refactoring session read from the specified history
+	 * file.
+	 * <p>
+	 * The session is read again if the history file has changed since it has
+	 * been cached.
+	 * </p>
 	 *
 	 * @param store
-	 *            the file store of the descriptor
+	 *            the file store of the history file
+	 * @param info
+	 *            the current file info of the history file
 	 * @param projectName
 	 *            project name, or <code>null</code> for the workspace
-	 * @param input
-	 *            the input stream where to read the descriptor
-	 * @return the cached refactoring session descriptor
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @return the cached refactoring session
 	 * @throws CoreException
 	 *             if an error occurs while reading the session
 	 */
-	private RefactoringSessionDescriptor getCachedSession(final IFileStore store, String projectName, final InputStream input) throws CoreException {
-		if (store.equals(fCachedStore) && fCachedDescriptor != null)
-			return fCachedDescriptor;
-		final RefactoringSessionDescriptor descriptor;
+	private CachedSession getCachedSession(final IFileStore store, final IFileInfo info, final String projectName, final IProgressMonitor monitor) throws CoreException {
+		synchronized (fCachedSessions) {
+			final CachedSession session= (CachedSession) fCachedSessions.get(store);
+			if (session != null && session.fModified == info.getLastModified() && session.fLength == info.getLength())
+				return session;
+		}
+		InputStream input= null;
 		try {
-			descriptor= new RefactoringSessionReader(false, projectName).readSession(new InputSource(input));
-			fCachedDescriptor= descriptor;
-			fCachedStore= store;
-			return descriptor;
+			input= new BufferedInputStream(store.openInputStream(EFS.NONE, monitor));
+			final CachedSession session= new CachedSession(info, new RefactoringSessionReader(false, projectName).readSession(new InputSource(input)));
+			synchronized (fCachedSessions) {
+				fCachedSessions.put(store, session);
+			}
+			return session;
 		} catch (CoreException e) {
 			throw new CoreException(new MultiStatus(
 					RefactoringCorePlugin.getPluginId(),
@@ -956,6 +1099,14 @@ public final class RefactoringHistoryManager {
 					new IStatus[] { e.getStatus() },
 					Messages.format(RefactoringCoreMessages.RefactoringHistoryManager_error_reading_file, BasicElementLabels.getURLPart(store.toURI().toString())),
 					null));
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException exception) {
+					RefactoringCorePlugin.log(exception);
+				}
+			}
 		}
 	}
 
@@ -975,11 +1126,12 @@ public final class RefactoringHistoryManager {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 200);
 			final Set set= new HashSet();
 			try {
+				final RefactoringHistoryIndex index= RefactoringHistoryIndex.getInstance();
 				if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					index.readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
 				final IFileStore store= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER).getChild(RefactoringHistoryService.NAME_WORKSPACE_PROJECT);
 				if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					index.readRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
 			} catch (CoreException exception) {
 				RefactoringCorePlugin.log(exception);
 			}
@@ -1140,32 +1292,16 @@ public final class RefactoringHistoryManager {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_resolving_information, 2);
 			final long stamp= proxy.getTimeStamp();
 			if (stamp >= 0) {
-				InputStream input= null;
 				try {
 					final IFileStore folder= fHistoryStore.getFileStore(stampToPath(stamp));
 					final IFileStore file= folder.getChild(RefactoringHistoryService.NAME_HISTORY_FILE);
-					if (file.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists()) {
-						input= new BufferedInputStream(file.openInputStream(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
-						final RefactoringSessionDescriptor descriptor= getCachedSession(file, fProjectName, input);
-						if (descriptor != null) {
-							final RefactoringDescriptor[] descriptors= descriptor.getRefactorings();
-							for (int index= 0; index < descriptors.length; index++) {
-								final RefactoringDescriptor refactoringDescriptor= descriptors[index];
-								if (refactoringDescriptor.getTimeStamp() == stamp) {
-									return refactoringDescriptor;
-								}
-							}
-						}
+					final IFileInfo info= file.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+					if (info.exists()) {
+						final CachedSession session= getCachedSession(file, info, fProjectName, new SubProgressMonitor(monitor, 1, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+						return (RefactoringDescriptor) session.fDescriptors.get(new Long(stamp));
 					}
 				} catch (CoreException exception) {
 					RefactoringCorePlugin.log(exception);
-				} finally {
-					try {
-						if (input != null)
-							input.close();
-					} catch (IOException exception) {
-						RefactoringCorePlugin.log(exception);
-					}
 				}
 			}
 		} finally {
@@ -1261,8 +1397,9 @@ public final class RefactoringHistoryManager {
 				} finally {
 					fCachedDocument= null;
 					fCachedPath= null;
-					fCachedDescriptor= null;
-					fCachedStore= null;
+					synchronized (fCachedSessions) {
+						fCachedSessions.remove(file);
+					}
 				if (output != null) {
 					try {
 						output.close();
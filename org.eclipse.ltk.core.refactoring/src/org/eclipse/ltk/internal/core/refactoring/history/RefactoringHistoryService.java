@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -161,15 +161,19 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 		Assert.isTrue(flags > RefactoringDescriptor.NONE);
 		try {
 			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, proxies.length);
-			for (int offset= 0; offset < proxies.length; offset++) {
-				final RefactoringDescriptor descriptor= proxies[offset].requestDescriptor(new SubProgressMonitor(monitor, 1));
+			// resolve in time stamp order, so that each history file is read only once
+			final RefactoringDescriptorProxy[] sorted= new RefactoringDescriptorProxy[proxies.length];
+			System.arraycopy(proxies, 0, sorted, 0, proxies.length);
+			RefactoringHistoryManager.sortRefactoringDescriptorsAscending(sorted);
+			for (int offset= 0; offset < sorted.length; offset++) {
+				final RefactoringDescriptor descriptor= sorted[offset].requestDescriptor(new SubProgressMonitor(monitor, 1));
 				if (descriptor != null) {
 					final int filter= descriptor.getFlags();
 					if ((filter | flags) == filter) {
 						if (resolve)
 							set.add(new RefactoringDescriptorProxyAdapter(descriptor));
 						else
-							set.add(proxies[offset]);
+							set.add(sorted[offset]);
 					}
 				}
 			}
@@ -566,6 +570,7 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 			if (fResourceListener != null)
 				ResourcesPlugin.getWorkspace().removeResourceChangeListener(fResourceListener);
 			fOperationListener= null;
+			RefactoringHistoryIndex.getInstance().clear();
 		}
 	}
 